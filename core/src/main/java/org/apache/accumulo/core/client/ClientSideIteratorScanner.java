@@ -57,6 +57,8 @@ public class ClientSideIteratorScanner extends ScannerOptions implements Scanner
   
   private Range range;
   private boolean isolated = false;
+  private boolean cacheBlocks = true;
+  private int streamingWindow = 0;
   
   /**
    * A class that wraps a Scanner in a SortedKeyValueIterator so that other accumulo iterators can use it as a source.
@@ -137,6 +139,8 @@ public class ClientSideIteratorScanner extends ScannerOptions implements Scanner
     this.range = scanner.getRange();
     this.size = scanner.getBatchSize();
     this.timeOut = scanner.getTimeout(TimeUnit.MILLISECONDS);
+    this.cacheBlocks = scanner.getCacheBlocks();
+    this.streamingWindow = scanner.getStreamingWindow();
   }
   
   /**
@@ -156,6 +160,8 @@ public class ClientSideIteratorScanner extends ScannerOptions implements Scanner
       smi.scanner.enableIsolation();
     else
       smi.scanner.disableIsolation();
+    smi.scanner.setCacheBlocks(cacheBlocks);
+    smi.scanner.setStreamingWindow(streamingWindow);
     
     final TreeMap<Integer,IterInfo> tm = new TreeMap<Integer,IterInfo>();
     
@@ -254,4 +260,26 @@ public class ClientSideIteratorScanner extends ScannerOptions implements Scanner
   public void disableIsolation() {
     this.isolated = false;
   }
+  
+  @Override
+  public void setCacheBlocks(boolean cacheBlocks) {
+    this.cacheBlocks = cacheBlocks;
+  }
+  
+  @Override
+  public boolean getCacheBlocks() {
+    return cacheBlocks;
+  }
+  
+  @Override
+  public void setStreamingWindow(int window) {
+    if (window < 0)
+      throw new IllegalArgumentException("streaming window must be non-negative");
+    this.streamingWindow = window;
+  }
+  
+  @Override
+  public int getStreamingWindow() {
+    return streamingWindow;
+  }
 }
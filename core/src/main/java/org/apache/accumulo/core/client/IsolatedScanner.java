@@ -278,4 +278,24 @@ public class IsolatedScanner extends ScannerOptions implements Scanner {
   public void disableIsolation() {
     throw new UnsupportedOperationException();
   }
+  
+  @Override
+  public void setCacheBlocks(boolean cacheBlocks) {
+    scanner.setCacheBlocks(cacheBlocks);
+  }
+  
+  @Override
+  public boolean getCacheBlocks() {
+    return scanner.getCacheBlocks();
+  }
+  
+  @Override
+  public void setStreamingWindow(int window) {
+    scanner.setStreamingWindow(window);
+  }
+  
+  @Override
+  public int getStreamingWindow() {
+    return scanner.getStreamingWindow();
+  }
 }
@@ -85,4 +85,39 @@ public interface Scanner extends ScannerBase {
    * Disables row isolation. Writes that occur to a row after a scan of that row has begun may be seen if this option is enabled.
    */
   void disableIsolation();
+  
+  /**
+   * Controls whether data blocks read from files on the tablet server for this scan are added to the tablet server's data cache. Blocks that are already cached
+   * are used either way. Disabling this for large one-time scans keeps them from evicting blocks that are read frequently by other scans. Caching is enabled by
+   * default.
+   * 
+   * @param cacheBlocks
+   *          true to add blocks read by this scan to the data cache
+   * @since 1.5.0
+   */
+  void setCacheBlocks(boolean cacheBlocks);
+  
+  /**
+   * @return true if data blocks read by this scan will be added to the tablet server's data cache
+   * @since 1.5.0
+   */
+  boolean getCacheBlocks();
+  
+  /**
+   * Streams the scan from each tablet server. Instead of reading one batch per request, the tablet server reads ahead up to this many batches and every request
+   * returns all of the batches that are ready. The window is the number of batches the client lets the server buffer for it, so a larger window keeps the
+   * connection busy at the cost of more server memory per scan. Tablet servers cap the window with tserver.scan.stream.window.max. Streaming is disabled by
+   * default.
+   * 
+   * @param window
+   *          the number of batches the tablet server may read ahead, or 0 to read one batch per request
+   * @since 1.5.0
+   */
+  void setStreamingWindow(int window);
+  
+  /**
+   * @return the number of batches the tablet server may read ahead for this scan, 0 if streaming is disabled
+   * @since 1.5.0
+   */
+  int getStreamingWindow();
 }
@@ -340,6 +340,7 @@ public class OfflineScanner extends ScannerOptions implements Scanner {
   
   private int batchSize;
   private int timeOut;
+  private int streamingWindow = 0;
   private Range range;
   
   private Instance instance;
@@ -402,6 +403,29 @@ public class OfflineScanner extends ScannerOptions implements Scanner {
     
   }
   
+  @Override
+  public void setCacheBlocks(boolean cacheBlocks) {
+    
+  }
+  
+  @Override
+  public boolean getCacheBlocks() {
+    return true;
+  }
+  
+  @Override
+  public void setStreamingWindow(int window) {
+    if (window < 0)
+      throw new IllegalArgumentException("streaming window must be non-negative");
+    // offline scans read the files directly, so there are no server batches to stream and the window is only kept for getStreamingWindow()
+    this.streamingWindow = window;
+  }
+  
+  @Override
+  public int getStreamingWindow() {
+    return streamingWindow;
+  }
+  
   @Override
   public Iterator<Entry<Key,Value>> iterator() {
     return new OfflineIterator(this, instance, credentials, authorizations, tableId, range);
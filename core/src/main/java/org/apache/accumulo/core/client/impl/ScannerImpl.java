@@ -58,6 +58,8 @@ public class ScannerImpl extends ScannerOptions implements Scanner {
   
   private Range range;
   private boolean isolated = false;
+  private boolean cacheBlocks = true;
+  private int streamingWindow = 0;
   
   public ScannerImpl(Instance instance, InstanceTokenWrapper credentials, String table, Authorizations authorizations) {
     ArgumentChecker.notNull(instance, credentials, table, authorizations);
@@ -100,7 +102,7 @@ public class ScannerImpl extends ScannerOptions implements Scanner {
    */
   @Override
   public synchronized Iterator<Entry<Key,Value>> iterator() {
-    return new ScannerIterator(instance, credentials, table, authorizations, range, size, getTimeOut(), this, isolated);
+    return new ScannerIterator(instance, credentials, table, authorizations, range, size, getTimeOut(), this, isolated, cacheBlocks, streamingWindow);
   }
   
   @Override
@@ -113,6 +115,28 @@ public class ScannerImpl extends ScannerOptions implements Scanner {
     this.isolated = false;
   }
   
+  @Override
+  public synchronized void setCacheBlocks(boolean cacheBlocks) {
+    this.cacheBlocks = cacheBlocks;
+  }
+  
+  @Override
+  public synchronized boolean getCacheBlocks() {
+    return cacheBlocks;
+  }
+  
+  @Override
+  public synchronized void setStreamingWindow(int window) {
+    if (window < 0)
+      throw new IllegalArgumentException("streaming window must be non-negative");
+    this.streamingWindow = window;
+  }
+  
+  @Override
+  public synchronized int getStreamingWindow() {
+    return streamingWindow;
+  }
+  
   @Deprecated
   @Override
   public void setTimeOut(int timeOut) {
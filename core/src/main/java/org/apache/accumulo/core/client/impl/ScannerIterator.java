@@ -122,7 +122,7 @@ public class ScannerIterator implements Iterator<Entry<Key,Value>> {
   }
   
   ScannerIterator(Instance instance, InstanceTokenWrapper credentials, Text table, Authorizations authorizations, Range range, int size, int timeOut,
-      ScannerOptions options, boolean isolated) {
+      ScannerOptions options, boolean isolated, boolean cacheBlocks, int streamingWindow) {
     this.instance = instance;
     this.tableName = new Text(table);
     this.timeOut = timeOut;
@@ -137,7 +137,7 @@ public class ScannerIterator implements Iterator<Entry<Key,Value>> {
     }
     
     scanState = new ScanState(credentials, tableName, authorizations, new Range(range), options.fetchedColumns, size, options.serverSideIteratorList,
-        options.serverSideIteratorOptions, isolated);
+        options.serverSideIteratorOptions, isolated, cacheBlocks, streamingWindow);
     readaheadInProgress = false;
     iter = null;
   }
@@ -184,7 +184,8 @@ public class ScannerIterator implements Iterator<Entry<Key,Value>> {
       iter = currentBatch.iterator();
       batchCount++;
       
-      if (batchCount > 3) {
+      // a streaming scan already has the server reading ahead, so keep a request outstanding from the start
+      if (batchCount > 3 || scanState.streamingWindow > 0) {
         // start a thread to read the next batch
         initiateReadAhead();
       }
@@ -130,7 +130,7 @@ public class ThriftScanner {
         boolean waitForWrites = !serversWaitedForWrites.get(ttype).contains(server);
         InitialScan isr = client.startScan(tinfo, scanState.credentials.toThrift(), extent.toThrift(), scanState.range.toThrift(),
             Translator.translate(scanState.columns, Translator.CT), scanState.size, scanState.serverSideIteratorList, scanState.serverSideIteratorOptions,
-            scanState.authorizations.getAuthorizationsBB(), waitForWrites, scanState.isolated);
+            scanState.authorizations.getAuthorizationsBB(), waitForWrites, scanState.isolated, scanState.cacheBlocks);
         if (waitForWrites)
           serversWaitedForWrites.get(ttype).add(server);
         
@@ -162,6 +162,8 @@ public class ThriftScanner {
   public static class ScanState {
     
     boolean isolated;
+    boolean cacheBlocks;
+    int streamingWindow;
     Text tableName;
     Text startRow;
     boolean skipStartRow;
@@ -185,6 +187,17 @@ public class ThriftScanner {
     
     public ScanState(InstanceTokenWrapper credentials, Text tableName, Authorizations authorizations, Range range, SortedSet<Column> fetchedColumns, int size,
         List<IterInfo> serverSideIteratorList, Map<String,Map<String,String>> serverSideIteratorOptions, boolean isolated) {
+      this(credentials, tableName, authorizations, range, fetchedColumns, size, serverSideIteratorList, serverSideIteratorOptions, isolated, true);
+    }
+    
+    public ScanState(InstanceTokenWrapper credentials, Text tableName, Authorizations authorizations, Range range, SortedSet<Column> fetchedColumns, int size,
+        List<IterInfo> serverSideIteratorList, Map<String,Map<String,String>> serverSideIteratorOptions, boolean isolated, boolean cacheBlocks) {
+      this(credentials, tableName, authorizations, range, fetchedColumns, size, serverSideIteratorList, serverSideIteratorOptions, isolated, cacheBlocks, 0);
+    }
+    
+    public ScanState(InstanceTokenWrapper credentials, Text tableName, Authorizations authorizations, Range range, SortedSet<Column> fetchedColumns, int size,
+        List<IterInfo> serverSideIteratorList, Map<String,Map<String,String>> serverSideIteratorOptions, boolean isolated, boolean cacheBlocks,
+        int streamingWindow) {
       this.credentials = credentials;
       this.authorizations = authorizations;
       
@@ -210,6 +223,8 @@ public class ThriftScanner {
       this.serverSideIteratorOptions = serverSideIteratorOptions;
       
       this.isolated = isolated;
+      this.cacheBlocks = cacheBlocks;
+      this.streamingWindow = streamingWindow;
       
     }
   }
@@ -418,7 +433,7 @@ public class ThriftScanner {
         boolean waitForWrites = !serversWaitedForWrites.get(ttype).contains(loc.tablet_location);
         InitialScan is = client.startScan(tinfo, scanState.credentials.toThrift(), loc.tablet_extent.toThrift(), scanState.range.toThrift(),
             Translator.translate(scanState.columns, Translator.CT), scanState.size, scanState.serverSideIteratorList, scanState.serverSideIteratorOptions,
-            scanState.authorizations.getAuthorizationsBB(), waitForWrites, scanState.isolated);
+            scanState.authorizations.getAuthorizationsBB(), waitForWrites, scanState.isolated, scanState.cacheBlocks);
         if (waitForWrites)
           serversWaitedForWrites.get(ttype).add(loc.tablet_location);
         
@@ -435,7 +450,7 @@ public class ThriftScanner {
         Thread.currentThread().setName(msg);
         opTimer.start(msg);
         
-        sr = client.continueScan(tinfo, scanState.scanID);
+        sr = client.continueScan(tinfo, scanState.scanID, scanState.streamingWindow);
         if (!sr.more) {
           client.closeScan(tinfo, scanState.scanID);
           scanState.scanID = null;
@@ -34,6 +34,8 @@ public class MockScanner extends MockScannerBase implements Scanner {
   
   int batchSize = 0;
   Range range = new Range();
+  boolean cacheBlocks = true;
+  int streamingWindow = 0;
   
   MockScanner(MockTable table, Authorizations auths) {
     super(table, auths);
@@ -83,6 +85,28 @@ public class MockScanner extends MockScannerBase implements Scanner {
   @Override
   public void disableIsolation() {}
   
+  @Override
+  public void setCacheBlocks(boolean cacheBlocks) {
+    this.cacheBlocks = cacheBlocks;
+  }
+  
+  @Override
+  public boolean getCacheBlocks() {
+    return cacheBlocks;
+  }
+  
+  @Override
+  public void setStreamingWindow(int window) {
+    if (window < 0)
+      throw new IllegalArgumentException("streaming window must be non-negative");
+    this.streamingWindow = window;
+  }
+  
+  @Override
+  public int getStreamingWindow() {
+    return streamingWindow;
+  }
+  
   static class RangeFilter extends Filter {
     Range range;
     
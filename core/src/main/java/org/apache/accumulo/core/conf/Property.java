@@ -112,6 +112,22 @@ public enum Property {
   TSERV_DEFAULT_BLOCKSIZE("tserver.default.blocksize", "1M", PropertyType.MEMORY, "Specifies a default blocksize for the tserver caches"),
   TSERV_DATACACHE_SIZE("tserver.cache.data.size", "100M", PropertyType.MEMORY, "Specifies the size of the cache for file data blocks."),
   TSERV_INDEXCACHE_SIZE("tserver.cache.index.size", "512M", PropertyType.MEMORY, "Specifies the size of the cache for file indices."),
+  TSERV_CACHE_TYPE("tserver.cache.type", "lru", PropertyType.STRING,
+      "The implementation of the data and index caches.  'lru' keeps cached blocks on the java heap.  'sharded' also keeps blocks on the heap, but splits"
+          + " the cache into independently locked shards that evict on their own, which scales better with many concurrent readers.  'offheap' keeps cached"
+          + " blocks in memory outside of the java heap, so the cache sizes do not need to fit in the heap.  Direct memory is limited by the JVM option"
+          + " -XX:MaxDirectMemorySize.  'partitioned' keeps blocks on the heap and gives each table, or group of tables, its own share of the caches as"
+          + " set by table.cache.partition.*."),
+  TSERV_CACHE_OFFHEAP_DIR("tserver.cache.offheap.dir", "", PropertyType.PATH,
+      "When using the 'offheap' cache type, memory-map files in this local directory to hold cached blocks instead of allocating direct memory."),
+  TSERV_CACHE_L2_DIR("tserver.cache.l2.dir", "", PropertyType.PATH,
+      "A local directory, ideally on an SSD, in which to keep data blocks evicted from the data cache.  Blocks are read back from this directory before going"
+          + " to HDFS, and the directory is reloaded when the tablet server restarts.  Only used with the 'lru' and 'sharded' cache types."),
+  TSERV_CACHE_L2_SIZE("tserver.cache.l2.size", "0", PropertyType.MEMORY, "The maximum size of the blocks kept in tserver.cache.l2.dir.  The disk"
+      + " cache is disabled when this is zero."),
+  TSERV_CACHE_ADMISSION("tserver.cache.admission.enabled", "false", PropertyType.BOOLEAN,
+      "When using the 'lru' cache type, only add a block to a full cache if it has been requested more often recently than the blocks being evicted.  This"
+          + " keeps large scans of cold data from flushing frequently used blocks out of the cache."),
   TSERV_PORTSEARCH("tserver.port.search", "false", PropertyType.BOOLEAN, "if the ports above are in use, search higher ports until one is available"),
   TSERV_CLIENTPORT("tserver.port.client", "9997", PropertyType.PORT, "The port used for handling client connections on the tablet servers"),
   TSERV_MUTATION_QUEUE_MAX("tserver.mutation.queue.max", "256K", PropertyType.MEMORY,
@@ -122,6 +138,10 @@ public enum Property {
           + "must be made, which is slower. However opening too many files at once can cause problems."),
   TSERV_WALOG_MAX_SIZE("tserver.walog.max.size", "1G", PropertyType.MEMORY,
       "The maximum size for each write-ahead log.  See comment for property tserver.memory.maps.max"),
+  TSERV_WALOG_CONCURRENT("tserver.walog.concurrent", "1", PropertyType.COUNT,
+      "The number of write-ahead logs a tablet server keeps open at once.  Each commit is written to one of them, commits are spread across the logs "
+          + "and steered away from a log whose syncs become slow.  A tablet's updates go to one log until its next minor compaction, so recovery can "
+          + "replay them in order.  The size limit in tserver.walog.max.size applies to each log."),
   TSERV_MAJC_DELAY("tserver.compaction.major.delay", "30s", PropertyType.TIMEDURATION,
       "Time a tablet server will sleep between checking which tablets need compaction."),
   TSERV_MAJC_THREAD_MAXOPEN("tserver.compaction.major.thread.files.open.max", "10", PropertyType.COUNT,
@@ -132,6 +152,12 @@ public enum Property {
       + "This setting determines how much time an unused map file should be kept open until it is closed."),
   TSERV_NATIVEMAP_ENABLED("tserver.memory.maps.native.enabled", "true", PropertyType.BOOLEAN,
       "An in-memory data store for accumulo implemented in c++ that increases the amount of data " + "accumulo can hold in memory and avoids Java GC pauses."),
+  TSERV_OFFHEAPMAP_ENABLED("tserver.memory.maps.offheap.enabled", "false", PropertyType.BOOLEAN,
+      "When the native map is disabled or can not be loaded, store in-memory map data in direct buffers outside of the Java heap using a pure Java "
+          + "implementation.  The JVM must be allowed enough direct memory (-XX:MaxDirectMemorySize) to hold tserver.memory.maps.max."),
+  TSERV_MEMTABLE_PARTITIONS("tserver.memory.maps.partitions", "1", PropertyType.COUNT,
+      "The number of independently locked maps that each tablet's in-memory map is split into by row hash.  Using more than one lets concurrent writers "
+          + "to different rows of a heavily written tablet proceed in parallel, at the cost of merging the partitions when scanning."),
   TSERV_MAXMEM(
       "tserver.memory.maps.max",
       "1G",
@@ -145,12 +171,23 @@ public enum Property {
           + " limits the number of long running scans that can run concurrently per tserver."),
   TSERV_METADATA_READ_AHEAD_MAXCONCURRENT("tserver.metadata.readahead.concurrent.max", "8", PropertyType.COUNT,
       "The maximum number of concurrent metadata read ahead that will execute."),
+  TSERV_SCAN_STREAM_WINDOW_MAX("tserver.scan.stream.window.max", "8", PropertyType.COUNT,
+      "The maximum number of batches a tablet server will read ahead for a streaming scan.  A scanner asks for a window of batches, which is reduced to "
+          + "this value.  Each streaming scan can hold this many batches in memory while the client catches up."),
   TSERV_MIGRATE_MAXCONCURRENT("tserver.migrations.concurrent.max", "1", PropertyType.COUNT,
       "The maximum number of concurrent tablet migrations for a tablet server"),
   TSERV_MAJC_MAXCONCURRENT("tserver.compaction.major.concurrent.max", "3", PropertyType.COUNT,
       "The maximum number of concurrent major compactions for a tablet server"),
   TSERV_MINC_MAXCONCURRENT("tserver.compaction.minor.concurrent.max", "4", PropertyType.COUNT,
       "The maximum number of concurrent minor compactions for a tablet server"),
+  TSERV_CACHE_WARMUP_MAXCONCURRENT("tserver.cache.warmup.concurrent.max", "1", PropertyType.COUNT,
+      "The number of threads that load index and data blocks into the block caches after a tablet is assigned, for tables with"
+          + " table.cache.warmup.enable set."),
+  TSERV_CACHE_WARMUP_RATE("tserver.cache.warmup.rate", "8M", PropertyType.MEMORY,
+      "The maximum number of compressed bytes per second that cache warm-up reads across all tablets.  Zero means no limit."),
+  TSERV_PREFETCH_MAXCONCURRENT("tserver.prefetch.concurrent.max", "4", PropertyType.COUNT,
+      "The number of threads that read and decompress the next block of a file in the background while a scan or compaction reads the current one.  A"
+          + " reader only starts prefetching after it has read a few blocks in a row.  Setting this to zero disables prefetching."),
   TSERV_BLOOM_LOAD_MAXCONCURRENT("tserver.bloom.load.concurrent.max", "4", PropertyType.COUNT,
       "The number of concurrent threads that will load bloom filters in the background. "
           + "Setting this to zero will make bloom filters load in the foreground."),
@@ -185,8 +222,19 @@ public enum Property {
       "The size of the HDFS blocks used to write to the Write-Ahead log.  If zero, it will be 110% of tserver.walog.max.size (that is, try to use just one block)"),
   TSERV_WAL_REPLICATION("tserver.wal.replication", "0", PropertyType.COUNT,
       "The replication to use when writing the Write-Ahead log to HDFS. If zero, it will use the HDFS default replication setting."),
+  TSERV_WAL_GROUP_COMMIT_LATENCY("tserver.wal.group.commit.latency", "0ms", PropertyType.TIMEDURATION,
+      "The time a write-ahead log may hold back a sync, waiting for more updates to commit with it.  The wait is shortened by the time recent syncs "
+          + "have taken, so that an update waits about this long in total, and is skipped when syncs are already this slow.  Zero syncs as soon as an "
+          + "update arrives."),
+  TSERV_WAL_GROUP_COMMIT_SIZE("tserver.wal.group.commit.size", "1M", PropertyType.MEMORY,
+      "A write-ahead log stops waiting for more updates to commit together once this many bytes are waiting to be synced."),
   TSERV_RECOVERY_MAX_CONCURRENT("tserver.recovery.concurrent.max", "2", PropertyType.COUNT, "The maximum number of threads to use to sort logs during recovery"),
-  TSERV_SORT_BUFFER_SIZE("tserver.sort.buffer.size", "200M", PropertyType.MEMORY, "The amount of memory to use when sorting logs during recovery."),
+  TSERV_SORT_BUFFER_SIZE("tserver.sort.buffer.size", "200M", PropertyType.MEMORY,
+      "The amount of memory to use when sorting a log during recovery.  It is divided evenly among the parts of the log being read and sorted at once, "
+          + "one more than tserver.sort.threads."),
+  TSERV_SORT_THREADS("tserver.sort.threads", "2", PropertyType.COUNT,
+      "The number of threads that sort and write out parts of a log during recovery, while another thread reads the log.  More threads make the parts "
+          + "smaller, since they share tserver.sort.buffer.size."),
   TSERV_ARCHIVE_WALOGS("tserver.archive.walogs", "false", PropertyType.BOOLEAN, "Keep copies of the WALOGs for debugging purposes"),
   TSERV_WORKQ_THREADS("tserver.workq.threads", "2", PropertyType.COUNT,
       "The number of threads for the distributed workq.  These threads are used for copying failed bulk files."),
@@ -257,6 +305,10 @@ public enum Property {
           + Integer.MAX_VALUE),
   TABLE_FILE_COMPRESSED_BLOCK_SIZE_INDEX("table.file.compress.blocksize.index", "128K", PropertyType.MEMORY,
       "Determines how large index blocks can be in files that support multilevel indexes. The maximum value for this is " + Integer.MAX_VALUE),
+  TABLE_FILE_ROW_HASH_INDEX("table.file.row.hash.index", "false", PropertyType.BOOLEAN,
+      "Write a hash table of the rows in each data block of new files, so that seeking to a row in a block that is in memory jumps straight to the row "
+          + "instead of reading every entry before it. Speeds up point lookups at the cost of about 8 bytes per row in each block, and of less "
+          + "compression of the first key in each row."),
   TABLE_FILE_BLOCK_SIZE("table.file.blocksize", "0B", PropertyType.MEMORY,
       "Overrides the hadoop dfs.block.size setting so that map files have better query performance. The maximum value for this is " + Integer.MAX_VALUE),
   TABLE_FILE_REPLICATION("table.file.replication", "0", PropertyType.COUNT, "Determines how many replicas to keep of a tables map files in HDFS. "
@@ -301,6 +353,21 @@ public enum Property {
           + "and table.constraint.2 = my.package.constraints.MySecondConstraint"),
   TABLE_INDEXCACHE_ENABLED("table.cache.index.enable", "true", PropertyType.BOOLEAN, "Determines whether index cache is enabled."),
   TABLE_BLOCKCACHE_ENABLED("table.cache.block.enable", "false", PropertyType.BOOLEAN, "Determines whether file block cache is enabled."),
+  TABLE_CACHE_WARMUP_ENABLED("table.cache.warmup.enable", "false", PropertyType.BOOLEAN,
+      "When a tablet of this table is assigned to a tablet server, load the index blocks of its files into the index cache in the background, so the first"
+          + " scans do not have to read them from HDFS."),
+  TABLE_CACHE_WARMUP_DATA_BLOCKS("table.cache.warmup.data.blocks", "0", PropertyType.COUNT,
+      "The number of data blocks at the start of each file of a tablet to load into the data cache during warm-up.  Only used when"
+          + " table.cache.warmup.enable and table.cache.block.enable are set."),
+  TABLE_CACHE_PARTITION("table.cache.partition.name", "", PropertyType.STRING,
+      "When tserver.cache.type is 'partitioned', the cache partition used by this table.  Tables with the same partition name, such as tables whose names"
+          + " share a prefix, share a partition.  If empty, the table has a partition of its own."),
+  TABLE_CACHE_PARTITION_MIN("table.cache.partition.min", "0", PropertyType.FRACTION,
+      "The share of the data and index caches that the cache partition of this table keeps, no matter how many blocks other partitions read.  The minimums"
+          + " of all partitions should add up to less than 100%."),
+  TABLE_CACHE_PARTITION_MAX("table.cache.partition.max", "100%", PropertyType.FRACTION,
+      "The share of the data and index caches above which the cache partition of this table is the first to lose blocks when the cache is full.  The"
+          + " partition may use more while the cache has free space."),
   TABLE_ITERATOR_PREFIX("table.iterator.", null, PropertyType.PREFIX,
       "Properties in this category specify iterators that are applied at various stages (scopes) of interaction "
           + "with a table. These properties start with the category prefix, followed by a scope (minc, majc, scan, etc.), "
@@ -410,7 +477,7 @@ public enum Property {
   }
   
   private static final EnumSet<Property> fixedProperties = EnumSet.of(Property.TSERV_CLIENTPORT, Property.TSERV_NATIVEMAP_ENABLED,
-      Property.TSERV_SCAN_MAX_OPENFILES, Property.MASTER_CLIENTPORT, Property.GC_PORT);
+      Property.TSERV_OFFHEAPMAP_ENABLED, Property.TSERV_SCAN_MAX_OPENFILES, Property.MASTER_CLIENTPORT, Property.GC_PORT);
   
   public static boolean isFixedZooPropertyKey(Property key) {
     return fixedProperties.contains(key);
@@ -213,10 +213,11 @@ public class Mutation implements Writable {
   public Mutation() {}
   
   public Mutation(TMutation tmutation) {
-    this.row = ByteBufferUtil.toBytes(tmutation.row);
-    this.data = ByteBufferUtil.toBytes(tmutation.data);
+    // a mutation built from thrift is never appended to, so it can share the arrays thrift read the mutation into instead of copying them
+    this.row = ByteBufferUtil.toBytesShared(tmutation.row);
+    this.data = ByteBufferUtil.toBytesShared(tmutation.data);
     this.entries = tmutation.entries;
-    this.values = ByteBufferUtil.toBytesList(tmutation.values);
+    this.values = ByteBufferUtil.toBytesListShared(tmutation.values);
   }
   
   public Mutation(Mutation m) {
@@ -308,7 +308,7 @@ public class BloomFilterLayer {
     }
   }
   
-  public static class Reader implements FileSKVIterator {
+  public static class Reader implements FileSKVIterator, TimestampFilterable {
     
     private BloomFilterLoader bfl;
     private FileSKVIterator reader;
@@ -398,6 +398,12 @@ public class BloomFilterLayer {
       reader.setInterruptFlag(flag);
     }
     
+    @Override
+    public void setTimestampRange(long minTimestamp, long maxTimestamp) {
+      if (reader instanceof TimestampFilterable)
+        ((TimestampFilterable) reader).setTimestampRange(minTimestamp, maxTimestamp);
+    }
+    
   }
   
   public static void main(String[] args) throws IOException {
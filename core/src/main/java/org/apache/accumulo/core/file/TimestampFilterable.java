@@ -0,0 +1,34 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file;
+
+/**
+ * A file reader that can avoid reading parts of a file that only hold keys with timestamps a scan does not want.
+ */
+public interface TimestampFilterable {
+  
+  /**
+   * Tell the reader that keys outside of this range are not wanted, so it may skip data it knows only has such keys. Keys outside of the range may still be
+   * returned. The range applies until it is set again, and is not passed on to deep copies.
+   * 
+   * @param minTimestamp
+   *          smallest wanted timestamp, inclusive
+   * @param maxTimestamp
+   *          largest wanted timestamp, inclusive
+   */
+  public void setTimestampRange(long minTimestamp, long maxTimestamp);
+}
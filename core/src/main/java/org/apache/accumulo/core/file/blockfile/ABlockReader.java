@@ -19,6 +19,7 @@ package org.apache.accumulo.core.file.blockfile;
 import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /*
  * Minimal interface to read a block from a 
@@ -50,4 +51,12 @@ public interface ABlockReader extends DataInput {
   public int getPosition();
 
   <T> T getIndex(Class<T> clazz);
+  
+  /**
+   * Get the contents of a block that is held in memory, such as a cached block, without copying them. The position of the buffer is the position of this
+   * reader, so reading from either one advances both.
+   * 
+   * @return the block contents, or null if the block is read from a stream
+   */
+  public ByteBuffer getBuffer();
 }
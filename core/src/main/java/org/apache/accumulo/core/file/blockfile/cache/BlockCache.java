@@ -65,4 +65,27 @@ public interface BlockCache {
    * @return max size in bytes
    */
   public long getMaxSize();
+  
+  /**
+   * Get the statistics of this cache.
+   * 
+   * @return statistics
+   */
+  public Stats getStats();
+  
+  /**
+   * Cache statistics that are common to all block cache implementations.
+   */
+  public static interface Stats {
+    
+    /**
+     * @return the number of lookups that found a cached block
+     */
+    public long getHitCount();
+    
+    /**
+     * @return the number of lookups made against the cache
+     */
+    public long getRequestCount();
+  }
 }
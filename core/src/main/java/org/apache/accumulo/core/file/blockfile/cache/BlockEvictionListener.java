@@ -0,0 +1,33 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+/**
+ * Receives blocks as a cache evicts them, for example to keep them in a slower cache tier.
+ */
+public interface BlockEvictionListener {
+  
+  /**
+   * Called after a block is removed from the cache. This may be called while the cache holds locks, so implementations should not block.
+   * 
+   * @param blockName
+   *          name of the evicted block
+   * @param buf
+   *          contents of the evicted block, which must not be modified
+   */
+  public void blockEvicted(String blockName, byte[] buf);
+}
@@ -0,0 +1,369 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import org.apache.accumulo.core.Constants;
+import org.apache.accumulo.core.file.blockfile.cache.LruBlockCache.CacheStats;
+import org.apache.accumulo.core.util.NamingThreadFactory;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A least-recently-used cache of blocks stored as files in a local directory, meant to be placed on local SSDs below an in-memory cache.
+ * <p>
+ * 
+ * Each block is kept in its own file, named by a digest of the block name, in one of 256 subdirectories. A file holds the block name, the block contents and a
+ * checksum of the contents, so the cache can be rebuilt from the directory when it is opened again, for example after the tablet server restarts. Blocks are
+ * keyed by the same names the in-memory caches use. Files are only read back if their name and checksum match.
+ */
+public class DiskBlockCache {
+  
+  static final Log LOG = LogFactory.getLog(DiskBlockCache.class);
+  
+  private static final int MAGIC = 0x424c4b31;
+  private static final String SUFFIX = ".blk";
+  private static final String TMP_PREFIX = "tmp";
+  
+  /** Statistics thread */
+  static final int statThreadPeriod = 60;
+  
+  private static class DiskBlock {
+    private final File file;
+    private final long length;
+    
+    DiskBlock(File file, long length) {
+      this.file = file;
+      this.length = length;
+    }
+  }
+  
+  private final File dir;
+  private final long maxSize;
+  
+  /** Access ordered map of cached blocks, guarded by the lock along with the size and all file renames and deletes */
+  private final LinkedHashMap<String,DiskBlock> blocks = new LinkedHashMap<String,DiskBlock>(16, 0.75f, true);
+  private long size = 0;
+  private final ReentrantLock lock = new ReentrantLock();
+  
+  private final CacheStats stats = new CacheStats();
+  
+  /** Statistics thread schedule pool */
+  private final ScheduledExecutorService scheduleThreadPool = Executors.newScheduledThreadPool(1, new NamingThreadFactory("DiskBlockCacheStats"));
+  
+  /**
+   * Opens the cache in the given directory, reloading any blocks left there by an earlier instance.
+   * 
+   * @param dir
+   *          local directory to store blocks in, created if it does not exist
+   * @param maxSize
+   *          maximum number of bytes of block files to keep
+   */
+  public DiskBlockCache(File dir, long maxSize) throws IOException {
+    if (!dir.isDirectory() && !dir.mkdirs())
+      throw new IOException("Unable to create block cache directory " + dir);
+    
+    this.dir = dir;
+    this.maxSize = maxSize;
+    load();
+    
+    this.scheduleThreadPool.scheduleAtFixedRate(new Runnable() {
+      @Override
+      public void run() {
+        logStats();
+      }
+    }, statThreadPeriod, statThreadPeriod, TimeUnit.SECONDS);
+  }
+  
+  private void load() {
+    List<File> files = new ArrayList<File>();
+    File[] subdirs = dir.listFiles();
+    if (subdirs != null) {
+      for (File subdir : subdirs) {
+        File[] children = subdir.listFiles();
+        if (children == null)
+          continue;
+        for (File file : children) {
+          if (file.getName().startsWith(TMP_PREFIX)) {
+            // left over from an interrupted write
+            file.delete();
+          } else if (file.getName().endsWith(SUFFIX)) {
+            files.add(file);
+          }
+        }
+      }
+    }
+    
+    // least recently written first, so the access order of the map starts out as the write order
+    final HashMap<File,Long> times = new HashMap<File,Long>();
+    for (File file : files)
+      times.put(file, file.lastModified());
+    Collections.sort(files, new Comparator<File>() {
+      @Override
+      public int compare(File f1, File f2) {
+        long t1 = times.get(f1), t2 = times.get(f2);
+        return t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
+      }
+    });
+    
+    lock.lock();
+    try {
+      for (File file : files) {
+        String name = readName(file);
+        if (name == null || !file.equals(fileFor(name))) {
+          LOG.warn("Removing unreadable block cache file " + file);
+          file.delete();
+          continue;
+        }
+        DiskBlock block = new DiskBlock(file, file.length());
+        blocks.put(name, block);
+        size += block.length;
+      }
+      evictIfNeeded();
+    } finally {
+      lock.unlock();
+    }
+    
+    LOG.info("Loaded " + blocks.size() + " blocks (" + size + " bytes) from block cache directory " + dir);
+  }
+  
+  private static String readName(File file) {
+    try {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1024));
+      try {
+        if (in.readInt() != MAGIC)
+          return null;
+        return in.readUTF();
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      return null;
+    }
+  }
+  
+  private File fileFor(String blockName) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+    byte[] hash = digest.digest(blockName.getBytes(Constants.UTF8));
+    StringBuilder sb = new StringBuilder(hash.length * 2);
+    for (byte b : hash)
+      sb.append(String.format("%02x", b & 0xff));
+    return new File(new File(dir, sb.substring(0, 2)), sb.toString() + SUFFIX);
+  }
+  
+  /**
+   * @return the contents of the block, or null if it is not in the cache
+   */
+  public byte[] getBlock(String blockName) {
+    DiskBlock block;
+    lock.lock();
+    try {
+      block = blocks.get(blockName);
+    } finally {
+      lock.unlock();
+    }
+    
+    if (block == null) {
+      stats.miss();
+      return null;
+    }
+    
+    byte[] buf = null;
+    try {
+      buf = read(block.file, blockName);
+    } catch (IOException e) {
+      LOG.warn("Unable to read block " + blockName + " from " + block.file + " " + e.getMessage());
+    }
+    
+    if (buf == null) {
+      remove(blockName, block);
+      stats.miss();
+      return null;
+    }
+    
+    stats.hit();
+    return buf;
+  }
+  
+  private static byte[] read(File file, String blockName) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    try {
+      if (in.readInt() != MAGIC || !in.readUTF().equals(blockName))
+        return null;
+      byte[] buf = new byte[in.readInt()];
+      in.readFully(buf);
+      long checksum = in.readLong();
+      CRC32 crc = new CRC32();
+      crc.update(buf);
+      if (crc.getValue() != checksum)
+        return null;
+      return buf;
+    } finally {
+      in.close();
+    }
+  }
+  
+  private void remove(String blockName, DiskBlock block) {
+    lock.lock();
+    try {
+      if (blocks.get(blockName) == block) {
+        blocks.remove(blockName);
+        size -= block.length;
+        block.file.delete();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+  
+  /**
+   * Write a block to the cache, if it is not already there. This does file IO and should not be called from a thread that must not block.
+   */
+  public void cacheBlock(String blockName, byte[] buf) throws IOException {
+    lock.lock();
+    try {
+      if (blocks.get(blockName) != null) {
+        stats.duplicateReads();
+        return;
+      }
+    } finally {
+      lock.unlock();
+    }
+    
+    File file = fileFor(blockName);
+    File parent = file.getParentFile();
+    if (!parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory())
+      throw new IOException("Unable to create " + parent);
+    
+    File tmp = File.createTempFile(TMP_PREFIX, SUFFIX + ".tmp", parent);
+    try {
+      DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp));
+      try {
+        out.writeInt(MAGIC);
+        out.writeUTF(blockName);
+        out.writeInt(buf.length);
+        out.write(buf);
+        CRC32 crc = new CRC32();
+        crc.update(buf);
+        out.writeLong(crc.getValue());
+      } finally {
+        out.close();
+      }
+      
+      lock.lock();
+      try {
+        if (blocks.get(blockName) != null)
+          return;
+        if (!tmp.renameTo(file))
+          throw new IOException("Unable to rename " + tmp + " to " + file);
+        DiskBlock block = new DiskBlock(file, file.length());
+        blocks.put(blockName, block);
+        size += block.length;
+        evictIfNeeded();
+      } finally {
+        lock.unlock();
+      }
+    } finally {
+      if (tmp.exists())
+        tmp.delete();
+    }
+  }
+  
+  private void evictIfNeeded() {
+    Iterator<Entry<String,DiskBlock>> iter = blocks.entrySet().iterator();
+    while (size > maxSize && iter.hasNext()) {
+      DiskBlock block = iter.next().getValue();
+      iter.remove();
+      size -= block.length;
+      if (!block.file.delete())
+        LOG.warn("Unable to delete block cache file " + block.file);
+      stats.evicted();
+    }
+  }
+  
+  public long getMaxSize() {
+    return maxSize;
+  }
+  
+  /**
+   * @return the number of bytes of block files in the cache
+   */
+  public long getCurrentSize() {
+    lock.lock();
+    try {
+      return size;
+    } finally {
+      lock.unlock();
+    }
+  }
+  
+  /**
+   * @return the number of cached blocks
+   */
+  public long size() {
+    lock.lock();
+    try {
+      return blocks.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+  
+  public CacheStats getStats() {
+    return stats;
+  }
+  
+  public void logStats() {
+    long used = getCurrentSize();
+    float usedMB = ((float) used) / ((float) (1024 * 1024));
+    float maxMB = ((float) maxSize) / ((float) (1024 * 1024));
+    LOG.debug("Disk Cache Stats: Sizes: " + "Used=" + usedMB + "MB (" + used + "), " + "Max=" + maxMB + "MB (" + maxSize + ")" + ", Counts: " + "Blocks="
+        + size() + ", " + "Access=" + stats.getRequestCount() + ", " + "Hit=" + stats.getHitCount() + ", " + "Miss=" + stats.getMissCount() + ", "
+        + "Evicted=" + stats.getEvictedCount() + ", Ratios: " + "Hit Ratio=" + stats.getHitRatio() * 100 + "%");
+  }
+  
+  public void shutdown() {
+    this.scheduleThreadPool.shutdown();
+  }
+}
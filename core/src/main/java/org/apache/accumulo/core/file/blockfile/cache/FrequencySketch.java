@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+/**
+ * An approximate count of how often each block has been requested recently, used to decide whether a new block is worth admitting to a full cache.
+ * 
+ * <p>
+ * This is a count-min sketch of 4-bit counters, sixteen to a long, with one long per expected entry. Each key updates four counters and its frequency is
+ * the smallest of them. Once the number of increments reaches ten times the number of expected entries, every counter is halved so that the sketch follows
+ * changes in the workload. Counts saturate at 15.
+ * 
+ * <p>
+ * The sketch is not synchronized. Concurrent updates may be lost, which only makes the estimates slightly lower and is acceptable for an admission heuristic.
+ */
+public class FrequencySketch {
+  
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final int MAX_COUNT = 15;
+  
+  private final long[] table;
+  private final int counterMask;
+  private final int sampleSize;
+  private int additions;
+  
+  /**
+   * @param expectedEntries
+   *          the number of distinct keys expected to be tracked, usually the maximum number of entries in the cache
+   */
+  public FrequencySketch(long expectedEntries) {
+    if (expectedEntries <= 0)
+      throw new IllegalArgumentException("expectedEntries must be positive : " + expectedEntries);
+    
+    int tableSize = 1;
+    while (tableSize < expectedEntries && tableSize < (1 << 26))
+      tableSize <<= 1;
+    
+    this.table = new long[tableSize];
+    this.counterMask = (tableSize << 4) - 1;
+    this.sampleSize = 10 * tableSize;
+  }
+  
+  private static int spread(int h) {
+    h ^= (h >>> 17);
+    h *= 0xed5ad4bb;
+    h ^= (h >>> 11);
+    h *= 0xac4c1b51;
+    h ^= (h >>> 15);
+    return h;
+  }
+  
+  private int counterIndex(int hash, int i) {
+    int h = hash + i * (spread(hash + i) | 1);
+    return h & counterMask;
+  }
+  
+  private int count(int index) {
+    return (int) ((table[index >>> 4] >>> ((index & 15) << 2)) & 0xfl);
+  }
+  
+  /**
+   * Record one request for the key.
+   */
+  public void increment(String key) {
+    int hash = spread(key.hashCode());
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      int index = counterIndex(hash, i);
+      if (count(index) < MAX_COUNT) {
+        table[index >>> 4] += 1l << ((index & 15) << 2);
+        added = true;
+      }
+    }
+    
+    if (added && ++additions >= sampleSize)
+      reset();
+  }
+  
+  /**
+   * @return the estimated number of recent requests for the key, between 0 and 15
+   */
+  public int frequency(String key) {
+    int hash = spread(key.hashCode());
+    int frequency = MAX_COUNT;
+    for (int i = 0; i < 4; i++)
+      frequency = Math.min(frequency, count(counterIndex(hash, i)));
+    return frequency;
+  }
+  
+  private void reset() {
+    for (int i = 0; i < table.length; i++)
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    additions = additions >>> 1;
+  }
+}
@@ -61,6 +61,11 @@ import org.apache.commons.logging.LogFactory;
  * Eviction happens in a separate thread and involves a single full-scan of the map. It determines how many bytes must be freed to reach the minimum size, and
  * then while scanning determines the fewest least-recently-used blocks necessary from each of the three priorities (would be 3 times bytes to free). It then
  * uses the priority chunk sizes to evict fairly according to the relative sizes and usage.
+ * 
+ * <p>
+ * Optionally, an admission filter can be enabled. The cache then keeps a {@link FrequencySketch} of recent requests, and once it is full a block that is not
+ * in-memory is only cached if it has been requested more often than the blocks removed by the last eviction. This keeps a large scan over cold data from
+ * replacing the working set.
  */
 public class LruBlockCache implements BlockCache, HeapSize {
   
@@ -135,6 +140,18 @@ public class LruBlockCache implements BlockCache, HeapSize {
   /** Overhead of the structure itself */
   private long overhead;
   
+  /** Recent request frequencies, null if the admission filter is disabled */
+  private final FrequencySketch sketch;
+  
+  /** Average frequency of the blocks removed by the last eviction */
+  private volatile int victimFrequency = 0;
+  
+  /** Sum of the frequencies of the blocks removed by the eviction in progress, guarded by the eviction lock */
+  private long victimFrequencySum = 0;
+  
+  /** Notified of evicted blocks, may be null */
+  private volatile BlockEvictionListener evictionListener;
+  
   /**
    * Default constructor. Specify maximum size and expected average block size (approximation is fine).
    * 
@@ -154,8 +171,15 @@ public class LruBlockCache implements BlockCache, HeapSize {
    * Constructor used for testing. Allows disabling of the eviction thread.
    */
   public LruBlockCache(long maxSize, long blockSize, boolean evictionThread) {
+    this(maxSize, blockSize, evictionThread, false);
+  }
+  
+  /**
+   * Constructor that allows enabling the frequency based admission filter.
+   */
+  public LruBlockCache(long maxSize, long blockSize, boolean evictionThread, boolean admissionFilter) {
     this(maxSize, blockSize, evictionThread, (int) Math.ceil(1.2 * maxSize / blockSize), DEFAULT_LOAD_FACTOR, DEFAULT_CONCURRENCY_LEVEL, DEFAULT_MIN_FACTOR,
-        DEFAULT_ACCEPTABLE_FACTOR, DEFAULT_SINGLE_FACTOR, DEFAULT_MULTI_FACTOR, DEFAULT_MEMORY_FACTOR);
+        DEFAULT_ACCEPTABLE_FACTOR, DEFAULT_SINGLE_FACTOR, DEFAULT_MULTI_FACTOR, DEFAULT_MEMORY_FACTOR, admissionFilter);
   }
   
   /**
@@ -186,6 +210,19 @@ public class LruBlockCache implements BlockCache, HeapSize {
    */
   public LruBlockCache(long maxSize, long blockSize, boolean evictionThread, int mapInitialSize, float mapLoadFactor, int mapConcurrencyLevel, float minFactor,
       float acceptableFactor, float singleFactor, float multiFactor, float memoryFactor) {
+    this(maxSize, blockSize, evictionThread, mapInitialSize, mapLoadFactor, mapConcurrencyLevel, minFactor, acceptableFactor, singleFactor, multiFactor,
+        memoryFactor, false);
+  }
+  
+  /**
+   * Configurable constructor. Use this constructor if not using defaults.
+   * 
+   * @param admissionFilter
+   *          whether to only admit blocks into a full cache that are requested more often than the blocks being evicted
+   * @see #LruBlockCache(long, long, boolean, int, float, int, float, float, float, float, float)
+   */
+  public LruBlockCache(long maxSize, long blockSize, boolean evictionThread, int mapInitialSize, float mapLoadFactor, int mapConcurrencyLevel, float minFactor,
+      float acceptableFactor, float singleFactor, float multiFactor, float memoryFactor, boolean admissionFilter) {
     if (singleFactor + multiFactor + memoryFactor != 1) {
       throw new IllegalArgumentException("Single, multi, and memory factors " + " should total 1.0");
     }
@@ -208,6 +245,7 @@ public class LruBlockCache implements BlockCache, HeapSize {
     this.elements = new AtomicLong(0);
     this.overhead = calculateOverhead(maxSize, blockSize, mapConcurrencyLevel);
     this.size = new AtomicLong(this.overhead);
+    this.sketch = admissionFilter ? new FrequencySketch(Math.max(1, mapInitialSize)) : null;
     
     if (evictionThread) {
       this.evictionThread = new EvictionThread(this);
@@ -225,6 +263,13 @@ public class LruBlockCache implements BlockCache, HeapSize {
     this.scheduleThreadPool.scheduleAtFixedRate(new StatisticsThread(this), statThreadPeriod, statThreadPeriod, TimeUnit.SECONDS);
   }
   
+  /**
+   * Set a listener that is given each block this cache evicts.
+   */
+  public void setEvictionListener(BlockEvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+  
   public void setMaxSize(long maxSize) {
     this.maxSize = maxSize;
     if (this.size.get() > acceptableSize() && !evictionInProgress) {
@@ -246,6 +291,7 @@ public class LruBlockCache implements BlockCache, HeapSize {
    *          block buffer
    * @param inMemory
    *          if block is in-memory
+   * @return the cached block, or null if the admission filter declined to cache it
    */
   public CacheEntry cacheBlock(String blockName, byte buf[], boolean inMemory) {
     CachedBlock cb = map.get(blockName);
@@ -254,6 +300,11 @@ public class LruBlockCache implements BlockCache, HeapSize {
       cb.access(count.incrementAndGet());
       
     } else {
+      if (sketch != null && !inMemory && size.get() >= minSize() && sketch.frequency(blockName) <= victimFrequency) {
+        stats.rejected();
+        return null;
+      }
+      
       cb = new CachedBlock(blockName, buf, count.incrementAndGet(), inMemory);
       long newSize = size.addAndGet(cb.heapSize());
       map.put(blockName, cb);
@@ -290,6 +341,9 @@ public class LruBlockCache implements BlockCache, HeapSize {
    */
   
   public CachedBlock getBlock(String blockName) {
+    if (sketch != null)
+      sketch.increment(blockName);
+    
     CachedBlock cb = map.get(blockName);
     if (cb == null) {
       stats.miss();
@@ -301,10 +355,15 @@ public class LruBlockCache implements BlockCache, HeapSize {
   }
   
   protected long evictBlock(CachedBlock block) {
+    if (sketch != null)
+      victimFrequencySum += sketch.frequency(block.getName());
     map.remove(block.getName());
     size.addAndGet(-1 * block.heapSize());
     elements.decrementAndGet();
     stats.evicted();
+    BlockEvictionListener listener = evictionListener;
+    if (listener != null)
+      listener.blockEvicted(block.getName(), block.getBuffer());
     return block.heapSize();
   }
   
@@ -369,6 +428,7 @@ public class LruBlockCache implements BlockCache, HeapSize {
       
       int remainingBuckets = 3;
       long bytesFreed = 0;
+      long evictedBefore = stats.getEvictedCount();
       
       BlockBucket bucket;
       while ((bucket = bucketQueue.poll()) != null) {
@@ -380,6 +440,13 @@ public class LruBlockCache implements BlockCache, HeapSize {
         remainingBuckets--;
       }
       
+      if (sketch != null) {
+        long evicted = stats.getEvictedCount() - evictedBefore;
+        if (evicted > 0)
+          victimFrequency = (int) (victimFrequencySum / evicted);
+        victimFrequencySum = 0;
+      }
+      
       float singleMB = ((float) bucketSingle.totalSize()) / ((float) (1024 * 1024));
       float multiMB = ((float) bucketMulti.totalSize()) / ((float) (1024 * 1024));
       float memoryMB = ((float) bucketMemory.totalSize()) / ((float) (1024 * 1024));
@@ -564,7 +631,7 @@ public class LruBlockCache implements BlockCache, HeapSize {
         + maxMB + "MB (" + maxSize + ")" + ", Counts: " + "Blocks=" + size() + ", " + "Access=" + stats.getRequestCount() + ", " + "Hit=" + stats.getHitCount()
         + ", " + "Miss=" + stats.getMissCount() + ", " + "Evictions=" + stats.getEvictionCount() + ", " + "Evicted=" + stats.getEvictedCount() + ", Ratios: "
         + "Hit Ratio=" + stats.getHitRatio() * 100 + "%, " + "Miss Ratio=" + stats.getMissRatio() * 100 + "%, " + "Evicted/Run=" + stats.evictedPerEviction()
-        + ", " + "Duplicate Reads=" + stats.getDuplicateReads());
+        + ", " + "Duplicate Reads=" + stats.getDuplicateReads() + ", " + "Rejected=" + stats.getRejectedCount());
   }
   
   /**
@@ -577,13 +644,14 @@ public class LruBlockCache implements BlockCache, HeapSize {
     return this.stats;
   }
   
-  public static class CacheStats {
+  public static class CacheStats implements BlockCache.Stats {
     private final AtomicLong accessCount = new AtomicLong(0);
     private final AtomicLong hitCount = new AtomicLong(0);
     private final AtomicLong missCount = new AtomicLong(0);
     private final AtomicLong evictionCount = new AtomicLong(0);
     private final AtomicLong evictedCount = new AtomicLong(0);
     private final AtomicLong duplicateReads = new AtomicLong(0);
+    private final AtomicLong rejectedCount = new AtomicLong(0);
     
     public void miss() {
       missCount.incrementAndGet();
@@ -607,6 +675,10 @@ public class LruBlockCache implements BlockCache, HeapSize {
       evictedCount.incrementAndGet();
     }
     
+    public void rejected() {
+      rejectedCount.incrementAndGet();
+    }
+    
     public long getRequestCount() {
       return accessCount.get();
     }
@@ -631,6 +703,10 @@ public class LruBlockCache implements BlockCache, HeapSize {
       return evictedCount.get();
     }
     
+    public long getRejectedCount() {
+      return rejectedCount.get();
+    }
+    
     public double getHitRatio() {
       return ((float) getHitCount() / (float) getRequestCount());
     }
@@ -644,8 +720,8 @@ public class LruBlockCache implements BlockCache, HeapSize {
     }
   }
   
-  public final static long CACHE_FIXED_OVERHEAD = ClassSize.align((3 * SizeConstants.SIZEOF_LONG) + (8 * ClassSize.REFERENCE)
-      + (5 * SizeConstants.SIZEOF_FLOAT) + SizeConstants.SIZEOF_BOOLEAN + ClassSize.OBJECT);
+  public final static long CACHE_FIXED_OVERHEAD = ClassSize.align((4 * SizeConstants.SIZEOF_LONG) + (10 * ClassSize.REFERENCE)
+      + (5 * SizeConstants.SIZEOF_FLOAT) + SizeConstants.SIZEOF_INT + SizeConstants.SIZEOF_BOOLEAN + ClassSize.OBJECT);
   
   // HeapSize implementation
   public long heapSize() {
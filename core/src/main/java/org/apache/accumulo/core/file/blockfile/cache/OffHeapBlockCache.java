@@ -0,0 +1,384 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.accumulo.core.file.blockfile.cache.LruBlockCache.CacheStats;
+import org.apache.accumulo.core.util.NamingThreadFactory;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A block cache that keeps the contents of cached blocks outside of the Java heap, so that the size of the cache does not drive the size of the heap or the
+ * length of garbage collection pauses.
+ * <p>
+ *
+ * The cache memory is allocated up front as a set of slabs, either direct {@link ByteBuffer}s or, when a directory is given, memory-mapped files in that
+ * directory. Slabs are divided into fixed size pages and a block occupies as many pages as it needs; the pages of a block do not need to be contiguous. Only a
+ * small amount of bookkeeping per block (its name, page numbers and index attachment) lives on the heap.
+ * <p>
+ *
+ * Eviction is least-recently-used. As in {@link LruBlockCache}, in-memory blocks are kept apart from other blocks and are only evicted before them when they use
+ * more than their share of the cache.
+ * <p>
+ *
+ * Since block contents are not on the heap, {@link CacheEntry#getBuffer()} returns a copy of the block made when it was fetched. The index attached with
+ * {@link CacheEntry#setIndex(Object)} is kept with the cached block and is visible to all later readers of the block until it is evicted.
+ */
+public class OffHeapBlockCache implements BlockCache {
+
+  static final Log LOG = LogFactory.getLog(OffHeapBlockCache.class);
+
+  /** Default size of a page, the unit of allocation */
+  public static final int DEFAULT_PAGE_SIZE = 8 * 1024;
+
+  /** Default size of a slab, the unit of memory allocation from the OS */
+  public static final int DEFAULT_SLAB_SIZE = 256 * 1024 * 1024;
+
+  /** Fraction of the cache in-memory blocks can hold before they are evicted ahead of other blocks */
+  static final float DEFAULT_MEMORY_FACTOR = 0.25f;
+
+  /** Statistics thread */
+  static final int statThreadPeriod = 60;
+
+  /**
+   * On heap bookkeeping for a block stored off heap.
+   */
+  private static class Block {
+    private final int[] pages;
+    private final int length;
+    private volatile Object index;
+
+    Block(int[] pages, int length) {
+      this.pages = pages;
+      this.length = length;
+    }
+  }
+
+  /**
+   * The entry handed out to readers. It holds a private copy of the block contents and shares the index attachment with the cached block.
+   */
+  private static class OffHeapCacheEntry implements CacheEntry {
+    private final Block block;
+    private final byte[] buffer;
+
+    OffHeapCacheEntry(Block block, byte[] buffer) {
+      this.block = block;
+      this.buffer = buffer;
+    }
+
+    @Override
+    public byte[] getBuffer() {
+      return buffer;
+    }
+
+    @Override
+    public Object getIndex() {
+      return block.index;
+    }
+
+    @Override
+    public void setIndex(Object idx) {
+      block.index = idx;
+    }
+  }
+
+  private final ByteBuffer[] slabs;
+  private final int pageSize;
+  private final int pagesPerSlab;
+  private final int totalPages;
+  private final int memoryPagesLimit;
+
+  /** Stack of free page numbers */
+  private final int[] freePages;
+  private int freeCount;
+
+  /** Access ordered maps of cached blocks, all guarded by the lock */
+  private final LinkedHashMap<String,Block> blocks = new LinkedHashMap<String,Block>(16, 0.75f, true);
+  private final LinkedHashMap<String,Block> memoryBlocks = new LinkedHashMap<String,Block>(16, 0.75f, true);
+  private int memoryPages = 0;
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final long maxSize;
+  private final CacheStats stats = new CacheStats();
+
+  /** Statistics thread schedule pool */
+  private final ScheduledExecutorService scheduleThreadPool = Executors.newScheduledThreadPool(1, new NamingThreadFactory("OffHeapBlockCacheStats"));
+
+  /**
+   * Creates a cache backed by direct memory, using the default page and slab sizes.
+   *
+   * @param maxSize
+   *          maximum size of cache, in bytes
+   */
+  public OffHeapBlockCache(long maxSize) {
+    this(maxSize, DEFAULT_PAGE_SIZE, DEFAULT_SLAB_SIZE, null);
+  }
+
+  /**
+   * @param maxSize
+   *          maximum size of cache, in bytes
+   * @param pageSize
+   *          size of the unit of allocation for blocks, in bytes
+   * @param slabSize
+   *          size of the chunks of memory allocated for the cache, in bytes
+   * @param mmapDir
+   *          directory in which to create memory-mapped slab files, or null to use direct memory
+   */
+  public OffHeapBlockCache(long maxSize, int pageSize, int slabSize, File mmapDir) {
+    if (pageSize <= 0 || slabSize < pageSize)
+      throw new IllegalArgumentException("Page size must be positive and no larger than slab size " + pageSize + " " + slabSize);
+    if (maxSize / pageSize > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("Page size " + pageSize + " is too small for a cache of " + maxSize + " bytes");
+
+    this.pageSize = pageSize;
+    this.pagesPerSlab = slabSize / pageSize;
+    this.totalPages = (int) (maxSize / pageSize);
+    this.maxSize = (long) totalPages * pageSize;
+    this.memoryPagesLimit = (int) (totalPages * DEFAULT_MEMORY_FACTOR);
+
+    int numSlabs = (totalPages + pagesPerSlab - 1) / pagesPerSlab;
+    this.slabs = new ByteBuffer[numSlabs];
+    for (int i = 0; i < numSlabs; i++) {
+      int slabPages = Math.min(pagesPerSlab, totalPages - i * pagesPerSlab);
+      slabs[i] = allocateSlab(slabPages * pageSize, mmapDir);
+    }
+
+    this.freePages = new int[totalPages];
+    for (int i = 0; i < totalPages; i++)
+      freePages[i] = totalPages - 1 - i;
+    this.freeCount = totalPages;
+
+    this.scheduleThreadPool.scheduleAtFixedRate(new Runnable() {
+      @Override
+      public void run() {
+        logStats();
+      }
+    }, statThreadPeriod, statThreadPeriod, TimeUnit.SECONDS);
+  }
+
+  private static ByteBuffer allocateSlab(int size, File mmapDir) {
+    if (mmapDir == null)
+      return ByteBuffer.allocateDirect(size);
+
+    try {
+      File slabFile = File.createTempFile("blockcache", ".slab", mmapDir);
+      slabFile.deleteOnExit();
+      RandomAccessFile raf = new RandomAccessFile(slabFile, "rw");
+      try {
+        raf.setLength(size);
+        return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+      } finally {
+        raf.close();
+        // the mapping stays valid after the file is closed and unlinked
+        if (!slabFile.delete())
+          LOG.warn("Unable to remove block cache slab file " + slabFile);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Unable to map block cache slab in " + mmapDir, e);
+    }
+  }
+
+  @Override
+  public CacheEntry cacheBlock(String blockName, byte[] buf, boolean inMemory) {
+    int needed = (buf.length + pageSize - 1) / pageSize;
+
+    lock.lock();
+    try {
+      Block block = lookup(blockName);
+      if (block != null) {
+        stats.duplicateReads();
+        return new OffHeapCacheEntry(block, buf);
+      }
+
+      if (needed > totalPages)
+        return null;
+
+      if (freeCount < needed)
+        evict(needed);
+
+      int[] pages = new int[needed];
+      for (int i = 0; i < needed; i++)
+        pages[i] = freePages[--freeCount];
+
+      block = new Block(pages, buf.length);
+      write(block, buf);
+
+      if (inMemory) {
+        memoryBlocks.put(blockName, block);
+        memoryPages += needed;
+      } else {
+        blocks.put(blockName, block);
+      }
+
+      return new OffHeapCacheEntry(block, buf);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public CacheEntry cacheBlock(String blockName, byte[] buf) {
+    return cacheBlock(blockName, buf, false);
+  }
+
+  @Override
+  public CacheEntry getBlock(String blockName) {
+    lock.lock();
+    try {
+      Block block = lookup(blockName);
+      if (block == null) {
+        stats.miss();
+        return null;
+      }
+      stats.hit();
+      return new OffHeapCacheEntry(block, read(block));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Block lookup(String blockName) {
+    Block block = blocks.get(blockName);
+    if (block == null)
+      block = memoryBlocks.get(blockName);
+    return block;
+  }
+
+  /**
+   * Evict least recently used blocks until the requested number of pages is free. Must be called with the lock held.
+   */
+  private void evict(int needed) {
+    int evicted = 0;
+    while (freeCount < needed) {
+      Iterator<Block> iter;
+      boolean fromMemory = memoryPages > memoryPagesLimit || blocks.isEmpty();
+      if (fromMemory)
+        iter = memoryBlocks.values().iterator();
+      else
+        iter = blocks.values().iterator();
+
+      Block victim = iter.next();
+      iter.remove();
+      if (fromMemory)
+        memoryPages -= victim.pages.length;
+      for (int page : victim.pages)
+        freePages[freeCount++] = page;
+      stats.evicted();
+      evicted++;
+    }
+    stats.evict();
+
+    if (LOG.isTraceEnabled())
+      LOG.trace("Off heap block cache evicted " + evicted + " blocks to free " + needed + " pages");
+  }
+
+  private void write(Block block, byte[] buf) {
+    int offset = 0;
+    for (int page : block.pages) {
+      int len = Math.min(pageSize, buf.length - offset);
+      ByteBuffer slab = slabs[page / pagesPerSlab];
+      slab.position((page % pagesPerSlab) * pageSize);
+      slab.put(buf, offset, len);
+      offset += len;
+    }
+  }
+
+  private byte[] read(Block block) {
+    byte[] buf = new byte[block.length];
+    int offset = 0;
+    for (int page : block.pages) {
+      int len = Math.min(pageSize, buf.length - offset);
+      ByteBuffer slab = slabs[page / pagesPerSlab];
+      slab.position((page % pagesPerSlab) * pageSize);
+      slab.get(buf, offset, len);
+      offset += len;
+    }
+    return buf;
+  }
+
+  @Override
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Get the current size of this cache.
+   *
+   * @return bytes of off heap memory used by cached blocks
+   */
+  public long getCurrentSize() {
+    lock.lock();
+    try {
+      return (long) (totalPages - freeCount) * pageSize;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Get the size of this cache (number of cached blocks)
+   *
+   * @return number of cached blocks
+   */
+  public long size() {
+    lock.lock();
+    try {
+      return blocks.size() + memoryBlocks.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Get the number of blocks that have been evicted during the lifetime of this cache.
+   */
+  public long getEvictedCount() {
+    return stats.getEvictedCount();
+  }
+
+  @Override
+  public CacheStats getStats() {
+    return stats;
+  }
+
+  public void logStats() {
+    long used = getCurrentSize();
+    float usedMB = ((float) used) / ((float) (1024 * 1024));
+    float maxMB = ((float) maxSize) / ((float) (1024 * 1024));
+    LOG.debug("Off Heap Cache Stats: Sizes: " + "Used=" + usedMB + "MB (" + used + "), " + "Max=" + maxMB + "MB (" + maxSize + ")" + ", Counts: " + "Blocks="
+        + size() + ", " + "Access=" + stats.getRequestCount() + ", " + "Hit=" + stats.getHitCount() + ", " + "Miss=" + stats.getMissCount() + ", "
+        + "Evicted=" + stats.getEvictedCount() + ", Ratios: " + "Hit Ratio=" + stats.getHitRatio() * 100 + "%, " + "Duplicate Reads="
+        + stats.getDuplicateReads());
+  }
+
+  @Override
+  public void shutdown() {
+    this.scheduleThreadPool.shutdown();
+  }
+}
@@ -0,0 +1,397 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.accumulo.core.file.blockfile.cache.LruBlockCache.CacheStats;
+import org.apache.accumulo.core.util.NamingThreadFactory;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A block cache that is shared by several partitions, usually one per table, so that one busy partition can not evict all the blocks of the others.
+ * <p>
+ * 
+ * Each partition is a {@link BlockCache} view obtained with {@link #getPartition(String)}, and has a guaranteed minimum and a soft maximum share of the cache.
+ * A partition may grow past its maximum while the cache has free space. When the cache is full, blocks are evicted from the partition that is furthest over
+ * its maximum, or if none are over their maximum, from the partition that is furthest over its minimum. A partition at or below its minimum share never loses
+ * blocks to another partition. Within a partition blocks are evicted with the same clock algorithm as {@link ShardedBlockCache}.
+ * <p>
+ * 
+ * Blocks cached through the methods of this class, rather than through a partition, go to the default partition named by {@link #DEFAULT_PARTITION}.
+ */
+public class PartitionedBlockCache implements BlockCache {
+  
+  static final Log LOG = LogFactory.getLog(PartitionedBlockCache.class);
+  
+  public static final String DEFAULT_PARTITION = "";
+  
+  /** Maximum credits a block can accumulate */
+  static final int MAX_CREDITS = 1;
+  static final int MAX_MEMORY_CREDITS = 3;
+  
+  /** Statistics thread */
+  static final int statThreadPeriod = 60;
+  
+  private static class Entry {
+    private final CachedBlock block;
+    private final Partition partition;
+    private final int maxCredits;
+    private volatile int credits = 0;
+    
+    Entry(CachedBlock block, Partition partition, boolean inMemory) {
+      this.block = block;
+      this.partition = partition;
+      this.maxCredits = inMemory ? MAX_MEMORY_CREDITS : MAX_CREDITS;
+    }
+    
+    void access() {
+      // racing updates may lose a credit, which is harmless
+      int c = credits;
+      if (c < maxCredits)
+        credits = c + 1;
+    }
+  }
+  
+  /**
+   * A partition of the cache. Lookups are not confined to the blocks of the partition, so a block cached by another partition is still found, but it is
+   * counted as a hit of the partition that looked it up.
+   */
+  public class Partition implements BlockCache {
+    private final String name;
+    private final ArrayList<Entry> ring = new ArrayList<Entry>();
+    private final CacheStats stats = new CacheStats();
+    private int hand = 0;
+    private volatile long size = 0;
+    private volatile float minFraction = 0.0f;
+    private volatile float maxFraction = 1.0f;
+    
+    Partition(String name) {
+      this.name = name;
+    }
+    
+    public String getName() {
+      return name;
+    }
+    
+    /**
+     * @param minFraction
+     *          the fraction of the cache this partition keeps even when other partitions need space
+     * @param maxFraction
+     *          the fraction of the cache above which this partition is the first to lose blocks
+     */
+    public void setLimits(float minFraction, float maxFraction) {
+      if (minFraction < 0 || minFraction > maxFraction || maxFraction > 1)
+        throw new IllegalArgumentException("Invalid partition limits " + minFraction + " " + maxFraction);
+      this.minFraction = minFraction;
+      this.maxFraction = maxFraction;
+    }
+    
+    public float getMinFraction() {
+      return minFraction;
+    }
+    
+    public float getMaxFraction() {
+      return maxFraction;
+    }
+    
+    long minSize() {
+      return (long) (minFraction * maxSize);
+    }
+    
+    long maxSize() {
+      return (long) (maxFraction * maxSize);
+    }
+    
+    @Override
+    public CacheEntry cacheBlock(String blockName, byte[] buf, boolean inMemory) {
+      return put(this, blockName, buf, inMemory);
+    }
+    
+    @Override
+    public CacheEntry cacheBlock(String blockName, byte[] buf) {
+      return cacheBlock(blockName, buf, false);
+    }
+    
+    @Override
+    public CacheEntry getBlock(String blockName) {
+      Entry entry = map.get(blockName);
+      if (entry == null) {
+        stats.miss();
+        PartitionedBlockCache.this.stats.miss();
+        return null;
+      }
+      stats.hit();
+      PartitionedBlockCache.this.stats.hit();
+      entry.access();
+      return entry.block;
+    }
+    
+    /**
+     * The partition does not own any resources, shut down the {@link PartitionedBlockCache} instead.
+     */
+    @Override
+    public void shutdown() {}
+    
+    @Override
+    public long getMaxSize() {
+      return maxSize();
+    }
+    
+    /**
+     * @return the number of bytes used by the blocks of this partition
+     */
+    public long getCurrentSize() {
+      return size;
+    }
+    
+    /**
+     * @return the number of blocks in this partition
+     */
+    public long size() {
+      lock.lock();
+      try {
+        return ring.size();
+      } finally {
+        lock.unlock();
+      }
+    }
+    
+    @Override
+    public CacheStats getStats() {
+      return stats;
+    }
+    
+    private void evictOne() {
+      while (true) {
+        if (hand >= ring.size())
+          hand = 0;
+        
+        Entry entry = ring.get(hand);
+        if (entry.credits > 0) {
+          entry.credits--;
+          hand++;
+          continue;
+        }
+        
+        // fill the hole with the last block in the ring, the hand stays put and looks at it next
+        Entry last = ring.remove(ring.size() - 1);
+        if (hand < ring.size())
+          ring.set(hand, last);
+        
+        map.remove(entry.block.getName());
+        long blockSize = entry.block.heapSize();
+        size -= blockSize;
+        currentSize -= blockSize;
+        stats.evicted();
+        PartitionedBlockCache.this.stats.evicted();
+        return;
+      }
+    }
+  }
+  
+  private final ConcurrentHashMap<String,Entry> map = new ConcurrentHashMap<String,Entry>();
+  private final ConcurrentHashMap<String,Partition> partitions = new ConcurrentHashMap<String,Partition>();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final long maxSize;
+  private volatile long currentSize = 0;
+  private final CacheStats stats = new CacheStats();
+  
+  /** Statistics thread schedule pool */
+  private final ScheduledExecutorService scheduleThreadPool = Executors.newScheduledThreadPool(1, new NamingThreadFactory("PartitionedBlockCacheStats"));
+  
+  /**
+   * @param maxSize
+   *          maximum size of cache, in bytes
+   */
+  public PartitionedBlockCache(long maxSize) {
+    this.maxSize = maxSize;
+    
+    this.scheduleThreadPool.scheduleAtFixedRate(new Runnable() {
+      @Override
+      public void run() {
+        logStats();
+      }
+    }, statThreadPeriod, statThreadPeriod, TimeUnit.SECONDS);
+  }
+  
+  /**
+   * Get the partition with the given name, creating it with no minimum and no maximum share if it does not exist.
+   */
+  public Partition getPartition(String name) {
+    Partition partition = partitions.get(name);
+    if (partition == null) {
+      Partition newPartition = new Partition(name);
+      partition = partitions.putIfAbsent(name, newPartition);
+      if (partition == null)
+        partition = newPartition;
+    }
+    return partition;
+  }
+  
+  /**
+   * @return the names of all the partitions that have been used
+   */
+  public Set<String> getPartitionNames() {
+    return Collections.unmodifiableSet(new TreeSet<String>(partitions.keySet()));
+  }
+  
+  private CacheEntry put(Partition partition, String blockName, byte buf[], boolean inMemory) {
+    lock.lock();
+    try {
+      Entry entry = map.get(blockName);
+      if (entry != null) {
+        stats.duplicateReads();
+        entry.access();
+        return entry.block;
+      }
+      
+      CachedBlock cb = new CachedBlock(blockName, buf, 0, inMemory);
+      long blockSize = cb.heapSize();
+      if (blockSize > maxSize)
+        return null;
+      
+      if (currentSize + blockSize > maxSize) {
+        while (currentSize + blockSize > maxSize) {
+          Partition victim = chooseVictim(partition);
+          if (victim == null) {
+            // every partition is within its minimum share and this one has nothing to give up
+            partition.stats.rejected();
+            stats.rejected();
+            return null;
+          }
+          victim.evictOne();
+        }
+        stats.evict();
+      }
+      
+      entry = new Entry(cb, partition, inMemory);
+      map.put(blockName, entry);
+      partition.ring.add(entry);
+      partition.size += blockSize;
+      currentSize += blockSize;
+      return cb;
+    } finally {
+      lock.unlock();
+    }
+  }
+  
+  /**
+   * Pick the partition to evict from, must be called while holding the lock. Ties go to the inserting partition.
+   */
+  private Partition chooseVictim(Partition inserting) {
+    Partition victim = null;
+    long victimExcess = 0;
+    for (Partition p : partitions.values()) {
+      long excess = p.size - p.maxSize();
+      if ((excess > victimExcess || (excess > 0 && excess == victimExcess && p == inserting)) && !p.ring.isEmpty()) {
+        victim = p;
+        victimExcess = excess;
+      }
+    }
+    if (victim != null)
+      return victim;
+    
+    for (Partition p : partitions.values()) {
+      long excess = p.size - p.minSize();
+      if ((excess > victimExcess || (excess > 0 && excess == victimExcess && p == inserting)) && !p.ring.isEmpty()) {
+        victim = p;
+        victimExcess = excess;
+      }
+    }
+    if (victim != null)
+      return victim;
+    
+    // the minimums add up to more than the whole cache, a partition may only replace its own blocks
+    return inserting.ring.isEmpty() ? null : inserting;
+  }
+  
+  @Override
+  public CacheEntry cacheBlock(String blockName, byte buf[], boolean inMemory) {
+    return getPartition(DEFAULT_PARTITION).cacheBlock(blockName, buf, inMemory);
+  }
+  
+  @Override
+  public CacheEntry cacheBlock(String blockName, byte buf[]) {
+    return cacheBlock(blockName, buf, false);
+  }
+  
+  @Override
+  public CacheEntry getBlock(String blockName) {
+    return getPartition(DEFAULT_PARTITION).getBlock(blockName);
+  }
+  
+  @Override
+  public long getMaxSize() {
+    return maxSize;
+  }
+  
+  /**
+   * @return the number of bytes used by cached blocks
+   */
+  public long getCurrentSize() {
+    return currentSize;
+  }
+  
+  /**
+   * @return the number of cached blocks
+   */
+  public long size() {
+    return map.size();
+  }
+  
+  /**
+   * Get the number of blocks that have been evicted during the lifetime of this cache.
+   */
+  public long getEvictedCount() {
+    return stats.getEvictedCount();
+  }
+  
+  @Override
+  public CacheStats getStats() {
+    return stats;
+  }
+  
+  public void logStats() {
+    long used = getCurrentSize();
+    float usedMB = ((float) used) / ((float) (1024 * 1024));
+    float maxMB = ((float) maxSize) / ((float) (1024 * 1024));
+    LOG.debug("Partitioned Cache Stats: Sizes: " + "Used=" + usedMB + "MB (" + used + "), " + "Max=" + maxMB + "MB (" + maxSize + ")" + ", Counts: "
+        + "Blocks=" + size() + ", " + "Access=" + stats.getRequestCount() + ", " + "Hit=" + stats.getHitCount() + ", " + "Miss=" + stats.getMissCount() + ", "
+        + "Evicted=" + stats.getEvictedCount() + ", Ratios: " + "Hit Ratio=" + stats.getHitRatio() * 100 + "%, " + "Duplicate Reads="
+        + stats.getDuplicateReads());
+    for (String name : getPartitionNames()) {
+      Partition p = partitions.get(name);
+      LOG.debug("Partitioned Cache Stats: Partition '" + name + "': Used=" + p.getCurrentSize() + ", Min=" + p.minSize() + ", Max=" + p.maxSize() + ", Hit="
+          + p.stats.getHitCount() + ", Miss=" + p.stats.getMissCount() + ", Evicted=" + p.stats.getEvictedCount());
+    }
+  }
+  
+  @Override
+  public void shutdown() {
+    this.scheduleThreadPool.shutdown();
+  }
+}
@@ -0,0 +1,311 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.accumulo.core.file.blockfile.cache.LruBlockCache.CacheStats;
+import org.apache.accumulo.core.util.NamingThreadFactory;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A block cache for tablet servers with many cores. The cache is split into independent shards by block name, each with its own lock, map and share of the
+ * cache size, so readers of different blocks rarely contend and there is no cache wide eviction lock or thread.
+ * <p>
+ * 
+ * Each shard evicts with the clock algorithm when an insert would exceed its size. Blocks are kept in a ring and every access gives a block a credit, up to one
+ * credit for normal blocks and three for in-memory blocks. The clock hand takes credits away as it passes and evicts the first block it finds without one.
+ * Newly cached blocks start without credit, so blocks that are read only once, such as those of a large scan, are the first to go. The work done by an insert
+ * depends on the size of the shard and not the total number of cached blocks.
+ */
+public class ShardedBlockCache implements BlockCache {
+  
+  static final Log LOG = LogFactory.getLog(ShardedBlockCache.class);
+  
+  /** Maximum credits a block can accumulate */
+  static final int MAX_CREDITS = 1;
+  static final int MAX_MEMORY_CREDITS = 3;
+  
+  /** Smallest number of average sized blocks a shard is sized to hold */
+  static final int MIN_BLOCKS_PER_SHARD = 16;
+  
+  /** Statistics thread */
+  static final int statThreadPeriod = 60;
+  
+  private static class Entry {
+    private final CachedBlock block;
+    private final int maxCredits;
+    private volatile int credits = 0;
+    
+    Entry(CachedBlock block, boolean inMemory) {
+      this.block = block;
+      this.maxCredits = inMemory ? MAX_MEMORY_CREDITS : MAX_CREDITS;
+    }
+    
+    void access() {
+      // racing updates may lose a credit, which is harmless
+      int c = credits;
+      if (c < maxCredits)
+        credits = c + 1;
+    }
+  }
+  
+  private class Shard {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final HashMap<String,Entry> map = new HashMap<String,Entry>();
+    private final ArrayList<Entry> ring = new ArrayList<Entry>();
+    private final long maxSize;
+    private int hand = 0;
+    private volatile long size = 0;
+    
+    Shard(long maxSize) {
+      this.maxSize = maxSize;
+    }
+    
+    Entry get(String blockName) {
+      lock.lock();
+      try {
+        return map.get(blockName);
+      } finally {
+        lock.unlock();
+      }
+    }
+    
+    CacheEntry put(String blockName, byte buf[], boolean inMemory) {
+      lock.lock();
+      try {
+        Entry entry = map.get(blockName);
+        if (entry != null) {
+          stats.duplicateReads();
+          entry.access();
+          return entry.block;
+        }
+        
+        CachedBlock cb = new CachedBlock(blockName, buf, 0, inMemory);
+        long blockSize = cb.heapSize();
+        if (blockSize > maxSize)
+          return null;
+        
+        if (size + blockSize > maxSize) {
+          while (size + blockSize > maxSize)
+            evictOne();
+          stats.evict();
+        }
+        
+        entry = new Entry(cb, inMemory);
+        map.put(blockName, entry);
+        ring.add(entry);
+        size += blockSize;
+        return cb;
+      } finally {
+        lock.unlock();
+      }
+    }
+    
+    private void evictOne() {
+      while (true) {
+        if (hand >= ring.size())
+          hand = 0;
+        
+        Entry entry = ring.get(hand);
+        if (entry.credits > 0) {
+          entry.credits--;
+          hand++;
+          continue;
+        }
+        
+        // fill the hole with the last block in the ring, the hand stays put and looks at it next
+        Entry last = ring.remove(ring.size() - 1);
+        if (hand < ring.size())
+          ring.set(hand, last);
+        
+        map.remove(entry.block.getName());
+        size -= entry.block.heapSize();
+        stats.evicted();
+        BlockEvictionListener listener = evictionListener;
+        if (listener != null)
+          listener.blockEvicted(entry.block.getName(), entry.block.getBuffer());
+        return;
+      }
+    }
+    
+    int count() {
+      lock.lock();
+      try {
+        return map.size();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+  
+  private final Shard[] shards;
+  private final int shardMask;
+  private final long maxSize;
+  private final CacheStats stats = new CacheStats();
+  
+  /** Notified of evicted blocks, may be null */
+  private volatile BlockEvictionListener evictionListener;
+  
+  /** Statistics thread schedule pool */
+  private final ScheduledExecutorService scheduleThreadPool = Executors.newScheduledThreadPool(1, new NamingThreadFactory("ShardedBlockCacheStats"));
+  
+  /**
+   * Creates a cache with four shards per available processor, or fewer if the shards would be too small to hold {@value #MIN_BLOCKS_PER_SHARD} blocks.
+   * 
+   * @param maxSize
+   *          maximum size of cache, in bytes
+   * @param blockSize
+   *          approximate size of each block, in bytes
+   */
+  public ShardedBlockCache(long maxSize, long blockSize) {
+    this(maxSize, defaultShards(maxSize, blockSize));
+  }
+  
+  /**
+   * @param maxSize
+   *          maximum size of cache, in bytes
+   * @param numShards
+   *          number of shards, rounded up to a power of two
+   */
+  public ShardedBlockCache(long maxSize, int numShards) {
+    if (numShards <= 0)
+      throw new IllegalArgumentException("Number of shards must be positive " + numShards);
+    
+    int n = 1;
+    while (n < numShards)
+      n <<= 1;
+    
+    this.maxSize = maxSize;
+    this.shards = new Shard[n];
+    this.shardMask = n - 1;
+    for (int i = 0; i < n; i++)
+      shards[i] = new Shard(maxSize / n);
+    
+    this.scheduleThreadPool.scheduleAtFixedRate(new Runnable() {
+      @Override
+      public void run() {
+        logStats();
+      }
+    }, statThreadPeriod, statThreadPeriod, TimeUnit.SECONDS);
+  }
+  
+  private static int defaultShards(long maxSize, long blockSize) {
+    int shards = 4 * Runtime.getRuntime().availableProcessors();
+    long maxShards = Math.max(1, maxSize / (Math.max(1, blockSize) * MIN_BLOCKS_PER_SHARD));
+    return (int) Math.min(shards, maxShards);
+  }
+  
+  /**
+   * Set a listener that is given each block this cache evicts.
+   */
+  public void setEvictionListener(BlockEvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+  
+  private Shard shard(String blockName) {
+    int h = blockName.hashCode();
+    h ^= (h >>> 16);
+    h *= 0x85ebca6b;
+    h ^= (h >>> 13);
+    return shards[h & shardMask];
+  }
+  
+  @Override
+  public CacheEntry cacheBlock(String blockName, byte buf[], boolean inMemory) {
+    return shard(blockName).put(blockName, buf, inMemory);
+  }
+  
+  @Override
+  public CacheEntry cacheBlock(String blockName, byte buf[]) {
+    return cacheBlock(blockName, buf, false);
+  }
+  
+  @Override
+  public CacheEntry getBlock(String blockName) {
+    Entry entry = shard(blockName).get(blockName);
+    if (entry == null) {
+      stats.miss();
+      return null;
+    }
+    stats.hit();
+    entry.access();
+    return entry.block;
+  }
+  
+  @Override
+  public long getMaxSize() {
+    return maxSize;
+  }
+  
+  /**
+   * @return the number of bytes used by cached blocks
+   */
+  public long getCurrentSize() {
+    long size = 0;
+    for (Shard shard : shards)
+      size += shard.size;
+    return size;
+  }
+  
+  /**
+   * @return the number of cached blocks
+   */
+  public long size() {
+    long count = 0;
+    for (Shard shard : shards)
+      count += shard.count();
+    return count;
+  }
+  
+  public int getShardCount() {
+    return shards.length;
+  }
+  
+  /**
+   * Get the number of blocks that have been evicted during the lifetime of this cache.
+   */
+  public long getEvictedCount() {
+    return stats.getEvictedCount();
+  }
+  
+  @Override
+  public CacheStats getStats() {
+    return stats;
+  }
+  
+  public void logStats() {
+    long used = getCurrentSize();
+    float usedMB = ((float) used) / ((float) (1024 * 1024));
+    float maxMB = ((float) maxSize) / ((float) (1024 * 1024));
+    LOG.debug("Sharded Cache Stats: Sizes: " + "Used=" + usedMB + "MB (" + used + "), " + "Max=" + maxMB + "MB (" + maxSize + ")" + ", Shards=" + shards.length
+        + ", Counts: " + "Blocks=" + size() + ", " + "Access=" + stats.getRequestCount() + ", " + "Hit=" + stats.getHitCount() + ", " + "Miss="
+        + stats.getMissCount() + ", " + "Evicted=" + stats.getEvictedCount() + ", Ratios: " + "Hit Ratio=" + stats.getHitRatio() * 100 + "%, "
+        + "Duplicate Reads=" + stats.getDuplicateReads());
+  }
+  
+  @Override
+  public void shutdown() {
+    this.scheduleThreadPool.shutdown();
+  }
+}
@@ -66,6 +66,7 @@ public class SimpleBlockCache implements BlockCache {
   private Map<String,Ref> cache = new HashMap<String,Ref>();
   
   private ReferenceQueue<SimpleCacheEntry> q = new ReferenceQueue<SimpleCacheEntry>();
+  private LruBlockCache.CacheStats stats = new LruBlockCache.CacheStats();
   public int dumps = 0;
   
   /**
@@ -94,9 +95,12 @@ public class SimpleBlockCache implements BlockCache {
   public synchronized SimpleCacheEntry getBlock(String blockName) {
     processQueue(); // clear out some crap.
     Ref ref = cache.get(blockName);
-    if (ref == null)
-      return null;
-    return ref.get();
+    SimpleCacheEntry sce = ref == null ? null : ref.get();
+    if (sce == null)
+      stats.miss();
+    else
+      stats.hit();
+    return sce;
   }
   
   public synchronized SimpleCacheEntry cacheBlock(String blockName, byte buf[]) {
@@ -119,4 +123,9 @@ public class SimpleBlockCache implements BlockCache {
   public long getMaxSize() {
     return Long.MAX_VALUE;
   }
+  
+  @Override
+  public LruBlockCache.CacheStats getStats() {
+    return stats;
+  }
 }
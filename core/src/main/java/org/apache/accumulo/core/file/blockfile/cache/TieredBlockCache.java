@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.util.NamingThreadFactory;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * An in-memory block cache backed by a {@link DiskBlockCache}. Blocks evicted from the in-memory cache are written to the disk cache in the background, and a
+ * block missing from the in-memory cache is looked for on disk before the caller has to read it from the file system. Blocks found on disk are put back into
+ * the in-memory cache.
+ * <p>
+ * 
+ * Spilling evicted blocks must not slow down eviction, so writes are queued and dropped when the queue is full. Blocks waiting to be written can still be read.
+ */
+public class TieredBlockCache implements BlockCache, BlockEvictionListener {
+  
+  static final Log LOG = LogFactory.getLog(TieredBlockCache.class);
+  
+  static final int WRITE_QUEUE_SIZE = 1000;
+  
+  private final BlockCache memoryCache;
+  private final DiskBlockCache diskCache;
+  private final ThreadPoolExecutor writer;
+  
+  /** Evicted blocks that are queued to be written to disk */
+  private final ConcurrentHashMap<String,byte[]> pendingWrites = new ConcurrentHashMap<String,byte[]>();
+  
+  /**
+   * @param memoryCache
+   *          the first tier, which must be a cache that can report evictions
+   * @param diskCache
+   *          the second tier
+   */
+  public TieredBlockCache(BlockCache memoryCache, DiskBlockCache diskCache) {
+    if (memoryCache instanceof LruBlockCache)
+      ((LruBlockCache) memoryCache).setEvictionListener(this);
+    else if (memoryCache instanceof ShardedBlockCache)
+      ((ShardedBlockCache) memoryCache).setEvictionListener(this);
+    else
+      throw new IllegalArgumentException("Cache does not support eviction listeners " + memoryCache.getClass().getName());
+    
+    this.memoryCache = memoryCache;
+    this.diskCache = diskCache;
+    this.writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(WRITE_QUEUE_SIZE), new NamingThreadFactory(
+        "DiskBlockCacheWriter"));
+  }
+  
+  @Override
+  public void blockEvicted(final String blockName, final byte[] buf) {
+    if (pendingWrites.putIfAbsent(blockName, buf) != null)
+      return;
+    
+    try {
+      writer.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            diskCache.cacheBlock(blockName, buf);
+          } catch (IOException e) {
+            LOG.warn("Unable to write block " + blockName + " to disk cache " + e.getMessage());
+          } finally {
+            pendingWrites.remove(blockName);
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // the writer is behind or shut down, drop the block
+      pendingWrites.remove(blockName);
+    }
+  }
+  
+  @Override
+  public CacheEntry cacheBlock(String blockName, byte[] buf, boolean inMemory) {
+    return memoryCache.cacheBlock(blockName, buf, inMemory);
+  }
+  
+  @Override
+  public CacheEntry cacheBlock(String blockName, byte[] buf) {
+    return memoryCache.cacheBlock(blockName, buf);
+  }
+  
+  @Override
+  public CacheEntry getBlock(String blockName) {
+    CacheEntry ce = memoryCache.getBlock(blockName);
+    if (ce != null)
+      return ce;
+    
+    byte[] buf = pendingWrites.get(blockName);
+    if (buf == null)
+      buf = diskCache.getBlock(blockName);
+    if (buf == null)
+      return null;
+    
+    ce = memoryCache.cacheBlock(blockName, buf);
+    if (ce == null) {
+      // the memory cache declined the block, hand it to the caller anyway
+      ce = new CachedBlock(blockName, buf, 0);
+    }
+    return ce;
+  }
+  
+  @Override
+  public long getMaxSize() {
+    return memoryCache.getMaxSize();
+  }
+  
+  @Override
+  public Stats getStats() {
+    return memoryCache.getStats();
+  }
+  
+  public DiskBlockCache getDiskCache() {
+    return diskCache;
+  }
+  
+  @Override
+  public void shutdown() {
+    memoryCache.shutdown();
+    writer.shutdown();
+    diskCache.shutdown();
+  }
+}
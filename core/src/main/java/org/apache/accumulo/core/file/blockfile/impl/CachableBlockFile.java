@@ -16,12 +16,12 @@
  */
 package org.apache.accumulo.core.file.blockfile.impl;
 
-import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
 
 import org.apache.accumulo.core.file.blockfile.ABlockReader;
 import org.apache.accumulo.core.file.blockfile.ABlockWriter;
@@ -32,6 +32,7 @@ import org.apache.accumulo.core.file.blockfile.cache.CacheEntry;
 import org.apache.accumulo.core.file.rfile.bcfile.BCFile;
 import org.apache.accumulo.core.file.rfile.bcfile.BCFile.Reader.BlockReader;
 import org.apache.accumulo.core.file.rfile.bcfile.BCFile.Writer.BlockAppender;
+import org.apache.accumulo.core.file.rfile.bcfile.TFile;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
@@ -321,7 +322,16 @@ public class CachableBlockFile {
     
     private BlockRead cacheBlock(String _lookup, BlockCache cache, BlockReader _currBlock, String block) throws IOException {
       
-      if ((cache == null) || (_currBlock.getRawSize() > cache.getMaxSize())) {
+      if (cache == null && TFile.COMPRESSION_NONE.equals(_currBlock.getCompressionName()) && _currBlock.getRawSize() <= Integer.MAX_VALUE) {
+        // an uncompressed block is read with a single copy into memory, where it can be parsed without going through streams
+        byte b[] = new byte[(int) _currBlock.getRawSize()];
+        try {
+          _currBlock.readFully(b);
+        } finally {
+          _currBlock.close();
+        }
+        return new BlockRead(ByteBuffer.wrap(b));
+      } else if ((cache == null) || (_currBlock.getRawSize() > cache.getMaxSize())) {
         return new BlockRead(_currBlock, _currBlock.getRawSize());
       } else {
         
@@ -348,7 +358,7 @@ public class CachableBlockFile {
         }
         
         if (ce == null)
-          return new BlockRead(new DataInputStream(new ByteArrayInputStream(b)), b.length);
+          return new BlockRead(ByteBuffer.wrap(b));
         else
           return new CachedBlockRead(ce, ce.getBuffer());
         
@@ -409,39 +419,72 @@ public class CachableBlockFile {
     
   }
   
-  static class SeekableByteArrayInputStream extends ByteArrayInputStream {
+  /**
+   * A stream over the contents of a block in memory. Reads come straight from the buffer, so {@link BlockRead#getBuffer()} and the stream always agree on
+   * the position.
+   */
+  static class SeekableByteBufferInputStream extends InputStream {
     
-    public SeekableByteArrayInputStream(byte[] buf) {
-      super(buf);
+    private final ByteBuffer buffer;
+    
+    public SeekableByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
     }
     
-    public SeekableByteArrayInputStream(byte buf[], int offset, int length) {
-      super(buf, offset, length);
-      throw new UnsupportedOperationException("Seek code assumes offset is zero"); // do not need this constructor, documenting that seek will not work
-                                                                                  // unless offset it kept track of
+    @Override
+    public int read() {
+      if (!buffer.hasRemaining())
+        return -1;
+      return buffer.get() & 0xff;
+    }
+    
+    @Override
+    public int read(byte b[], int off, int len) {
+      if (len == 0)
+        return 0;
+      if (!buffer.hasRemaining())
+        return -1;
+      len = Math.min(len, buffer.remaining());
+      buffer.get(b, off, len);
+      return len;
+    }
+    
+    @Override
+    public long skip(long n) {
+      int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+      buffer.position(buffer.position() + skipped);
+      return skipped;
+    }
+    
+    @Override
+    public int available() {
+      return buffer.remaining();
     }
     
     public void seek(int position) {
-      if (pos < 0 || pos >= buf.length)
-        throw new IllegalArgumentException("pos = " + pos + " buf.lenght = " + buf.length);
-      this.pos = position;
+      if (position < 0 || position >= buffer.limit())
+        throw new IllegalArgumentException("pos = " + position + " buf.lenght = " + buffer.limit());
+      buffer.position(position);
     }
     
     public int getPosition() {
-      return this.pos;
+      return buffer.position();
     }
     
+    public ByteBuffer getBuffer() {
+      return buffer;
+    }
   }
 
   public static class CachedBlockRead extends BlockRead {
-    private SeekableByteArrayInputStream seekableInput;
+    private SeekableByteBufferInputStream seekableInput;
     private final CacheEntry cb;
     
     public CachedBlockRead(CacheEntry cb, byte buf[]) {
-      this(new SeekableByteArrayInputStream(buf), buf.length, cb);
+      this(new SeekableByteBufferInputStream(ByteBuffer.wrap(buf)), buf.length, cb);
     }
     
-    private CachedBlockRead(SeekableByteArrayInputStream seekableInput, long size, CacheEntry cb) {
+    private CachedBlockRead(SeekableByteBufferInputStream seekableInput, long size, CacheEntry cb) {
         super(seekableInput, size);
         this.seekableInput = seekableInput;
         this.cb = cb;
@@ -500,6 +543,13 @@ public class CachableBlockFile {
       this.size = size;
     }
     
+    /**
+     * Read a block whose contents are in memory.
+     */
+    public BlockRead(ByteBuffer buffer) {
+      this(new SeekableByteBufferInputStream(buffer), buffer.remaining());
+    }
+    
     /**
      * Size is the size of the bytearray that was read form the cache
      */
@@ -536,5 +586,12 @@ public class CachableBlockFile {
       throw new UnsupportedOperationException();
     }
     
+    @Override
+    public ByteBuffer getBuffer() {
+      if (in instanceof SeekableByteBufferInputStream)
+        return ((SeekableByteBufferInputStream) in).getBuffer();
+      return null;
+    }
+    
   }
 }
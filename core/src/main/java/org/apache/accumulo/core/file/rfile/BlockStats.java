@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.file.rfile.bcfile.Utils;
+import org.apache.hadoop.io.Writable;
+
+/**
+ * A summary of the keys in a data block, or in all of the data blocks below an index block, that is stored in the index so that a reader can skip blocks that
+ * can not contain anything it wants.
+ * 
+ * Column families are summarized as a 64 bit set, where each column family sets one bit chosen by a hash of its bytes. A set bit only means some column family
+ * with that hash may be present.
+ */
+public class BlockStats implements Writable {
+  
+  private static final byte HAS_DELETES = 0x01;
+  
+  private long minTimestamp = Long.MAX_VALUE;
+  private long maxTimestamp = Long.MIN_VALUE;
+  private long columnFamilies = 0;
+  private boolean hasDeletes = false;
+  
+  public BlockStats() {}
+  
+  public BlockStats(BlockStats stats) {
+    merge(stats);
+  }
+  
+  /**
+   * @return stats that do not exclude anything, for blocks whose keys were not summarized
+   */
+  public static BlockStats unknown() {
+    BlockStats stats = new BlockStats();
+    stats.minTimestamp = Long.MIN_VALUE;
+    stats.maxTimestamp = Long.MAX_VALUE;
+    stats.columnFamilies = -1;
+    stats.hasDeletes = true;
+    return stats;
+  }
+  
+  private static int hash(byte[] data, int offset, int len) {
+    int h = 1;
+    for (int i = offset; i < offset + len; i++)
+      h = 31 * h + data[i];
+    h ^= (h >>> 20) ^ (h >>> 12);
+    return h ^ (h >>> 7) ^ (h >>> 4);
+  }
+  
+  private static long getColumnFamilyBit(ByteSequence cf) {
+    int h;
+    if (cf.isBackedByArray())
+      h = hash(cf.getBackingArray(), cf.offset(), cf.length());
+    else
+      h = hash(cf.toArray(), 0, cf.length());
+    return 1l << (h & 63);
+  }
+  
+  /**
+   * @return a mask to pass to {@link #mayContainColumnFamilies(long)}
+   */
+  public static long getColumnFamilyMask(Collection<ByteSequence> columnFamilies) {
+    long mask = 0;
+    for (ByteSequence cf : columnFamilies)
+      mask |= getColumnFamilyBit(cf);
+    return mask;
+  }
+  
+  public void update(Key key) {
+    long ts = key.getTimestamp();
+    if (ts < minTimestamp)
+      minTimestamp = ts;
+    if (ts > maxTimestamp)
+      maxTimestamp = ts;
+    
+    columnFamilies |= getColumnFamilyBit(key.getColumnFamilyData());
+    
+    if (key.isDeleted())
+      hasDeletes = true;
+  }
+  
+  public void merge(BlockStats other) {
+    if (other.minTimestamp < minTimestamp)
+      minTimestamp = other.minTimestamp;
+    if (other.maxTimestamp > maxTimestamp)
+      maxTimestamp = other.maxTimestamp;
+    columnFamilies |= other.columnFamilies;
+    hasDeletes |= other.hasDeletes;
+  }
+  
+  public long getMinTimestamp() {
+    return minTimestamp;
+  }
+  
+  public long getMaxTimestamp() {
+    return maxTimestamp;
+  }
+  
+  public boolean hasDeletes() {
+    return hasDeletes;
+  }
+  
+  /**
+   * @param mask
+   *          from {@link #getColumnFamilyMask(Collection)}
+   * @return false if no key in the block has any of the column families in the mask
+   */
+  public boolean mayContainColumnFamilies(long mask) {
+    return (columnFamilies & mask) != 0;
+  }
+  
+  /**
+   * Determine if a scan that only returns timestamps in the given range needs the block. A delete can hide older keys in other files, so a block with deletes
+   * is needed unless every key in it is older than the range.
+   * 
+   * @return false if the block can be skipped
+   */
+  public boolean mayContainTimestamps(long min, long max) {
+    if (maxTimestamp < min)
+      return false;
+    if (minTimestamp > max && !hasDeletes)
+      return false;
+    return true;
+  }
+  
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    byte flags = in.readByte();
+    hasDeletes = (flags & HAS_DELETES) != 0;
+    minTimestamp = Utils.readVLong(in);
+    maxTimestamp = Utils.readVLong(in);
+    columnFamilies = in.readLong();
+  }
+  
+  @Override
+  public void write(DataOutput out) throws IOException {
+    out.writeByte(hasDeletes ? HAS_DELETES : 0);
+    Utils.writeVLong(out, minTimestamp);
+    Utils.writeVLong(out, maxTimestamp);
+    out.writeLong(columnFamilies);
+  }
+  
+  @Override
+  public String toString() {
+    return "timestamps:[" + minTimestamp + "," + maxTimestamp + "] deletes:" + hasDeletes + " columnFamilies:" + Long.toHexString(columnFamilies);
+  }
+}
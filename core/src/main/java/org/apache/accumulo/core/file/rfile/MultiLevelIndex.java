@@ -38,6 +38,7 @@ import org.apache.accumulo.core.file.blockfile.ABlockWriter;
 import org.apache.accumulo.core.file.blockfile.BlockFileReader;
 import org.apache.accumulo.core.file.blockfile.BlockFileWriter;
 import org.apache.accumulo.core.file.rfile.bcfile.Utils;
+import org.apache.accumulo.core.util.RateLimiter;
 import org.apache.hadoop.io.WritableComparable;
 
 public class MultiLevelIndex {
@@ -48,19 +49,34 @@ public class MultiLevelIndex {
     private long offset;
     private long compressedSize;
     private long rawSize;
+    private BlockStats stats;
+    private long rowIndexPosition;
     private boolean newFormat;
+    private boolean hasStats;
     
     IndexEntry(Key k, int e, long offset, long compressedSize, long rawSize) {
+      this(k, e, offset, compressedSize, rawSize, null, -1);
+    }
+    
+    IndexEntry(Key k, int e, long offset, long compressedSize, long rawSize, BlockStats stats, long rowIndexPosition) {
       this.key = k;
       this.entries = e;
       this.offset = offset;
       this.compressedSize = compressedSize;
       this.rawSize = rawSize;
+      this.stats = stats == null ? BlockStats.unknown() : stats;
+      this.rowIndexPosition = rowIndexPosition;
       newFormat = true;
+      hasStats = true;
     }
     
     public IndexEntry(boolean newFormat) {
+      this(newFormat, false);
+    }
+    
+    public IndexEntry(boolean newFormat, boolean hasStats) {
       this.newFormat = newFormat;
+      this.hasStats = hasStats;
     }
     
     @Override
@@ -77,6 +93,14 @@ public class MultiLevelIndex {
         compressedSize = -1;
         rawSize = -1;
       }
+      if (hasStats) {
+        stats = new BlockStats();
+        stats.readFields(in);
+        rowIndexPosition = Utils.readVLong(in);
+      } else {
+        stats = null;
+        rowIndexPosition = -1;
+      }
     }
     
     @Override
@@ -88,6 +112,10 @@ public class MultiLevelIndex {
         Utils.writeVLong(out, compressedSize);
         Utils.writeVLong(out, rawSize);
       }
+      if (hasStats) {
+        stats.write(out);
+        Utils.writeVLong(out, rowIndexPosition);
+      }
     }
     
     public Key getKey() {
@@ -110,6 +138,20 @@ public class MultiLevelIndex {
       return rawSize;
     }
     
+    /**
+     * @return a summary of the keys in the block, or null if the file is too old to have one
+     */
+    public BlockStats getStats() {
+      return stats;
+    }
+    
+    /**
+     * @return where the {@link RowHashIndex} starts in the uncompressed block, or -1 if the block does not have one
+     */
+    public long getRowIndexPosition() {
+      return rowIndexPosition;
+    }
+    
     @Override
     public int compareTo(IndexEntry o) {
       return key.compareTo(o.key);
@@ -122,11 +164,13 @@ public class MultiLevelIndex {
     private int[] offsets;
     private byte[] data;
     private boolean newFormat;
+    private boolean hasStats;
     
-    SerializedIndex(int[] offsets, byte[] data, boolean newFormat) {
+    SerializedIndex(int[] offsets, byte[] data, boolean newFormat, boolean hasStats) {
       this.offsets = offsets;
       this.data = data;
       this.newFormat = newFormat;
+      this.hasStats = hasStats;
     }
     
     @Override
@@ -140,7 +184,7 @@ public class MultiLevelIndex {
       ByteArrayInputStream bais = new ByteArrayInputStream(data, offsets[index], len);
       DataInputStream dis = new DataInputStream(bais);
       
-      IndexEntry ie = new IndexEntry(newFormat);
+      IndexEntry ie = new IndexEntry(newFormat, hasStats);
       try {
         ie.readFields(dis);
       } catch (IOException e) {
@@ -206,6 +250,7 @@ public class MultiLevelIndex {
     private ArrayList<Integer> offsets;
     private int level;
     private int offset;
+    private BlockStats stats;
     
     SerializedIndex index;
     KeyIndex keyIndex;
@@ -220,13 +265,23 @@ public class MultiLevelIndex {
       indexBytes = new ByteArrayOutputStream();
       indexOut = new DataOutputStream(indexBytes);
       offsets = new ArrayList<Integer>();
+      stats = new BlockStats();
     }
     
     public IndexBlock() {}
     
-    public void add(Key key, int value, long offset, long compressedSize, long rawSize) throws IOException {
+    public void add(Key key, int value, long offset, long compressedSize, long rawSize, BlockStats blockStats, long rowIndexPosition) throws IOException {
       offsets.add(indexOut.size());
-      new IndexEntry(key, value, offset, compressedSize, rawSize).write(indexOut);
+      IndexEntry ie = new IndexEntry(key, value, offset, compressedSize, rawSize, blockStats, rowIndexPosition);
+      ie.write(indexOut);
+      stats.merge(ie.getStats());
+    }
+    
+    /**
+     * @return the stats of every entry added to this block
+     */
+    BlockStats getStats() {
+      return stats;
     }
     
     int getSize() {
@@ -252,7 +307,7 @@ public class MultiLevelIndex {
     
     public void readFields(DataInput in, int version) throws IOException {
       
-      if (version == RFile.RINDEX_VER_6 || version == RFile.RINDEX_VER_7) {
+      if (version == RFile.RINDEX_VER_6 || version == RFile.RINDEX_VER_7 || version == RFile.RINDEX_VER_8) {
         level = in.readInt();
         offset = in.readInt();
         hasNext = in.readBoolean();
@@ -267,7 +322,7 @@ public class MultiLevelIndex {
         byte[] serializedIndex = new byte[indexSize];
         in.readFully(serializedIndex);
         
-        index = new SerializedIndex(offsets, serializedIndex, true);
+        index = new SerializedIndex(offsets, serializedIndex, true, version == RFile.RINDEX_VER_8);
         keyIndex = new KeyIndex(offsets, serializedIndex);
       } else if (version == RFile.RINDEX_VER_3) {
         level = 0;
@@ -295,7 +350,7 @@ public class MultiLevelIndex {
         }
         
         byte[] serializedIndex = baos.toByteArray();
-        index = new SerializedIndex(oia, serializedIndex, false);
+        index = new SerializedIndex(oia, serializedIndex, false, false);
         keyIndex = new KeyIndex(oia, serializedIndex);
       } else if (version == RFile.RINDEX_VER_4) {
         level = 0;
@@ -312,7 +367,7 @@ public class MultiLevelIndex {
         byte[] indexData = new byte[size];
         in.readFully(indexData);
         
-        index = new SerializedIndex(offsets, indexData, false);
+        index = new SerializedIndex(offsets, indexData, false, false);
         keyIndex = new KeyIndex(offsets, indexData);
       } else {
         throw new RuntimeException("Unexpected version " + version);
@@ -369,10 +424,10 @@ public class MultiLevelIndex {
       
       DataInputStream dis = new DataInputStream(new ByteArrayInputStream(baos.toByteArray()));
       
-      IndexEntry ie = new IndexEntry(true);
+      IndexEntry ie = new IndexEntry(true, true);
       for (int i = 0; i < buffered; i++) {
         ie.readFields(dis);
-        writer.add(ie.getKey(), ie.getNumEntries(), ie.getOffset(), ie.getCompressedSize(), ie.getRawSize());
+        writer.add(ie.getKey(), ie.getNumEntries(), ie.getOffset(), ie.getCompressedSize(), ie.getRawSize(), ie.getStats(), ie.getRowIndexPosition());
       }
       
       buffered = 0;
@@ -382,17 +437,25 @@ public class MultiLevelIndex {
     }
     
     public void add(Key key, int data, long offset, long compressedSize, long rawSize) throws IOException {
+      add(key, data, offset, compressedSize, rawSize, null, -1);
+    }
+    
+    public void add(Key key, int data, long offset, long compressedSize, long rawSize, BlockStats stats, long rowIndexPosition) throws IOException {
       if (buffer.size() > (10 * 1 << 20)) {
         flush();
       }
       
-      new IndexEntry(key, data, offset, compressedSize, rawSize).write(buffer);
+      new IndexEntry(key, data, offset, compressedSize, rawSize, stats, rowIndexPosition).write(buffer);
       buffered++;
     }
     
     public void addLast(Key key, int data, long offset, long compressedSize, long rawSize) throws IOException {
+      addLast(key, data, offset, compressedSize, rawSize, null, -1);
+    }
+    
+    public void addLast(Key key, int data, long offset, long compressedSize, long rawSize, BlockStats stats, long rowIndexPosition) throws IOException {
       flush();
-      writer.addLast(key, data, offset, compressedSize, rawSize);
+      writer.addLast(key, data, offset, compressedSize, rawSize, stats, rowIndexPosition);
     }
     
     public void close(DataOutput out) throws IOException {
@@ -417,14 +480,15 @@ public class MultiLevelIndex {
       levels = new ArrayList<IndexBlock>();
     }
     
-    private void add(int level, Key key, int data, long offset, long compressedSize, long rawSize) throws IOException {
+    private void add(int level, Key key, int data, long offset, long compressedSize, long rawSize, BlockStats stats, long rowIndexPosition)
+        throws IOException {
       if (level == levels.size()) {
         levels.add(new IndexBlock(level, 0));
       }
       
       IndexBlock iblock = levels.get(level);
       
-      iblock.add(key, data, offset, compressedSize, rawSize);
+      iblock.add(key, data, offset, compressedSize, rawSize, stats, rowIndexPosition);
     }
     
     private void flush(int level, Key lastKey, boolean last) throws IOException {
@@ -439,7 +503,7 @@ public class MultiLevelIndex {
         iblock.write(out);
         out.close();
         
-        add(level + 1, lastKey, 0, out.getStartPos(), out.getCompressedSize(), out.getRawSize());
+        add(level + 1, lastKey, 0, out.getStartPos(), out.getCompressedSize(), out.getRawSize(), iblock.getStats(), -1);
         flush(level + 1, lastKey, last);
         
         if (last)
@@ -449,18 +513,18 @@ public class MultiLevelIndex {
       }
     }
     
-    public void add(Key key, int data, long offset, long compressedSize, long rawSize) throws IOException {
+    public void add(Key key, int data, long offset, long compressedSize, long rawSize, BlockStats stats, long rowIndexPosition) throws IOException {
       totalAdded++;
-      add(0, key, data, offset, compressedSize, rawSize);
+      add(0, key, data, offset, compressedSize, rawSize, stats, rowIndexPosition);
       flush(0, key, false);
     }
     
-    public void addLast(Key key, int data, long offset, long compressedSize, long rawSize) throws IOException {
+    public void addLast(Key key, int data, long offset, long compressedSize, long rawSize, BlockStats stats, long rowIndexPosition) throws IOException {
       if (addedLast)
         throw new IllegalStateException("already added last");
       
       totalAdded++;
-      add(0, key, data, offset, compressedSize, rawSize);
+      add(0, key, data, offset, compressedSize, rawSize, stats, rowIndexPosition);
       flush(0, key, true);
       addedLast = true;
       
@@ -723,7 +787,7 @@ public class MultiLevelIndex {
       
       size = 0;
       
-      if (version == RFile.RINDEX_VER_6 || version == RFile.RINDEX_VER_7) {
+      if (version == RFile.RINDEX_VER_6 || version == RFile.RINDEX_VER_7 || version == RFile.RINDEX_VER_8) {
         size = in.readInt();
       }
       
@@ -762,6 +826,22 @@ public class MultiLevelIndex {
       }
     }
     
+    private void warmCache(IndexBlock ib, RateLimiter limiter) throws IOException {
+      if (ib.getLevel() > 0) {
+        for (IndexEntry ie : ib.index) {
+          limiter.acquire(ie.getCompressedSize());
+          warmCache(getIndexBlock(ie), limiter);
+        }
+      }
+    }
+    
+    /**
+     * Read every index block below the root, so that they are loaded into the index cache if there is one.
+     */
+    public void warmCache(RateLimiter limiter) throws IOException {
+      warmCache(rootBlock, limiter);
+    }
+    
     public void getIndexInfo(Map<Integer,Long> sizes, Map<Integer,Long> counts) throws IOException {
       getIndexInfo(rootBlock, sizes, counts);
     }
@@ -22,6 +22,7 @@ import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -34,6 +35,15 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
@@ -41,15 +51,18 @@ import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.data.ArrayByteSequence;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.file.FileSKVIterator;
 import org.apache.accumulo.core.file.FileSKVWriter;
 import org.apache.accumulo.core.file.NoSuchMetaStoreException;
+import org.apache.accumulo.core.file.TimestampFilterable;
 import org.apache.accumulo.core.file.blockfile.ABlockReader;
 import org.apache.accumulo.core.file.blockfile.ABlockWriter;
 import org.apache.accumulo.core.file.blockfile.BlockFileReader;
 import org.apache.accumulo.core.file.blockfile.BlockFileWriter;
+import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile.BlockRead;
 import org.apache.accumulo.core.file.rfile.BlockIndex.BlockIndexEntry;
 import org.apache.accumulo.core.file.rfile.MultiLevelIndex.IndexEntry;
 import org.apache.accumulo.core.file.rfile.MultiLevelIndex.Reader.IndexIterator;
@@ -60,6 +73,8 @@ import org.apache.accumulo.core.iterators.IterationInterruptedException;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.system.HeapIterator;
+import org.apache.accumulo.core.util.NamingThreadFactory;
+import org.apache.accumulo.core.util.RateLimiter;
 import org.apache.hadoop.io.Writable;
 import org.apache.log4j.Logger;
 
@@ -72,12 +87,42 @@ public class RFile {
   private RFile() {}
   
   private static final int RINDEX_MAGIC = 0x20637474;
+  static final int RINDEX_VER_8 = 8; // per block key stats and row index position in the index
   static final int RINDEX_VER_7 = 7;
   static final int RINDEX_VER_6 = 6;
   // static final int RINDEX_VER_5 = 5; // unreleased
   static final int RINDEX_VER_4 = 4;
   static final int RINDEX_VER_3 = 3;
   
+  /** Number of blocks a reader must read in a row without seeking before it starts to prefetch the next block */
+  static final int PREFETCH_THRESHOLD = 2;
+  
+  /** Maximum number of prefetches waiting for a thread */
+  static final int PREFETCH_QUEUE_SIZE = 64;
+  
+  private static ExecutorService prefetchThreadPool = null;
+  
+  /**
+   * Get the thread pool shared by all readers to read and decompress the next data block while the current one is consumed. The queue is bounded, when it is
+   * full a block is read when it is needed instead.
+   * 
+   * @return null if prefetching is disabled
+   */
+  private static synchronized ExecutorService getPrefetchThreadPool(int maxThreads) {
+    if (prefetchThreadPool != null) {
+      return prefetchThreadPool;
+    }
+    
+    if (maxThreads > 0) {
+      BlockingQueue<Runnable> q = new ArrayBlockingQueue<Runnable>(PREFETCH_QUEUE_SIZE);
+      ThreadPoolExecutor tp = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS, q, new NamingThreadFactory("rfile-prefetch"));
+      tp.allowCoreThreadTimeOut(true);
+      prefetchThreadPool = tp;
+    }
+    
+    return prefetchThreadPool;
+  }
+  
   private static class Count {
     public Count(int i) {
       this.count = i;
@@ -303,6 +348,8 @@ public class RFile {
     private int nextBlock = 0;
     
     private Key lastKeyInBlock = null;
+    private BlockStats blockStats = null;
+    private RowHashIndex rowIndex = null;
     
     private boolean dataClosed = false;
     private boolean closed = false;
@@ -316,11 +363,21 @@ public class RFile {
     }
     
     public Writer(BlockFileWriter bfw, int blockSize, int indexBlockSize) throws IOException {
+      this(bfw, blockSize, indexBlockSize, false);
+    }
+    
+    /**
+     * @param rowHashIndex
+     *          write a {@link RowHashIndex} at the end of each data block
+     */
+    public Writer(BlockFileWriter bfw, int blockSize, int indexBlockSize, boolean rowHashIndex) throws IOException {
       this.blockSize = blockSize;
       this.indexBlockSize = indexBlockSize;
       this.fileWriter = bfw;
       this.blockWriter = null;
       previousColumnFamilies = new HashSet<ByteSequence>();
+      if (rowHashIndex)
+        rowIndex = new RowHashIndex();
     }
     
     @Override
@@ -335,7 +392,7 @@ public class RFile {
       ABlockWriter mba = fileWriter.prepareMetaBlock("RFile.index");
       
       mba.writeInt(RINDEX_MAGIC);
-      mba.writeInt(RINDEX_VER_7);
+      mba.writeInt(RINDEX_VER_8);
       
       if (currentLocalityGroup != null)
         localityGroups.add(currentLocalityGroup);
@@ -385,15 +442,25 @@ public class RFile {
       
       if (blockWriter == null) {
         blockWriter = fileWriter.prepareDataBlock();
+        blockStats = new BlockStats();
       } else if (blockWriter.getRawSize() > blockSize) {
         closeBlock(prevKey, false);
         blockWriter = fileWriter.prepareDataBlock();
+        blockStats = new BlockStats();
       }
       
-      RelativeKey rk = new RelativeKey(lastKeyInBlock, key);
+      RelativeKey rk;
+      if (rowIndex != null && (lastKeyInBlock == null || !key.equals(lastKeyInBlock, PartialKey.ROW))) {
+        // the first key of a row does not depend on the previous key, so the row index can point at it
+        rowIndex.add(key.getRowData(), (int) blockWriter.getRawSize(), entries);
+        rk = new RelativeKey(null, key);
+      } else {
+        rk = new RelativeKey(lastKeyInBlock, key);
+      }
       
       rk.write(blockWriter);
       value.write(blockWriter);
+      blockStats.update(key);
       entries++;
       
       prevKey = new Key(key);
@@ -402,14 +469,24 @@ public class RFile {
     }
     
     private void closeBlock(Key key, boolean lastBlock) throws IOException {
+      long rowIndexPosition = -1;
+      if (rowIndex != null && rowIndex.size() > 0) {
+        rowIndexPosition = blockWriter.getRawSize();
+        rowIndex.write(blockWriter);
+        rowIndex.clear();
+      }
+      
       blockWriter.close();
       
       if (lastBlock)
-        currentLocalityGroup.indexWriter.addLast(key, entries, blockWriter.getStartPos(), blockWriter.getCompressedSize(), blockWriter.getRawSize());
+        currentLocalityGroup.indexWriter.addLast(key, entries, blockWriter.getStartPos(), blockWriter.getCompressedSize(), blockWriter.getRawSize(),
+            blockStats, rowIndexPosition);
       else
-        currentLocalityGroup.indexWriter.add(key, entries, blockWriter.getStartPos(), blockWriter.getCompressedSize(), blockWriter.getRawSize());
+        currentLocalityGroup.indexWriter.add(key, entries, blockWriter.getStartPos(), blockWriter.getCompressedSize(), blockWriter.getRawSize(), blockStats,
+            rowIndexPosition);
       
       blockWriter = null;
+      blockStats = null;
       lastKeyInBlock = null;
       entries = 0;
       nextBlock++;
@@ -509,22 +586,47 @@ public class RFile {
       this.isDefaultLocalityGroup = lgr.isDefaultLocalityGroup;
       this.reader = lgr.reader;
       this.version = lgr.version;
+      this.prefetchThreadPool = lgr.prefetchThreadPool;
     }
     
     Iterator<IndexEntry> getIndex() throws IOException {
       return index.lookup(new Key());
     }
     
+    private void warmCache(int numDataBlocks, RateLimiter limiter) throws IOException {
+      index.warmCache(limiter);
+      
+      if (numDataBlocks <= 0 || blockCount == 0)
+        return;
+      
+      IndexIterator iter = index.lookup(new Key());
+      for (int i = 0; i < numDataBlocks && iter.hasNext(); i++) {
+        IndexEntry indexEntry = iter.next();
+        limiter.acquire(indexEntry.getCompressedSize());
+        ABlockReader block;
+        if (version == RINDEX_VER_3 || version == RINDEX_VER_4)
+          block = reader.getDataBlock(startBlock + iter.previousIndex());
+        else
+          block = reader.getDataBlock(indexEntry.getOffset(), indexEntry.getCompressedSize(), indexEntry.getRawSize());
+        block.close();
+      }
+    }
+    
     @Override
     public void close() throws IOException {
       closed = true;
       hasTop = false;
+      cancelPrefetch();
       if (currBlock != null)
         currBlock.close();
       
     }
     
     private IndexIterator iiter;
+    private ExecutorService prefetchThreadPool = null;
+    private int sequentialBlocks = 0;
+    private Future<ABlockReader> prefetch = null;
+    private int prefetchIndex = -1;
     private int entriesLeft;
     private ABlockReader currBlock;
     private RelativeKey rk;
@@ -533,6 +635,9 @@ public class RFile {
     private Range range = null;
     private boolean hasTop = false;
     private AtomicBoolean interruptFlag;
+    private long columnFamilyMask = -1;
+    private long minTimestamp = Long.MIN_VALUE;
+    private long maxTimestamp = Long.MAX_VALUE;
     
     @Override
     public Key getTopKey() {
@@ -564,13 +669,21 @@ public class RFile {
       if (!hasTop)
         throw new IllegalStateException();
       
+      Key skippedKey = null;
+      
       if (entriesLeft == 0) {
         currBlock.close();
         
         if (iiter.hasNext()) {
           IndexEntry indexEntry = iiter.next();
+          while (canSkip(indexEntry) && iiter.hasNext()) {
+            // the key in the index is the last key in the block
+            skippedKey = indexEntry.getKey();
+            indexEntry = iiter.next();
+          }
+          
           entriesLeft = indexEntry.getNumEntries();
-          currBlock = getDataBlock(indexEntry);
+          currBlock = getNextDataBlock(indexEntry);
           
           checkRange = range.afterEndKey(indexEntry.getKey());
           if (!checkRange)
@@ -584,7 +697,7 @@ public class RFile {
         }
       }
       
-      prevKey = rk.getKey();
+      prevKey = skippedKey == null ? rk.getKey() : skippedKey;
       rk.readFields(currBlock);
       val.readFields(currBlock);
       entriesLeft--;
@@ -592,6 +705,17 @@ public class RFile {
         hasTop = !range.afterEndKey(rk.getKey());
     }
     
+    /**
+     * @return true if the stats of a block show it has nothing this reader was asked for, and there could be wanted keys after it in the range
+     */
+    private boolean canSkip(IndexEntry indexEntry) {
+      BlockStats stats = indexEntry.getStats();
+      if (stats == null || range.afterEndKey(indexEntry.getKey()))
+        return false;
+      
+      return !stats.mayContainColumnFamilies(columnFamilyMask) || !stats.mayContainTimestamps(minTimestamp, maxTimestamp);
+    }
+    
     private ABlockReader getDataBlock(IndexEntry indexEntry) throws IOException {
       if (interruptFlag != null && interruptFlag.get())
         throw new IterationInterruptedException();
@@ -603,6 +727,97 @@ public class RFile {
       
     }
     
+    /**
+     * Get the block after the current one while reading sequentially, using the block prefetched for it if there is one. Once {@value #PREFETCH_THRESHOLD}
+     * blocks in a row have been read this way, the block after this one is read in the background.
+     */
+    private ABlockReader getNextDataBlock(IndexEntry indexEntry) throws IOException {
+      ABlockReader block = takePrefetchedBlock();
+      if (block == null)
+        block = getDataBlock(indexEntry);
+      
+      if (++sequentialBlocks >= PREFETCH_THRESHOLD)
+        prefetchNextBlock();
+      
+      return block;
+    }
+    
+    private ABlockReader takePrefetchedBlock() throws IOException {
+      Future<ABlockReader> future = prefetch;
+      prefetch = null;
+      if (future == null)
+        return null;
+      
+      if (prefetchIndex != iiter.previousIndex()) {
+        future.cancel(false);
+        return null;
+      }
+      
+      if (interruptFlag != null && interruptFlag.get())
+        throw new IterationInterruptedException();
+      
+      try {
+        return future.get();
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      } catch (ExecutionException e) {
+        // read the block again in this thread, so that any error is reported here
+        return null;
+      }
+    }
+    
+    private void prefetchNextBlock() {
+      ExecutorService executor = prefetchThreadPool;
+      if (executor == null || !iiter.hasNext())
+        return;
+      
+      final IndexEntry indexEntry = iiter.peek();
+      final int index = iiter.previousIndex() + 1;
+      
+      try {
+        prefetch = executor.submit(new Callable<ABlockReader>() {
+          @Override
+          public ABlockReader call() throws Exception {
+            ABlockReader block;
+            if (version == RINDEX_VER_3 || version == RINDEX_VER_4)
+              block = reader.getDataBlock(startBlock + index);
+            else
+              block = reader.getDataBlock(indexEntry.getOffset(), indexEntry.getCompressedSize(), indexEntry.getRawSize());
+            return readFully(block);
+          }
+        });
+        prefetchIndex = index;
+      } catch (RejectedExecutionException e) {
+        // the prefetch threads are busy, the block will be read when it is needed
+      }
+    }
+    
+    private void cancelPrefetch() {
+      if (prefetch != null) {
+        prefetch.cancel(false);
+        prefetch = null;
+      }
+      sequentialBlocks = 0;
+    }
+    
+    /**
+     * Read and decompress the rest of a block into memory, so that it holds no file resources while it waits to be used.
+     */
+    private static ABlockReader readFully(ABlockReader block) throws IOException {
+      if (block.getBuffer() != null) {
+        // cached and uncompressed blocks are already in memory
+        return block;
+      }
+      
+      try {
+        byte data[] = new byte[(int) block.getRawSize()];
+        block.readFully(data);
+        return new BlockRead(ByteBuffer.wrap(data));
+      } finally {
+        block.close();
+      }
+    }
+    
     @Override
     public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
       
@@ -703,6 +918,7 @@ public class RFile {
       }
       
       if (reseek) {
+        cancelPrefetch();
         iiter = index.lookup(startKey);
         
         reset();
@@ -723,6 +939,11 @@ public class RFile {
             prevKey = new Key(); // first block in the file, so set prev key to minimal key
             
           IndexEntry indexEntry = iiter.next();
+          while (canSkip(indexEntry) && iiter.hasNext()) {
+            prevKey = indexEntry.getKey();
+            indexEntry = iiter.next();
+          }
+          
           entriesLeft = indexEntry.getNumEntries();
           currBlock = getDataBlock(indexEntry);
 
@@ -733,8 +954,27 @@ public class RFile {
           MByteSequence valbs = new MByteSequence(new byte[64], 0, 0);
 
           Key currKey = null;
+          
+          if (indexEntry.getRowIndexPosition() >= 0 && currBlock.getBuffer() != null) {
+            // jump to the first key of the row, and fast skip from there
+            RelativeKey tmpRk = new RelativeKey();
+            int ordinal = RowHashIndex.seek(currBlock, (int) indexEntry.getRowIndexPosition(), startKey.getRowData(), tmpRk);
+            if (ordinal >= 0) {
+              val = new Value();
+              val.readFields(currBlock);
+              valbs = new MByteSequence(val.get(), 0, val.getSize());
+              
+              entriesLeft = indexEntry.getNumEntries() - ordinal - 1;
+              if (ordinal > 0) {
+                // the entry before is in an earlier row, so nothing in the file sorts between the smallest possible key in this row and the first key
+                // of the row in this block
+                prevKey = new Key(startKey.getRowData().toArray(), new byte[0], new byte[0], new byte[0], Long.MAX_VALUE, true);
+              }
+              currKey = tmpRk.getKey();
+            }
+          }
 
-          if (currBlock.isIndexable()) {
+          if (currKey == null && currBlock.isIndexable()) {
             BlockIndex blockIndex = BlockIndex.getIndex(currBlock, indexEntry);
             if (blockIndex != null) {
               BlockIndexEntry bie = blockIndex.seekBlock(startKey, currBlock);
@@ -810,9 +1050,24 @@ public class RFile {
     public void setInterruptFlag(AtomicBoolean flag) {
       this.interruptFlag = flag;
     }
+    
+    /**
+     * Set the column families the next seek wants, so that blocks without any of them can be skipped.
+     * 
+     * @param mask
+     *          from {@link BlockStats#getColumnFamilyMask(Collection)}, -1 for all column families
+     */
+    private void setColumnFamilyMask(long mask) {
+      this.columnFamilyMask = mask;
+    }
+    
+    private void setTimestampRange(long minTimestamp, long maxTimestamp) {
+      this.minTimestamp = minTimestamp;
+      this.maxTimestamp = maxTimestamp;
+    }
   }
   
-  public static class Reader extends HeapIterator implements FileSKVIterator {
+  public static class Reader extends HeapIterator implements FileSKVIterator, TimestampFilterable {
     
     private static final Collection<ByteSequence> EMPTY_CF_SET = Collections.emptySet();
     
@@ -838,7 +1093,7 @@ public class RFile {
       
       if (magic != RINDEX_MAGIC)
         throw new IOException("Did not see expected magic number, saw " + magic);
-      if (ver != RINDEX_VER_7 && ver != RINDEX_VER_6 && ver != RINDEX_VER_4 && ver != RINDEX_VER_3)
+      if (ver != RINDEX_VER_8 && ver != RINDEX_VER_7 && ver != RINDEX_VER_6 && ver != RINDEX_VER_4 && ver != RINDEX_VER_3)
         throw new IOException("Did not see expected version, saw " + ver);
       
       int size = mb.readInt();
@@ -1001,6 +1256,10 @@ public class RFile {
       else
         cfSet = Collections.emptySet();
       
+      long cfMask = -1;
+      if (inclusive && cfSet.size() > 0)
+        cfMask = BlockStats.getColumnFamilyMask(cfSet);
+      
       for (LocalityGroupReader lgr : lgReaders) {
         
         // when include is set to true it means this locality groups contains
@@ -1040,6 +1299,7 @@ public class RFile {
         }
         
         if (include) {
+          lgr.setColumnFamilyMask(cfMask);
           lgr.seek(range, EMPTY_CF_SET, false);
           addSource(lgr);
           numLGSeeked++;
@@ -1062,6 +1322,20 @@ public class RFile {
       return new MultiIndexIterator(this, indexes);
     }
     
+    /**
+     * Read the index blocks of every locality group, and the first data blocks of each, so that they are loaded into the block caches the file was opened
+     * with. Nothing is cached for a cache that is disabled.
+     * 
+     * @param numDataBlocks
+     *          number of data blocks to read from the start of each locality group
+     * @param limiter
+     *          given the compressed size of each block before it is read
+     */
+    public void warmCache(int numDataBlocks, RateLimiter limiter) throws IOException {
+      for (LocalityGroupReader lgr : lgReaders)
+        lgr.warmCache(numDataBlocks, limiter);
+    }
+    
     public void printInfo() throws IOException {
       for (LocalityGroupMetadata lgm : localityGroups) {
         lgm.printInfo();
@@ -1069,6 +1343,30 @@ public class RFile {
       
     }
     
+    /**
+     * Once this reader has read a few blocks of a locality group in a row, read the next block of the group in the background while the current one is
+     * consumed. This must be called before any deep copies are made.
+     * 
+     * @param maxThreads
+     *          size of the thread pool shared by all readers for prefetching, only used by the first reader that enables prefetching. Prefetching is not
+     *          enabled if this is zero.
+     */
+    public void enablePrefetch(int maxThreads) {
+      ExecutorService pool = getPrefetchThreadPool(maxThreads);
+      for (LocalityGroupReader lgr : lgReaders)
+        lgr.prefetchThreadPool = pool;
+    }
+    
+    /**
+     * Skip data blocks whose keys all have timestamps outside of the given range. Blocks with deletes newer than the range are still read, because the deletes
+     * may hide keys in other files.
+     */
+    @Override
+    public void setTimestampRange(long minTimestamp, long maxTimestamp) {
+      for (LocalityGroupReader lgr : lgReaders)
+        lgr.setTimestampRange(minTimestamp, maxTimestamp);
+    }
+    
     @Override
     public void setInterruptFlag(AtomicBoolean flag) {
       if (deepCopy)
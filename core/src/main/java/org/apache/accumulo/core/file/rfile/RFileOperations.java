@@ -77,6 +77,7 @@ public class RFileOperations extends FileOperations {
     
     CachableBlockFile.Reader _cbr = new CachableBlockFile.Reader(fs, path, conf, dataCache, indexCache);
     Reader iter = new RFile.Reader(_cbr);
+    iter.enablePrefetch(acuconf.getCount(Property.TSERV_PREFETCH_MAXCONCURRENT));
     
     if (seekToBeginning) {
       iter.seek(new Range((Key) null, null), EMPTY_CF_SET, false);
@@ -122,7 +123,7 @@ public class RFileOperations extends FileOperations {
     String compression = acuconf.get(Property.TABLE_FILE_COMPRESSION_TYPE);
     
     CachableBlockFile.Writer _cbw = new CachableBlockFile.Writer(fs.create(new Path(file), false, bufferSize, (short) rep, block), compression, conf);
-    Writer writer = new RFile.Writer(_cbw, (int) blockSize, (int) indexBlockSize);
+    Writer writer = new RFile.Writer(_cbw, (int) blockSize, (int) indexBlockSize, acuconf.getBoolean(Property.TABLE_FILE_ROW_HASH_INDEX));
     return writer;
   }
 }
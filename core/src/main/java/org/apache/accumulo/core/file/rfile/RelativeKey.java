@@ -19,10 +19,12 @@ package org.apache.accumulo.core.file.rfile;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.apache.accumulo.core.data.ArrayByteSequence;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.file.blockfile.ABlockReader;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableUtils;
 
@@ -161,8 +163,106 @@ public class RelativeKey implements Writable {
     this.prevKey = pk;
   }
   
+  /**
+   * The few primitive reads a key is decoded with, so the same decoding works over a stream or over the buffer of a block that is in memory.
+   */
+  private static interface KeyInput {
+    byte readByte() throws IOException;
+    
+    int readVInt() throws IOException;
+    
+    long readVLong() throws IOException;
+    
+    void readFully(byte[] b, int off, int len) throws IOException;
+  }
+  
+  private static class DataKeyInput implements KeyInput {
+    private final DataInput in;
+    
+    DataKeyInput(DataInput in) {
+      this.in = in;
+    }
+    
+    @Override
+    public byte readByte() throws IOException {
+      return in.readByte();
+    }
+    
+    @Override
+    public int readVInt() throws IOException {
+      return WritableUtils.readVInt(in);
+    }
+    
+    @Override
+    public long readVLong() throws IOException {
+      return WritableUtils.readVLong(in);
+    }
+    
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+      in.readFully(b, off, len);
+    }
+  }
+  
+  private static class BufferKeyInput implements KeyInput {
+    private final ByteBuffer in;
+    
+    BufferKeyInput(ByteBuffer in) {
+      this.in = in;
+    }
+    
+    @Override
+    public byte readByte() {
+      return in.get();
+    }
+    
+    @Override
+    public int readVInt() throws IOException {
+      long n = readVLong();
+      if ((n > Integer.MAX_VALUE) || (n < Integer.MIN_VALUE))
+        throw new IOException("value too long to fit in integer");
+      return (int) n;
+    }
+    
+    /**
+     * Decode a long written by {@link WritableUtils#writeVLong(DataOutput, long)} from the buffer.
+     */
+    @Override
+    public long readVLong() {
+      byte firstByte = in.get();
+      int len = WritableUtils.decodeVIntSize(firstByte);
+      if (len == 1) {
+        return firstByte;
+      }
+      long i = 0;
+      for (int idx = 0; idx < len - 1; idx++) {
+        i = i << 8;
+        i = i | (in.get() & 0xFF);
+      }
+      return (WritableUtils.isNegativeVInt(firstByte) ? (i ^ -1L) : i);
+    }
+    
+    @Override
+    public void readFully(byte[] b, int off, int len) {
+      in.get(b, off, len);
+    }
+  }
+  
   @Override
   public void readFields(DataInput in) throws IOException {
+    if (in instanceof ABlockReader) {
+      // parse the key directly from the buffer of a block that is in memory
+      ByteBuffer buffer = ((ABlockReader) in).getBuffer();
+      if (buffer != null) {
+        readFields(new BufferKeyInput(buffer));
+        return;
+      }
+    }
+    
+    readFields(new DataKeyInput(in));
+  }
+  
+  private void readFields(KeyInput in) throws IOException {
     fieldsSame = in.readByte();
     if ((fieldsSame & PREFIX_COMPRESSION_ENABLED) == PREFIX_COMPRESSION_ENABLED) {
       fieldsPrefixed = in.readByte();
@@ -208,9 +308,9 @@ public class RelativeKey implements Writable {
     if ((fieldsSame & TS_SAME) == TS_SAME) {
       ts = prevKey.getTimestamp();
     } else if ((fieldsPrefixed & TS_DIFF) == TS_DIFF) {
-      ts = WritableUtils.readVLong(in) + prevKey.getTimestamp();
+      ts = in.readVLong() + prevKey.getTimestamp();
     } else {
-      ts = WritableUtils.readVLong(in);
+      ts = in.readVLong();
     }
     
     this.key = new Key(row, cf, cq, cv, ts, (fieldsSame & DELETED) == DELETED, false);
@@ -509,9 +609,9 @@ public class RelativeKey implements Writable {
     mbseqDestination.setLength(len);
   }
   
-  private static byte[] readPrefix(DataInput in, ByteSequence prefixSource) throws IOException {
-    int prefixLen = WritableUtils.readVInt(in);
-    int remainingLen = WritableUtils.readVInt(in);
+  private static byte[] readPrefix(KeyInput in, ByteSequence prefixSource) throws IOException {
+    int prefixLen = in.readVInt();
+    int remainingLen = in.readVInt();
     byte[] data = new byte[prefixLen + remainingLen];
     if (prefixSource.isBackedByArray()) {
       System.arraycopy(prefixSource.getBackingArray(), prefixSource.offset(), data, 0, prefixLen);
@@ -542,10 +642,10 @@ public class RelativeKey implements Writable {
     dest.setLength(len);
   }
   
-  private static byte[] read(DataInput in) throws IOException {
-    int len = WritableUtils.readVInt(in);
+  private static byte[] read(KeyInput in) throws IOException {
+    int len = in.readVInt();
     byte[] data = new byte[len];
-    in.readFully(data);
+    in.readFully(data, 0, len);
     return data;
   }
   
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.file.blockfile.ABlockReader;
+
+/**
+ * A hash table of the rows in a data block, written after the last entry of the block. It maps each row to the position and number of the first entry of the
+ * row in the block, so that a seek to a row can go straight to it instead of reading every entry before it. The first entry of each row in a block with this
+ * index is written without prefix compression against the previous entry, so reading can start there.
+ * 
+ * The table is an int count of slots, followed by a pair of ints for each slot holding the position and number of an entry. Empty slots have a position of -1.
+ * Collisions are resolved by linear probing.
+ */
+public class RowHashIndex {
+  
+  private static final int EMPTY = -1;
+  
+  private int[] hashes = new int[64];
+  private int[] positions = new int[64];
+  private int[] ordinals = new int[64];
+  private int size = 0;
+  
+  private static int hash(ByteSequence row) {
+    byte[] data;
+    int offset;
+    if (row.isBackedByArray()) {
+      data = row.getBackingArray();
+      offset = row.offset();
+    } else {
+      data = row.toArray();
+      offset = 0;
+    }
+    
+    int h = 1;
+    for (int i = offset; i < offset + row.length(); i++)
+      h = 31 * h + data[i];
+    
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+  
+  private static int getSlot(int hash, int numSlots) {
+    return (hash & Integer.MAX_VALUE) % numSlots;
+  }
+  
+  /**
+   * Add the first entry of a row.
+   * 
+   * @param position
+   *          where the entry starts in the uncompressed block
+   * @param ordinal
+   *          number of entries before it in the block
+   */
+  public void add(ByteSequence row, int position, int ordinal) {
+    if (size == hashes.length) {
+      hashes = Arrays.copyOf(hashes, size * 2);
+      positions = Arrays.copyOf(positions, size * 2);
+      ordinals = Arrays.copyOf(ordinals, size * 2);
+    }
+    
+    hashes[size] = hash(row);
+    positions[size] = position;
+    ordinals[size] = ordinal;
+    size++;
+  }
+  
+  public int size() {
+    return size;
+  }
+  
+  public void clear() {
+    size = 0;
+  }
+  
+  public void write(DataOutput out) throws IOException {
+    // keep the table at most three quarters full
+    int numSlots = size + size / 3 + 1;
+    int[] slots = new int[numSlots * 2];
+    Arrays.fill(slots, EMPTY);
+    
+    for (int i = 0; i < size; i++) {
+      int slot = getSlot(hashes[i], numSlots);
+      while (slots[slot * 2] != EMPTY)
+        slot = (slot + 1) % numSlots;
+      slots[slot * 2] = positions[i];
+      slots[slot * 2 + 1] = ordinals[i];
+    }
+    
+    out.writeInt(numSlots);
+    for (int i = 0; i < slots.length; i++)
+      out.writeInt(slots[i]);
+  }
+  
+  /**
+   * Position a block that is in memory at the first entry of a row, and read its key.
+   * 
+   * @param block
+   *          a block with a non null {@link ABlockReader#getBuffer()}
+   * @param indexPosition
+   *          where the row index starts in the block
+   * @param rk
+   *          used to read keys, holds the first key of the row when it is found
+   * @return the number of entries before the first entry of the row, with the block positioned at the value of the entry; or -1 if the row is not in the
+   *         block, with the position of the block unchanged
+   */
+  public static int seek(ABlockReader block, int indexPosition, ByteSequence row, RelativeKey rk) throws IOException {
+    ByteBuffer buffer = block.getBuffer();
+    int start = buffer.position();
+    
+    int numSlots = buffer.getInt(indexPosition);
+    int slot = getSlot(hash(row), numSlots);
+    
+    for (int i = 0; i < numSlots; i++) {
+      int slotPosition = indexPosition + 4 + slot * 8;
+      int position = buffer.getInt(slotPosition);
+      if (position == EMPTY)
+        break;
+      
+      buffer.position(position);
+      rk.readFields(block);
+      if (rk.getKey().getRowData().equals(row))
+        return buffer.getInt(slotPosition + 4);
+      
+      slot = (slot + 1) % numSlots;
+    }
+    
+    buffer.position(start);
+    return -1;
+  }
+}
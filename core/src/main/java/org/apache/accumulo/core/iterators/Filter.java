@@ -78,6 +78,13 @@ public abstract class Filter extends WrappingIterator implements OptionDescriber
     }
   }
   
+  /**
+   * @return <tt>true</tt> if this filter iterates over the entries that do not match it
+   */
+  protected boolean isNegated() {
+    return negate;
+  }
+  
   /**
    * @return <tt>true</tt> if the key/value pair is accepted by the filter.
    */
@@ -35,6 +35,7 @@ import org.apache.accumulo.core.data.KeyExtent;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.thrift.IterInfo;
 import org.apache.accumulo.core.iterators.system.SynchronizedIterator;
+import org.apache.accumulo.core.iterators.user.TimestampFilter;
 import org.apache.accumulo.core.iterators.user.VersioningIterator;
 import org.apache.accumulo.core.tabletserver.thrift.IteratorConfig;
 import org.apache.accumulo.core.tabletserver.thrift.TIteratorSetting;
@@ -197,6 +198,13 @@ public class IteratorUtil {
     List<IterInfo> iters = new ArrayList<IterInfo>(ssiList);
     Map<String,Map<String,String>> allOptions = new HashMap<String,Map<String,String>>();
     
+    mergeIterConf(scope, iters, allOptions, conf, ssio);
+    
+    return loadIterators(source, iters, allOptions, env, useAccumuloClassLoader, conf.get(Property.TABLE_CLASSPATH));
+  }
+  
+  private static void mergeIterConf(IteratorScope scope, List<IterInfo> iters, Map<String,Map<String,String>> allOptions, AccumuloConfiguration conf,
+      Map<String,Map<String,String>> ssio) {
     parseIterConf(scope, iters, allOptions, conf);
     
     for (Entry<String,Map<String,String>> entry : ssio.entrySet()) {
@@ -209,8 +217,53 @@ public class IteratorUtil {
         options.putAll(entry.getValue());
       }
     }
+  }
+  
+  /**
+   * Find the timestamps that can make it through the {@link TimestampFilter}s at the bottom of an iterator stack, so that files can skip data that only has
+   * other timestamps. Only filters below every other iterator except the {@link VersioningIterator} are used. A filter above a versioning iterator only limits
+   * the smallest timestamp, because dropping newer keys below the versioning iterator could expose older versions.
+   * 
+   * @return the smallest and largest timestamp that can be returned, or null if any timestamp can be
+   */
+  public static long[] getTimestampRange(IteratorScope scope, AccumuloConfiguration conf, List<IterInfo> ssiList, Map<String,Map<String,String>> ssio) {
+    List<IterInfo> iters = new ArrayList<IterInfo>(ssiList);
+    Map<String,Map<String,String>> allOptions = new HashMap<String,Map<String,String>>();
     
-    return loadIterators(source, iters, allOptions, env, useAccumuloClassLoader, conf.get(Property.TABLE_CLASSPATH));
+    mergeIterConf(scope, iters, allOptions, conf, ssio);
+    
+    long min = Long.MIN_VALUE;
+    long max = Long.MAX_VALUE;
+    boolean sawVersioning = false;
+    
+    for (IterInfo iterInfo : iters) {
+      if (iterInfo.className.equals(VersioningIterator.class.getName())) {
+        sawVersioning = true;
+      } else if (iterInfo.className.equals(TimestampFilter.class.getName())) {
+        Map<String,String> options = allOptions.get(iterInfo.iterName);
+        TimestampFilter filter = new TimestampFilter();
+        try {
+          filter.init(null, options == null ? Collections.<String,String> emptyMap() : options, null);
+        } catch (Exception e) {
+          // the scan will fail when the filter is loaded
+          break;
+        }
+        
+        if (((Filter) filter).negate)
+          break;
+        
+        min = Math.max(min, filter.getMinTimestamp());
+        if (!sawVersioning)
+          max = Math.min(max, filter.getMaxTimestamp());
+      } else {
+        break;
+      }
+    }
+    
+    if (min == Long.MIN_VALUE && max == Long.MAX_VALUE)
+      return null;
+    
+    return new long[] {min, max};
   }
   
   @SuppressWarnings("unchecked")
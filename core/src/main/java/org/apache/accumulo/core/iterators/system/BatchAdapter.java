@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.iterators.system;
+
+import java.io.IOException;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.WrappingIterator;
+
+/**
+ * Reads batches from an iterator that only implements the per-cell API, such as a user iterator configured on a table.
+ * 
+ * Iterators may reuse their Key and Value objects from one entry to the next, but do not modify the byte arrays behind them once handed out. So each entry is
+ * added to the batch as a new Key and Value sharing the source's arrays, which keeps it intact while the source advances without copying any data.
+ */
+public class BatchAdapter extends WrappingIterator implements BatchIterator {
+  
+  public BatchAdapter(SortedKeyValueIterator<Key,Value> source) {
+    setSource(source);
+  }
+  
+  /**
+   * @return the iterator itself if it already reads in batches, otherwise an adapter around it
+   */
+  public static BatchIterator adapt(SortedKeyValueIterator<Key,Value> iter) {
+    if (iter instanceof BatchIterator)
+      return (BatchIterator) iter;
+    return new BatchAdapter(iter);
+  }
+  
+  /**
+   * Appends entries from any iterator to the batch, using {@link BatchIterator#nextBatch(KeyValueBatch)} when the iterator supports it.
+   * 
+   * @return the number of entries appended
+   */
+  public static int fill(SortedKeyValueIterator<Key,Value> iter, KeyValueBatch batch) throws IOException {
+    if (iter instanceof BatchIterator)
+      return ((BatchIterator) iter).nextBatch(batch);
+    
+    int start = batch.size();
+    while (!batch.isFull() && iter.hasTop()) {
+      addCopy(batch, iter.getTopKey(), iter.getTopValue());
+      iter.next();
+    }
+    return batch.size() - start;
+  }
+  
+  static void addCopy(KeyValueBatch batch, Key key, Value value) {
+    batch.add(new Key(key), new Value(value.get(), false));
+  }
+  
+  @Override
+  public int nextBatch(KeyValueBatch batch) throws IOException {
+    return fill(getSource(), batch);
+  }
+  
+  @Override
+  public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+    return new BatchAdapter(getSource().deepCopy(env));
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.iterators.system;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+
+/**
+ * Lets iterators that read one cell at a time, such as the user iterators configured on a table, sit on top of a stack of {@link BatchIterator}s. Entries are
+ * read from the source a batch at a time and handed out from an array, so the system iterators below still filter in bulk.
+ * 
+ * The batch starts small after every seek and doubles each time it is refilled. An iterator above that seeks often does not make the stack read far ahead,
+ * while a long run of {@link #next()} calls soon reads full batches. The batch also stops filling once its keys and values reach a byte limit, so large values
+ * do not pile up in it.
+ */
+public class BatchBufferIterator implements BatchIterator {
+  
+  public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+  public static final long DEFAULT_MAX_BATCH_BYTES = 1 << 20;
+  
+  private static final int MIN_BATCH_SIZE = 8;
+  
+  private final SortedKeyValueIterator<Key,Value> source;
+  private final KeyValueBatch buffer;
+  private int pos = 0;
+  
+  public BatchBufferIterator(SortedKeyValueIterator<Key,Value> source, int maxBatchSize, long maxBatchBytes) {
+    this.source = source;
+    this.buffer = new KeyValueBatch(maxBatchSize);
+    this.buffer.setByteLimit(maxBatchBytes);
+  }
+  
+  public BatchBufferIterator(SortedKeyValueIterator<Key,Value> source, int maxBatchSize) {
+    this(source, maxBatchSize, DEFAULT_MAX_BATCH_BYTES);
+  }
+  
+  public BatchBufferIterator(SortedKeyValueIterator<Key,Value> source) {
+    this(source, DEFAULT_MAX_BATCH_SIZE);
+  }
+  
+  @Override
+  public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options, IteratorEnvironment env) throws IOException {
+    throw new UnsupportedOperationException();
+  }
+  
+  @Override
+  public boolean hasTop() {
+    return pos < buffer.size();
+  }
+  
+  @Override
+  public Key getTopKey() {
+    return buffer.getKey(pos);
+  }
+  
+  @Override
+  public Value getTopValue() {
+    return buffer.getValue(pos);
+  }
+  
+  @Override
+  public void next() throws IOException {
+    if (pos >= buffer.size())
+      throw new IllegalStateException("Called next() when there is no top");
+    
+    pos++;
+    if (pos == buffer.size()) {
+      buffer.setLimit(Math.min(buffer.getLimit() * 2, buffer.capacity()));
+      refill();
+    }
+  }
+  
+  @Override
+  public int nextBatch(KeyValueBatch batch) throws IOException {
+    int start = batch.size();
+    while (pos < buffer.size() && !batch.isFull()) {
+      batch.add(buffer.getKey(pos), buffer.getValue(pos));
+      pos++;
+    }
+    
+    if (pos == buffer.size()) {
+      BatchAdapter.fill(source, batch);
+      refill();
+    }
+    
+    return batch.size() - start;
+  }
+  
+  @Override
+  public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+    source.seek(range, columnFamilies, inclusive);
+    buffer.setLimit(Math.min(MIN_BATCH_SIZE, buffer.capacity()));
+    refill();
+  }
+  
+  private void refill() throws IOException {
+    buffer.clear();
+    pos = 0;
+    BatchAdapter.fill(source, buffer);
+  }
+  
+  @Override
+  public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+    return new BatchBufferIterator(source.deepCopy(env), buffer.capacity(), buffer.getByteLimit());
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.iterators.system;
+
+import java.io.IOException;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+
+/**
+ * An optional extension to {@link SortedKeyValueIterator} for iterators that can hand out many entries per call. Passing entries up the stack one batch at a
+ * time replaces a {@link #getTopKey()}, {@link #getTopValue()}, {@link #next()} call chain through every layer for every cell with one call per layer per
+ * batch, and leaves each layer with a tight loop the JIT can inline.
+ * 
+ * Use {@link BatchAdapter#fill(SortedKeyValueIterator, KeyValueBatch)} to read a batch from an iterator that may or may not implement this interface.
+ */
+public interface BatchIterator extends SortedKeyValueIterator<Key,Value> {
+  
+  /**
+   * Appends entries to the batch, starting with the current top, until the batch is full or this iterator has no more entries. Afterwards this iterator is
+   * positioned as if {@link #next()} had been called once for every entry appended.
+   * 
+   * Entries are added by reference. An implementation must not modify a key or value after adding it to a batch, because callers hold on to the batch while
+   * this iterator advances.
+   * 
+   * @return the number of entries appended
+   */
+  int nextBatch(KeyValueBatch batch) throws IOException;
+}
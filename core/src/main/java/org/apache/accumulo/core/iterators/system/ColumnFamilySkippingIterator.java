@@ -32,7 +32,7 @@ import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SkippingIterator;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 
-public class ColumnFamilySkippingIterator extends SkippingIterator implements InterruptibleIterator {
+public class ColumnFamilySkippingIterator extends SkippingIterator implements InterruptibleIterator, BatchIterator {
   
   protected Set<ByteSequence> colFamSet = null;
   protected TreeSet<ByteSequence> sortedColFams = null;
@@ -87,6 +87,30 @@ public class ColumnFamilySkippingIterator extends SkippingIterator implements In
       }
   }
   
+  @Override
+  public int nextBatch(KeyValueBatch batch) throws IOException {
+    if (!inclusive && (colFamSet == null || colFamSet.size() == 0))
+      return BatchAdapter.fill(getSource(), batch);
+    
+    int start = batch.size();
+    while (!batch.isFull() && getSource().hasTop()) {
+      int read = batch.size();
+      BatchAdapter.fill(getSource(), batch);
+      
+      int kept = read;
+      for (int i = read; i < batch.size(); i++) {
+        if (colFamSet.contains(batch.getKey(i).getColumnFamilyData()) == inclusive)
+          batch.move(i, kept++);
+      }
+      batch.truncate(kept);
+      
+      // skip or seek past a run of unwanted families before reading more
+      consume();
+    }
+    
+    return batch.size() - start;
+  }
+  
   private void reseek(Key key) throws IOException {
     if (range.afterEndKey(key)) {
       range = new Range(range.getEndKey(), true, range.getEndKey(), range.isEndKeyInclusive());
@@ -16,6 +16,7 @@
  */
 package org.apache.accumulo.core.iterators.system;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -29,7 +30,7 @@ import org.apache.accumulo.core.iterators.Filter;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 
-public class ColumnQualifierFilter extends Filter {
+public class ColumnQualifierFilter extends Filter implements BatchIterator {
   private boolean scanColumns;
   private HashSet<ByteSequence> columnFamilies;
   private HashMap<ByteSequence,HashSet<ByteSequence>> columnsQualifiers;
@@ -88,6 +89,30 @@ public class ColumnQualifierFilter extends Filter {
     scanColumns = this.columnsQualifiers.size() > 0;
   }
   
+  @Override
+  public int nextBatch(KeyValueBatch batch) throws IOException {
+    boolean negate = isNegated();
+    if (!scanColumns && !negate)
+      return BatchAdapter.fill(getSource(), batch);
+    
+    int start = batch.size();
+    while (!batch.isFull() && getSource().hasTop()) {
+      int read = batch.size();
+      BatchAdapter.fill(getSource(), batch);
+      
+      int kept = read;
+      for (int i = read; i < batch.size(); i++) {
+        Key key = batch.getKey(i);
+        if (key.isDeleted() || negate != accept(key, batch.getValue(i)))
+          batch.move(i, kept++);
+      }
+      batch.truncate(kept);
+    }
+    findTop();
+    
+    return batch.size() - start;
+  }
+  
   @Override
   public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
     return new ColumnQualifierFilter(getSource().deepCopy(env), columnFamilies, columnsQualifiers, scanColumns);
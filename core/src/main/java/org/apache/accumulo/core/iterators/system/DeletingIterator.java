@@ -30,7 +30,7 @@ import org.apache.accumulo.core.iterators.IteratorUtil;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.WrappingIterator;
 
-public class DeletingIterator extends WrappingIterator {
+public class DeletingIterator extends WrappingIterator implements BatchIterator {
   private boolean propogateDeletes;
   private Key workKey = new Key();
   
@@ -59,6 +59,43 @@ public class DeletingIterator extends WrappingIterator {
     findTop();
   }
   
+  @Override
+  public int nextBatch(KeyValueBatch batch) throws IOException {
+    int start = batch.size();
+    // the delete whose row and column are being skipped, may carry over from one read of the source to the next
+    Key deleteKey = null;
+    
+    while (!batch.isFull() && getSource().hasTop()) {
+      int read = batch.size();
+      BatchAdapter.fill(getSource(), batch);
+      
+      int kept = read;
+      for (int i = read; i < batch.size(); i++) {
+        Key key = batch.getKey(i);
+        if (deleteKey != null && key.equals(deleteKey, PartialKey.ROW_COLFAM_COLQUAL_COLVIS))
+          continue;
+        
+        if (key.isDeleted()) {
+          deleteKey = key;
+          if (!propogateDeletes)
+            continue;
+        } else {
+          deleteKey = null;
+        }
+        
+        batch.move(i, kept++);
+      }
+      batch.truncate(kept);
+    }
+    
+    while (deleteKey != null && getSource().hasTop() && getSource().getTopKey().equals(deleteKey, PartialKey.ROW_COLFAM_COLQUAL_COLVIS)) {
+      getSource().next();
+    }
+    findTop();
+    
+    return batch.size() - start;
+  }
+  
   @Override
   public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
     // do not want to seek to the middle of a row
@@ -17,99 +17,170 @@
 package org.apache.accumulo.core.iterators.system;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
-import org.apache.commons.collections.buffer.PriorityBuffer;
 
-public abstract class HeapIterator implements SortedKeyValueIterator<Key,Value> {
-  private PriorityBuffer heap;
+/**
+ * Merges sorted sources using a tournament tree of losers. Each internal node of the tree holds the source that lost the match played there, and the overall
+ * winner is kept separately. Advancing the winner only replays the matches on the path from its leaf to the root, so a call to {@link #next()} takes about
+ * log2(n) key comparisons and allocates nothing.
+ * 
+ * <p>
+ * Sources are usually added one at a time while seeking, so the tree is built lazily the first time the merged top is needed after sources are added.
+ */
+public abstract class HeapIterator implements BatchIterator {
+  private SortedKeyValueIterator<Key,Value>[] sources;
+  // the top key of each source, or null once the source is exhausted
+  private Key[] topKeys;
+  // tree[0] is the winner, tree[1..size-1] are the losers of the internal nodes and leaf i sits at position size + i
+  private int[] tree;
+  private int size;
+  private boolean built;
   private SortedKeyValueIterator<Key,Value> currentIter;
   
-  private static class Index implements Comparable<Index> {
-    SortedKeyValueIterator<Key,Value> iter;
-    
-    public Index(SortedKeyValueIterator<Key,Value> iter) {
-      this.iter = iter;
-    }
-    
-    public int compareTo(Index o) {
-      return iter.getTopKey().compareTo(o.iter.getTopKey());
-    }
-  }
-  
   protected HeapIterator() {
-    heap = null;
+    sources = null;
   }
   
   protected HeapIterator(int maxSize) {
     createHeap(maxSize);
   }
   
+  @SuppressWarnings({"unchecked", "rawtypes"})
   protected void createHeap(int maxSize) {
-    if (heap != null)
+    if (sources != null)
       throw new IllegalStateException("heap already exist");
     
-    heap = new PriorityBuffer(maxSize == 0 ? 1 : maxSize);
+    int capacity = maxSize == 0 ? 1 : maxSize;
+    sources = new SortedKeyValueIterator[capacity];
+    topKeys = new Key[capacity];
+    tree = new int[capacity];
+    built = true;
   }
   
   @Override
   final public Key getTopKey() {
+    if (!built)
+      build();
     return currentIter.getTopKey();
   }
   
   @Override
   final public Value getTopValue() {
+    if (!built)
+      build();
     return currentIter.getTopValue();
   }
   
   @Override
   final public boolean hasTop() {
-    return heap.size() > 0;
+    if (!built)
+      build();
+    return currentIter != null;
   }
   
   @Override
   final public void next() throws IOException {
-    switch (heap.size()) {
-      case 0:
-        throw new IllegalStateException("Called next() when there is no top");
-      case 1:
-        // optimization for case when heap contains one entry,
-        // avoids remove and add
-        currentIter.next();
-        if (!currentIter.hasTop()) {
-          heap.remove();
-          currentIter = null;
-        }
-        break;
-      default:
-        Index idx = (Index) heap.remove();
-        idx.iter.next();
-        if (idx.iter.hasTop()) {
-          heap.add(idx);
-        }
-        // to get to the default case heap has at least
-        // two entries, therefore there must be at least
-        // one entry when get() is called below
-        currentIter = ((Index) heap.get()).iter;
+    if (!built)
+      build();
+    if (currentIter == null)
+      throw new IllegalStateException("Called next() when there is no top");
+    
+    int winner = tree[0];
+    currentIter.next();
+    topKeys[winner] = currentIter.hasTop() ? currentIter.getTopKey() : null;
+    
+    // replay the matches on the path from the winner's leaf to the root
+    for (int node = (winner + size) >>> 1; node > 0; node >>>= 1) {
+      int loser = tree[node];
+      if (beats(loser, winner)) {
+        tree[node] = winner;
+        winner = loser;
+      }
+    }
+    tree[0] = winner;
+    currentIter = topKeys[winner] == null ? null : sources[winner];
+  }
+  
+  @Override
+  final public int nextBatch(KeyValueBatch batch) throws IOException {
+    if (!built)
+      build();
+    
+    int start = batch.size();
+    while (currentIter != null && !batch.isFull()) {
+      // sources are read one cell at a time and may reuse their key and value objects
+      BatchAdapter.addCopy(batch, topKeys[tree[0]], currentIter.getTopValue());
+      next();
+    }
+    return batch.size() - start;
+  }
+  
+  /**
+   * @return true if source a sorts before source b, exhausted sources sort after everything and ties go to the source added first
+   */
+  private boolean beats(int a, int b) {
+    Key ka = topKeys[a];
+    Key kb = topKeys[b];
+    if (ka == null)
+      return false;
+    if (kb == null)
+      return true;
+    int cmp = ka.compareTo(kb);
+    return cmp < 0 || (cmp == 0 && a < b);
+  }
+  
+  private void build() {
+    built = true;
+    if (size == 0) {
+      currentIter = null;
+      return;
+    }
+    
+    // winners of the matches at each node, leaves are the sources themselves
+    int[] winners = new int[2 * size];
+    for (int i = 0; i < size; i++)
+      winners[size + i] = i;
+    for (int node = size - 1; node > 0; node--) {
+      int a = winners[2 * node];
+      int b = winners[2 * node + 1];
+      if (beats(a, b)) {
+        winners[node] = a;
+        tree[node] = b;
+      } else {
+        winners[node] = b;
+        tree[node] = a;
+      }
     }
+    tree[0] = winners[1];
+    currentIter = topKeys[tree[0]] == null ? null : sources[tree[0]];
   }
   
   final protected void clear() {
-    heap.clear();
+    Arrays.fill(sources, 0, size, null);
+    Arrays.fill(topKeys, 0, size, null);
+    size = 0;
+    built = true;
     currentIter = null;
   }
   
   final protected void addSource(SortedKeyValueIterator<Key,Value> source) {
     
-    if (source.hasTop())
-      heap.add(new Index(source));
+    if (!source.hasTop())
+      return;
     
-    if (heap.size() > 0)
-      currentIter = ((Index) heap.get()).iter;
-    else
-      currentIter = null;
+    if (size == sources.length) {
+      sources = Arrays.copyOf(sources, size * 2);
+      topKeys = Arrays.copyOf(topKeys, size * 2);
+      tree = new int[size * 2];
+    }
+    sources[size] = source;
+    topKeys[size] = source.getTopKey();
+    size++;
+    built = false;
   }
   
 }
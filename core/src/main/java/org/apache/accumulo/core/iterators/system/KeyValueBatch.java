@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.iterators.system;
+
+import java.util.Arrays;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+
+/**
+ * A reusable buffer of key/value references that {@link BatchIterator}s fill and filter in place. The arrays are allocated once; clearing the batch only resets
+ * its size.
+ * 
+ * A batch is full once it holds its limit of entries or the keys and values in it reach its byte limit, whichever comes first. The byte limit keeps a batch of
+ * large values from holding much more memory than its consumer wants; the entry that crosses it is still added.
+ */
+public class KeyValueBatch {
+  
+  private final Key[] keys;
+  private final Value[] values;
+  private int size = 0;
+  private int limit;
+  private long bytes = 0;
+  private long byteLimit = Long.MAX_VALUE;
+  
+  public KeyValueBatch(int capacity) {
+    if (capacity < 1)
+      throw new IllegalArgumentException("capacity must be positive " + capacity);
+    this.keys = new Key[capacity];
+    this.values = new Value[capacity];
+    this.limit = capacity;
+  }
+  
+  public int capacity() {
+    return keys.length;
+  }
+  
+  /**
+   * Lowers the number of entries at which this batch reports itself full, so a consumer that only wants a few more entries does not make the iterators read
+   * far ahead.
+   */
+  public void setLimit(int limit) {
+    if (limit < 1 || limit > keys.length)
+      throw new IllegalArgumentException("limit must be between 1 and " + keys.length + " : " + limit);
+    this.limit = limit;
+  }
+  
+  public int getLimit() {
+    return limit;
+  }
+  
+  /**
+   * Sets the number of key and value bytes at which this batch reports itself full.
+   */
+  public void setByteLimit(long byteLimit) {
+    if (byteLimit < 1)
+      throw new IllegalArgumentException("byte limit must be positive " + byteLimit);
+    this.byteLimit = byteLimit;
+  }
+  
+  public long getByteLimit() {
+    return byteLimit;
+  }
+  
+  /**
+   * @return the number of bytes in the keys and values of the entries in this batch
+   */
+  public long getBytes() {
+    return bytes;
+  }
+  
+  public int size() {
+    return size;
+  }
+  
+  public boolean isFull() {
+    return size >= limit || bytes >= byteLimit;
+  }
+  
+  private static int entrySize(Key key, Value value) {
+    return key.getSize() + value.getSize();
+  }
+  
+  public void add(Key key, Value value) {
+    if (size >= limit)
+      throw new IllegalStateException("batch is full " + size);
+    keys[size] = key;
+    values[size] = value;
+    size++;
+    bytes += entrySize(key, value);
+  }
+  
+  public Key getKey(int i) {
+    return keys[i];
+  }
+  
+  public Value getValue(int i) {
+    return values[i];
+  }
+  
+  /**
+   * Moves the entry at position src to position dest. Filters use this to compact the entries they accept toward the front of the batch.
+   */
+  public void move(int src, int dest) {
+    keys[dest] = keys[src];
+    values[dest] = values[src];
+  }
+  
+  /**
+   * Drops every entry at or after position newSize.
+   */
+  public void truncate(int newSize) {
+    if (newSize < 0 || newSize > size)
+      throw new IllegalArgumentException("new size " + newSize + " not in [0," + size + "]");
+    Arrays.fill(keys, newSize, size, null);
+    Arrays.fill(values, newSize, size, null);
+    size = newSize;
+    // entries may have been moved over the ones dropped, so count what is left
+    bytes = 0;
+    for (int i = 0; i < size; i++)
+      bytes += entrySize(keys[i], values[i]);
+  }
+  
+  public void clear() {
+    truncate(0);
+  }
+}
@@ -32,7 +32,7 @@ import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 
-public class SourceSwitchingIterator implements SortedKeyValueIterator<Key,Value>, InterruptibleIterator {
+public class SourceSwitchingIterator implements SortedKeyValueIterator<Key,Value>, InterruptibleIterator, BatchIterator {
   
   public interface DataSource {
     boolean isCurrent();
@@ -124,6 +124,10 @@ public class SourceSwitchingIterator implements SortedKeyValueIterator<Key,Value
       }
     }
     
+    readTop();
+  }
+  
+  private void readTop() throws IOException {
     if (iter.hasTop()) {
       Key nextKey = iter.getTopKey();
       Value nextVal = iter.getTopValue();
@@ -140,6 +144,35 @@ public class SourceSwitchingIterator implements SortedKeyValueIterator<Key,Value
     }
   }
   
+  @Override
+  public synchronized int nextBatch(KeyValueBatch batch) throws IOException {
+    int start = batch.size();
+    
+    if (onlySwitchAfterRow) {
+      // a switch can only happen between rows, so look for one after every entry
+      while (key != null && !batch.isFull()) {
+        BatchAdapter.addCopy(batch, key, val);
+        readNext(false);
+      }
+      return batch.size() - start;
+    }
+    
+    if (key == null || batch.isFull())
+      return 0;
+    
+    // the current top was read before the source advances, so it is added first; a switch is only checked once per batch
+    BatchAdapter.addCopy(batch, key, val);
+    if (switchSource())
+      iter.seek(new Range(key, false, range.getEndKey(), range.isEndKeyInclusive()), columnFamilies, inclusive);
+    else
+      iter.next();
+    
+    BatchAdapter.fill(iter, batch);
+    readTop();
+    
+    return batch.size() - start;
+  }
+  
   private boolean switchSource() throws IOException {
     while (!source.isCurrent()) {
       source = source.getNewDataSource();
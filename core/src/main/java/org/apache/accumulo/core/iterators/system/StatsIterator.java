@@ -31,7 +31,7 @@ import org.apache.accumulo.core.iterators.WrappingIterator;
 /**
  * 
  */
-public class StatsIterator extends WrappingIterator {
+public class StatsIterator extends WrappingIterator implements BatchIterator {
   
   private int numRead = 0;
   private AtomicLong seekCounter;
@@ -54,6 +54,19 @@ public class StatsIterator extends WrappingIterator {
     }
   }
   
+  @Override
+  public int nextBatch(KeyValueBatch batch) throws IOException {
+    int added = BatchAdapter.fill(getSource(), batch);
+    numRead += added;
+    
+    if (numRead >= 23) {
+      readCounter.addAndGet(numRead);
+      numRead = 0;
+    }
+    
+    return added;
+  }
+  
   @Override
   public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
     return new StatsIterator(getSource().deepCopy(env), seekCounter, readCounter);
@@ -16,26 +16,25 @@
  */
 package org.apache.accumulo.core.iterators.system;
 
+import java.io.IOException;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.Filter;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.security.Authorizations;
-import org.apache.accumulo.core.security.ColumnVisibility;
-import org.apache.accumulo.core.security.VisibilityEvaluator;
+import org.apache.accumulo.core.security.VisibilityCache;
+import org.apache.accumulo.core.security.VisibilityCache.Evaluations;
 import org.apache.accumulo.core.security.VisibilityParseException;
 import org.apache.accumulo.core.util.BadArgumentException;
-import org.apache.accumulo.core.util.TextUtil;
-import org.apache.commons.collections.map.LRUMap;
-import org.apache.hadoop.io.Text;
 import org.apache.log4j.Logger;
 
-public class VisibilityFilter extends Filter {
-  private VisibilityEvaluator ve;
-  private Text defaultVisibility;
-  private LRUMap cache;
-  private Text tmpVis;
+public class VisibilityFilter extends Filter implements BatchIterator {
+  private Evaluations evaluations;
+  private ByteSequence defaultVisibility;
   
   private static final Logger log = Logger.getLogger(VisibilityFilter.class);
   
@@ -43,34 +42,49 @@ public class VisibilityFilter extends Filter {
   
   public VisibilityFilter(SortedKeyValueIterator<Key,Value> iterator, Authorizations authorizations, byte[] defaultVisibility) {
     setSource(iterator);
-    this.ve = new VisibilityEvaluator(authorizations);
-    this.defaultVisibility = new Text(defaultVisibility);
-    this.cache = new LRUMap(1000);
-    this.tmpVis = new Text();
+    // results are shared with every other scan using the same authorizations, so a new scan does not start cold
+    this.evaluations = VisibilityCache.getInstance().getEvaluations(authorizations);
+    this.defaultVisibility = new ArrayByteSequence(defaultVisibility);
+  }
+  
+  @Override
+  public int nextBatch(KeyValueBatch batch) throws IOException {
+    int start = batch.size();
+    boolean negate = isNegated();
+    
+    while (!batch.isFull() && getSource().hasTop()) {
+      int read = batch.size();
+      BatchAdapter.fill(getSource(), batch);
+      
+      int kept = read;
+      for (int i = read; i < batch.size(); i++) {
+        Key key = batch.getKey(i);
+        if (key.isDeleted() || negate != accept(key, batch.getValue(i)))
+          batch.move(i, kept++);
+      }
+      batch.truncate(kept);
+    }
+    findTop();
+    
+    return batch.size() - start;
   }
   
   @Override
   public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
-    return new VisibilityFilter(getSource().deepCopy(env), ve.getAuthorizations(), TextUtil.getBytes(defaultVisibility));
+    return new VisibilityFilter(getSource().deepCopy(env), evaluations.getAuthorizations(), defaultVisibility.toArray());
   }
   
   @Override
   public boolean accept(Key k, Value v) {
-    Text testVis = k.getColumnVisibility(tmpVis);
+    ByteSequence testVis = k.getColumnVisibilityData();
     
-    if (testVis.getLength() == 0 && defaultVisibility.getLength() == 0)
+    if (testVis.length() == 0 && defaultVisibility.length() == 0)
       return true;
-    else if (testVis.getLength() == 0)
+    else if (testVis.length() == 0)
       testVis = defaultVisibility;
     
-    Boolean b = (Boolean) cache.get(testVis);
-    if (b != null)
-      return b;
-    
     try {
-      Boolean bb = ve.evaluate(new ColumnVisibility(testVis));
-      cache.put(new Text(testVis), bb);
-      return bb;
+      return evaluations.evaluate(testVis);
     } catch (VisibilityParseException e) {
       log.error("Parse Error", e);
       return false;
@@ -110,6 +110,28 @@ public class TimestampFilter extends Filter {
       endInclusive = Boolean.parseBoolean(options.get(END_INCL));
   }
   
+  /**
+   * @return the smallest timestamp this filter accepts when it is not negated
+   */
+  public long getMinTimestamp() {
+    if (!hasStart)
+      return Long.MIN_VALUE;
+    if (!startInclusive && start < Long.MAX_VALUE)
+      return start + 1;
+    return start;
+  }
+  
+  /**
+   * @return the largest timestamp this filter accepts when it is not negated
+   */
+  public long getMaxTimestamp() {
+    if (!hasEnd)
+      return Long.MAX_VALUE;
+    if (!endInclusive && end > Long.MIN_VALUE)
+      return end - 1;
+    return end;
+  }
+  
   @Override
   public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
     TimestampFilter copy = (TimestampFilter) super.deepCopy(env);
@@ -61,6 +61,7 @@ import org.slf4j.LoggerFactory;
   private static final org.apache.thrift.protocol.TField MAJORS_FIELD_DESC = new org.apache.thrift.protocol.TField("majors", org.apache.thrift.protocol.TType.STRUCT, (short)10);
   private static final org.apache.thrift.protocol.TField SCANS_FIELD_DESC = new org.apache.thrift.protocol.TField("scans", org.apache.thrift.protocol.TType.STRUCT, (short)11);
   private static final org.apache.thrift.protocol.TField SCAN_RATE_FIELD_DESC = new org.apache.thrift.protocol.TField("scanRate", org.apache.thrift.protocol.TType.DOUBLE, (short)12);
+  private static final org.apache.thrift.protocol.TField UPDATE_TIMES_FIELD_DESC = new org.apache.thrift.protocol.TField("updateTimes", org.apache.thrift.protocol.TType.MAP, (short)13);
 
   private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
   static {
@@ -80,6 +81,7 @@ import org.slf4j.LoggerFactory;
   public Compacting majors; // required
   public Compacting scans; // required
   public double scanRate; // required
+  public Map<String,List<Long>> updateTimes; // required
 
   /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
   @SuppressWarnings("all") public enum _Fields implements org.apache.thrift.TFieldIdEnum {
@@ -94,7 +96,8 @@ import org.slf4j.LoggerFactory;
     MINORS((short)9, "minors"),
     MAJORS((short)10, "majors"),
     SCANS((short)11, "scans"),
-    SCAN_RATE((short)12, "scanRate");
+    SCAN_RATE((short)12, "scanRate"),
+    UPDATE_TIMES((short)13, "updateTimes");
 
     private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
 
@@ -133,6 +136,8 @@ import org.slf4j.LoggerFactory;
           return SCANS;
         case 12: // SCAN_RATE
           return SCAN_RATE;
+        case 13: // UPDATE_TIMES
+          return UPDATE_TIMES;
         default:
           return null;
       }
@@ -210,6 +215,11 @@ import org.slf4j.LoggerFactory;
         new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, Compacting.class)));
     tmpMap.put(_Fields.SCAN_RATE, new org.apache.thrift.meta_data.FieldMetaData("scanRate", org.apache.thrift.TFieldRequirementType.DEFAULT, 
         new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.DOUBLE)));
+    tmpMap.put(_Fields.UPDATE_TIMES, new org.apache.thrift.meta_data.FieldMetaData("updateTimes", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+        new org.apache.thrift.meta_data.MapMetaData(org.apache.thrift.protocol.TType.MAP, 
+            new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING), 
+            new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, 
+                new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I64)))));
     metaDataMap = Collections.unmodifiableMap(tmpMap);
     org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(TableInfo.class, metaDataMap);
   }
@@ -229,7 +239,8 @@ import org.slf4j.LoggerFactory;
     Compacting minors,
     Compacting majors,
     Compacting scans,
-    double scanRate)
+    double scanRate,
+    Map<String,List<Long>> updateTimes)
   {
     this();
     this.recs = recs;
@@ -253,6 +264,7 @@ import org.slf4j.LoggerFactory;
     this.scans = scans;
     this.scanRate = scanRate;
     setScanRateIsSet(true);
+    this.updateTimes = updateTimes;
   }
 
   /**
@@ -278,6 +290,24 @@ import org.slf4j.LoggerFactory;
       this.scans = new Compacting(other.scans);
     }
     this.scanRate = other.scanRate;
+    if (other.isSetUpdateTimes()) {
+      Map<String,List<Long>> __this__updateTimes = new HashMap<String,List<Long>>();
+      for (Map.Entry<String, List<Long>> other_element : other.updateTimes.entrySet()) {
+
+        String other_element_key = other_element.getKey();
+        List<Long> other_element_value = other_element.getValue();
+
+        String __this__updateTimes_copy_key = other_element_key;
+
+        List<Long> __this__updateTimes_copy_value = new ArrayList<Long>();
+        for (Long other_element_value_element : other_element_value) {
+          __this__updateTimes_copy_value.add(other_element_value_element);
+        }
+
+        __this__updateTimes.put(__this__updateTimes_copy_key, __this__updateTimes_copy_value);
+      }
+      this.updateTimes = __this__updateTimes;
+    }
   }
 
   public TableInfo deepCopy() {
@@ -307,6 +337,7 @@ import org.slf4j.LoggerFactory;
     this.scans = null;
     setScanRateIsSet(false);
     this.scanRate = 0.0;
+    this.updateTimes = null;
   }
 
   public long getRecs() {
@@ -588,6 +619,41 @@ import org.slf4j.LoggerFactory;
     __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __SCANRATE_ISSET_ID, value);
   }
 
+  public int getUpdateTimesSize() {
+    return (this.updateTimes == null) ? 0 : this.updateTimes.size();
+  }
+
+  public void putToUpdateTimes(String key, List<Long> val) {
+    if (this.updateTimes == null) {
+      this.updateTimes = new HashMap<String,List<Long>>();
+    }
+    this.updateTimes.put(key, val);
+  }
+
+  public Map<String,List<Long>> getUpdateTimes() {
+    return this.updateTimes;
+  }
+
+  public TableInfo setUpdateTimes(Map<String,List<Long>> updateTimes) {
+    this.updateTimes = updateTimes;
+    return this;
+  }
+
+  public void unsetUpdateTimes() {
+    this.updateTimes = null;
+  }
+
+  /** Returns true if field updateTimes is set (has been assigned a value) and false otherwise */
+  public boolean isSetUpdateTimes() {
+    return this.updateTimes != null;
+  }
+
+  public void setUpdateTimesIsSet(boolean value) {
+    if (!value) {
+      this.updateTimes = null;
+    }
+  }
+
   public void setFieldValue(_Fields field, Object value) {
     switch (field) {
     case RECS:
@@ -686,6 +752,14 @@ import org.slf4j.LoggerFactory;
       }
       break;
 
+    case UPDATE_TIMES:
+      if (value == null) {
+        unsetUpdateTimes();
+      } else {
+        setUpdateTimes((Map<String,List<Long>>)value);
+      }
+      break;
+
     }
   }
 
@@ -727,6 +801,9 @@ import org.slf4j.LoggerFactory;
     case SCAN_RATE:
       return Double.valueOf(getScanRate());
 
+    case UPDATE_TIMES:
+      return getUpdateTimes();
+
     }
     throw new IllegalStateException();
   }
@@ -762,6 +839,8 @@ import org.slf4j.LoggerFactory;
       return isSetScans();
     case SCAN_RATE:
       return isSetScanRate();
+    case UPDATE_TIMES:
+      return isSetUpdateTimes();
     }
     throw new IllegalStateException();
   }
@@ -887,6 +966,15 @@ import org.slf4j.LoggerFactory;
         return false;
     }
 
+    boolean this_present_updateTimes = true && this.isSetUpdateTimes();
+    boolean that_present_updateTimes = true && that.isSetUpdateTimes();
+    if (this_present_updateTimes || that_present_updateTimes) {
+      if (!(this_present_updateTimes && that_present_updateTimes))
+        return false;
+      if (!this.updateTimes.equals(that.updateTimes))
+        return false;
+    }
+
     return true;
   }
 
@@ -1023,6 +1111,16 @@ import org.slf4j.LoggerFactory;
         return lastComparison;
       }
     }
+    lastComparison = Boolean.valueOf(isSetUpdateTimes()).compareTo(typedOther.isSetUpdateTimes());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetUpdateTimes()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.updateTimes, typedOther.updateTimes);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
     return 0;
   }
 
@@ -1102,6 +1200,14 @@ import org.slf4j.LoggerFactory;
     sb.append("scanRate:");
     sb.append(this.scanRate);
     first = false;
+    if (!first) sb.append(", ");
+    sb.append("updateTimes:");
+    if (this.updateTimes == null) {
+      sb.append("null");
+    } else {
+      sb.append(this.updateTimes);
+    }
+    first = false;
     sb.append(")");
     return sb.toString();
   }
@@ -1255,6 +1361,36 @@ import org.slf4j.LoggerFactory;
               org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
             }
             break;
+          case 13: // UPDATE_TIMES
+            if (schemeField.type == org.apache.thrift.protocol.TType.MAP) {
+              {
+                org.apache.thrift.protocol.TMap _map0 = iprot.readMapBegin();
+                struct.updateTimes = new HashMap<String,List<Long>>(2*_map0.size);
+                for (int _i1 = 0; _i1 < _map0.size; ++_i1)
+                {
+                  String _key2; // required
+                  List<Long> _val3; // required
+                  _key2 = iprot.readString();
+                  {
+                    org.apache.thrift.protocol.TList _list4 = iprot.readListBegin();
+                    _val3 = new ArrayList<Long>(_list4.size);
+                    for (int _i5 = 0; _i5 < _list4.size; ++_i5)
+                    {
+                      long _elem6; // required
+                      _elem6 = iprot.readI64();
+                      _val3.add(_elem6);
+                    }
+                    iprot.readListEnd();
+                  }
+                  struct.updateTimes.put(_key2, _val3);
+                }
+                iprot.readMapEnd();
+              }
+              struct.setUpdateTimesIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
           default:
             org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
         }
@@ -1312,6 +1448,26 @@ import org.slf4j.LoggerFactory;
       oprot.writeFieldBegin(SCAN_RATE_FIELD_DESC);
       oprot.writeDouble(struct.scanRate);
       oprot.writeFieldEnd();
+      if (struct.updateTimes != null) {
+        oprot.writeFieldBegin(UPDATE_TIMES_FIELD_DESC);
+        {
+          oprot.writeMapBegin(new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.STRING, org.apache.thrift.protocol.TType.LIST, struct.updateTimes.size()));
+          for (Map.Entry<String, List<Long>> _iter7 : struct.updateTimes.entrySet())
+          {
+            oprot.writeString(_iter7.getKey());
+            {
+              oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.I64, _iter7.getValue().size()));
+              for (long _iter8 : _iter7.getValue())
+              {
+                oprot.writeI64(_iter8);
+              }
+              oprot.writeListEnd();
+            }
+          }
+          oprot.writeMapEnd();
+        }
+        oprot.writeFieldEnd();
+      }
       oprot.writeFieldStop();
       oprot.writeStructEnd();
     }
@@ -1366,7 +1522,10 @@ import org.slf4j.LoggerFactory;
       if (struct.isSetScanRate()) {
         optionals.set(11);
       }
-      oprot.writeBitSet(optionals, 12);
+      if (struct.isSetUpdateTimes()) {
+        optionals.set(12);
+      }
+      oprot.writeBitSet(optionals, 13);
       if (struct.isSetRecs()) {
         oprot.writeI64(struct.recs);
       }
@@ -1403,12 +1562,28 @@ import org.slf4j.LoggerFactory;
       if (struct.isSetScanRate()) {
         oprot.writeDouble(struct.scanRate);
       }
+      if (struct.isSetUpdateTimes()) {
+        {
+          oprot.writeI32(struct.updateTimes.size());
+          for (Map.Entry<String, List<Long>> _iter9 : struct.updateTimes.entrySet())
+          {
+            oprot.writeString(_iter9.getKey());
+            {
+              oprot.writeI32(_iter9.getValue().size());
+              for (long _iter10 : _iter9.getValue())
+              {
+                oprot.writeI64(_iter10);
+              }
+            }
+          }
+        }
+      }
     }
 
     @Override
     public void read(org.apache.thrift.protocol.TProtocol prot, TableInfo struct) throws org.apache.thrift.TException {
       TTupleProtocol iprot = (TTupleProtocol) prot;
-      BitSet incoming = iprot.readBitSet(12);
+      BitSet incoming = iprot.readBitSet(13);
       if (incoming.get(0)) {
         struct.recs = iprot.readI64();
         struct.setRecsIsSet(true);
@@ -1460,6 +1635,30 @@ import org.slf4j.LoggerFactory;
         struct.scanRate = iprot.readDouble();
         struct.setScanRateIsSet(true);
       }
+      if (incoming.get(12)) {
+        {
+          org.apache.thrift.protocol.TMap _map11 = new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.STRING, org.apache.thrift.protocol.TType.LIST, iprot.readI32());
+          struct.updateTimes = new HashMap<String,List<Long>>(2*_map11.size);
+          for (int _i12 = 0; _i12 < _map11.size; ++_i12)
+          {
+            String _key13; // required
+            List<Long> _val14; // required
+            _key13 = iprot.readString();
+            {
+              org.apache.thrift.protocol.TList _list15 = new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.I64, iprot.readI32());
+              _val14 = new ArrayList<Long>(_list15.size);
+              for (int _i16 = 0; _i16 < _list15.size; ++_i16)
+              {
+                long _elem17; // required
+                _elem17 = iprot.readI64();
+                _val14.add(_elem17);
+              }
+            }
+            struct.updateTimes.put(_key13, _val14);
+          }
+        }
+        struct.setUpdateTimesIsSet(true);
+      }
     }
   }
 
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.security;
+
+/**
+ * A visibility expression compiled by {@link VisibilityCompiler} into a flat program of branches, one per term. Each instruction tests whether the user holds a
+ * term and jumps to the instruction that follows from the answer, so evaluating an expression is a loop over an int array that checks each term at most once,
+ * stops as soon as the outcome is known and allocates nothing.
+ */
+public final class CompiledVisibility {
+  
+  static final int ACCEPT = -1;
+  static final int REJECT = -2;
+  
+  // triples of term id, next instruction if the term is held and next instruction if it is not
+  private final int[] program;
+  
+  CompiledVisibility(int[] program) {
+    this.program = program;
+  }
+  
+  /**
+   * @param authorizations
+   *          the ids of the terms the user holds, as returned by {@link VisibilityCompiler#toBitSet(Authorizations)} from the compiler that compiled this
+   * @return true if the expression is visible to the user, the empty expression is visible to everyone
+   */
+  public boolean evaluate(long[] authorizations) {
+    if (program.length == 0)
+      return true;
+    int pc = 0;
+    while (true) {
+      int term = program[pc];
+      int word = term >>> 6;
+      boolean held = word < authorizations.length && (authorizations[word] & (1l << term)) != 0;
+      pc = held ? program[pc + 1] : program[pc + 2];
+      if (pc < 0)
+        return pc == ACCEPT;
+    }
+  }
+  
+  /**
+   * @return the number of terms in the expression
+   */
+  public int size() {
+    return program.length / 3;
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.security;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+
+/**
+ * A bounded cache of compiled visibility expressions, and of whether they are visible to each set of authorizations that has been checked, shared by every scan
+ * in the process. Without it each scan session, and each deep copy made within one, parses and evaluates the same few labels again from scratch.
+ * 
+ * <p>
+ * Lookups take a {@link ByteSequence}, so checking the visibility of a key can use a view of the key's bytes instead of copying them.
+ */
+public class VisibilityCache {
+  
+  private static final VisibilityCache instance = new VisibilityCache(10000, 100);
+  
+  public static VisibilityCache getInstance() {
+    return instance;
+  }
+  
+  /**
+   * Compiled expressions along with the compiler that interned their terms. Programs and bitsets only agree when they come from the same compiler, so when the
+   * compiler has interned too many terms a new generation is started and everything cached with the old one is dropped together.
+   */
+  private static class Generation {
+    final VisibilityCompiler compiler = new VisibilityCompiler();
+    final ConcurrentHashMap<ByteSequence,CompiledVisibility> programs = new ConcurrentHashMap<ByteSequence,CompiledVisibility>();
+  }
+  
+  private final int maxExpressions;
+  private final int maxAuthorizations;
+  private final int maxTerms;
+  private volatile Generation generation = new Generation();
+  private final ConcurrentHashMap<Authorizations,Evaluations> evaluations = new ConcurrentHashMap<Authorizations,Evaluations>();
+  
+  /**
+   * @param maxExpressions
+   *          the number of compiled expressions to keep, and the number of results to keep for each set of authorizations
+   * @param maxAuthorizations
+   *          the number of sets of authorizations to keep results for
+   */
+  public VisibilityCache(int maxExpressions, int maxAuthorizations) {
+    this.maxExpressions = maxExpressions;
+    this.maxAuthorizations = maxAuthorizations;
+    this.maxTerms = 10 * maxExpressions;
+  }
+  
+  /**
+   * Removes entries until the map is a quarter below its bound. Which entries go is left to the map's iteration order, which is cheaper than tracking use and
+   * works well enough when the bound comfortably holds the labels in use.
+   */
+  private static void trim(ConcurrentHashMap<?,?> map, int max) {
+    if (map.size() <= max)
+      return;
+    Iterator<?> iter = map.keySet().iterator();
+    int target = max - max / 4;
+    while (map.size() > target && iter.hasNext()) {
+      iter.next();
+      iter.remove();
+    }
+  }
+  
+  private static ByteSequence copy(ByteSequence seq) {
+    if (!seq.isBackedByArray())
+      return new ArrayByteSequence(seq.toArray());
+    return new ArrayByteSequence(Arrays.copyOfRange(seq.getBackingArray(), seq.offset(), seq.offset() + seq.length()));
+  }
+  
+  private CompiledVisibility getProgram(Generation gen, ByteSequence expression) throws VisibilityParseException {
+    CompiledVisibility program = gen.programs.get(expression);
+    if (program == null) {
+      ByteSequence key = copy(expression);
+      program = gen.compiler.compile(new ColumnVisibility(key.getBackingArray()));
+      gen.programs.put(key, program);
+      trim(gen.programs, maxExpressions);
+      if (gen.compiler.size() > maxTerms && generation == gen) {
+        generation = new Generation();
+        // scans holding on to evaluations from the old generation can keep using them, they just are not shared anymore
+        evaluations.clear();
+      }
+    }
+    return program;
+  }
+  
+  /**
+   * @return the cached results of evaluating expressions against the given authorizations, meant to be obtained once per scan and kept
+   */
+  public Evaluations getEvaluations(Authorizations authorizations) {
+    Evaluations evals = evaluations.get(authorizations);
+    if (evals == null) {
+      evals = new Evaluations(generation, authorizations);
+      Evaluations existing = evaluations.putIfAbsent(authorizations, evals);
+      if (existing != null)
+        evals = existing;
+      trim(evaluations, maxAuthorizations);
+    }
+    return evals;
+  }
+  
+  public class Evaluations {
+    private final Generation gen;
+    private final Authorizations authorizations;
+    private final long[] bits;
+    private final ConcurrentHashMap<ByteSequence,Boolean> results = new ConcurrentHashMap<ByteSequence,Boolean>();
+    
+    private Evaluations(Generation gen, Authorizations authorizations) {
+      this.gen = gen;
+      this.authorizations = authorizations;
+      this.bits = gen.compiler.toBitSet(authorizations);
+    }
+    
+    /**
+     * @return the authorizations as given, not escaped as they are compiled
+     */
+    public Authorizations getAuthorizations() {
+      return authorizations;
+    }
+    
+    /**
+     * @return true if the expression is visible to these authorizations
+     * @throws org.apache.accumulo.core.util.BadArgumentException
+     *           if the expression can not be parsed
+     */
+    public boolean evaluate(ByteSequence expression) throws VisibilityParseException {
+      Boolean result = results.get(expression);
+      if (result == null) {
+        result = getProgram(gen, expression).evaluate(bits);
+        results.put(copy(expression), result);
+        trim(results, maxExpressions);
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.security;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.security.ColumnVisibility.Node;
+import org.apache.accumulo.core.security.ColumnVisibility.NodeType;
+
+/**
+ * Compiles visibility expressions into {@link CompiledVisibility} programs and sets of authorizations into bitsets that the programs are evaluated against.
+ * 
+ * <p>
+ * Terms and authorizations are interned to small integers as they are seen, so a program and a bitset from the same compiler agree on what each bit means. All
+ * of a user's authorizations are interned when their bitset is made, so a term first seen afterward can not be one the user holds, and bitsets stay valid as
+ * more expressions are compiled.
+ */
+public class VisibilityCompiler {
+  
+  private final ConcurrentHashMap<ByteSequence,Integer> terms = new ConcurrentHashMap<ByteSequence,Integer>();
+  
+  private int intern(ByteSequence term) {
+    Integer id = terms.get(term);
+    if (id == null) {
+      // ids are handed out under the lock so that they stay dense, lookups of terms already seen never take it
+      synchronized (terms) {
+        id = terms.get(term);
+        if (id == null) {
+          id = terms.size();
+          terms.put(new ArrayByteSequence(term.toArray()), id);
+        }
+      }
+    }
+    return id;
+  }
+  
+  /**
+   * @return the number of distinct terms interned so far
+   */
+  public int size() {
+    return terms.size();
+  }
+  
+  /**
+   * @return a bitset with the bit of each of the given authorizations set
+   */
+  public long[] toBitSet(Authorizations authorizations) {
+    long[] bits = new long[0];
+    for (byte[] auth : authorizations) {
+      // terms are interned as they appear in expressions, where quotes and backslashes within a quoted term are escaped
+      int id = intern(new ArrayByteSequence(VisibilityEvaluator.escape(auth, false)));
+      if ((id >>> 6) >= bits.length)
+        bits = Arrays.copyOf(bits, (id >>> 6) + 1);
+      bits[id >>> 6] |= 1l << id;
+    }
+    return bits;
+  }
+  
+  public CompiledVisibility compile(ColumnVisibility visibility) throws VisibilityParseException {
+    Node root = visibility.getParseTree();
+    if (root == null)
+      return new CompiledVisibility(new int[0]);
+    int[] program = new int[3 * countTerms(root)];
+    compile(visibility.getExpression(), root, program, 0, CompiledVisibility.ACCEPT, CompiledVisibility.REJECT);
+    return new CompiledVisibility(program);
+  }
+  
+  private static int countTerms(Node node) {
+    if (node.getType() == NodeType.TERM)
+      return 1;
+    int count = 0;
+    for (Node child : node.getChildren())
+      count += countTerms(child);
+    return count;
+  }
+  
+  /**
+   * Writes the instructions for a node starting at the given instruction, jumping to onTrue or onFalse once its value is known.
+   * 
+   * @return the instruction following those written
+   */
+  private int compile(byte[] expression, Node node, int[] program, int pc, int onTrue, int onFalse) throws VisibilityParseException {
+    switch (node.getType()) {
+      case TERM:
+        program[3 * pc] = intern(node.getTerm(expression));
+        program[3 * pc + 1] = onTrue;
+        program[3 * pc + 2] = onFalse;
+        return pc + 1;
+      case AND:
+      case OR:
+        List<Node> children = node.getChildren();
+        if (children == null || children.size() < 2)
+          throw new VisibilityParseException(node.getType() + " has less than 2 children", expression, node.getTermStart());
+        boolean and = node.getType() == NodeType.AND;
+        int last = children.size() - 1;
+        for (int i = 0; i < last; i++) {
+          Node child = children.get(i);
+          // the next child starts right after this one's instructions
+          int next = 3 * (pc + countTerms(child));
+          if (and)
+            pc = compile(expression, child, program, pc, next, onFalse);
+          else
+            pc = compile(expression, child, program, pc, onTrue, next);
+        }
+        return compile(expression, children.get(last), program, pc, onTrue, onFalse);
+      default:
+        throw new VisibilityParseException("No such node type", expression, node.getTermStart());
+    }
+  }
+}
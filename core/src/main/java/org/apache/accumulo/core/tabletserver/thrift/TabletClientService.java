@@ -50,9 +50,9 @@ import org.slf4j.LoggerFactory;
 
   public interface Iface extends org.apache.accumulo.core.client.impl.thrift.ClientService.Iface {
 
-    public org.apache.accumulo.core.data.thrift.InitialScan startScan(org.apache.accumulo.trace.thrift.TInfo tinfo, org.apache.accumulo.core.security.thrift.ThriftInstanceTokenWrapper credentials, org.apache.accumulo.core.data.thrift.TKeyExtent extent, org.apache.accumulo.core.data.thrift.TRange range, List<org.apache.accumulo.core.data.thrift.TColumn> columns, int batchSize, List<org.apache.accumulo.core.data.thrift.IterInfo> ssiList, Map<String,Map<String,String>> ssio, List<ByteBuffer> authorizations, boolean waitForWrites, boolean isolated) throws org.apache.accumulo.core.security.thrift.ThriftSecurityException, NotServingTabletException, TooManyFilesException, org.apache.thrift.TException;
+    public org.apache.accumulo.core.data.thrift.InitialScan startScan(org.apache.accumulo.trace.thrift.TInfo tinfo, org.apache.accumulo.core.security.thrift.ThriftInstanceTokenWrapper credentials, org.apache.accumulo.core.data.thrift.TKeyExtent extent, org.apache.accumulo.core.data.thrift.TRange range, List<org.apache.accumulo.core.data.thrift.TColumn> columns, int batchSize, List<org.apache.accumulo.core.data.thrift.IterInfo> ssiList, Map<String,Map<String,String>> ssio, List<ByteBuffer> authorizations, boolean waitForWrites, boolean isolated, boolean cacheBlocks) throws org.apache.accumulo.core.security.thrift.ThriftSecurityException, NotServingTabletException, TooManyFilesException, org.apache.thrift.TException;
 
-    public org.apache.accumulo.core.data.thrift.ScanResult continueScan(org.apache.accumulo.trace.thrift.TInfo tinfo, long scanID) throws NoSuchScanIDException, NotServingTabletException, TooManyFilesException, org.apache.thrift.TException;
+    public org.apache.accumulo.core.data.thrift.ScanResult continueScan(org.apache.accumulo.trace.thrift.TInfo tinfo, long scanID, int window) throws NoSuchScanIDException, NotServingTabletException, TooManyFilesException, org.apache.thrift.TException;
 
     public void closeScan(org.apache.accumulo.trace.thrift.TInfo tinfo, long scanID) throws org.apache.thrift.TException;
 
@@ -106,9 +106,9 @@ import org.slf4j.LoggerFactory;
 
   public interface AsyncIface extends org.apache.accumulo.core.client.impl.thrift.ClientService .AsyncIface {
 
-    public void startScan(org.apache.accumulo.trace.thrift.TInfo tinfo, org.apache.accumulo.core.security.thrift.ThriftInstanceTokenWrapper credentials, org.apache.accumulo.core.data.thrift.TKeyExtent extent, org.apache.accumulo.core.data.thrift.TRange range, List<org.apache.accumulo.core.data.thrift.TColumn> columns, int batchSize, List<org.apache.accumulo.core.data.thrift.IterInfo> ssiList, Map<String,Map<String,String>> ssio, List<ByteBuffer> authorizations, boolean waitForWrites, boolean isolated, org.apache.thrift.async.AsyncMethodCallback<AsyncClient.startScan_call> resultHandler) throws org.apache.thrift.TException;
+    public void startScan(org.apache.accumulo.trace.thrift.TInfo tinfo, org.apache.accumulo.core.security.thrift.ThriftInstanceTokenWrapper credentials, org.apache.accumulo.core.data.thrift.TKeyExtent extent, org.apache.accumulo.core.data.thrift.TRange range, List<org.apache.accumulo.core.data.thrift.TColumn> columns, int batchSize, List<org.apache.accumulo.core.data.thrift.IterInfo> ssiList, Map<String,Map<String,String>> ssio, List<ByteBuffer> authorizations, boolean waitForWrites, boolean isolated, boolean cacheBlocks, org.apache.thrift.async.AsyncMethodCallback<AsyncClient.startScan_call> resultHandler) throws org.apache.thrift.TException;
 
-    public void continueScan(org.apache.accumulo.trace.thrift.TInfo tinfo, long scanID, org.apache.thrift.async.AsyncMethodCallback<AsyncClient.continueScan_call> resultHandler) throws org.apache.thrift.TException;
+    public void continueScan(org.apache.accumulo.trace.thrift.TInfo tinfo, long scanID, int window, org.apache.thrift.async.AsyncMethodCallback<AsyncClient.continueScan_call> resultHandler) throws org.apache.thrift.TException;
 
     public void closeScan(org.apache.accumulo.trace.thrift.TInfo tinfo, long scanID, org.apache.thrift.async.AsyncMethodCallback<AsyncClient.closeScan_call> resultHandler) throws org.apache.thrift.TException;
 
@@ -180,13 +180,13 @@ import org.slf4j.LoggerFactory;
       super(iprot, oprot);
     }
 
-    public org.apache.accumulo.core.data.thrift.InitialScan startScan(org.apache.accumulo.trace.thrift.TInfo tinfo, org.apache.accumulo.core.security.thrift.ThriftInstanceTokenWrapper credentials, org.apache.accumulo.core.data.thrift.TKeyExtent extent, org.apache.accumulo.core.data.thrift.TRange range, List<org.apache.accumulo.core.data.thrift.TColumn> columns, int batchSize, List<org.apache.accumulo.core.data.thrift.IterInfo> ssiList, Map<String,Map<String,String>> ssio, List<ByteBuffer> authorizations, boolean waitForWrites, boolean isolated) throws org.apache.accumulo.core.security.thrift.ThriftSecurityException, NotServingTabletException, TooManyFilesException, org.apache.thrift.TException
+    public org.apache.accumulo.core.data.thrift.InitialScan startScan(org.apache.accumulo.trace.thrift.TInfo tinfo, org.apache.accumulo.core.security.thrift.ThriftInstanceTokenWrapper credentials, org.apache.accumulo.core.data.thrift.TKeyExtent extent, org.apache.accumulo.core.data.thrift.TRange range, List<org.apache.accumulo.core.data.thrift.TColumn> columns, int batchSize, List<org.apache.accumulo.core.data.thrift.IterInfo> ssiList, Map<String,Map<String,String>> ssio, List<ByteBuffer> authorizations, boolean waitForWrites, boolean isolated, boolean cacheBlocks) throws org.apache.accumulo.core.security.thrift.ThriftSecurityException, NotServingTabletException, TooManyFilesException, org.apache.thrift.TException
     {
-      send_startScan(tinfo, credentials, extent, range, columns, batchSize, ssiList, ssio, authorizations, waitForWrites, isolated);
+      send_startScan(tinfo, credentials, extent, range, columns, batchSize, ssiList, ssio, authorizations, waitForWrites, isolated, cacheBlocks);
       return recv_startScan();
     }
 
-    public void send_startScan(org.apache.accumulo.trace.thrift.TInfo tinfo, org.apache.accumulo.core.security.thrift.ThriftInstanceTokenWrapper credentials, org.apache.accumulo.core.data.thrift.TKeyExtent extent, org.apache.accumulo.core.data.thrift.TRange range, List<org.apache.accumulo.core.data.thrift.TColumn> columns, int batchSize, List<org.apache.accumulo.core.data.thrift.IterInfo> ssiList, Map<String,Map<String,String>> ssio, List<ByteBuffer> authorizations, boolean waitForWrites, boolean isolated) throws org.apache.thrift.TException
+    public void send_startScan(org.apache.accumulo.trace.thrift.TInfo tinfo, org.apache.accumulo.core.security.thrift.ThriftInstanceTokenWrapper credentials, org.apache.accumulo.core.data.thrift.TKeyExtent extent, org.apache.accumulo.core.data.thrift.TRange range, List<org.apache.accumulo.core.data.thrift.TColumn> columns, int batchSize, List<org.apache.accumulo.core.data.thrift.IterInfo> ssiList, Map<String,Map<String,String>> ssio, List<ByteBuffer> authorizations, boolean waitForWrites, boolean isolated, boolean cacheBlocks) throws org.apache.thrift.TException
     {
       startScan_args args = new startScan_args();
       args.setTinfo(tinfo);
@@ -200,6 +200,7 @@ import org.slf4j.LoggerFactory;
       args.setAuthorizations(authorizations);
       args.setWaitForWrites(waitForWrites);
       args.setIsolated(isolated);
+      args.setCacheBlocks(cacheBlocks);
       sendBase("startScan", args);
     }
 
@@ -222,17 +223,18 @@ import org.slf4j.LoggerFactory;
       throw new org.apache.thrift.TApplicationException(org.apache.thrift.TApplicationException.MISSING_RESULT, "startScan failed: unknown result");
     }
 
-    public org.apache.accumulo.core.data.thrift.ScanResult continueScan(org.apache.accumulo.trace.thrift.TInfo tinfo, long scanID) throws NoSuchScanIDException, NotServingTabletException, TooManyFilesException, org.apache.thrift.TException
+    public org.apache.accumulo.core.data.thrift.ScanResult continueScan(org.apache.accumulo.trace.thrift.TInfo tinfo, long scanID, int window) throws NoSuchScanIDException, NotServingTabletException, TooManyFilesException, org.apache.thrift.TException
     {
-      send_continueScan(tinfo, scanID);
+      send_continueScan(tinfo, scanID, window);
       return recv_continueScan();
     }
 
-    public void send_continueScan(org.apache.accumulo.trace.thrift.TInfo tinfo, long scanID) throws org.apache.thrift.TException
+    public void send_continueScan(org.apache.accumulo.trace.thrift.TInfo tinfo, long scanID, int window) throws org.apache.thrift.TException
     {
       continueScan_args args = new continueScan_args();
       args.setTinfo(tinfo);
       args.setScanID(scanID);
+      args.setWindow(window);
       sendBase("continueScan", args);
     }
 
@@ -814,9 +816,9 @@ import org.slf4j.LoggerFactory;
       super(protocolFactory, clientManager, transport);
     }
 
-    public void startScan(org.apache.accumulo.trace.thrift.TInfo tinfo, org.apache.accumulo.core.security.thrift.ThriftInstanceTokenWrapper credentials, org.apache.accumulo.core.data.thrift.TKeyExtent extent, org.apache.accumulo.core.data.thrift.TRange range, List<org.apache.accumulo.core.data.thrift.TColumn> columns, int batchSize, List<org.apache.accumulo.core.data.thrift.IterInfo> ssiList, Map<String,Map<String,String>> ssio, List<ByteBuffer> authorizations, boolean waitForWrites, boolean isolated, org.apache.thrift.async.AsyncMethodCallback<startScan_call> resultHandler) throws org.apache.thrift.TException {
+    public void startScan(org.apache.accumulo.trace.thrift.TInfo tinfo, org.apache.accumulo.core.security.thrift.ThriftInstanceTokenWrapper credentials, org.apache.accumulo.core.data.thrift.TKeyExtent extent, org.apache.accumulo.core.data.thrift.TRange range, List<org.apache.accumulo.core.data.thrift.TColumn> columns, int batchSize, List<org.apache.accumulo.core.data.thrift.IterInfo> ssiList, Map<String,Map<String,String>> ssio, List<ByteBuffer> authorizations, boolean waitForWrites, boolean isolated, boolean cacheBlocks, org.apache.thrift.async.AsyncMethodCallback<startScan_call> resultHandler) throws org.apache.thrift.TException {
       checkReady();
-      startScan_call method_call = new startScan_call(tinfo, credentials, extent, range, columns, batchSize, ssiList, ssio, authorizations, waitForWrites, isolated, resultHandler, this, ___protocolFactory, ___transport);
+      startScan_call method_call = new startScan_call(tinfo, credentials, extent, range, columns, batchSize, ssiList, ssio, authorizations, waitForWrites, isolated, cacheBlocks, resultHandler, this, ___protocolFactory, ___transport);
       this.___currentMethod = method_call;
       ___manager.call(method_call);
     }
@@ -833,7 +835,8 @@ import org.slf4j.LoggerFactory;
       private List<ByteBuffer> authorizations;
       private boolean waitForWrites;
       private boolean isolated;
-      public startScan_call(org.apache.accumulo.trace.thrift.TInfo tinfo, org.apache.accumulo.core.security.thrift.ThriftInstanceTokenWrapper credentials, org.apache.accumulo.core.data.thrift.TKeyExtent extent, org.apache.accumulo.core.data.thrift.TRange range, List<org.apache.accumulo.core.data.thrift.TColumn> columns, int batchSize, List<org.apache.accumulo.core.data.thrift.IterInfo> ssiList, Map<String,Map<String,String>> ssio, List<ByteBuffer> authorizations, boolean waitForWrites, boolean isolated, org.apache.thrift.async.AsyncMethodCallback<startScan_call> resultHandler, org.apache.thrift.async.TAsyncClient client, org.apache.thrift.protocol.TProtocolFactory protocolFactory, org.apache.thrift.transport.TNonblockingTransport transport) throws org.apache.thrift.TException {
+      private boolean cacheBlocks;
+      public startScan_call(org.apache.accumulo.trace.thrift.TInfo tinfo, org.apache.accumulo.core.security.thrift.ThriftInstanceTokenWrapper credentials, org.apache.accumulo.core.data.thrift.TKeyExtent extent, org.apache.accumulo.core.data.thrift.TRange range, List<org.apache.accumulo.core.data.thrift.TColumn> columns, int batchSize, List<org.apache.accumulo.core.data.thrift.IterInfo> ssiList, Map<String,Map<String,String>> ssio, List<ByteBuffer> authorizations, boolean waitForWrites, boolean isolated, boolean cacheBlocks, org.apache.thrift.async.AsyncMethodCallback<startScan_call> resultHandler, org.apache.thrift.async.TAsyncClient client, org.apache.thrift.protocol.TProtocolFactory protocolFactory, org.apache.thrift.transport.TNonblockingTransport transport) throws org.apache.thrift.TException {
         super(client, protocolFactory, transport, resultHandler, false);
         this.tinfo = tinfo;
         this.credentials = credentials;
@@ -846,6 +849,7 @@ import org.slf4j.LoggerFactory;
         this.authorizations = authorizations;
         this.waitForWrites = waitForWrites;
         this.isolated = isolated;
+        this.cacheBlocks = cacheBlocks;
       }
 
       public void write_args(org.apache.thrift.protocol.TProtocol prot) throws org.apache.thrift.TException {
@@ -862,6 +866,7 @@ import org.slf4j.LoggerFactory;
         args.setAuthorizations(authorizations);
         args.setWaitForWrites(waitForWrites);
         args.setIsolated(isolated);
+        args.setCacheBlocks(cacheBlocks);
         args.write(prot);
         prot.writeMessageEnd();
       }
@@ -876,9 +881,9 @@ import org.slf4j.LoggerFactory;
       }
     }
 
-    public void continueScan(org.apache.accumulo.trace.thrift.TInfo tinfo, long scanID, org.apache.thrift.async.AsyncMethodCallback<continueScan_call> resultHandler) throws org.apache.thrift.TException {
+    public void continueScan(org.apache.accumulo.trace.thrift.TInfo tinfo, long scanID, int window, org.apache.thrift.async.AsyncMethodCallback<continueScan_call> resultHandler) throws org.apache.thrift.TException {
       checkReady();
-      continueScan_call method_call = new continueScan_call(tinfo, scanID, resultHandler, this, ___protocolFactory, ___transport);
+      continueScan_call method_call = new continueScan_call(tinfo, scanID, window, resultHandler, this, ___protocolFactory, ___transport);
       this.___currentMethod = method_call;
       ___manager.call(method_call);
     }
@@ -886,10 +891,12 @@ import org.slf4j.LoggerFactory;
     public static class continueScan_call extends org.apache.thrift.async.TAsyncMethodCall {
       private org.apache.accumulo.trace.thrift.TInfo tinfo;
       private long scanID;
-      public continueScan_call(org.apache.accumulo.trace.thrift.TInfo tinfo, long scanID, org.apache.thrift.async.AsyncMethodCallback<continueScan_call> resultHandler, org.apache.thrift.async.TAsyncClient client, org.apache.thrift.protocol.TProtocolFactory protocolFactory, org.apache.thrift.transport.TNonblockingTransport transport) throws org.apache.thrift.TException {
+      private int window;
+      public continueScan_call(org.apache.accumulo.trace.thrift.TInfo tinfo, long scanID, int window, org.apache.thrift.async.AsyncMethodCallback<continueScan_call> resultHandler, org.apache.thrift.async.TAsyncClient client, org.apache.thrift.protocol.TProtocolFactory protocolFactory, org.apache.thrift.transport.TNonblockingTransport transport) throws org.apache.thrift.TException {
         super(client, protocolFactory, transport, resultHandler, false);
         this.tinfo = tinfo;
         this.scanID = scanID;
+        this.window = window;
       }
 
       public void write_args(org.apache.thrift.protocol.TProtocol prot) throws org.apache.thrift.TException {
@@ -897,6 +904,7 @@ import org.slf4j.LoggerFactory;
         continueScan_args args = new continueScan_args();
         args.setTinfo(tinfo);
         args.setScanID(scanID);
+        args.setWindow(window);
         args.write(prot);
         prot.writeMessageEnd();
       }
@@ -1907,7 +1915,7 @@ import org.slf4j.LoggerFactory;
       public startScan_result getResult(I iface, startScan_args args) throws org.apache.thrift.TException {
         startScan_result result = new startScan_result();
         try {
-          result.success = iface.startScan(args.tinfo, args.credentials, args.extent, args.range, args.columns, args.batchSize, args.ssiList, args.ssio, args.authorizations, args.waitForWrites, args.isolated);
+          result.success = iface.startScan(args.tinfo, args.credentials, args.extent, args.range, args.columns, args.batchSize, args.ssiList, args.ssio, args.authorizations, args.waitForWrites, args.isolated, args.cacheBlocks);
         } catch (org.apache.accumulo.core.security.thrift.ThriftSecurityException sec) {
           result.sec = sec;
         } catch (NotServingTabletException nste) {
@@ -1935,7 +1943,7 @@ import org.slf4j.LoggerFactory;
       public continueScan_result getResult(I iface, continueScan_args args) throws org.apache.thrift.TException {
         continueScan_result result = new continueScan_result();
         try {
-          result.success = iface.continueScan(args.tinfo, args.scanID);
+          result.success = iface.continueScan(args.tinfo, args.scanID, args.window);
         } catch (NoSuchScanIDException nssi) {
           result.nssi = nssi;
         } catch (NotServingTabletException nste) {
@@ -2496,6 +2504,7 @@ import org.slf4j.LoggerFactory;
     private static final org.apache.thrift.protocol.TField AUTHORIZATIONS_FIELD_DESC = new org.apache.thrift.protocol.TField("authorizations", org.apache.thrift.protocol.TType.LIST, (short)8);
     private static final org.apache.thrift.protocol.TField WAIT_FOR_WRITES_FIELD_DESC = new org.apache.thrift.protocol.TField("waitForWrites", org.apache.thrift.protocol.TType.BOOL, (short)9);
     private static final org.apache.thrift.protocol.TField ISOLATED_FIELD_DESC = new org.apache.thrift.protocol.TField("isolated", org.apache.thrift.protocol.TType.BOOL, (short)10);
+    private static final org.apache.thrift.protocol.TField CACHE_BLOCKS_FIELD_DESC = new org.apache.thrift.protocol.TField("cacheBlocks", org.apache.thrift.protocol.TType.BOOL, (short)12);
 
     private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
     static {
@@ -2514,6 +2523,7 @@ import org.slf4j.LoggerFactory;
     public List<ByteBuffer> authorizations; // required
     public boolean waitForWrites; // required
     public boolean isolated; // required
+    public boolean cacheBlocks; // required
 
     /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
     @SuppressWarnings("all") public enum _Fields implements org.apache.thrift.TFieldIdEnum {
@@ -2527,7 +2537,8 @@ import org.slf4j.LoggerFactory;
       SSIO((short)7, "ssio"),
       AUTHORIZATIONS((short)8, "authorizations"),
       WAIT_FOR_WRITES((short)9, "waitForWrites"),
-      ISOLATED((short)10, "isolated");
+      ISOLATED((short)10, "isolated"),
+      CACHE_BLOCKS((short)12, "cacheBlocks");
 
       private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
 
@@ -2564,6 +2575,8 @@ import org.slf4j.LoggerFactory;
             return WAIT_FOR_WRITES;
           case 10: // ISOLATED
             return ISOLATED;
+          case 12: // CACHE_BLOCKS
+            return CACHE_BLOCKS;
           default:
             return null;
         }
@@ -2607,6 +2620,7 @@ import org.slf4j.LoggerFactory;
     private static final int __BATCHSIZE_ISSET_ID = 0;
     private static final int __WAITFORWRITES_ISSET_ID = 1;
     private static final int __ISOLATED_ISSET_ID = 2;
+    private static final int __CACHEBLOCKS_ISSET_ID = 3;
     private byte __isset_bitfield = 0;
     public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
     static {
@@ -2640,11 +2654,15 @@ import org.slf4j.LoggerFactory;
           new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.BOOL)));
       tmpMap.put(_Fields.ISOLATED, new org.apache.thrift.meta_data.FieldMetaData("isolated", org.apache.thrift.TFieldRequirementType.DEFAULT, 
           new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.BOOL)));
+      tmpMap.put(_Fields.CACHE_BLOCKS, new org.apache.thrift.meta_data.FieldMetaData("cacheBlocks", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.BOOL)));
       metaDataMap = Collections.unmodifiableMap(tmpMap);
       org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(startScan_args.class, metaDataMap);
     }
 
     public startScan_args() {
+      this.cacheBlocks = true;
+
     }
 
     public startScan_args(
@@ -2658,7 +2676,8 @@ import org.slf4j.LoggerFactory;
       Map<String,Map<String,String>> ssio,
       List<ByteBuffer> authorizations,
       boolean waitForWrites,
-      boolean isolated)
+      boolean isolated,
+      boolean cacheBlocks)
     {
       this();
       this.tinfo = tinfo;
@@ -2675,6 +2694,8 @@ import org.slf4j.LoggerFactory;
       setWaitForWritesIsSet(true);
       this.isolated = isolated;
       setIsolatedIsSet(true);
+      this.cacheBlocks = cacheBlocks;
+      setCacheBlocksIsSet(true);
     }
 
     /**
@@ -2746,6 +2767,7 @@ import org.slf4j.LoggerFactory;
       }
       this.waitForWrites = other.waitForWrites;
       this.isolated = other.isolated;
+      this.cacheBlocks = other.cacheBlocks;
     }
 
     public startScan_args deepCopy() {
@@ -2768,6 +2790,8 @@ import org.slf4j.LoggerFactory;
       this.waitForWrites = false;
       setIsolatedIsSet(false);
       this.isolated = false;
+      this.cacheBlocks = true;
+
     }
 
     public org.apache.accumulo.trace.thrift.TInfo getTinfo() {
@@ -3087,6 +3111,29 @@ import org.slf4j.LoggerFactory;
       __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __ISOLATED_ISSET_ID, value);
     }
 
+    public boolean isCacheBlocks() {
+      return this.cacheBlocks;
+    }
+
+    public startScan_args setCacheBlocks(boolean cacheBlocks) {
+      this.cacheBlocks = cacheBlocks;
+      setCacheBlocksIsSet(true);
+      return this;
+    }
+
+    public void unsetCacheBlocks() {
+      __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __CACHEBLOCKS_ISSET_ID);
+    }
+
+    /** Returns true if field cacheBlocks is set (has been assigned a value) and false otherwise */
+    public boolean isSetCacheBlocks() {
+      return EncodingUtils.testBit(__isset_bitfield, __CACHEBLOCKS_ISSET_ID);
+    }
+
+    public void setCacheBlocksIsSet(boolean value) {
+      __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __CACHEBLOCKS_ISSET_ID, value);
+    }
+
     public void setFieldValue(_Fields field, Object value) {
       switch (field) {
       case TINFO:
@@ -3177,6 +3224,14 @@ import org.slf4j.LoggerFactory;
         }
         break;
 
+      case CACHE_BLOCKS:
+        if (value == null) {
+          unsetCacheBlocks();
+        } else {
+          setCacheBlocks((Boolean)value);
+        }
+        break;
+
       }
     }
 
@@ -3215,6 +3270,9 @@ import org.slf4j.LoggerFactory;
       case ISOLATED:
         return Boolean.valueOf(isIsolated());
 
+      case CACHE_BLOCKS:
+        return Boolean.valueOf(isCacheBlocks());
+
       }
       throw new IllegalStateException();
     }
@@ -3248,6 +3306,8 @@ import org.slf4j.LoggerFactory;
         return isSetWaitForWrites();
       case ISOLATED:
         return isSetIsolated();
+      case CACHE_BLOCKS:
+        return isSetCacheBlocks();
       }
       throw new IllegalStateException();
     }
@@ -3364,6 +3424,15 @@ import org.slf4j.LoggerFactory;
           return false;
       }
 
+      boolean this_present_cacheBlocks = true;
+      boolean that_present_cacheBlocks = true;
+      if (this_present_cacheBlocks || that_present_cacheBlocks) {
+        if (!(this_present_cacheBlocks && that_present_cacheBlocks))
+          return false;
+        if (this.cacheBlocks != that.cacheBlocks)
+          return false;
+      }
+
       return true;
     }
 
@@ -3490,6 +3559,16 @@ import org.slf4j.LoggerFactory;
           return lastComparison;
         }
       }
+      lastComparison = Boolean.valueOf(isSetCacheBlocks()).compareTo(typedOther.isSetCacheBlocks());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetCacheBlocks()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.cacheBlocks, typedOther.cacheBlocks);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
       return 0;
     }
 
@@ -3585,6 +3664,10 @@ import org.slf4j.LoggerFactory;
       sb.append("isolated:");
       sb.append(this.isolated);
       first = false;
+      if (!first) sb.append(", ");
+      sb.append("cacheBlocks:");
+      sb.append(this.cacheBlocks);
+      first = false;
       sb.append(")");
       return sb.toString();
     }
@@ -3790,6 +3873,14 @@ import org.slf4j.LoggerFactory;
                 org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
               }
               break;
+            case 12: // CACHE_BLOCKS
+              if (schemeField.type == org.apache.thrift.protocol.TType.BOOL) {
+                struct.cacheBlocks = iprot.readBool();
+                struct.setCacheBlocksIsSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
             default:
               org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
           }
@@ -3891,6 +3982,9 @@ import org.slf4j.LoggerFactory;
           struct.tinfo.write(oprot);
           oprot.writeFieldEnd();
         }
+        oprot.writeFieldBegin(CACHE_BLOCKS_FIELD_DESC);
+        oprot.writeBool(struct.cacheBlocks);
+        oprot.writeFieldEnd();
         oprot.writeFieldStop();
         oprot.writeStructEnd();
       }
@@ -3942,7 +4036,10 @@ import org.slf4j.LoggerFactory;
         if (struct.isSetIsolated()) {
           optionals.set(10);
         }
-        oprot.writeBitSet(optionals, 11);
+        if (struct.isSetCacheBlocks()) {
+          optionals.set(11);
+        }
+        oprot.writeBitSet(optionals, 12);
         if (struct.isSetTinfo()) {
           struct.tinfo.write(oprot);
         }
@@ -4008,12 +4105,15 @@ import org.slf4j.LoggerFactory;
         if (struct.isSetIsolated()) {
           oprot.writeBool(struct.isolated);
         }
+        if (struct.isSetCacheBlocks()) {
+          oprot.writeBool(struct.cacheBlocks);
+        }
       }
 
       @Override
       public void read(org.apache.thrift.protocol.TProtocol prot, startScan_args struct) throws org.apache.thrift.TException {
         TTupleProtocol iprot = (TTupleProtocol) prot;
-        BitSet incoming = iprot.readBitSet(11);
+        BitSet incoming = iprot.readBitSet(12);
         if (incoming.get(0)) {
           struct.tinfo = new org.apache.accumulo.trace.thrift.TInfo();
           struct.tinfo.read(iprot);
@@ -4113,6 +4213,10 @@ import org.slf4j.LoggerFactory;
           struct.isolated = iprot.readBool();
           struct.setIsolatedIsSet(true);
         }
+        if (incoming.get(11)) {
+          struct.cacheBlocks = iprot.readBool();
+          struct.setCacheBlocksIsSet(true);
+        }
       }
     }
 
@@ -4788,6 +4892,7 @@ import org.slf4j.LoggerFactory;
 
     private static final org.apache.thrift.protocol.TField TINFO_FIELD_DESC = new org.apache.thrift.protocol.TField("tinfo", org.apache.thrift.protocol.TType.STRUCT, (short)2);
     private static final org.apache.thrift.protocol.TField SCAN_ID_FIELD_DESC = new org.apache.thrift.protocol.TField("scanID", org.apache.thrift.protocol.TType.I64, (short)1);
+    private static final org.apache.thrift.protocol.TField WINDOW_FIELD_DESC = new org.apache.thrift.protocol.TField("window", org.apache.thrift.protocol.TType.I32, (short)3);
 
     private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
     static {
@@ -4797,11 +4902,13 @@ import org.slf4j.LoggerFactory;
 
     public org.apache.accumulo.trace.thrift.TInfo tinfo; // required
     public long scanID; // required
+    public int window; // required
 
     /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
     @SuppressWarnings("all") public enum _Fields implements org.apache.thrift.TFieldIdEnum {
       TINFO((short)2, "tinfo"),
-      SCAN_ID((short)1, "scanID");
+      SCAN_ID((short)1, "scanID"),
+      WINDOW((short)3, "window");
 
       private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
 
@@ -4820,6 +4927,8 @@ import org.slf4j.LoggerFactory;
             return TINFO;
           case 1: // SCAN_ID
             return SCAN_ID;
+          case 3: // WINDOW
+            return WINDOW;
           default:
             return null;
         }
@@ -4861,6 +4970,7 @@ import org.slf4j.LoggerFactory;
 
     // isset id assignments
     private static final int __SCANID_ISSET_ID = 0;
+    private static final int __WINDOW_ISSET_ID = 1;
     private byte __isset_bitfield = 0;
     public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
     static {
@@ -4869,6 +4979,8 @@ import org.slf4j.LoggerFactory;
           new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, org.apache.accumulo.trace.thrift.TInfo.class)));
       tmpMap.put(_Fields.SCAN_ID, new org.apache.thrift.meta_data.FieldMetaData("scanID", org.apache.thrift.TFieldRequirementType.DEFAULT, 
           new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I64          , "ScanID")));
+      tmpMap.put(_Fields.WINDOW, new org.apache.thrift.meta_data.FieldMetaData("window", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32)));
       metaDataMap = Collections.unmodifiableMap(tmpMap);
       org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(continueScan_args.class, metaDataMap);
     }
@@ -4878,12 +4990,15 @@ import org.slf4j.LoggerFactory;
 
     public continueScan_args(
       org.apache.accumulo.trace.thrift.TInfo tinfo,
-      long scanID)
+      long scanID,
+      int window)
     {
       this();
       this.tinfo = tinfo;
       this.scanID = scanID;
       setScanIDIsSet(true);
+      this.window = window;
+      setWindowIsSet(true);
     }
 
     /**
@@ -4895,6 +5010,7 @@ import org.slf4j.LoggerFactory;
         this.tinfo = new org.apache.accumulo.trace.thrift.TInfo(other.tinfo);
       }
       this.scanID = other.scanID;
+      this.window = other.window;
     }
 
     public continueScan_args deepCopy() {
@@ -4906,6 +5022,8 @@ import org.slf4j.LoggerFactory;
       this.tinfo = null;
       setScanIDIsSet(false);
       this.scanID = 0;
+      setWindowIsSet(false);
+      this.window = 0;
     }
 
     public org.apache.accumulo.trace.thrift.TInfo getTinfo() {
@@ -4955,6 +5073,29 @@ import org.slf4j.LoggerFactory;
       __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __SCANID_ISSET_ID, value);
     }
 
+    public int getWindow() {
+      return this.window;
+    }
+
+    public continueScan_args setWindow(int window) {
+      this.window = window;
+      setWindowIsSet(true);
+      return this;
+    }
+
+    public void unsetWindow() {
+      __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __WINDOW_ISSET_ID);
+    }
+
+    /** Returns true if field window is set (has been assigned a value) and false otherwise */
+    public boolean isSetWindow() {
+      return EncodingUtils.testBit(__isset_bitfield, __WINDOW_ISSET_ID);
+    }
+
+    public void setWindowIsSet(boolean value) {
+      __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __WINDOW_ISSET_ID, value);
+    }
+
     public void setFieldValue(_Fields field, Object value) {
       switch (field) {
       case TINFO:
@@ -4973,6 +5114,14 @@ import org.slf4j.LoggerFactory;
         }
         break;
 
+      case WINDOW:
+        if (value == null) {
+          unsetWindow();
+        } else {
+          setWindow((Integer)value);
+        }
+        break;
+
       }
     }
 
@@ -4984,6 +5133,9 @@ import org.slf4j.LoggerFactory;
       case SCAN_ID:
         return Long.valueOf(getScanID());
 
+      case WINDOW:
+        return Integer.valueOf(getWindow());
+
       }
       throw new IllegalStateException();
     }
@@ -4999,6 +5151,8 @@ import org.slf4j.LoggerFactory;
         return isSetTinfo();
       case SCAN_ID:
         return isSetScanID();
+      case WINDOW:
+        return isSetWindow();
       }
       throw new IllegalStateException();
     }
@@ -5034,6 +5188,15 @@ import org.slf4j.LoggerFactory;
           return false;
       }
 
+      boolean this_present_window = true;
+      boolean that_present_window = true;
+      if (this_present_window || that_present_window) {
+        if (!(this_present_window && that_present_window))
+          return false;
+        if (this.window != that.window)
+          return false;
+      }
+
       return true;
     }
 
@@ -5070,6 +5233,16 @@ import org.slf4j.LoggerFactory;
           return lastComparison;
         }
       }
+      lastComparison = Boolean.valueOf(isSetWindow()).compareTo(typedOther.isSetWindow());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetWindow()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.window, typedOther.window);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
       return 0;
     }
 
@@ -5101,6 +5274,10 @@ import org.slf4j.LoggerFactory;
       sb.append("scanID:");
       sb.append(this.scanID);
       first = false;
+      if (!first) sb.append(", ");
+      sb.append("window:");
+      sb.append(this.window);
+      first = false;
       sb.append(")");
       return sb.toString();
     }
@@ -5166,6 +5343,14 @@ import org.slf4j.LoggerFactory;
                 org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
               }
               break;
+            case 3: // WINDOW
+              if (schemeField.type == org.apache.thrift.protocol.TType.I32) {
+                struct.window = iprot.readI32();
+                struct.setWindowIsSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
             default:
               org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
           }
@@ -5189,6 +5374,9 @@ import org.slf4j.LoggerFactory;
           struct.tinfo.write(oprot);
           oprot.writeFieldEnd();
         }
+        oprot.writeFieldBegin(WINDOW_FIELD_DESC);
+        oprot.writeI32(struct.window);
+        oprot.writeFieldEnd();
         oprot.writeFieldStop();
         oprot.writeStructEnd();
       }
@@ -5213,19 +5401,25 @@ import org.slf4j.LoggerFactory;
         if (struct.isSetScanID()) {
           optionals.set(1);
         }
-        oprot.writeBitSet(optionals, 2);
+        if (struct.isSetWindow()) {
+          optionals.set(2);
+        }
+        oprot.writeBitSet(optionals, 3);
         if (struct.isSetTinfo()) {
           struct.tinfo.write(oprot);
         }
         if (struct.isSetScanID()) {
           oprot.writeI64(struct.scanID);
         }
+        if (struct.isSetWindow()) {
+          oprot.writeI32(struct.window);
+        }
       }
 
       @Override
       public void read(org.apache.thrift.protocol.TProtocol prot, continueScan_args struct) throws org.apache.thrift.TException {
         TTupleProtocol iprot = (TTupleProtocol) prot;
-        BitSet incoming = iprot.readBitSet(2);
+        BitSet incoming = iprot.readBitSet(3);
         if (incoming.get(0)) {
           struct.tinfo = new org.apache.accumulo.trace.thrift.TInfo();
           struct.tinfo.read(iprot);
@@ -5235,6 +5429,10 @@ import org.slf4j.LoggerFactory;
           struct.scanID = iprot.readI64();
           struct.setScanIDIsSet(true);
         }
+        if (incoming.get(2)) {
+          struct.window = iprot.readI32();
+          struct.setWindowIsSet(true);
+        }
       }
     }
 
@@ -28,7 +28,32 @@ public class ByteBufferUtil {
   public static byte[] toBytes(ByteBuffer buffer) {
     if (buffer == null)
       return null;
-    return Arrays.copyOfRange(buffer.array(), buffer.position(), buffer.remaining());
+    int start = buffer.arrayOffset() + buffer.position();
+    return Arrays.copyOfRange(buffer.array(), start, start + buffer.remaining());
+  }
+  
+  /**
+   * Returns the contents of a buffer without copying them when the buffer spans its entire backing array, as the buffers thrift creates when it reads a
+   * binary field do. The returned array may be shared with the buffer and must not be modified.
+   */
+  public static byte[] toBytesShared(ByteBuffer buffer) {
+    if (buffer == null)
+      return null;
+    if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0 && buffer.remaining() == buffer.array().length)
+      return buffer.array();
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    return bytes;
+  }
+  
+  public static List<byte[]> toBytesListShared(Collection<ByteBuffer> bytesList) {
+    if (bytesList == null)
+      return null;
+    ArrayList<byte[]> result = new ArrayList<byte[]>(bytesList.size());
+    for (ByteBuffer bytes : bytesList) {
+      result.add(toBytesShared(bytes));
+    }
+    return result;
   }
   
   public static List<ByteBuffer> toByteBuffers(Collection<byte[]> bytesList) {
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.util;
+
+/**
+ * Limits the rate of some activity, such as bytes read, to a number of units per second. Callers ask for units before doing the work and are made to wait
+ * when they get ahead of the rate. A burst of up to one second of units is allowed after a quiet period. The limiter may be shared by many threads.
+ */
+public class RateLimiter {
+  
+  private final long unitsPerSecond;
+  
+  /** The time, in nanoseconds, at which the units handed out so far will have been paid for */
+  private long paidUntil;
+  
+  /**
+   * @param unitsPerSecond
+   *          the rate to allow, zero or less for no limit
+   */
+  public RateLimiter(long unitsPerSecond) {
+    this.unitsPerSecond = unitsPerSecond;
+    this.paidUntil = System.nanoTime();
+  }
+  
+  public long getRate() {
+    return unitsPerSecond;
+  }
+  
+  /**
+   * Take the given number of units, waiting as long as needed to stay under the rate.
+   */
+  public void acquire(long units) {
+    if (unitsPerSecond <= 0 || units <= 0)
+      return;
+    
+    long waitNanos;
+    synchronized (this) {
+      long now = System.nanoTime();
+      // allow at most a second of unused time to build up
+      paidUntil = Math.max(paidUntil, now - 1000000000l);
+      paidUntil += (long) (units * (1000000000.0 / unitsPerSecond));
+      waitNanos = paidUntil - now;
+    }
+    
+    if (waitNanos > 0)
+      UtilWaitThread.sleep(waitNanos / 1000000);
+  }
+}
@@ -40,6 +40,7 @@ struct TableInfo {
     10:Compacting majors;
     11:Compacting scans;
     12:double scanRate;
+    13:map<string, list<i64>> updateTimes // update phase -> power of two histogram of microseconds
 }
 
 struct RecoveryStatus {
@@ -139,9 +139,11 @@ service TabletClientService extends client.ClientService {
                              7:map<string, map<string, string>> ssio,
                              8:list<binary> authorizations
                              9:bool waitForWrites,
-                             10:bool isolated)  throws (1:security.ThriftSecurityException sec, 2:NotServingTabletException nste, 3:TooManyFilesException tmfe),
+                             10:bool isolated,
+                             12:bool cacheBlocks = true)  throws (1:security.ThriftSecurityException sec, 2:NotServingTabletException nste, 3:TooManyFilesException tmfe),
                              
-  data.ScanResult continueScan(2:trace.TInfo tinfo, 1:data.ScanID scanID)  throws (1:NoSuchScanIDException nssi, 2:NotServingTabletException nste, 3:TooManyFilesException tmfe),
+  // a window greater than zero streams the scan: the server reads ahead up to that many batches and returns every batch it has ready
+  data.ScanResult continueScan(2:trace.TInfo tinfo, 1:data.ScanID scanID, 3:i32 window)  throws (1:NoSuchScanIDException nssi, 2:NotServingTabletException nste, 3:TooManyFilesException tmfe),
   oneway void closeScan(2:trace.TInfo tinfo, 1:data.ScanID scanID),
 
   // scan over a series of ranges
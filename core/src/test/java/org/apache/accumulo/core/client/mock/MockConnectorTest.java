@@ -19,6 +19,7 @@ package org.apache.accumulo.core.client.mock;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.Collections;
 import java.util.Iterator;
@@ -338,7 +339,25 @@ public class MockConnectorTest {
     assertEquals("9", entry.getValue().toString());
 
   }
-  
+
+  @Test
+  public void testStreamingWindow() throws Exception {
+    Connector c = new MockConnector("root", new MockInstance());
+    c.tableOperations().create("test");
+    Scanner scanner = c.createScanner("test", Constants.NO_AUTHS);
+
+    assertEquals(0, scanner.getStreamingWindow());
+    scanner.setStreamingWindow(4);
+    assertEquals(4, scanner.getStreamingWindow());
+    try {
+      scanner.setStreamingWindow(-1);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected, as for a scanner on a live instance
+    }
+    assertEquals(4, scanner.getStreamingWindow());
+  }
+
   @Test
   public void testMockConnectorReturnsCorrectInstance() throws AccumuloException, 
       AccumuloSecurityException{
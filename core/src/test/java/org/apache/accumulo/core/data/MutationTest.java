@@ -21,13 +21,18 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
 
 import junit.framework.TestCase;
 
+import org.apache.accumulo.core.data.thrift.TMutation;
 import org.apache.accumulo.core.security.ColumnVisibility;
 import org.apache.hadoop.io.Text;
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TCompactProtocol;
 
 public class MutationTest extends TestCase {
   
@@ -473,4 +478,37 @@ public class MutationTest extends TestCase {
     
   }
   
+  public void testThriftConstructor() throws Exception {
+    Mutation m1 = new Mutation("r1");
+    m1.put("cf1", "cq1", "v1");
+    m1.put("cf2", "cq2", new ColumnVisibility("cv2"), 5l, new Value(new byte[100000]));
+    m1.putDelete("cf3", "cq3");
+    
+    // read it back the way a server would, thrift gives each binary field its own array which the mutation keeps
+    byte[] serialized = new TSerializer(new TCompactProtocol.Factory()).serialize(m1.toThrift());
+    TMutation tm = new TMutation();
+    new TDeserializer(new TCompactProtocol.Factory()).deserialize(tm, serialized);
+    Mutation m2 = new Mutation(tm);
+    assertSame(tm.row.array(), m2.getRow());
+    assertEquals(m1, m2);
+    
+    // buffers that are slices of a larger array are copied
+    TMutation sliced = m1.toThrift();
+    sliced.row = slice(sliced.row);
+    sliced.data = slice(sliced.data);
+    for (int i = 0; i < sliced.values.size(); i++)
+      sliced.values.set(i, slice(sliced.values.get(i)));
+    Mutation m3 = new Mutation(sliced);
+    assertEquals("r1", new String(m3.getRow()));
+    assertEquals(m1, m3);
+    assertEquals(3, m3.getUpdates().size());
+    assertEquals(100000, m3.getUpdates().get(1).getValue().length);
+  }
+  
+  private static ByteBuffer slice(ByteBuffer buffer) {
+    byte[] padded = new byte[buffer.remaining() + 7];
+    Arrays.fill(padded, (byte) 0xff);
+    buffer.duplicate().get(padded, 3, buffer.remaining());
+    return ByteBuffer.wrap(padded, 3, buffer.remaining());
+  }
 }
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class TestDiskBlockCache extends TestCase {
+  
+  private File dir;
+  
+  @Override
+  protected void setUp() throws Exception {
+    dir = new File(System.getProperty("user.dir") + "/target/" + TestDiskBlockCache.class.getSimpleName() + "/" + getName());
+    delete(dir);
+  }
+  
+  private static void delete(File file) {
+    File[] children = file.listFiles();
+    if (children != null)
+      for (File child : children)
+        delete(child);
+    file.delete();
+  }
+  
+  private static byte[] randomBlock(Random rand, int size) {
+    byte[] buf = new byte[size];
+    rand.nextBytes(buf);
+    return buf;
+  }
+  
+  public void testCacheAndReload() throws Exception {
+    Random rand = new Random(42);
+    byte[][] blocks = new byte[10][];
+    
+    DiskBlockCache cache = new DiskBlockCache(dir, 1024 * 1024);
+    for (int i = 0; i < blocks.length; i++) {
+      blocks[i] = randomBlock(rand, 1000);
+      assertNull(cache.getBlock("/accumulo/tables/1/t-0001/F0000.rfR" + i));
+      cache.cacheBlock("/accumulo/tables/1/t-0001/F0000.rfR" + i, blocks[i]);
+    }
+    assertEquals(blocks.length, cache.size());
+    cache.shutdown();
+    
+    // a new instance finds the blocks written by the old one
+    cache = new DiskBlockCache(dir, 1024 * 1024);
+    assertEquals(blocks.length, cache.size());
+    for (int i = 0; i < blocks.length; i++)
+      assertTrue(Arrays.equals(blocks[i], cache.getBlock("/accumulo/tables/1/t-0001/F0000.rfR" + i)));
+    assertEquals(blocks.length, cache.getStats().getHitCount());
+    cache.shutdown();
+  }
+  
+  public void testEviction() throws Exception {
+    Random rand = new Random(42);
+    
+    // room for about five blocks
+    DiskBlockCache cache = new DiskBlockCache(dir, 5 * 1100);
+    for (int i = 0; i < 5; i++)
+      cache.cacheBlock("b" + i, randomBlock(rand, 1000));
+    assertEquals(5, cache.size());
+    
+    // b0 was used, so b1 is the least recently used
+    assertNotNull(cache.getBlock("b0"));
+    cache.cacheBlock("b5", randomBlock(rand, 1000));
+    
+    assertEquals(5, cache.size());
+    assertEquals(1, cache.getStats().getEvictedCount());
+    assertNull(cache.getBlock("b1"));
+    assertNotNull(cache.getBlock("b0"));
+    assertTrue(cache.getCurrentSize() <= cache.getMaxSize());
+    cache.shutdown();
+    
+    // reloading a directory larger than the cache trims it
+    cache = new DiskBlockCache(dir, 3 * 1100);
+    assertEquals(3, cache.size());
+    cache.shutdown();
+  }
+  
+  public void testCorruptBlock() throws Exception {
+    DiskBlockCache cache = new DiskBlockCache(dir, 1024 * 1024);
+    cache.cacheBlock("b0", randomBlock(new Random(42), 1000));
+    
+    // flip a byte in the block contents
+    File[] subdirs = dir.listFiles();
+    assertEquals(1, subdirs.length);
+    File file = subdirs[0].listFiles()[0];
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    raf.seek(100);
+    int b = raf.read();
+    raf.seek(100);
+    raf.write(b ^ 0xff);
+    raf.close();
+    
+    assertNull(cache.getBlock("b0"));
+    assertEquals(0, cache.size());
+    assertFalse(file.exists());
+    cache.shutdown();
+  }
+  
+  public void testTiered() throws Exception {
+    long blockSize = new CachedBlock("b0", new byte[1000], 0).heapSize();
+    ShardedBlockCache memory = new ShardedBlockCache(3 * blockSize + 10, 1);
+    DiskBlockCache disk = new DiskBlockCache(dir, 1024 * 1024);
+    TieredBlockCache cache = new TieredBlockCache(memory, disk);
+    
+    Random rand = new Random(42);
+    byte[][] blocks = new byte[6][];
+    for (int i = 0; i < blocks.length; i++) {
+      blocks[i] = randomBlock(rand, 1000);
+      cache.cacheBlock("b" + i, blocks[i]);
+    }
+    
+    // the three evicted blocks are written to disk in the background
+    for (int i = 0; i < 100 && disk.size() < 3; i++)
+      Thread.sleep(10);
+    assertEquals(3, disk.size());
+    
+    // every block is still available, from memory or from disk
+    for (int i = 0; i < blocks.length; i++) {
+      CacheEntry ce = cache.getBlock("b" + i);
+      assertNotNull(ce);
+      assertTrue(Arrays.equals(blocks[i], ce.getBuffer()));
+    }
+    assertTrue(disk.getStats().getHitCount() > 0);
+    assertNull(cache.getBlock("b6"));
+    cache.shutdown();
+  }
+}
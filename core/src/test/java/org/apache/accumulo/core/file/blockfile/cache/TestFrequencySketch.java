@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+import junit.framework.TestCase;
+
+public class TestFrequencySketch extends TestCase {
+  
+  public void testIncrement() {
+    FrequencySketch sketch = new FrequencySketch(1000);
+    
+    assertEquals(0, sketch.frequency("a"));
+    for (int i = 1; i <= 5; i++) {
+      sketch.increment("a");
+      assertEquals(i, sketch.frequency("a"));
+    }
+    assertEquals(0, sketch.frequency("b"));
+  }
+  
+  public void testSaturation() {
+    FrequencySketch sketch = new FrequencySketch(1000);
+    
+    for (int i = 0; i < 100; i++)
+      sketch.increment("a");
+    assertEquals(15, sketch.frequency("a"));
+  }
+  
+  public void testReset() {
+    FrequencySketch sketch = new FrequencySketch(64);
+    
+    for (int i = 0; i < 8; i++)
+      sketch.increment("hot");
+    assertEquals(8, sketch.frequency("hot"));
+    
+    // enough distinct increments to trigger at least one aging pass
+    for (int i = 0; i < 700; i++)
+      sketch.increment("key" + i);
+    
+    assertTrue(sketch.frequency("hot") < 8);
+  }
+  
+  public void testInvalidSize() {
+    try {
+      new FrequencySketch(0);
+      fail();
+    } catch (IllegalArgumentException e) {}
+  }
+}
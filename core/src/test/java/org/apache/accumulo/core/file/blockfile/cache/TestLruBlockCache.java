@@ -435,6 +435,52 @@ public class TestLruBlockCache extends TestCase {
     }
   }
   
+  public void testAdmissionFilter() throws Exception {
+    
+    long maxSize = 100000;
+    long blockSize = calculateBlockSizeDefault(maxSize, 10);
+    
+    LruBlockCache cache = new LruBlockCache(maxSize, blockSize, false, true);
+    
+    Block[] hotBlocks = generateFixedBlocks(8, blockSize, "hot");
+    Block[] coldBlocks = generateFixedBlocks(20, blockSize, "cold");
+    
+    // Read and cache the hot blocks, then read them several more times
+    for (Block block : hotBlocks) {
+      assertNull(cache.getBlock(block.blockName));
+      assertNotNull(cache.cacheBlock(block.blockName, block.buf));
+    }
+    for (int i = 0; i < 4; i++) {
+      for (Block block : hotBlocks) {
+        assertNotNull(cache.getBlock(block.blockName));
+      }
+    }
+    
+    // A scan that reads each cold block once
+    for (Block block : coldBlocks) {
+      assertNull(cache.getBlock(block.blockName));
+      cache.cacheBlock(block.blockName, block.buf);
+    }
+    
+    // Once the first eviction has happened, the cold blocks are not frequent enough to displace anything
+    assertEquals(1, cache.getEvictionCount());
+    assertTrue(cache.getStats().getRejectedCount() > coldBlocks.length / 2);
+    
+    int hotCached = 0;
+    for (Block block : hotBlocks) {
+      if (cache.getBlock(block.blockName) != null)
+        hotCached++;
+    }
+    assertTrue(hotCached >= hotBlocks.length - 2);
+    
+    // A cold block that keeps being requested is eventually admitted
+    Block block = coldBlocks[coldBlocks.length - 1];
+    while (cache.cacheBlock(block.blockName, block.buf) == null) {
+      assertNull(cache.getBlock(block.blockName));
+    }
+    assertNotNull(cache.getBlock(block.blockName));
+  }
+  
   private Block[] generateFixedBlocks(int numBlocks, int size, String pfx) {
     Block[] blocks = new Block[numBlocks];
     for (int i = 0; i < numBlocks; i++) {
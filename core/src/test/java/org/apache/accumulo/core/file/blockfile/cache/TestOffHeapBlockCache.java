@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class TestOffHeapBlockCache extends TestCase {
+  
+  private static byte[] randomBlock(Random rand, int size) {
+    byte[] buf = new byte[size];
+    rand.nextBytes(buf);
+    return buf;
+  }
+  
+  private void runCacheAndRetrieve(OffHeapBlockCache cache) {
+    Random rand = new Random(42);
+    byte[][] blocks = new byte[20][];
+    for (int i = 0; i < blocks.length; i++) {
+      // sizes that do and do not line up with page boundaries
+      blocks[i] = randomBlock(rand, 1 + rand.nextInt(3 * 1024));
+      assertNull(cache.getBlock("b" + i));
+      cache.cacheBlock("b" + i, blocks[i]);
+    }
+    
+    for (int i = 0; i < blocks.length; i++) {
+      CacheEntry ce = cache.getBlock("b" + i);
+      assertNotNull(ce);
+      assertTrue(Arrays.equals(blocks[i], ce.getBuffer()));
+    }
+    
+    assertEquals(blocks.length, cache.size());
+    assertEquals(0, cache.getEvictedCount());
+    assertEquals(blocks.length, cache.getStats().getHitCount());
+    assertEquals(2 * blocks.length, cache.getStats().getRequestCount());
+  }
+  
+  public void testCacheSimple() throws Exception {
+    OffHeapBlockCache cache = new OffHeapBlockCache(100 * 1024, 512, 16 * 1024, null);
+    runCacheAndRetrieve(cache);
+    cache.shutdown();
+  }
+  
+  public void testMemoryMapped() throws Exception {
+    File dir = new File(System.getProperty("user.dir") + "/target/" + TestOffHeapBlockCache.class.getSimpleName());
+    assertTrue(dir.isDirectory() || dir.mkdirs());
+    OffHeapBlockCache cache = new OffHeapBlockCache(100 * 1024, 512, 16 * 1024, dir);
+    runCacheAndRetrieve(cache);
+    cache.shutdown();
+    assertEquals(0, dir.listFiles().length);
+  }
+  
+  public void testEviction() throws Exception {
+    OffHeapBlockCache cache = new OffHeapBlockCache(10 * 1024, 1024, 4 * 1024, null);
+    Random rand = new Random(42);
+    
+    // each block takes two pages, so only five fit
+    byte[][] blocks = new byte[8][];
+    for (int i = 0; i < blocks.length; i++) {
+      blocks[i] = randomBlock(rand, 1500);
+      cache.cacheBlock("b" + i, blocks[i]);
+      if (i == 4) {
+        // touch the first block so it is no longer least recently used
+        assertNotNull(cache.getBlock("b0"));
+      }
+    }
+    
+    assertEquals(5, cache.size());
+    assertEquals(3, cache.getEvictedCount());
+    assertTrue(cache.getCurrentSize() <= cache.getMaxSize());
+    
+    assertTrue(Arrays.equals(blocks[0], cache.getBlock("b0").getBuffer()));
+    for (int i = 1; i < 4; i++)
+      assertNull(cache.getBlock("b" + i));
+    for (int i = 4; i < blocks.length; i++)
+      assertTrue(Arrays.equals(blocks[i], cache.getBlock("b" + i).getBuffer()));
+    
+    // a block bigger than the cache is never cached
+    assertNull(cache.cacheBlock("big", new byte[11 * 1024]));
+    assertEquals(5, cache.size());
+    cache.shutdown();
+  }
+  
+  public void testInMemoryPriority() throws Exception {
+    OffHeapBlockCache cache = new OffHeapBlockCache(8 * 1024, 1024, 8 * 1024, null);
+    
+    cache.cacheBlock("mem", new byte[1024], true);
+    for (int i = 0; i < 20; i++)
+      cache.cacheBlock("b" + i, new byte[1024]);
+    
+    // in-memory blocks within their share of the cache outlive single access blocks
+    assertNotNull(cache.getBlock("mem"));
+    cache.shutdown();
+  }
+  
+  public void testIndexSharedAcrossEntries() throws Exception {
+    OffHeapBlockCache cache = new OffHeapBlockCache(8 * 1024, 1024, 8 * 1024, null);
+    
+    cache.cacheBlock("b", new byte[100]);
+    Object index = new Object();
+    cache.getBlock("b").setIndex(index);
+    assertSame(index, cache.getBlock("b").getIndex());
+    
+    // a duplicate insert returns the existing block and its index
+    assertSame(index, cache.cacheBlock("b", new byte[100]).getIndex());
+    assertEquals(1, cache.getStats().getDuplicateReads());
+    cache.shutdown();
+  }
+}
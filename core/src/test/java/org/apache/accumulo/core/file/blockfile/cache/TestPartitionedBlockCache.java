@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+import junit.framework.TestCase;
+
+public class TestPartitionedBlockCache extends TestCase {
+  
+  private static long blockHeapSize(String name, int size) {
+    return new CachedBlock(name, new byte[size], 0).heapSize();
+  }
+  
+  public void testPartitionStats() throws Exception {
+    PartitionedBlockCache cache = new PartitionedBlockCache(1024 * 1024);
+    BlockCache p1 = cache.getPartition("1");
+    BlockCache p2 = cache.getPartition("2");
+    
+    for (int i = 0; i < 10; i++) {
+      assertNull(p1.getBlock("a" + i));
+      p1.cacheBlock("a" + i, new byte[1000]);
+    }
+    for (int i = 0; i < 10; i++)
+      assertNotNull(p1.getBlock("a" + i));
+    assertNull(p2.getBlock("b0"));
+    
+    assertEquals(10, p1.getStats().getHitCount());
+    assertEquals(20, p1.getStats().getRequestCount());
+    assertEquals(0, p2.getStats().getHitCount());
+    assertEquals(1, p2.getStats().getRequestCount());
+    assertEquals(10, cache.getStats().getHitCount());
+    assertEquals(21, cache.getStats().getRequestCount());
+    assertEquals(10, cache.size());
+    assertEquals(10, cache.getPartition("1").size());
+    assertEquals(cache.getCurrentSize(), cache.getPartition("1").getCurrentSize());
+    assertEquals(2, cache.getPartitionNames().size());
+    cache.shutdown();
+  }
+  
+  public void testMinimumShare() throws Exception {
+    long blockSize = blockHeapSize("a00", 1000);
+    PartitionedBlockCache cache = new PartitionedBlockCache(10 * blockSize + 10);
+    PartitionedBlockCache.Partition quiet = cache.getPartition("quiet");
+    PartitionedBlockCache.Partition noisy = cache.getPartition("noisy");
+    quiet.setLimits(0.3f, 1.0f);
+    
+    for (int i = 0; i < 3; i++)
+      quiet.cacheBlock("q0" + i, new byte[1000]);
+    
+    // the noisy partition can only replace its own blocks once the quiet one is down to its minimum
+    for (int i = 0; i < 50; i++)
+      noisy.cacheBlock("n" + (10 + i), new byte[1000]);
+    
+    for (int i = 0; i < 3; i++)
+      assertNotNull(quiet.getBlock("q0" + i));
+    assertEquals(7, noisy.size());
+    assertTrue(cache.getCurrentSize() <= cache.getMaxSize());
+    cache.shutdown();
+  }
+  
+  public void testSoftMaximum() throws Exception {
+    long blockSize = blockHeapSize("a00", 1000);
+    PartitionedBlockCache cache = new PartitionedBlockCache(10 * blockSize + 10);
+    PartitionedBlockCache.Partition p1 = cache.getPartition("1");
+    PartitionedBlockCache.Partition p2 = cache.getPartition("2");
+    p1.setLimits(0.0f, 0.5f);
+    
+    // with free space a partition may grow past its maximum
+    for (int i = 0; i < 8; i++)
+      p1.cacheBlock("a0" + i, new byte[1000]);
+    assertEquals(8, p1.size());
+    
+    // once the cache is full, blocks come out of the partition that is over its maximum
+    for (int i = 0; i < 5; i++)
+      p2.cacheBlock("b0" + i, new byte[1000]);
+    assertEquals(5, p1.size());
+    assertEquals(5, p2.size());
+    
+    // and no further than its maximum while another partition is over its minimum
+    for (int i = 0; i < 5; i++)
+      p1.cacheBlock("a1" + i, new byte[1000]);
+    assertEquals(5, p1.size());
+    assertEquals(5, p2.size());
+    cache.shutdown();
+  }
+  
+  public void testInvalidLimits() throws Exception {
+    PartitionedBlockCache cache = new PartitionedBlockCache(1024 * 1024);
+    try {
+      cache.getPartition("1").setLimits(0.6f, 0.5f);
+      fail();
+    } catch (IllegalArgumentException e) {}
+    cache.shutdown();
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+public class TestShardedBlockCache extends TestCase {
+  
+  private static long blockHeapSize(String name, int size) {
+    return new CachedBlock(name, new byte[size], 0).heapSize();
+  }
+  
+  public void testCacheSimple() throws Exception {
+    ShardedBlockCache cache = new ShardedBlockCache(1024 * 1024, 4);
+    
+    for (int i = 0; i < 100; i++) {
+      assertNull(cache.getBlock("b" + i));
+      assertNotNull(cache.cacheBlock("b" + i, new byte[1000]));
+    }
+    
+    for (int i = 0; i < 100; i++) {
+      CacheEntry ce = cache.getBlock("b" + i);
+      assertNotNull(ce);
+      assertEquals(1000, ce.getBuffer().length);
+    }
+    
+    assertEquals(100, cache.size());
+    assertEquals(0, cache.getEvictedCount());
+    assertEquals(100, cache.getStats().getHitCount());
+    assertEquals(200, cache.getStats().getRequestCount());
+    cache.shutdown();
+  }
+  
+  public void testShardCount() throws Exception {
+    assertEquals(8, new ShardedBlockCache(1024 * 1024, 5).getShardCount());
+    assertEquals(1, new ShardedBlockCache(1024 * 1024, 1).getShardCount());
+    // never more shards than can hold a reasonable number of blocks
+    assertEquals(1, new ShardedBlockCache(1024l, 1024l).getShardCount());
+  }
+  
+  public void testClockEviction() throws Exception {
+    // a single shard with room for five blocks
+    ShardedBlockCache cache = new ShardedBlockCache(5 * blockHeapSize("b0", 1000) + 10, 1);
+    
+    for (int i = 0; i < 5; i++)
+      cache.cacheBlock("b" + i, new byte[1000]);
+    assertEquals(5, cache.size());
+    
+    // b0 was read again, so the clock passes over it and evicts b1
+    assertNotNull(cache.getBlock("b0"));
+    cache.cacheBlock("b5", new byte[1000]);
+    
+    assertEquals(1, cache.getEvictedCount());
+    assertEquals(5, cache.size());
+    assertNotNull(cache.getBlock("b0"));
+    assertNull(cache.getBlock("b1"));
+    assertNotNull(cache.getBlock("b5"));
+    assertTrue(cache.getCurrentSize() <= cache.getMaxSize());
+  }
+  
+  public void testInMemoryCredits() throws Exception {
+    ShardedBlockCache cache = new ShardedBlockCache(4 * blockHeapSize("m0", 1000) + 10, 1);
+    
+    cache.cacheBlock("m0", new byte[1000], true);
+    for (int i = 0; i < 3; i++)
+      assertNotNull(cache.getBlock("m0"));
+    
+    // a scan through many blocks that are each read once does not push out the in-memory block that is read between them
+    for (int i = 0; i < 20; i++) {
+      cache.cacheBlock("s" + i, new byte[1000]);
+      if (i % 2 == 0)
+        assertNotNull(cache.getBlock("m0"));
+    }
+    assertNotNull(cache.getBlock("m0"));
+  }
+  
+  public void testTooLarge() throws Exception {
+    ShardedBlockCache cache = new ShardedBlockCache(10 * 1024, 2);
+    assertNull(cache.cacheBlock("big", new byte[8 * 1024]));
+    assertNull(cache.getBlock("big"));
+  }
+  
+  public void testConcurrentAccess() throws Exception {
+    final ShardedBlockCache cache = new ShardedBlockCache(100 * blockHeapSize("b000", 1000), 8);
+    final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+    
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      final int seed = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            Random rand = new Random(seed);
+            for (int i = 0; i < 10000; i++) {
+              String name = "b" + rand.nextInt(500);
+              CacheEntry ce = cache.getBlock(name);
+              if (ce == null)
+                cache.cacheBlock(name, new byte[1000]);
+              else
+                assertEquals(1000, ce.getBuffer().length);
+            }
+          } catch (Throwable e) {
+            error.set(e);
+          }
+        }
+      };
+      threads[t].start();
+    }
+    
+    for (Thread thread : threads)
+      thread.join();
+    
+    assertNull(error.get());
+    assertTrue(cache.getCurrentSize() <= cache.getMaxSize());
+    assertTrue(cache.getEvictedCount() > 0);
+  }
+}
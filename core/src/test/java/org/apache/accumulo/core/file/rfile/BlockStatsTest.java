@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.junit.Test;
+
+public class BlockStatsTest {
+  
+  private static long mask(String cf) {
+    return BlockStats.getColumnFamilyMask(Collections.<ByteSequence> singleton(new ArrayByteSequence(cf)));
+  }
+  
+  @Test
+  public void testUpdate() {
+    BlockStats stats = new BlockStats();
+    stats.update(new Key("r1", "cf1", "cq1", 20));
+    stats.update(new Key("r2", "cf2", "cq1", 10));
+    stats.update(new Key("r3", "cf1", "cq1", 30));
+    
+    assertEquals(10, stats.getMinTimestamp());
+    assertEquals(30, stats.getMaxTimestamp());
+    assertFalse(stats.hasDeletes());
+    
+    assertTrue(stats.mayContainColumnFamilies(mask("cf1")));
+    assertTrue(stats.mayContainColumnFamilies(mask("cf2")));
+    
+    assertTrue(stats.mayContainTimestamps(30, 40));
+    assertTrue(stats.mayContainTimestamps(0, 10));
+    assertTrue(stats.mayContainTimestamps(15, 16));
+    assertFalse(stats.mayContainTimestamps(31, 40));
+    assertFalse(stats.mayContainTimestamps(0, 9));
+  }
+  
+  @Test
+  public void testDeletes() {
+    BlockStats stats = new BlockStats();
+    Key del = new Key("r1", "cf1", "cq1", 20);
+    del.setDeleted(true);
+    stats.update(del);
+    
+    assertTrue(stats.hasDeletes());
+    
+    // the delete could hide an older key in another file
+    assertTrue(stats.mayContainTimestamps(0, 10));
+    
+    // but it can not hide anything newer than itself
+    assertFalse(stats.mayContainTimestamps(21, 30));
+  }
+  
+  @Test
+  public void testColumnFamilies() {
+    BlockStats stats = new BlockStats();
+    for (int i = 0; i < 3; i++)
+      stats.update(new Key("r1", "cf" + i, "cq1", 20));
+    
+    int absent = 0;
+    for (int i = 3; i < 100; i++)
+      if (!stats.mayContainColumnFamilies(mask("cf" + i)))
+        absent++;
+    
+    // the column families are hashed into 64 bits, so most others should be known to be absent
+    assertTrue(absent > 50);
+  }
+  
+  @Test
+  public void testUnknownAndMerge() {
+    BlockStats unknown = BlockStats.unknown();
+    assertTrue(unknown.mayContainColumnFamilies(mask("cf1")));
+    assertTrue(unknown.mayContainTimestamps(Long.MAX_VALUE, Long.MAX_VALUE));
+    assertTrue(unknown.mayContainTimestamps(Long.MIN_VALUE, Long.MIN_VALUE));
+    
+    BlockStats s1 = new BlockStats();
+    s1.update(new Key("r1", "cf1", "cq1", 5));
+    BlockStats s2 = new BlockStats();
+    s2.update(new Key("r1", "cf2", "cq1", 50));
+    
+    BlockStats merged = new BlockStats(s1);
+    merged.merge(s2);
+    assertEquals(5, merged.getMinTimestamp());
+    assertEquals(50, merged.getMaxTimestamp());
+    assertTrue(merged.mayContainColumnFamilies(mask("cf1")));
+    assertTrue(merged.mayContainColumnFamilies(mask("cf2")));
+    
+    // merging must not change the stats merged from
+    assertEquals(5, s1.getMaxTimestamp());
+  }
+  
+  @Test
+  public void testSerialization() throws IOException {
+    BlockStats stats = new BlockStats();
+    stats.update(new Key("r1", "cf1", "cq1", -5));
+    Key del = new Key("r1", "cf2", "cq1", 1234567890123l);
+    del.setDeleted(true);
+    stats.update(del);
+    
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    stats.write(new DataOutputStream(baos));
+    
+    BlockStats copy = new BlockStats();
+    copy.readFields(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+    
+    assertEquals(stats.toString(), copy.toString());
+    assertEquals(-5, copy.getMinTimestamp());
+    assertEquals(1234567890123l, copy.getMaxTimestamp());
+    assertTrue(copy.hasDeletes());
+  }
+}
@@ -47,6 +47,7 @@ import org.apache.accumulo.core.file.rfile.RFile.Reader;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.system.ColumnFamilySkippingIterator;
 import org.apache.accumulo.core.util.CachedConfiguration;
+import org.apache.accumulo.core.util.RateLimiter;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
@@ -158,12 +159,18 @@ public class RFileTest {
     private FSDataInputStream in;
     public Reader reader;
     public SortedKeyValueIterator<Key,Value> iter;
+    public LruBlockCache indexCache;
+    public LruBlockCache dataCache;
 
     public void openWriter(boolean startDLG) throws IOException {
+      openWriter(startDLG, false);
+    }
+    
+    public void openWriter(boolean startDLG, boolean rowHashIndex) throws IOException {
       baos = new ByteArrayOutputStream();
       dos = new FSDataOutputStream(baos, new FileSystem.Statistics("a"));
       CachableBlockFile.Writer _cbw = new CachableBlockFile.Writer(dos, "gz", conf);
-      writer = new RFile.Writer(_cbw, 1000, 1000);
+      writer = new RFile.Writer(_cbw, 1000, 1000, rowHashIndex);
       
       if (startDLG)
         writer.startDefaultLocalityGroup();
@@ -180,18 +187,23 @@ public class RFileTest {
     }
     
     public void openReader() throws IOException {
+      openReader(true);
+    }
+    
+    public void openReader(boolean checkIndex) throws IOException {
       byte[] data = baos.toByteArray();
       bais = new SeekableByteArrayInputStream(data);
       in = new FSDataInputStream(bais);
       
-      LruBlockCache indexCache = new LruBlockCache(100000000, 100000);
-      LruBlockCache dataCache = new LruBlockCache(100000000, 100000);
+      indexCache = new LruBlockCache(100000000, 100000);
+      dataCache = new LruBlockCache(100000000, 100000);
       
       CachableBlockFile.Reader _cbr = new CachableBlockFile.Reader(in, data.length, conf, dataCache, indexCache);
       reader = new RFile.Reader(_cbr);
       iter = new ColumnFamilySkippingIterator(reader);
       
-      checkIndex(reader);
+      if (checkIndex)
+        checkIndex(reader);
     }
     
     public void closeReader() throws IOException {
@@ -1500,6 +1512,198 @@ public class RFileTest {
   }
 
 
+  @Test
+  public void testWarmCache() throws IOException {
+    TestRFile trf = new TestRFile();
+    
+    trf.openWriter();
+    for (int i = 0; i < 10000; i++) {
+      trf.writer.append(nk(nf("r_", i), "cf1", "cq1", "", 1), nv("v" + i));
+    }
+    trf.closeWriter();
+    
+    trf.openReader(false);
+    
+    // opening the file only loads the root of the index
+    long indexBlocks = trf.indexCache.size();
+    assertEquals(0, trf.dataCache.size());
+    
+    trf.reader.warmCache(5, new RateLimiter(0));
+    
+    assertTrue(trf.indexCache.size() > indexBlocks);
+    assertEquals(5, trf.dataCache.size());
+    
+    // reading the start of the file now comes from the cache
+    long misses = trf.dataCache.getStats().getMissCount();
+    trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+    assertTrue(trf.iter.hasTop());
+    assertEquals(nk(nf("r_", 0), "cf1", "cq1", "", 1), trf.iter.getTopKey());
+    assertEquals(misses, trf.dataCache.getStats().getMissCount());
+    
+    trf.closeReader();
+  }
+  
+  @Test
+  public void testBlockStats() throws IOException {
+    TestRFile trf = new TestRFile();
+    
+    trf.openWriter();
+    for (int i = 0; i < 10000; i++) {
+      trf.writer.append(nk(nf("r_", i), "cf" + (i / 1000), "cq1", "", i), nv("v" + i));
+    }
+    trf.closeWriter();
+    
+    trf.openReader();
+    
+    long misses = trf.dataCache.getStats().getMissCount();
+    trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+    int count = 0;
+    while (trf.iter.hasTop()) {
+      count++;
+      trf.iter.next();
+    }
+    assertEquals(10000, count);
+    long allBlocks = trf.dataCache.getStats().getMissCount() - misses;
+    trf.closeReader();
+    
+    // only blocks with the wanted column family should be read
+    trf.openReader(false);
+    misses = trf.dataCache.getStats().getMissCount();
+    trf.iter.seek(new Range(), ncfs("cf3"), true);
+    for (int i = 3000; i < 4000; i++) {
+      assertTrue(trf.iter.hasTop());
+      assertEquals(nk(nf("r_", i), "cf3", "cq1", "", i), trf.iter.getTopKey());
+      trf.iter.next();
+    }
+    assertFalse(trf.iter.hasTop());
+    assertTrue(trf.dataCache.getStats().getMissCount() - misses < allBlocks / 2);
+    trf.closeReader();
+    
+    // blocks with timestamps outside of the range should not be read, but everything in the range must be returned
+    trf.openReader(false);
+    misses = trf.dataCache.getStats().getMissCount();
+    trf.reader.setTimestampRange(5000, 5999);
+    trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+    count = 0;
+    Set<Long> timestamps = new HashSet<Long>();
+    while (trf.iter.hasTop()) {
+      timestamps.add(trf.iter.getTopKey().getTimestamp());
+      count++;
+      trf.iter.next();
+    }
+    for (long ts = 5000; ts < 6000; ts++)
+      assertTrue(timestamps.contains(ts));
+    assertTrue(count < 5000);
+    assertTrue(trf.dataCache.getStats().getMissCount() - misses < allBlocks / 2);
+    
+    // seeking into a skipped block should move to the next block that is needed
+    trf.iter.seek(new Range(nf("r_", 100), null), EMPTY_COL_FAMS, false);
+    assertTrue(trf.iter.hasTop());
+    assertTrue(trf.iter.getTopKey().getTimestamp() > 4900);
+    
+    trf.reader.setTimestampRange(Long.MIN_VALUE, Long.MAX_VALUE);
+    trf.iter.seek(new Range(nf("r_", 100), null), EMPTY_COL_FAMS, false);
+    assertTrue(trf.iter.hasTop());
+    assertEquals(nk(nf("r_", 100), "cf0", "cq1", "", 100), trf.iter.getTopKey());
+    
+    trf.closeReader();
+  }
+  
+  @Test
+  public void testRowHashIndex() throws IOException {
+    TestRFile trf = new TestRFile();
+    
+    trf.openWriter(true, true);
+    for (int i = 0; i < 5000; i++) {
+      for (int j = 0; j <= i % 3; j++) {
+        trf.writer.append(nk(nf("r_", i * 2), "cf" + j, "cq1", "", 1), nv("v" + i + "_" + j));
+      }
+    }
+    trf.closeWriter();
+    
+    trf.openReader();
+    
+    // read every block twice so they come from the cache, where the row index is used
+    for (int pass = 0; pass < 2; pass++) {
+      // seek to the start of rows
+      for (int i = 0; i < 5000; i += 7) {
+        trf.iter.seek(Range.exact(nf("r_", i * 2)), EMPTY_COL_FAMS, false);
+        for (int j = 0; j <= i % 3; j++) {
+          assertTrue(trf.iter.hasTop());
+          assertEquals(nk(nf("r_", i * 2), "cf" + j, "cq1", "", 1), trf.iter.getTopKey());
+          assertEquals(nv("v" + i + "_" + j), trf.iter.getTopValue());
+          trf.iter.next();
+        }
+        assertFalse(trf.iter.hasTop());
+      }
+      
+      // seek to rows that do not exist
+      for (int i = 0; i < 4999; i += 11) {
+        trf.iter.seek(new Range(nf("r_", i * 2 + 1), null), EMPTY_COL_FAMS, false);
+        assertTrue(trf.iter.hasTop());
+        assertEquals(nk(nf("r_", (i + 1) * 2), "cf0", "cq1", "", 1), trf.iter.getTopKey());
+      }
+      
+      // seek into the middle of rows
+      for (int i = 2; i < 5000; i += 3 * 13) {
+        trf.iter.seek(new Range(new Key(nf("r_", i * 2), "cf1"), null), EMPTY_COL_FAMS, false);
+        assertTrue(trf.iter.hasTop());
+        assertEquals(nk(nf("r_", i * 2), "cf1", "cq1", "", 1), trf.iter.getTopKey());
+        trf.iter.next();
+        assertEquals(nk(nf("r_", i * 2), "cf2", "cq1", "", 1), trf.iter.getTopKey());
+        trf.iter.next();
+        assertEquals(nk(nf("r_", i * 2 + 2), "cf0", "cq1", "", 1), trf.iter.getTopKey());
+      }
+    }
+    
+    // reading the whole file must still work
+    trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+    int count = 0;
+    while (trf.iter.hasTop()) {
+      count++;
+      trf.iter.next();
+    }
+    assertEquals(5000 / 3 * 6 + 3, count);
+    
+    trf.closeReader();
+  }
+  
+  @Test
+  public void testPrefetch() throws IOException {
+    TestRFile trf = new TestRFile();
+    
+    trf.openWriter();
+    for (int i = 0; i < 10000; i++) {
+      trf.writer.append(nk(nf("r_", i), "cf1", "cq1", "", 1), nv("v" + i));
+    }
+    trf.closeWriter();
+    
+    trf.openReader();
+    trf.reader.enablePrefetch(2);
+    
+    // a full scan reads every block in a row, so blocks are prefetched
+    trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+    for (int i = 0; i < 10000; i++) {
+      assertTrue(trf.iter.hasTop());
+      assertEquals(nk(nf("r_", i), "cf1", "cq1", "", 1), trf.iter.getTopKey());
+      assertEquals(nv("v" + i), trf.iter.getTopValue());
+      trf.iter.next();
+    }
+    assertFalse(trf.iter.hasTop());
+    
+    // seeking away from a prefetched block must not return it
+    for (int start : new int[] {100, 5000, 200, 9999}) {
+      trf.iter.seek(new Range(nf("r_", start), null), EMPTY_COL_FAMS, false);
+      for (int i = start; i < Math.min(start + 300, 10000); i++) {
+        assertTrue(trf.iter.hasTop());
+        assertEquals(nk(nf("r_", i), "cf1", "cq1", "", 1), trf.iter.getTopKey());
+        trf.iter.next();
+      }
+    }
+    
+    trf.closeReader();
+  }
+  
   @Test(expected = NullPointerException.class)
   public void testMissingUnreleasedVersions() throws Exception {
     runVersionTest(5);
@@ -1512,7 +1716,18 @@ public class RFileTest {
     runVersionTest(6);
   }
   
+  @Test
+  public void testOldVersionsPrefetch() throws Exception {
+    runVersionTest(3, true);
+    runVersionTest(4, true);
+    runVersionTest(6, true);
+  }
+  
   private void runVersionTest(int version) throws IOException {
+    runVersionTest(version, false);
+  }
+  
+  private void runVersionTest(int version, boolean prefetch) throws IOException {
     InputStream in = this.getClass().getClassLoader().getResourceAsStream("org/apache/accumulo/core/file/rfile/ver_" + version + ".rf");
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
     byte buf[] = new byte[1024];
@@ -1525,6 +1740,8 @@ public class RFileTest {
     FSDataInputStream in2 = new FSDataInputStream(bais);
     CachableBlockFile.Reader _cbr = new CachableBlockFile.Reader(in2, data.length, CachedConfiguration.getInstance());
     Reader reader = new RFile.Reader(_cbr);
+    if (prefetch)
+      reader.enablePrefetch(2);
     checkIndex(reader);
     
     ColumnFamilySkippingIterator iter = new ColumnFamilySkippingIterator(reader);
@@ -24,12 +24,15 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
 import org.apache.accumulo.core.data.ArrayByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.PartialKey;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.blockfile.ABlockReader;
+import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile.BlockRead;
 import org.apache.accumulo.core.file.rfile.RelativeKey.MByteSequence;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -108,6 +111,44 @@ public class RelativeKeyTest {
     assertEquals(expected.getKey(), actual.getKey());
   }
   
+  @Test
+  public void testReadFieldsFromBuffer() throws IOException {
+    ABlockReader block = new BlockRead(ByteBuffer.wrap(baos.toByteArray()));
+    
+    RelativeKey rk = new RelativeKey();
+    rk.setPrevKey(new Key());
+    Value value = new Value();
+    for (int i = 0; i < expectedKeys.size(); i++) {
+      assertEquals(expectedPositions.get(i).intValue(), block.getBuffer().position());
+      rk.readFields(block);
+      value.readFields(block);
+      assertEquals(expectedKeys.get(i), rk.getKey());
+      assertEquals(expectedValues.get(i), value);
+    }
+    assertEquals(0, block.getBuffer().remaining());
+  }
+  
+  @Test
+  public void testReadTimestampsFromBuffer() throws IOException {
+    long timestamps[] = new long[] {0, 1, -1, 127, 128, -129, 1l << 40, -(1l << 40), Long.MAX_VALUE, Long.MIN_VALUE, 42};
+    
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(baos);
+    Key prev = null;
+    for (long ts : timestamps) {
+      Key k = new Key("row", "cf", "cq", "", ts);
+      new RelativeKey(prev, k).write(out);
+      prev = k;
+    }
+    
+    ABlockReader block = new BlockRead(ByteBuffer.wrap(baos.toByteArray()));
+    RelativeKey rk = new RelativeKey();
+    for (long ts : timestamps) {
+      rk.readFields(block);
+      assertEquals(new Key("row", "cf", "cq", "", ts), rk.getKey());
+    }
+  }
+  
   private static ArrayList<Key> expectedKeys;
   private static ArrayList<Value> expectedValues;
   private static ArrayList<Integer> expectedPositions;
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile.BlockRead;
+import org.junit.Test;
+
+public class RowHashIndexTest {
+  
+  private static String row(int i) {
+    return String.format("r%05d", i);
+  }
+  
+  @Test
+  public void testSeek() throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(baos);
+    RowHashIndex rowIndex = new RowHashIndex();
+    
+    int num = 1000;
+    for (int i = 0; i < num; i++) {
+      Key key = new Key(row(i * 2), "cf", "cq");
+      rowIndex.add(key.getRowData(), out.size(), i);
+      new RelativeKey(null, key).write(out);
+      new Value(("v" + i).getBytes()).write(out);
+    }
+    
+    int indexPosition = out.size();
+    rowIndex.write(out);
+    out.close();
+    
+    BlockRead block = new BlockRead(ByteBuffer.wrap(baos.toByteArray()));
+    
+    for (int i = num - 1; i >= 0; i--) {
+      RelativeKey rk = new RelativeKey();
+      assertEquals(i, RowHashIndex.seek(block, indexPosition, new ArrayByteSequence(row(i * 2)), rk));
+      assertEquals(new Key(row(i * 2), "cf", "cq"), rk.getKey());
+      
+      Value val = new Value();
+      val.readFields(block);
+      assertEquals(new Value(("v" + i).getBytes()), val);
+    }
+    
+    block.getBuffer().position(0);
+    for (int i = 0; i < num; i++) {
+      assertEquals(-1, RowHashIndex.seek(block, indexPosition, new ArrayByteSequence(row(i * 2 + 1)), new RelativeKey()));
+      assertEquals(0, block.getBuffer().position());
+    }
+  }
+  
+  @Test
+  public void testEmpty() throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(baos);
+    new RowHashIndex().write(out);
+    out.close();
+    
+    BlockRead block = new BlockRead(ByteBuffer.wrap(baos.toByteArray()));
+    assertEquals(-1, RowHashIndex.seek(block, 0, new ArrayByteSequence(row(1)), new RelativeKey()));
+  }
+}
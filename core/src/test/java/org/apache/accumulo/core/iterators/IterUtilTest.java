@@ -16,12 +16,17 @@
  */
 package org.apache.accumulo.core.iterators;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -33,9 +38,12 @@ import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.KeyExtent;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.data.thrift.IterInfo;
 import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
 import org.apache.accumulo.core.iterators.system.MultiIteratorTest;
 import org.apache.accumulo.core.iterators.user.AgeOffFilter;
+import org.apache.accumulo.core.iterators.user.TimestampFilter;
+import org.apache.accumulo.core.iterators.user.VersioningIterator;
 import org.apache.hadoop.io.Text;
 import org.junit.Test;
 
@@ -276,4 +284,37 @@ public class IterUtilTest {
     assertFalse(iter.hasTop());
     
   }
+  @Test
+  public void testTimestampRange() {
+    ConfigurationCopy conf = new ConfigurationCopy();
+    List<IterInfo> ssiList = new ArrayList<IterInfo>();
+    Map<String,Map<String,String>> ssio = new HashMap<String,Map<String,String>>();
+    
+    assertNull(IteratorUtil.getTimestampRange(IteratorScope.scan, conf, ssiList, ssio));
+    
+    conf.set(Property.TABLE_ITERATOR_PREFIX + IteratorScope.scan.name() + ".ts", "10," + TimestampFilter.class.getName());
+    conf.set(Property.TABLE_ITERATOR_PREFIX + IteratorScope.scan.name() + ".ts.opt.start", "LONG100");
+    conf.set(Property.TABLE_ITERATOR_PREFIX + IteratorScope.scan.name() + ".ts.opt.end", "LONG200");
+    conf.set(Property.TABLE_ITERATOR_PREFIX + IteratorScope.scan.name() + ".ts.opt.endInclusive", "false");
+    
+    assertArrayEquals(new long[] {100, 199}, IteratorUtil.getTimestampRange(IteratorScope.scan, conf, ssiList, ssio));
+    
+    // a filter after the versioning iterator only limits the smallest timestamp
+    conf.set(Property.TABLE_ITERATOR_PREFIX + IteratorScope.scan.name() + ".vers", "5," + VersioningIterator.class.getName());
+    ssiList.add(new IterInfo(30, TimestampFilter.class.getName(), "scants"));
+    ssio.put("scants", Collections.singletonMap("start", "LONG150"));
+    
+    assertArrayEquals(new long[] {150, Long.MAX_VALUE}, IteratorUtil.getTimestampRange(IteratorScope.scan, conf, ssiList, ssio));
+    
+    conf.set(Property.TABLE_ITERATOR_PREFIX + IteratorScope.scan.name() + ".vers", "20," + VersioningIterator.class.getName());
+    assertArrayEquals(new long[] {150, 199}, IteratorUtil.getTimestampRange(IteratorScope.scan, conf, ssiList, ssio));
+    
+    // any other iterator below the filters, or negating a filter, could change what the filters see
+    conf.set(Property.TABLE_ITERATOR_PREFIX + IteratorScope.scan.name() + ".ts.opt.negate", "true");
+    assertNull(IteratorUtil.getTimestampRange(IteratorScope.scan, conf, ssiList, ssio));
+    
+    conf.set(Property.TABLE_ITERATOR_PREFIX + IteratorScope.scan.name() + ".ts.opt.negate", "false");
+    conf.set(Property.TABLE_ITERATOR_PREFIX + IteratorScope.scan.name() + ".sq", "1," + SquaringIter.class.getName());
+    assertNull(IteratorUtil.getTimestampRange(IteratorScope.scan, conf, ssiList, ssio));
+  }
 }
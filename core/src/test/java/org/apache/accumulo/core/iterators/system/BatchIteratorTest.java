@@ -0,0 +1,441 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.iterators.system;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import junit.framework.TestCase;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Column;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.accumulo.core.iterators.WrappingIterator;
+import org.apache.accumulo.core.iterators.system.SourceSwitchingIterator.DataSource;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.util.LocalityGroupUtil;
+import org.apache.hadoop.io.Text;
+
+public class BatchIteratorTest extends TestCase {
+  
+  private static final String[] VISIBILITIES = new String[] {"", "A", "B", "A&B", "A|B"};
+  
+  /**
+   * Hands out the same Key and Value objects for every entry, like a file reader does.
+   */
+  static class ReusingIterator implements SortedKeyValueIterator<Key,Value> {
+    SortedKeyValueIterator<Key,Value> source;
+    Key key = new Key();
+    Value value = new Value();
+    
+    ReusingIterator(SortedKeyValueIterator<Key,Value> source) {
+      this.source = source;
+    }
+    
+    private void readTop() {
+      if (source.hasTop()) {
+        key.set(source.getTopKey());
+        value.set(source.getTopValue().get());
+      }
+    }
+    
+    @Override
+    public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options, IteratorEnvironment env) throws IOException {
+      throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public boolean hasTop() {
+      return source.hasTop();
+    }
+    
+    @Override
+    public void next() throws IOException {
+      source.next();
+      readTop();
+    }
+    
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+      source.seek(range, columnFamilies, inclusive);
+      readTop();
+    }
+    
+    @Override
+    public Key getTopKey() {
+      return key;
+    }
+    
+    @Override
+    public Value getTopValue() {
+      return value;
+    }
+    
+    @Override
+    public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+      return new ReusingIterator(source.deepCopy(env));
+    }
+  }
+  
+  static class SwitchingDataSource implements DataSource {
+    SortedKeyValueIterator<Key,Value> iter;
+    SwitchingDataSource next;
+    
+    SwitchingDataSource(SortedKeyValueIterator<Key,Value> iter) {
+      this.iter = iter;
+    }
+    
+    @Override
+    public boolean isCurrent() {
+      return next == null;
+    }
+    
+    @Override
+    public DataSource getNewDataSource() {
+      return next;
+    }
+    
+    @Override
+    public DataSource getDeepCopyDataSource(IteratorEnvironment env) {
+      throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public SortedKeyValueIterator<Key,Value> iterator() {
+      return iter;
+    }
+  }
+  
+  private static List<TreeMap<Key,Value>> createData(Random rand, int numMaps, int numEntries) {
+    List<TreeMap<Key,Value>> maps = new ArrayList<TreeMap<Key,Value>>();
+    for (int i = 0; i < numMaps; i++)
+      maps.add(new TreeMap<Key,Value>());
+    
+    for (int i = 0; i < numEntries; i++) {
+      Key k = new Key(new Text(String.format("r%03d", rand.nextInt(50))), new Text("cf" + rand.nextInt(4)), new Text("cq" + rand.nextInt(3)), new Text(
+          VISIBILITIES[rand.nextInt(VISIBILITIES.length)]), rand.nextInt(5));
+      k.setDeleted(rand.nextInt(7) == 0);
+      maps.get(rand.nextInt(numMaps)).put(k, new Value(("v" + i).getBytes()));
+    }
+    return maps;
+  }
+  
+  private static SortedKeyValueIterator<Key,Value> createStack(List<TreeMap<Key,Value>> maps, HashSet<Column> columns, Authorizations auths) throws IOException {
+    List<SortedKeyValueIterator<Key,Value>> sources = new ArrayList<SortedKeyValueIterator<Key,Value>>();
+    for (TreeMap<Key,Value> map : maps)
+      sources.add(new ReusingIterator(new SortedMapIterator(map)));
+    
+    MultiIterator multiIter = new MultiIterator(sources, true);
+    StatsIterator statsIter = new StatsIterator(multiIter, new AtomicLong(), new AtomicLong());
+    DeletingIterator delIter = new DeletingIterator(statsIter, false);
+    ColumnFamilySkippingIterator cfsi = new ColumnFamilySkippingIterator(delIter);
+    ColumnQualifierFilter colFilter = new ColumnQualifierFilter(cfsi, columns);
+    return new VisibilityFilter(colFilter, auths, new byte[0]);
+  }
+  
+  private static List<String> readPerCell(SortedKeyValueIterator<Key,Value> iter) throws IOException {
+    List<String> entries = new ArrayList<String>();
+    while (iter.hasTop()) {
+      entries.add(iter.getTopKey() + " " + iter.getTopValue());
+      iter.next();
+    }
+    return entries;
+  }
+  
+  private static List<String> readBatches(SortedKeyValueIterator<Key,Value> iter, Random rand, int maxBatchSize) throws IOException {
+    List<String> entries = new ArrayList<String>();
+    KeyValueBatch batch = new KeyValueBatch(maxBatchSize);
+    while (iter.hasTop()) {
+      // mix single cells in with batches of varying size
+      if (rand.nextInt(4) == 0) {
+        entries.add(iter.getTopKey() + " " + iter.getTopValue());
+        iter.next();
+        continue;
+      }
+      
+      batch.clear();
+      batch.setLimit(1 + rand.nextInt(maxBatchSize));
+      int added = BatchAdapter.fill(iter, batch);
+      assertEquals(batch.size(), added);
+      assertTrue(added > 0);
+      for (int i = 0; i < batch.size(); i++)
+        entries.add(batch.getKey(i) + " " + batch.getValue(i));
+    }
+    return entries;
+  }
+  
+  private static HashSet<Column> columns(String... cols) {
+    HashSet<Column> columns = new HashSet<Column>();
+    for (String col : cols) {
+      String[] parts = col.split(":");
+      columns.add(new Column(parts[0].getBytes(), parts.length == 1 ? null : parts[1].getBytes(), null));
+    }
+    return columns;
+  }
+  
+  private static Set<ByteSequence> families(String... fams) {
+    Set<ByteSequence> families = new HashSet<ByteSequence>();
+    for (String fam : fams)
+      families.add(new ArrayByteSequence(fam));
+    return families;
+  }
+  
+  private void runStack(Random rand, List<TreeMap<Key,Value>> maps, HashSet<Column> columns, Authorizations auths, Range range, Set<ByteSequence> families,
+      boolean inclusive) throws IOException {
+    SortedKeyValueIterator<Key,Value> expectedIter = createStack(maps, columns, auths);
+    expectedIter.seek(range, families, inclusive);
+    List<String> expected = readPerCell(expectedIter);
+    
+    for (int maxBatchSize : new int[] {1, 3, 100}) {
+      SortedKeyValueIterator<Key,Value> batchIter = createStack(maps, columns, auths);
+      batchIter.seek(range, families, inclusive);
+      assertEquals(expected, readBatches(batchIter, rand, maxBatchSize));
+    }
+  }
+  
+  public void testSystemStack() throws IOException {
+    Random rand = new Random(42);
+    List<TreeMap<Key,Value>> maps = createData(rand, 3, 2000);
+    
+    Authorizations[] authSets = new Authorizations[] {new Authorizations(), new Authorizations("A"), new Authorizations("A", "B")};
+    List<HashSet<Column>> columnSets = new ArrayList<HashSet<Column>>();
+    columnSets.add(columns());
+    columnSets.add(columns("cf0:cq1", "cf2"));
+    columnSets.add(columns("cf1:cq0", "cf1:cq2", "cf3:cq1"));
+    
+    for (Authorizations auths : authSets) {
+      for (HashSet<Column> columns : columnSets) {
+        runStack(rand, maps, columns, auths, new Range(), LocalityGroupUtil.EMPTY_CF_SET, false);
+        runStack(rand, maps, columns, auths, new Range(), families("cf1", "cf2"), true);
+        runStack(rand, maps, columns, auths, new Range(), families("cf0"), false);
+        runStack(rand, maps, columns, auths, new Range(new Text("r010"), new Text("r020")), LocalityGroupUtil.EMPTY_CF_SET, false);
+        runStack(rand, maps, columns, auths, new Range(new Key(new Text("r010"), new Text("cf2")), true, new Key(new Text("r020")), false), families("cf2"),
+            true);
+      }
+    }
+  }
+  
+  public void testPropogateDeletes() throws IOException {
+    Random rand = new Random(7);
+    List<TreeMap<Key,Value>> maps = createData(rand, 2, 1000);
+    
+    for (int maxBatchSize : new int[] {1, 2, 50}) {
+      SortedKeyValueIterator<Key,Value> expectedIter = new DeletingIterator(new MultiIterator(new ArrayList<SortedKeyValueIterator<Key,Value>>(
+          Collections.singletonList(new SortedMapIterator(maps.get(0)))), true), true);
+      expectedIter.seek(new Range(), LocalityGroupUtil.EMPTY_CF_SET, false);
+      List<String> expected = readPerCell(expectedIter);
+      
+      SortedKeyValueIterator<Key,Value> batchIter = new DeletingIterator(new MultiIterator(new ArrayList<SortedKeyValueIterator<Key,Value>>(
+          Collections.singletonList(new SortedMapIterator(maps.get(0)))), true), true);
+      batchIter.seek(new Range(), LocalityGroupUtil.EMPTY_CF_SET, false);
+      assertEquals(expected, readBatches(batchIter, rand, maxBatchSize));
+    }
+  }
+  
+  public void testAdapterCopiesReusedObjects() throws IOException {
+    TreeMap<Key,Value> map = new TreeMap<Key,Value>();
+    for (int i = 0; i < 20; i++)
+      map.put(new Key(new Text(String.format("r%02d", i))), new Value(("v" + i).getBytes()));
+    
+    ReusingIterator iter = new ReusingIterator(new SortedMapIterator(map));
+    iter.seek(new Range(), LocalityGroupUtil.EMPTY_CF_SET, false);
+    
+    KeyValueBatch batch = new KeyValueBatch(32);
+    assertEquals(20, BatchAdapter.fill(iter, batch));
+    assertFalse(iter.hasTop());
+    
+    int i = 0;
+    for (Entry<Key,Value> entry : map.entrySet()) {
+      assertEquals(entry.getKey(), batch.getKey(i));
+      assertEquals(entry.getValue(), batch.getValue(i));
+      i++;
+    }
+  }
+  
+  public void testSourceSwitching() throws IOException {
+    TreeMap<Key,Value> map1 = new TreeMap<Key,Value>();
+    TreeMap<Key,Value> map2 = new TreeMap<Key,Value>();
+    for (int i = 0; i < 40; i++) {
+      Key k = new Key(new Text(String.format("r%02d", i)));
+      if (i % 2 == 0)
+        map1.put(k, new Value(("v" + i).getBytes()));
+      map2.put(k, new Value(("v" + i).getBytes()));
+    }
+    
+    SwitchingDataSource source = new SwitchingDataSource(new ReusingIterator(new SortedMapIterator(map1)));
+    SourceSwitchingIterator ssi = new SourceSwitchingIterator(source);
+    ssi.seek(new Range(), LocalityGroupUtil.EMPTY_CF_SET, false);
+    
+    KeyValueBatch batch = new KeyValueBatch(5);
+    assertEquals(5, ssi.nextBatch(batch));
+    
+    // the top was already read from the old source, everything after it comes from the new source
+    source.next = new SwitchingDataSource(new ReusingIterator(new SortedMapIterator(map2)));
+    Key top = new Key(ssi.getTopKey());
+    
+    List<String> expected = new ArrayList<String>();
+    for (Entry<Key,Value> entry : map1.headMap(top, true).entrySet())
+      expected.add(entry.getKey() + " " + entry.getValue());
+    for (Entry<Key,Value> entry : map2.tailMap(top, false).entrySet())
+      expected.add(entry.getKey() + " " + entry.getValue());
+    
+    List<String> actual = new ArrayList<String>();
+    for (int i = 0; i < batch.size(); i++)
+      actual.add(batch.getKey(i) + " " + batch.getValue(i));
+    while (ssi.hasTop()) {
+      batch.clear();
+      ssi.nextBatch(batch);
+      for (int i = 0; i < batch.size(); i++)
+        actual.add(batch.getKey(i) + " " + batch.getValue(i));
+    }
+    
+    assertEquals(expected, actual);
+  }
+  
+  public void testBuffer() throws IOException {
+    Random rand = new Random(11);
+    List<TreeMap<Key,Value>> maps = createData(rand, 3, 1000);
+    Authorizations auths = new Authorizations("A");
+    
+    SortedKeyValueIterator<Key,Value> expectedIter = createStack(maps, columns(), auths);
+    BatchBufferIterator buffer = new BatchBufferIterator(createStack(maps, columns(), auths), 16);
+    
+    Range[] ranges = new Range[] {new Range(), new Range(new Text("r005"), new Text("r007")), new Range(new Text("r030"), null)};
+    for (Range range : ranges) {
+      expectedIter.seek(range, LocalityGroupUtil.EMPTY_CF_SET, false);
+      List<String> expected = readPerCell(expectedIter);
+      
+      buffer.seek(range, LocalityGroupUtil.EMPTY_CF_SET, false);
+      assertEquals(expected, readPerCell(buffer));
+      
+      buffer.seek(range, LocalityGroupUtil.EMPTY_CF_SET, false);
+      assertEquals(expected, readBatches(buffer, rand, 10));
+      
+      SortedKeyValueIterator<Key,Value> copy = buffer.deepCopy(null);
+      copy.seek(range, LocalityGroupUtil.EMPTY_CF_SET, false);
+      assertEquals(expected, readPerCell(copy));
+    }
+  }
+  
+  /**
+   * Counts the entries read from its source.
+   */
+  static class CountingIterator extends WrappingIterator {
+    int read = 0;
+    
+    CountingIterator(SortedKeyValueIterator<Key,Value> source) {
+      setSource(source);
+    }
+    
+    @Override
+    public void next() throws IOException {
+      super.next();
+      read++;
+    }
+  }
+  
+  public void testLargeValues() throws IOException {
+    TreeMap<Key,Value> map = new TreeMap<Key,Value>();
+    for (int i = 0; i < 100; i++)
+      map.put(new Key(String.format("r%03d", i)), new Value(new byte[100000]));
+    
+    CountingIterator source = new CountingIterator(new SortedMapIterator(map));
+    BatchBufferIterator buffer = new BatchBufferIterator(source, BatchBufferIterator.DEFAULT_MAX_BATCH_SIZE, 250000);
+    buffer.seek(new Range(), LocalityGroupUtil.EMPTY_CF_SET, false);
+    
+    // the buffer stops at the entry that takes it past its byte limit, however many entries it would otherwise read ahead
+    int consumed = 0;
+    while (buffer.hasTop()) {
+      assertTrue(source.read - consumed <= 3);
+      buffer.next();
+      consumed++;
+    }
+    assertEquals(100, consumed);
+    
+    buffer.seek(new Range(), LocalityGroupUtil.EMPTY_CF_SET, false);
+    for (int i = 0; i < 20; i++)
+      buffer.next();
+    KeyValueBatch batch = new KeyValueBatch(BatchBufferIterator.DEFAULT_MAX_BATCH_SIZE);
+    batch.setByteLimit(450000);
+    assertEquals(5, buffer.nextBatch(batch));
+    assertEquals(new Key("r020"), batch.getKey(0));
+    assertTrue(batch.isFull());
+  }
+  
+  public void testByteLimit() {
+    KeyValueBatch batch = new KeyValueBatch(4);
+    batch.setByteLimit(10);
+    batch.add(new Key("r1"), new Value("1234".getBytes()));
+    assertEquals(6, batch.getBytes());
+    assertFalse(batch.isFull());
+    batch.add(new Key("r2"), new Value("12345678".getBytes()));
+    assertEquals(16, batch.getBytes());
+    assertTrue(batch.isFull());
+    
+    batch.move(1, 0);
+    batch.truncate(1);
+    assertEquals(10, batch.getBytes());
+    assertTrue(batch.isFull());
+    
+    batch.clear();
+    assertEquals(0, batch.getBytes());
+    assertFalse(batch.isFull());
+  }
+  
+  public void testBatchLimit() {
+    KeyValueBatch batch = new KeyValueBatch(4);
+    batch.setLimit(2);
+    batch.add(new Key("r1"), new Value("1".getBytes()));
+    assertFalse(batch.isFull());
+    batch.add(new Key("r2"), new Value("2".getBytes()));
+    assertTrue(batch.isFull());
+    
+    try {
+      batch.add(new Key("r3"), new Value("3".getBytes()));
+      fail();
+    } catch (IllegalStateException e) {}
+    
+    batch.move(1, 0);
+    batch.truncate(1);
+    assertEquals(1, batch.size());
+    assertEquals(new Key("r2"), batch.getKey(0));
+    
+    batch.clear();
+    assertEquals(0, batch.size());
+    
+    try {
+      batch.setLimit(5);
+      fail();
+    } catch (IllegalArgumentException e) {}
+  }
+}
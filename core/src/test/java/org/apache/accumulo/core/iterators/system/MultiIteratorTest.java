@@ -20,6 +20,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
 import java.util.TreeMap;
 
 import junit.framework.TestCase;
@@ -399,4 +401,41 @@ public class MultiIteratorTest extends TestCase {
     mi.seek(r7, EMPTY_COL_FAMS, false);
     assertFalse(mi.hasTop());
   }
+  
+  public void testManySources() throws IOException {
+    // merge counts that are not powers of two exercise the uneven leaves of the tournament tree
+    Random rand = new Random(42);
+    for (int numSources : new int[] {1, 2, 3, 5, 8, 13, 33}) {
+      List<TreeMap<Key,Value>> maps = new ArrayList<TreeMap<Key,Value>>();
+      TreeMap<Key,Value> expected = new TreeMap<Key,Value>();
+      for (int i = 0; i < numSources; i++) {
+        TreeMap<Key,Value> tm = new TreeMap<Key,Value>();
+        // leave some sources empty
+        int count = i % 4 == 3 ? 0 : rand.nextInt(200);
+        for (int j = 0; j < count; j++) {
+          // timestamps keep keys unique across sources
+          Key k = nk(rand.nextInt(100), numSources * 1000 * i + j);
+          tm.put(k, new Value(Integer.toString(i).getBytes()));
+        }
+        expected.putAll(tm);
+        maps.add(tm);
+      }
+      
+      List<SortedKeyValueIterator<Key,Value>> iters = new ArrayList<SortedKeyValueIterator<Key,Value>>();
+      for (TreeMap<Key,Value> tm : maps)
+        iters.add(new SortedMapIterator(tm));
+      MultiIterator mi = new MultiIterator(iters, false);
+      
+      for (int row : new int[] {0, 50, 99, 25}) {
+        mi.seek(new Range(nr(row), null), EMPTY_COL_FAMS, false);
+        for (Entry<Key,Value> entry : expected.tailMap(new Key(nr(row))).entrySet()) {
+          assertTrue(mi.hasTop());
+          assertEquals(entry.getKey(), mi.getTopKey());
+          assertEquals(entry.getValue(), mi.getTopValue());
+          mi.next();
+        }
+        assertFalse(mi.hasTop());
+      }
+    }
+  }
 }
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.security.VisibilityCache.Evaluations;
+import org.apache.accumulo.core.util.BadArgumentException;
+import org.junit.Test;
+
+public class VisibilityCacheTest {
+  
+  @Test
+  public void testEvaluate() throws VisibilityParseException {
+    VisibilityCache cache = new VisibilityCache(100, 10);
+    Evaluations evals = cache.getEvaluations(new Authorizations("A", "B"));
+    assertTrue(evals.evaluate(new ArrayByteSequence("A&B")));
+    assertTrue(evals.evaluate(new ArrayByteSequence("A|C")));
+    assertFalse(evals.evaluate(new ArrayByteSequence("A&C")));
+    // cached results are the same
+    assertTrue(evals.evaluate(new ArrayByteSequence("A&B")));
+    assertFalse(evals.evaluate(new ArrayByteSequence("A&C")));
+    
+    try {
+      evals.evaluate(new ArrayByteSequence("A&"));
+      fail();
+    } catch (BadArgumentException e) {}
+  }
+  
+  @Test
+  public void testSharing() throws VisibilityParseException {
+    VisibilityCache cache = new VisibilityCache(100, 10);
+    Evaluations evals = cache.getEvaluations(new Authorizations("A", "B"));
+    assertSame(evals, cache.getEvaluations(new Authorizations("B", "A")));
+    assertNotSame(evals, cache.getEvaluations(new Authorizations("A")));
+    
+    // a view into a larger array finds what a copy of the same bytes cached
+    byte[] data = "xxA&Byy".getBytes();
+    assertTrue(evals.evaluate(new ArrayByteSequence("A&B")));
+    assertTrue(evals.evaluate(new ArrayByteSequence(data, 2, 3)));
+    // the cache must hold its own copy of the bytes
+    data[2] = 'C';
+    assertFalse(evals.evaluate(new ArrayByteSequence(data, 2, 3)));
+    assertTrue(evals.evaluate(new ArrayByteSequence("A&B")));
+  }
+  
+  @Test
+  public void testBounded() throws VisibilityParseException {
+    VisibilityCache cache = new VisibilityCache(100, 10);
+    Evaluations evals = cache.getEvaluations(new Authorizations("A"));
+    for (int i = 0; i < 1000; i++)
+      assertEquals(i % 2 == 0, evals.evaluate(new ArrayByteSequence((i % 2 == 0 ? "A|B" : "B") + i)));
+    for (int i = 0; i < 1000; i++)
+      assertEquals(i % 2 == 0, evals.evaluate(new ArrayByteSequence((i % 2 == 0 ? "A|B" : "B") + i)));
+    
+    for (int i = 0; i < 100; i++)
+      cache.getEvaluations(new Authorizations("A" + i));
+    assertTrue(evals.evaluate(new ArrayByteSequence("A")));
+  }
+  
+  @Test
+  public void testNewGeneration() throws VisibilityParseException {
+    VisibilityCache cache = new VisibilityCache(10, 10);
+    Evaluations evals = cache.getEvaluations(new Authorizations("A", "B"));
+    // enough distinct terms to start a new generation of compiled expressions several times over
+    for (int i = 0; i < 500; i++) {
+      assertTrue(evals.evaluate(new ArrayByteSequence("A|T" + i)));
+      assertFalse(evals.evaluate(new ArrayByteSequence("B&U" + i)));
+      Evaluations other = cache.getEvaluations(new Authorizations("U" + i, "B"));
+      assertTrue(other.evaluate(new ArrayByteSequence("B&U" + i)));
+      assertFalse(other.evaluate(new ArrayByteSequence("A&B")));
+    }
+    assertTrue(cache.getEvaluations(new Authorizations("A", "B")).evaluate(new ArrayByteSequence("A&B")));
+  }
+  
+  @Test
+  public void testQuotedAuthorizations() throws VisibilityParseException {
+    Authorizations auths = new Authorizations("A\"B");
+    Evaluations evals = new VisibilityCache(100, 10).getEvaluations(auths);
+    // the authorizations given back are not escaped, so they can be used to create another filter
+    assertEquals(auths, evals.getAuthorizations());
+    assertTrue(evals.evaluate(new ArrayByteSequence(ColumnVisibility.quote("A\"B"))));
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class VisibilityCompilerTest {
+  
+  private static String randomExpression(Random rand, String[] terms, int depth) {
+    if (depth == 0 || rand.nextInt(3) == 0)
+      return terms[rand.nextInt(terms.length)];
+    String op = rand.nextBoolean() ? "&" : "|";
+    int children = 2 + rand.nextInt(3);
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < children; i++) {
+      if (i > 0)
+        sb.append(op);
+      sb.append("(").append(randomExpression(rand, terms, depth - 1)).append(")");
+    }
+    return sb.toString();
+  }
+  
+  @Test
+  public void testMatchesEvaluator() throws VisibilityParseException {
+    String[] terms = new String[] {"A", "B", "C", "D", "E", "F", "G", "H", ColumnVisibility.quote("a\"b"), ColumnVisibility.quote("c\\d"), "\"e\""};
+    List<Authorizations> authSets = new ArrayList<Authorizations>();
+    authSets.add(new Authorizations());
+    authSets.add(new Authorizations("A", "B", "C", "D", "E", "F", "G", "H", "a\"b", "c\\d", "e"));
+    authSets.add(new Authorizations("A", "C", "E", "G"));
+    authSets.add(new Authorizations("B", "D", "a\"b"));
+    authSets.add(new Authorizations("H", "c\\d", "e"));
+    
+    VisibilityCompiler compiler = new VisibilityCompiler();
+    Random rand = new Random(7);
+    for (int i = 0; i < 2000; i++) {
+      ColumnVisibility cv = new ColumnVisibility(randomExpression(rand, terms, 4));
+      CompiledVisibility compiled = compiler.compile(cv);
+      for (Authorizations auths : authSets)
+        assertEquals(cv.toString() + " " + auths, new VisibilityEvaluator(auths).evaluate(cv), compiled.evaluate(compiler.toBitSet(auths)));
+    }
+  }
+  
+  @Test
+  public void testBitSets() throws VisibilityParseException {
+    VisibilityCompiler compiler = new VisibilityCompiler();
+    // bitsets made before terms were first seen in expressions still hold
+    long[] ab = compiler.toBitSet(new Authorizations("A", "B"));
+    for (int i = 0; i < 200; i++)
+      assertTrue(!compiler.compile(new ColumnVisibility("A&T" + i)).evaluate(ab));
+    long[] late = compiler.toBitSet(new Authorizations("T150", "A"));
+    assertTrue(compiler.compile(new ColumnVisibility("A&T150")).evaluate(late));
+    assertTrue(!compiler.compile(new ColumnVisibility("A&T150")).evaluate(ab));
+    assertTrue(compiler.compile(new ColumnVisibility("A&B")).evaluate(ab));
+    assertTrue(compiler.compile(new ColumnVisibility("")).evaluate(new long[0]));
+    assertEquals(3, compiler.compile(new ColumnVisibility("A&(B|C)")).size());
+  }
+  
+  @Test
+  public void testBadExpression() throws VisibilityParseException {
+    try {
+      new VisibilityCompiler().compile(new ColumnVisibility("A&"));
+      fail();
+    } catch (org.apache.accumulo.core.util.BadArgumentException e) {}
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.tabletserver.thrift;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.accumulo.core.tabletserver.thrift.TabletClientService.continueScan_args;
+import org.apache.accumulo.trace.thrift.TInfo;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TField;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TStruct;
+import org.apache.thrift.protocol.TTupleProtocol;
+import org.apache.thrift.protocol.TType;
+import org.apache.thrift.transport.TMemoryBuffer;
+import org.junit.Test;
+
+public class ContinueScanArgsTest {
+  
+  private static continueScan_args roundTrip(continueScan_args args, boolean tuple) throws TException {
+    TMemoryBuffer buffer = new TMemoryBuffer(64);
+    TProtocol protocol = tuple ? new TTupleProtocol(buffer) : new TBinaryProtocol(buffer);
+    args.write(protocol);
+    continueScan_args read = new continueScan_args();
+    read.read(protocol);
+    return read;
+  }
+  
+  @Test
+  public void testWindow() throws TException {
+    continueScan_args args = new continueScan_args(new TInfo(3, 5), 42, 6);
+    for (boolean tuple : new boolean[] {false, true}) {
+      continueScan_args read = roundTrip(args, tuple);
+      assertEquals(args, read);
+      assertEquals(42, read.getScanID());
+      assertEquals(6, read.getWindow());
+      assertTrue(read.isSetWindow());
+    }
+  }
+  
+  @Test
+  public void testWithoutWindow() throws TException {
+    // the arguments as written by a client that does not know about streaming
+    TMemoryBuffer buffer = new TMemoryBuffer(64);
+    TProtocol protocol = new TBinaryProtocol(buffer);
+    protocol.writeStructBegin(new TStruct("continueScan_args"));
+    protocol.writeFieldBegin(new TField("scanID", TType.I64, (short) 1));
+    protocol.writeI64(42);
+    protocol.writeFieldEnd();
+    protocol.writeFieldBegin(new TField("tinfo", TType.STRUCT, (short) 2));
+    new TInfo(3, 5).write(protocol);
+    protocol.writeFieldEnd();
+    protocol.writeFieldStop();
+    protocol.writeStructEnd();
+    
+    continueScan_args read = new continueScan_args();
+    read.read(protocol);
+    assertEquals(42, read.getScanID());
+    assertEquals(new TInfo(3, 5), read.getTinfo());
+    assertEquals(0, read.getWindow());
+    assertFalse(read.isSetWindow());
+  }
+}
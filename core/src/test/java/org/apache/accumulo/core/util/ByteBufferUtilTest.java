@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class ByteBufferUtilTest extends TestCase {
+  
+  private static final byte[] DATA = "0123456789".getBytes();
+  
+  public void testToBytes() {
+    assertNull(ByteBufferUtil.toBytes(null));
+    assertTrue(Arrays.equals(DATA, ByteBufferUtil.toBytes(ByteBuffer.wrap(DATA))));
+  }
+  
+  public void testToBytesPosition() {
+    ByteBuffer buffer = ByteBuffer.wrap(DATA, 3, 4);
+    assertEquals("3456", new String(ByteBufferUtil.toBytes(buffer)));
+    assertEquals(3, buffer.position());
+  }
+  
+  public void testToBytesSlice() {
+    ByteBuffer buffer = ByteBuffer.wrap(DATA);
+    buffer.position(2);
+    ByteBuffer slice = buffer.slice();
+    slice.position(1);
+    slice.limit(5);
+    assertEquals("3456", new String(ByteBufferUtil.toBytes(slice)));
+  }
+  
+  public void testToBytesShared() {
+    assertSame(DATA, ByteBufferUtil.toBytesShared(ByteBuffer.wrap(DATA)));
+    assertEquals("3456", new String(ByteBufferUtil.toBytesShared(ByteBuffer.wrap(DATA, 3, 4))));
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.util;
+
+import junit.framework.TestCase;
+
+public class RateLimiterTest extends TestCase {
+  
+  public void testUnlimited() {
+    RateLimiter limiter = new RateLimiter(0);
+    long t1 = System.currentTimeMillis();
+    for (int i = 0; i < 1000; i++)
+      limiter.acquire(1000000);
+    assertTrue(System.currentTimeMillis() - t1 < 1000);
+  }
+  
+  public void testRate() {
+    RateLimiter limiter = new RateLimiter(1000);
+    
+    // the first second worth of units is a burst, the next half second has to wait
+    long t1 = System.currentTimeMillis();
+    limiter.acquire(1000);
+    for (int i = 0; i < 10; i++)
+      limiter.acquire(50);
+    long elapsed = System.currentTimeMillis() - t1;
+    
+    assertTrue("elapsed " + elapsed, elapsed >= 400);
+    assertTrue("elapsed " + elapsed, elapsed < 3000);
+  }
+}
@@ -29,6 +29,24 @@ using namespace std;
 typedef map<SubKey, Field, std::less<SubKey>,  BlockAllocator<std::pair<const SubKey, Field> > > ColumnMap;
 typedef map<Field, ColumnMap, std::less<Field>,  BlockAllocator<std::pair<const Field, ColumnMap> > > RowMap;
 
+// batches passed from java use native byte order, see NativeMap.java for the layout
+
+inline uint8_t *putInt(uint8_t *pos, int32_t i){
+	memcpy(pos, &i, 4);
+	return pos + 4;
+}
+
+inline uint8_t *putField(uint8_t *pos, const Field &f){
+	pos = putInt(pos, f.length());
+	memcpy(pos, f.field, f.length());
+	return pos + f.length();
+}
+
+inline const uint8_t *getInt(const uint8_t *pos, int32_t &i){
+	memcpy(&i, pos, 4);
+	return pos + 4;
+}
+
 
 struct NativeMapData {
 	LinkedBlockAllocator *lba;
@@ -112,6 +130,70 @@ struct Iterator {
 		colIter++;
 		skipAndFillIn(ia, false);
 	}
+
+	void skipEmptyRows(){
+		while(colIter == rowIter->second.end()){
+			rowIter++;
+			if(rowIter == nativeMap.rowmap.end()){
+				return;
+			}
+			colIter = rowIter->second.begin();
+		}
+	}
+
+	/**
+	 * Copies key values into buf and advances past them, stopping after maxEntries or once more than maxBytes of key value data was copied.  The buffer
+	 * starts with an int that is 1 when more data remains and an int that is the buffer size needed when the next key value did not fit.  Returns the
+	 * number of key values copied.
+	 */
+	int32_t fill(uint8_t *buf, int64_t capacity, int32_t maxEntries, int32_t maxBytes){
+		uint8_t *pos = buf + 8;
+		uint8_t *end = buf + capacity;
+		int32_t count = 0;
+		int32_t amountRead = 0;
+		int32_t needed = 0;
+		RowMap::iterator lastRow = rowIter;
+
+		while(!atEnd() && count < maxEntries && amountRead <= maxBytes){
+			const Field &row = rowIter->first;
+			const SubKey &sk = colIter->first;
+			const Field &value = colIter->second;
+			bool newRow = count == 0 || rowIter != lastRow;
+
+			int64_t len = 4 + (newRow ? row.length() : 0) + 12 + sk.totalLen + 8 + 1 + 4 + 4 + value.length();
+			if(pos + len > end){
+				if(count == 0)
+					needed = len + 8;
+				break;
+			}
+
+			if(newRow)
+				pos = putField(pos, row);
+			else
+				pos = putInt(pos, -1);
+
+			pos = putField(pos, sk.getCF());
+			pos = putField(pos, sk.getCQ());
+			pos = putField(pos, sk.getCV());
+			memcpy(pos, &sk.timestamp, 8);
+			pos += 8;
+			*pos++ = sk.isDeleted() ? 1 : 0;
+			pos = putInt(pos, sk.getMC());
+			pos = putField(pos, value);
+
+			amountRead += row.length() + sk.totalLen + value.length();
+			count++;
+
+			lastRow = rowIter;
+			colIter++;
+			skipEmptyRows();
+		}
+
+		putInt(buf, atEnd() ? 0 : 1);
+		putInt(buf + 4, needed);
+
+		return count;
+	}
 };
 
 struct NativeMap : public NativeMapData {
@@ -192,6 +274,70 @@ struct NativeMap : public NativeMapData {
 		}
 	}
 
+	void update(ColumnMap *cm, const uint8_t *cf, int32_t cfLen, const uint8_t *cq, int32_t cqLen, const uint8_t *cv, int32_t cvLen, int64_t ts, bool del, const uint8_t *val, int32_t valLen, int32_t mutationCount){
+
+		SubKey sk(lba, cf, cfLen, cq, cqLen, cv, cvLen, ts, del, mutationCount);
+		//do not bother allocating value if not needed
+		Field value(NULL, 0);
+
+		pair<ColumnMap::iterator, bool> insertResult = cm->insert(pair<SubKey, Field>(sk, value));
+		if(insertResult.second){
+			insertResult.first->second  = Field(lba, val, valLen);
+			count++;
+		}else{
+			sk.clear(lba);
+			if(valLen <= insertResult.first->second.length()){
+				insertResult.first->second.set((const char *)val, valLen);
+			}else{
+				insertResult.first->second.clear();
+				insertResult.first->second  = Field(lba, val, valLen);
+			}
+		}
+	}
+
+	/**
+	 * Applies a batch of mutations serialized by NativeMap.java.  Each mutation is a row followed by its column updates, every update in a mutation gets
+	 * the same mutation count.
+	 */
+	void mutate(const uint8_t *data, int32_t len, int32_t mutationCount){
+		const uint8_t *end = data + len;
+
+		while(data < end){
+			int32_t rowLen, numUpdates;
+			data = getInt(data, rowLen);
+			Field row(lba, data, rowLen);
+			data += rowLen;
+
+			ColumnMap *cm = startUpdate(row);
+
+			data = getInt(data, numUpdates);
+			for(int32_t i = 0; i < numUpdates; i++){
+				int32_t cfLen, cqLen, cvLen, valLen;
+				int64_t ts;
+
+				data = getInt(data, cfLen);
+				const uint8_t *cf = data;
+				data += cfLen;
+				data = getInt(data, cqLen);
+				const uint8_t *cq = data;
+				data += cqLen;
+				data = getInt(data, cvLen);
+				const uint8_t *cv = data;
+				data += cvLen;
+				memcpy(&ts, data, 8);
+				data += 8;
+				bool del = *data++ != 0;
+				data = getInt(data, valLen);
+				const uint8_t *val = data;
+				data += valLen;
+
+				update(cm, cf, cfLen, cq, cqLen, cv, cvLen, ts, del, val, valLen, mutationCount);
+			}
+
+			mutationCount++;
+		}
+	}
+
 	Iterator *iterator(int32_t *ia){
 		return new Iterator(*this, ia);
 	}
@@ -23,6 +23,10 @@
 #ifdef __cplusplus
 extern "C" {
 #endif
+#undef org_apache_accumulo_server_tabletserver_NativeMap_INITIAL_BATCH_SIZE
+#define org_apache_accumulo_server_tabletserver_NativeMap_INITIAL_BATCH_SIZE 8192L
+#undef org_apache_accumulo_server_tabletserver_NativeMap_MAX_MUTATION_BATCH_SIZE
+#define org_apache_accumulo_server_tabletserver_NativeMap_MAX_MUTATION_BATCH_SIZE 32768L
 /*
  * Class:     org_apache_accumulo_server_tabletserver_NativeMap
  * Method:    createNM
@@ -41,19 +45,11 @@ JNIEXPORT void JNICALL Java_org_apache_accumulo_server_tabletserver_NativeMap_si
 
 /*
  * Class:     org_apache_accumulo_server_tabletserver_NativeMap
- * Method:    startUpdate
- * Signature: (J[B)J
+ * Method:    mutateBatch
+ * Signature: (JLjava/nio/ByteBuffer;II)V
  */
-JNIEXPORT jlong JNICALL Java_org_apache_accumulo_server_tabletserver_NativeMap_startUpdate
-  (JNIEnv *, jclass, jlong, jbyteArray);
-
-/*
- * Class:     org_apache_accumulo_server_tabletserver_NativeMap
- * Method:    update
- * Signature: (JJ[B[B[BJZ[BI)V
- */
-JNIEXPORT void JNICALL Java_org_apache_accumulo_server_tabletserver_NativeMap_update
-  (JNIEnv *, jclass, jlong, jlong, jbyteArray, jbyteArray, jbyteArray, jlong, jboolean, jbyteArray, jint);
+JNIEXPORT void JNICALL Java_org_apache_accumulo_server_tabletserver_NativeMap_mutateBatch
+  (JNIEnv *, jclass, jlong, jobject, jint, jint);
 
 /*
  * Class:     org_apache_accumulo_server_tabletserver_NativeMap
@@ -82,42 +78,18 @@ JNIEXPORT jlong JNICALL Java_org_apache_accumulo_server_tabletserver_NativeMap_d
 /*
  * Class:     org_apache_accumulo_server_tabletserver_NativeMap
  * Method:    createNMI
- * Signature: (J[I)J
- */
-JNIEXPORT jlong JNICALL Java_org_apache_accumulo_server_tabletserver_NativeMap_createNMI__J_3I
-  (JNIEnv *, jclass, jlong, jintArray);
-
-/*
- * Class:     org_apache_accumulo_server_tabletserver_NativeMap
- * Method:    createNMI
- * Signature: (J[B[B[B[BJZ[I)J
+ * Signature: (J[B[B[B[BJZ)J
  */
-JNIEXPORT jlong JNICALL Java_org_apache_accumulo_server_tabletserver_NativeMap_createNMI__J_3B_3B_3B_3BJZ_3I
-  (JNIEnv *, jclass, jlong, jbyteArray, jbyteArray, jbyteArray, jbyteArray, jlong, jboolean, jintArray);
+JNIEXPORT jlong JNICALL Java_org_apache_accumulo_server_tabletserver_NativeMap_createNMI
+  (JNIEnv *, jclass, jlong, jbyteArray, jbyteArray, jbyteArray, jbyteArray, jlong, jboolean);
 
 /*
  * Class:     org_apache_accumulo_server_tabletserver_NativeMap
- * Method:    nmiNext
- * Signature: (J[I)Z
+ * Method:    nmiFill
+ * Signature: (JLjava/nio/ByteBuffer;II)I
  */
-JNIEXPORT jboolean JNICALL Java_org_apache_accumulo_server_tabletserver_NativeMap_nmiNext
-  (JNIEnv *, jclass, jlong, jintArray);
-
-/*
- * Class:     org_apache_accumulo_server_tabletserver_NativeMap
- * Method:    nmiGetData
- * Signature: (J[B[B[B[B[B)V
- */
-JNIEXPORT void JNICALL Java_org_apache_accumulo_server_tabletserver_NativeMap_nmiGetData
-  (JNIEnv *, jclass, jlong, jbyteArray, jbyteArray, jbyteArray, jbyteArray, jbyteArray);
-
-/*
- * Class:     org_apache_accumulo_server_tabletserver_NativeMap
- * Method:    nmiGetTS
- * Signature: (J)J
- */
-JNIEXPORT jlong JNICALL Java_org_apache_accumulo_server_tabletserver_NativeMap_nmiGetTS
-  (JNIEnv *, jclass, jlong);
+JNIEXPORT jint JNICALL Java_org_apache_accumulo_server_tabletserver_NativeMap_nmiFill
+  (JNIEnv *, jclass, jlong, jobject, jint, jint);
 
 /*
  * Class:     org_apache_accumulo_server_tabletserver_NativeMap
@@ -194,6 +194,22 @@ public class Monitor {
     total.queryRate += more.queryRate;
     total.queryByteRate += more.queryByteRate;
     total.scanRate += more.scanRate;
+    if (more.updateTimes != null) {
+      if (total.updateTimes == null)
+        total.updateTimes = new HashMap<String,List<Long>>();
+      for (Entry<String,List<Long>> entry : more.updateTimes.entrySet()) {
+        List<Long> counts = total.updateTimes.get(entry.getKey());
+        if (counts == null)
+          total.updateTimes.put(entry.getKey(), counts = new ArrayList<Long>());
+        List<Long> moreCounts = entry.getValue();
+        for (int i = 0; i < moreCounts.size(); i++) {
+          if (i < counts.size())
+            counts.set(i, counts.get(i) + moreCounts.get(i));
+          else
+            counts.add(moreCounts.get(i));
+        }
+      }
+    }
   }
   
   public static TableInfo summarizeTableStats(TabletServerStatus status) {
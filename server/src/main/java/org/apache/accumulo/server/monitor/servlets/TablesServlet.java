@@ -43,9 +43,12 @@ import org.apache.accumulo.server.monitor.util.TableRow;
 import org.apache.accumulo.server.monitor.util.celltypes.CompactionsType;
 import org.apache.accumulo.server.monitor.util.celltypes.DurationType;
 import org.apache.accumulo.server.monitor.util.celltypes.NumberType;
+import org.apache.accumulo.server.monitor.util.celltypes.StringType;
 import org.apache.accumulo.server.monitor.util.celltypes.TableLinkType;
 import org.apache.accumulo.server.monitor.util.celltypes.TableStateType;
 import org.apache.accumulo.server.security.SecurityConstants;
+import org.apache.accumulo.server.tabletserver.log.LogHistogram;
+import org.apache.accumulo.server.tabletserver.metrics.TabletServerUpdateMetrics.Phase;
 import org.apache.hadoop.io.Text;
 
 public class TablesServlet extends BasicServlet {
@@ -179,5 +182,38 @@ public class TablesServlet extends BasicServlet {
     Table tableDetails = new Table("participatingTServers", "Participating&nbsp;Tablet&nbsp;Servers");
     tableDetails.setSubCaption(displayName);
     TServersServlet.doTserverList(req, sb, tservers, tableId, tableDetails);
+    
+    TableInfo tableInfo = Monitor.getMmi() == null ? null : Monitor.getMmi().tableMap.get(tableId);
+    if (tableInfo != null && tableInfo.updateTimes != null)
+      doUpdateTimes(req, sb, displayName, tableInfo.updateTimes);
+  }
+  
+  private static void doUpdateTimes(HttpServletRequest req, StringBuilder sb, String displayName, Map<String,List<Long>> updateTimes) {
+    Table updateTimesTable = new Table("updateTimes", "Update&nbsp;Time&nbsp;Breakdown");
+    updateTimesTable.setSubCaption(displayName + ", percentiles are upper bounds in microseconds over the last one to two minutes");
+    updateTimesTable.addSortableColumn("Phase", new StringType<String>(), "Time spent waiting for held commits, checking constraints, "
+        + "writing to and syncing the write-ahead log, and inserting into memory.");
+    updateTimesTable.addSortableColumn("Batches", new NumberType<Long>(), "The number of batches of updates timed.");
+    updateTimesTable.addSortableColumn("Median", new NumberType<Long>(), null);
+    updateTimesTable.addSortableColumn("90%", new NumberType<Long>(), null);
+    updateTimesTable.addSortableColumn("99%", new NumberType<Long>(), null);
+    updateTimesTable.addSortableColumn("99.9%", new NumberType<Long>(), null);
+    for (Phase phase : Phase.values()) {
+      List<Long> counts = updateTimes.get(phase.getName());
+      if (counts == null)
+        continue;
+      long batches = 0;
+      for (Long count : counts)
+        batches += count;
+      TableRow row = updateTimesTable.prepareRow();
+      row.add(phase.getName());
+      row.add(batches);
+      row.add(LogHistogram.getPercentile(counts, 50));
+      row.add(LogHistogram.getPercentile(counts, 90));
+      row.add(LogHistogram.getPercentile(counts, 99));
+      row.add(LogHistogram.getPercentile(counts, 99.9));
+      updateTimesTable.addRow(row);
+    }
+    updateTimesTable.generate(req, sb);
   }
 }
@@ -85,6 +85,26 @@ public class NullScanner implements Scanner {
     
   }
   
+  @Override
+  public void setCacheBlocks(boolean cacheBlocks) {
+    
+  }
+  
+  @Override
+  public boolean getCacheBlocks() {
+    return true;
+  }
+  
+  @Override
+  public void setStreamingWindow(int window) {
+    
+  }
+  
+  @Override
+  public int getStreamingWindow() {
+    return 0;
+  }
+  
   @Override
   public Iterator<Entry<Key,Value>> iterator() {
     return new NullKeyValueIterator();
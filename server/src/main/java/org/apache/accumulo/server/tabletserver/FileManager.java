@@ -28,13 +28,16 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.Semaphore;
 
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
 import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.KeyExtent;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.file.FileOperations;
 import org.apache.accumulo.core.file.FileSKVIterator;
+import org.apache.accumulo.core.file.TimestampFilterable;
 import org.apache.accumulo.core.file.blockfile.cache.BlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.CacheEntry;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.system.InterruptibleIterator;
@@ -94,8 +97,61 @@ public class FileManager {
     }
   }
   
+  /**
+   * Each open reader is given its own view of the data cache, so that a scan that reserves the reader can control whether the blocks it reads are added to the
+   * cache. Blocks already in the cache are always used.
+   */
+  private static class ReaderDataCache implements BlockCache {
+    
+    private final BlockCache cache;
+    private volatile boolean cacheBlocks = true;
+    
+    ReaderDataCache(BlockCache cache) {
+      this.cache = cache;
+    }
+    
+    void setCacheBlocks(boolean cacheBlocks) {
+      this.cacheBlocks = cacheBlocks;
+    }
+    
+    @Override
+    public CacheEntry cacheBlock(String blockName, byte[] buf, boolean inMemory) {
+      if (!cacheBlocks)
+        return null;
+      return cache.cacheBlock(blockName, buf, inMemory);
+    }
+    
+    @Override
+    public CacheEntry cacheBlock(String blockName, byte[] buf) {
+      if (!cacheBlocks)
+        return null;
+      return cache.cacheBlock(blockName, buf);
+    }
+    
+    @Override
+    public CacheEntry getBlock(String blockName) {
+      return cache.getBlock(blockName);
+    }
+    
+    @Override
+    public void shutdown() {
+      // the underlying cache is shared and shut down by its owner
+    }
+    
+    @Override
+    public long getMaxSize() {
+      return cache.getMaxSize();
+    }
+    
+    @Override
+    public Stats getStats() {
+      return cache.getStats();
+    }
+  }
+  
   private Map<String,List<OpenReader>> openFiles;
   private HashMap<FileSKVIterator,String> reservedReaders;
+  private HashMap<FileSKVIterator,ReaderDataCache> readerDataCaches;
   
   private Semaphore filePermits;
   
@@ -172,6 +228,7 @@ public class FileManager {
     
     this.openFiles = new HashMap<String,List<OpenReader>>();
     this.reservedReaders = new HashMap<FileSKVIterator,String>();
+    this.readerDataCaches = new HashMap<FileSKVIterator,ReaderDataCache>();
     
     this.maxIdleTime = conf.getConfiguration().getTimeInMillis(Property.TSERV_MAX_IDLE);
     SimpleTimer.getInstance().schedule(new IdleFileCloser(), maxIdleTime, maxIdleTime / 2);
@@ -229,6 +286,11 @@ public class FileManager {
   }
   
   private void closeReaders(List<FileSKVIterator> filesToClose) {
+    synchronized (this) {
+      for (FileSKVIterator reader : filesToClose)
+        readerDataCaches.remove(reader);
+    }
+    
     for (FileSKVIterator reader : filesToClose) {
       try {
         reader.close();
@@ -263,7 +325,7 @@ public class FileManager {
     return reservedReaders.get(reader);
   }
   
-  private List<FileSKVIterator> reserveReaders(Text table, Collection<String> files, boolean continueOnFailure) throws IOException {
+  private List<FileSKVIterator> reserveReaders(Text table, Collection<String> files, boolean continueOnFailure, boolean cacheBlocks) throws IOException {
     
     if (files.size() >= maxOpen) {
       throw new IllegalArgumentException("requested files exceeds max open");
@@ -302,13 +364,19 @@ public class FileManager {
     closeReaders(filesToClose);
     
     // open any files that need to be opened
+    Map<FileSKVIterator,ReaderDataCache> openedDataCaches = new HashMap<FileSKVIterator,ReaderDataCache>();
     for (String file : filesToOpen) {
       try {
         // log.debug("Opening "+file);
-        FileSKVIterator reader = FileOperations.getInstance().openReader(file, false, fs, fs.getConf(), conf.getTableConfiguration(table.toString()),
-            dataCache, indexCache);
+        AccumuloConfiguration tableConf = conf.getTableConfiguration(table.toString());
+        ReaderDataCache readerDataCache = dataCache == null ? null : new ReaderDataCache(TabletServerResourceManager.getCachePartition(dataCache,
+            table.toString(), tableConf));
+        FileSKVIterator reader = FileOperations.getInstance().openReader(file, false, fs, fs.getConf(), tableConf, readerDataCache,
+            indexCache == null ? null : TabletServerResourceManager.getCachePartition(indexCache, table.toString(), tableConf));
         reservedFiles.add(reader);
         readersReserved.put(reader, file);
+        if (readerDataCache != null)
+          openedDataCaches.put(reader, readerDataCache);
       } catch (Exception e) {
         
         ProblemReports.getInstance().report(new ProblemReport(table.toString(), ProblemType.FILE_READ, file, e));
@@ -332,6 +400,13 @@ public class FileManager {
     synchronized (this) {
       // update set of reserved readers
       reservedReaders.putAll(readersReserved);
+      readerDataCaches.putAll(openedDataCaches);
+      
+      for (FileSKVIterator reader : reservedFiles) {
+        ReaderDataCache readerDataCache = readerDataCaches.get(reader);
+        if (readerDataCache != null)
+          readerDataCache.setCacheBlocks(cacheBlocks);
+      }
     }
     
     return reservedFiles;
@@ -355,6 +430,9 @@ public class FileManager {
           log.warn(e, e);
           sawIOException = true;
         }
+        
+        // the next scan to reserve the reader may want any timestamp
+        setTimestampRange(reader, null);
       }
       
       for (FileSKVIterator reader : readers) {
@@ -372,6 +450,15 @@ public class FileManager {
     
   }
   
+  private static void setTimestampRange(FileSKVIterator reader, long[] timestampRange) {
+    if (reader instanceof TimestampFilterable) {
+      if (timestampRange == null)
+        ((TimestampFilterable) reader).setTimestampRange(Long.MIN_VALUE, Long.MAX_VALUE);
+      else
+        ((TimestampFilterable) reader).setTimestampRange(timestampRange[0], timestampRange[1]);
+    }
+  }
+  
   static class FileDataSource implements DataSource {
     
     private SortedKeyValueIterator<Key,Value> iter;
@@ -379,6 +466,7 @@ public class FileManager {
     private boolean current = true;
     private IteratorEnvironment env;
     private String file;
+    private long[] timestampRange;
     
     FileDataSource(String file, SortedKeyValueIterator<Key,Value> iter) {
       this.file = file;
@@ -440,11 +528,13 @@ public class FileManager {
     private ArrayList<FileSKVIterator> tabletReservedReaders;
     private KeyExtent tablet;
     private boolean continueOnFailure;
+    private boolean cacheBlocks;
     
-    ScanFileManager(KeyExtent tablet) {
+    ScanFileManager(KeyExtent tablet, boolean cacheBlocks) {
       tabletReservedReaders = new ArrayList<FileSKVIterator>();
       dataSources = new ArrayList<FileDataSource>();
       this.tablet = tablet;
+      this.cacheBlocks = cacheBlocks;
       
       continueOnFailure = conf.getTableConfiguration(tablet).getBoolean(Property.TABLE_FAILURES_IGNORE);
       
@@ -462,13 +552,21 @@ public class FileManager {
             + " files.size()=" + files.size() + " maxOpen=" + maxOpen + " tablet = " + tablet);
       }
       
-      List<FileSKVIterator> newlyReservedReaders = reserveReaders(tablet.getTableId(), files, continueOnFailure);
+      List<FileSKVIterator> newlyReservedReaders = reserveReaders(tablet.getTableId(), files, continueOnFailure, cacheBlocks);
       
       tabletReservedReaders.addAll(newlyReservedReaders);
       return newlyReservedReaders;
     }
     
     synchronized List<InterruptibleIterator> openFiles(Map<String,DataFileValue> files, boolean detachable) throws IOException {
+      return openFiles(files, detachable, null);
+    }
+    
+    /**
+     * @param timestampRange
+     *          smallest and largest timestamp wanted from the files, readers may skip data that only has other timestamps. Null if every timestamp is wanted.
+     */
+    synchronized List<InterruptibleIterator> openFiles(Map<String,DataFileValue> files, boolean detachable, long[] timestampRange) throws IOException {
       
       List<FileSKVIterator> newlyReservedReaders = openFiles(files.keySet());
       
@@ -476,9 +574,15 @@ public class FileManager {
       
       for (FileSKVIterator reader : newlyReservedReaders) {
         String filename = getReservedReadeFilename(reader);
+        
+        // the timestamps stored in a file with its time set are replaced when read
+        long[] fileTimestampRange = files.get(filename).isTimeSet() ? null : timestampRange;
+        setTimestampRange(reader, fileTimestampRange);
+        
         InterruptibleIterator iter;
         if (detachable) {
           FileDataSource fds = new FileDataSource(filename, reader);
+          fds.timestampRange = fileTimestampRange;
           dataSources.add(fds);
           SourceSwitchingIterator ssi = new SourceSwitchingIterator(fds);
           iter = new ProblemReportingIterator(tablet.getTableId().toString(), filename, continueOnFailure, ssi);
@@ -528,6 +632,7 @@ public class FileManager {
       
       for (FileDataSource fds : dataSources) {
         FileSKVIterator reader = map.get(fds.file).remove(0);
+        setTimestampRange(reader, fds.timestampRange);
         fds.setIterator(reader);
       }
     }
@@ -543,7 +648,11 @@ public class FileManager {
     }
   }
   
-  public ScanFileManager newScanFileManager(KeyExtent tablet) {
-    return new ScanFileManager(tablet);
+  /**
+   * @param cacheBlocks
+   *          whether data blocks read through the reserved files should be added to the data cache
+   */
+  public ScanFileManager newScanFileManager(KeyExtent tablet, boolean cacheBlocks) {
+    return new ScanFileManager(tablet, cacheBlocks);
   }
 }
@@ -26,6 +26,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.UUID;
@@ -52,6 +54,7 @@ import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.SortedMapIterator;
 import org.apache.accumulo.core.iterators.WrappingIterator;
 import org.apache.accumulo.core.iterators.system.InterruptibleIterator;
+import org.apache.accumulo.core.iterators.system.MultiIterator;
 import org.apache.accumulo.core.iterators.system.SourceSwitchingIterator;
 import org.apache.accumulo.core.iterators.system.SourceSwitchingIterator.DataSource;
 import org.apache.accumulo.core.util.CachedConfiguration;
@@ -62,28 +65,9 @@ import org.apache.accumulo.server.trace.TraceFileSystem;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.WritableComparator;
 import org.apache.log4j.Logger;
 
-class MemKeyComparator implements Comparator<Key> {
-  
-  @Override
-  public int compare(Key k1, Key k2) {
-    int cmp = k1.compareTo(k2);
-    
-    if (cmp == 0) {
-      if (k1 instanceof MemKey)
-        if (k2 instanceof MemKey)
-          cmp = ((MemKey) k2).kvCount - ((MemKey) k1).kvCount;
-        else
-          cmp = 1;
-      else if (k2 instanceof MemKey)
-        cmp = -1;
-    }
-    
-    return cmp;
-  }
-}
-
 class PartialMutationSkippingIterator extends SkippingIterator implements InterruptibleIterator {
   
   int kvCount;
@@ -195,22 +179,45 @@ public class InMemoryMap {
   private final String memDumpDir;
   
   public InMemoryMap(boolean useNativeMap, String memDumpDir) {
+    this(useNativeMap, false, memDumpDir);
+  }
+  
+  public InMemoryMap(boolean useNativeMap, boolean useOffHeapMap, String memDumpDir) {
+    this(useNativeMap, useOffHeapMap, 1, memDumpDir);
+  }
+  
+  public InMemoryMap(boolean useNativeMap, boolean useOffHeapMap, int partitions, String memDumpDir) {
     this.memDumpDir = memDumpDir;
+    
+    if (partitions > 1) {
+      SimpleMap[] maps = new SimpleMap[partitions];
+      for (int i = 0; i < partitions; i++)
+        maps[i] = newSimpleMap(useNativeMap, useOffHeapMap);
+      map = new PartitionedMap(maps);
+    } else {
+      map = newSimpleMap(useNativeMap, useOffHeapMap);
+    }
+  }
+  
+  public InMemoryMap(AccumuloConfiguration config) {
+    this(config.getBoolean(Property.TSERV_NATIVEMAP_ENABLED), config.getBoolean(Property.TSERV_OFFHEAPMAP_ENABLED), config
+        .getCount(Property.TSERV_MEMTABLE_PARTITIONS), config.get(Property.TSERV_MEMDUMP_DIR));
+  }
+  
+  private static SimpleMap newSimpleMap(boolean useNativeMap, boolean useOffHeapMap) {
     if (useNativeMap && NativeMap.loadedNativeLibraries()) {
       try {
-        map = new NativeMapWrapper();
+        return new NativeMapWrapper();
       } catch (Throwable t) {
         log.error("Failed to create native map", t);
       }
     }
     
-    if (map == null) {
-      map = new DefaultMap();
+    if (useOffHeapMap) {
+      return new OffHeapMapWrapper();
     }
-  }
-  
-  public InMemoryMap(AccumuloConfiguration config) {
-    this(config.getBoolean(Property.TSERV_NATIVEMAP_ENABLED), config.get(Property.TSERV_MEMDUMP_DIR));
+    
+    return new DefaultMap();
   }
   
   private interface SimpleMap {
@@ -332,6 +339,196 @@ public class InMemoryMap {
     }
   }
   
+  private static class OffHeapMapWrapper implements SimpleMap {
+    private OffHeapMap offHeapMap;
+    
+    OffHeapMapWrapper() {
+      offHeapMap = new OffHeapMap();
+    }
+    
+    public Value get(Key key) {
+      return offHeapMap.get(key);
+    }
+    
+    public Iterator<Entry<Key,Value>> iterator(Key startKey) {
+      return offHeapMap.iterator(startKey);
+    }
+    
+    public int size() {
+      return offHeapMap.size();
+    }
+    
+    public InterruptibleIterator skvIterator() {
+      return (InterruptibleIterator) offHeapMap.skvIterator();
+    }
+    
+    public void delete() {
+      offHeapMap.delete();
+    }
+    
+    public long getMemoryUsed() {
+      return offHeapMap.getMemoryUsed();
+    }
+    
+    @Override
+    public void mutate(List<Mutation> mutations, int kvCount) {
+      offHeapMap.mutate(mutations, kvCount);
+    }
+  }
+  
+  /**
+   * Spreads rows across independently synchronized maps so that writers to different rows of a hot tablet do not contend on a single map. Scans merge the
+   * partitions back into one sorted view.
+   */
+  private static class PartitionedMap implements SimpleMap {
+    private SimpleMap[] partitions;
+    
+    PartitionedMap(SimpleMap[] partitions) {
+      this.partitions = partitions;
+    }
+    
+    private int partition(byte[] row, int len) {
+      return (WritableComparator.hashBytes(row, len) & Integer.MAX_VALUE) % partitions.length;
+    }
+    
+    public Value get(Key key) {
+      ByteSequence row = key.getRowData();
+      return partitions[partition(row.toArray(), row.length())].get(key);
+    }
+    
+    public Iterator<Entry<Key,Value>> iterator(Key startKey) {
+      List<Iterator<Entry<Key,Value>>> iters = new ArrayList<Iterator<Entry<Key,Value>>>(partitions.length);
+      for (SimpleMap partition : partitions)
+        iters.add(partition.iterator(startKey));
+      return new MergedIterator(iters);
+    }
+    
+    public int size() {
+      int size = 0;
+      for (SimpleMap partition : partitions)
+        size += partition.size();
+      return size;
+    }
+    
+    public InterruptibleIterator skvIterator() {
+      List<InterruptibleIterator> iters = new ArrayList<InterruptibleIterator>(partitions.length);
+      for (SimpleMap partition : partitions)
+        iters.add(partition.skvIterator());
+      return new PartitionedMapIterator(iters);
+    }
+    
+    public void delete() {
+      for (SimpleMap partition : partitions)
+        partition.delete();
+    }
+    
+    public long getMemoryUsed() {
+      long memoryUsed = 0;
+      for (SimpleMap partition : partitions)
+        memoryUsed += partition.getMemoryUsed();
+      return memoryUsed;
+    }
+    
+    @Override
+    public void mutate(List<Mutation> mutations, int kvCount) {
+      // group the mutations by partition, keeping their relative order so that a later update to a key in this batch still gets a higher kvCount
+      @SuppressWarnings({"unchecked", "rawtypes"})
+      List<Mutation>[] groups = new List[partitions.length];
+      int[] groupKVs = new int[partitions.length];
+      for (Mutation m : mutations) {
+        int p = partition(m.getRow(), m.getRow().length);
+        if (groups[p] == null)
+          groups[p] = new ArrayList<Mutation>();
+        groups[p].add(m);
+        groupKVs[p] += m.size();
+      }
+      
+      // each group gets its own contiguous range of the kvCounts allocated for this batch
+      for (int p = 0; p < partitions.length; p++) {
+        if (groups[p] != null) {
+          partitions[p].mutate(groups[p], kvCount);
+          kvCount += groupKVs[p];
+        }
+      }
+    }
+  }
+  
+  private static class MergedIterator implements Iterator<Entry<Key,Value>> {
+    
+    private static class Source {
+      Iterator<Entry<Key,Value>> iter;
+      Entry<Key,Value> top;
+    }
+    
+    private PriorityQueue<Source> heap;
+    
+    MergedIterator(List<Iterator<Entry<Key,Value>>> iters) {
+      final MemKeyComparator comparator = new MemKeyComparator();
+      heap = new PriorityQueue<Source>(Math.max(1, iters.size()), new Comparator<Source>() {
+        @Override
+        public int compare(Source s1, Source s2) {
+          return comparator.compare(s1.top.getKey(), s2.top.getKey());
+        }
+      });
+      
+      for (Iterator<Entry<Key,Value>> iter : iters) {
+        if (iter.hasNext()) {
+          Source source = new Source();
+          source.iter = iter;
+          source.top = iter.next();
+          heap.add(source);
+        }
+      }
+    }
+    
+    @Override
+    public boolean hasNext() {
+      return !heap.isEmpty();
+    }
+    
+    @Override
+    public Entry<Key,Value> next() {
+      Source source = heap.poll();
+      if (source == null)
+        throw new NoSuchElementException();
+      
+      Entry<Key,Value> ret = source.top;
+      if (source.iter.hasNext()) {
+        source.top = source.iter.next();
+        heap.add(source);
+      }
+      return ret;
+    }
+    
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+  
+  private static class PartitionedMapIterator extends WrappingIterator implements InterruptibleIterator {
+    private List<InterruptibleIterator> partitions;
+    
+    PartitionedMapIterator(List<InterruptibleIterator> partitions) {
+      this.partitions = partitions;
+      setSource(new MultiIterator(new ArrayList<SortedKeyValueIterator<Key,Value>>(partitions), false));
+    }
+    
+    @Override
+    public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+      List<InterruptibleIterator> copies = new ArrayList<InterruptibleIterator>(partitions.size());
+      for (InterruptibleIterator partition : partitions)
+        copies.add((InterruptibleIterator) partition.deepCopy(env));
+      return new PartitionedMapIterator(copies);
+    }
+    
+    @Override
+    public void setInterruptFlag(AtomicBoolean flag) {
+      for (InterruptibleIterator partition : partitions)
+        partition.setInterruptFlag(flag);
+    }
+  }
+  
   private AtomicInteger nextKVCount = new AtomicInteger(1);
   private AtomicInteger kvCount = new AtomicInteger(0);
   
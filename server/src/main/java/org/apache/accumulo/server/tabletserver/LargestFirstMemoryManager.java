@@ -78,7 +78,7 @@ public class LargestFirstMemoryManager implements MemoryManager {
     int numWaitingMincs = 0;
     long idleTime;
     long tml;
-    long ct = System.currentTimeMillis();
+    long ct = currentTimeMillis();
     
     long largestMemTableIdleTime = -1, largestMemTableSize = -1;
     long largestIdleMemTableIdleTime = -1, largestIdleMemTableSize = -1;
@@ -101,7 +101,7 @@ public class LargestFirstMemoryManager implements MemoryManager {
         }
         Text tableId = ts.getExtent().getTableId();
         if (!mincIdleThresholds.containsKey(tableId))
-          mincIdleThresholds.put(tableId, config.getTableConfiguration(tableId.toString()).getTimeInMillis(Property.TABLE_MINC_COMPACT_IDLETIME));
+          mincIdleThresholds.put(tableId, getMincIdleThreshold(tableId));
         if (idleTime > mincIdleThresholds.get(tableId) && tml > largestIdleMemTableLoad) {
           largestIdleMemTableLoad = tml;
           largestIdleMemTablet = ts.getExtent();
@@ -185,6 +185,14 @@ public class LargestFirstMemoryManager implements MemoryManager {
   @Override
   public void tabletClosed(KeyExtent extent) {}
   
+  long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+  
+  long getMincIdleThreshold(Text tableId) {
+    return config.getTableConfiguration(tableId.toString()).getTimeInMillis(Property.TABLE_MINC_COMPACT_IDLETIME);
+  }
+  
   static long timeMemoryLoad(long mem, long time) {
     double minutesIdle = time / 60000.0;
     
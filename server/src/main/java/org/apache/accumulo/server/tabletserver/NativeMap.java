@@ -18,7 +18,10 @@ package org.apache.accumulo.server.tabletserver;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -71,9 +74,7 @@ public class NativeMap implements Iterable<Map.Entry<Key,Value>> {
   
   private static native void singleUpdate(long nmPointer, byte[] row, byte cf[], byte cq[], byte cv[], long ts, boolean del, byte[] value, int mutationCount);
   
-  private static native long startUpdate(long nmPointer, byte[] row);
-  
-  private static native void update(long nmPointer, long updateID, byte cf[], byte cq[], byte cv[], long ts, boolean del, byte[] value, int mutationCount);
+  private static native void mutateBatch(long nmPointer, ByteBuffer batch, int length, int mutationCount);
   
   private static native int sizeNM(long nmPointer);
   
@@ -161,17 +162,78 @@ public class NativeMap implements Iterable<Map.Entry<Key,Value>> {
     return loadedNativeLibraries;
   }
   
-  private static native long createNMI(long nmp, int fieldLens[]);
+  private static native long createNMI(long nmp, byte[] row, byte cf[], byte cq[], byte cv[], long ts, boolean del);
   
-  private static native long createNMI(long nmp, byte[] row, byte cf[], byte cq[], byte cv[], long ts, boolean del, int fieldLens[]);
+  private static native int nmiFill(long nmiPointer, ByteBuffer batch, int maxEntries, int maxBytes);
   
-  private static native boolean nmiNext(long nmiPointer, int fieldLens[]);
+  private static native void deleteNMI(long nmiPointer);
   
-  private static native void nmiGetData(long nmiPointer, byte[] row, byte cf[], byte cq[], byte cv[], byte[] valData);
+  // Mutations and key values cross into and out of native code in batches through a direct buffer, this avoids a JNI call per field. A batch of mutations
+  // is a sequence of (int row length, row, int update count, updates) and each update is (int length, column family, int length, column qualifier, int
+  // length, column visibility, long timestamp, byte deleted, int length, value). A batch of key values starts with an int that is 1 when the native
+  // iterator has more data and an int that is the buffer size needed when the next key value did not fit. Each key value is (int row length or -1 when the
+  // row is the same as the previous key value in the batch, row, column family, column qualifier and column visibility as above, long timestamp, byte
+  // deleted, int mutation count, int length, value). All numbers are in native byte order.
   
-  private static native long nmiGetTS(long nmiPointer);
+  private static final int INITIAL_BATCH_SIZE = 1 << 13;
   
-  private static native void deleteNMI(long nmiPointer);
+  // the amount of mutation data to apply per write lock acquisition
+  private static final int MAX_MUTATION_BATCH_SIZE = 1 << 15;
+  
+  // the largest buffer kept per thread, so a thread that once handled a large mutation or key value does not hold on to that much direct memory
+  static final int MAX_CACHED_BATCH_SIZE = 1 << 17;
+  
+  private static final ThreadLocal<ByteBuffer> batchBuffers = new ThreadLocal<ByteBuffer>();
+  
+  static ByteBuffer getBatchBuffer(int minSize) {
+    if (minSize > MAX_CACHED_BATCH_SIZE)
+      return ByteBuffer.allocateDirect(minSize).order(ByteOrder.nativeOrder());
+    
+    ByteBuffer buffer = batchBuffers.get();
+    if (buffer == null || buffer.capacity() < minSize) {
+      int size = buffer == null ? INITIAL_BATCH_SIZE : buffer.capacity();
+      while (size < minSize)
+        size *= 2;
+      buffer = ByteBuffer.allocateDirect(Math.min(size, MAX_CACHED_BATCH_SIZE)).order(ByteOrder.nativeOrder());
+      batchBuffers.set(buffer);
+    }
+    
+    buffer.clear();
+    return buffer;
+  }
+  
+  static int serializedSize(Mutation mutation) {
+    int size = 8 + mutation.getRow().length;
+    for (ColumnUpdate update : mutation.getUpdates()) {
+      size += 25 + update.getColumnFamily().length + update.getColumnQualifier().length + update.getColumnVisibility().length + update.getValue().length;
+    }
+    return size;
+  }
+  
+  private static void putField(ByteBuffer buffer, byte[] field) {
+    buffer.putInt(field.length);
+    buffer.put(field);
+  }
+  
+  static void serialize(Mutation mutation, ByteBuffer buffer) {
+    putField(buffer, mutation.getRow());
+    List<ColumnUpdate> updates = mutation.getUpdates();
+    buffer.putInt(updates.size());
+    for (ColumnUpdate update : updates) {
+      putField(buffer, update.getColumnFamily());
+      putField(buffer, update.getColumnQualifier());
+      putField(buffer, update.getColumnVisibility());
+      buffer.putLong(update.getTimestamp());
+      buffer.put((byte) (update.isDeleted() ? 1 : 0));
+      putField(buffer, update.getValue());
+    }
+  }
+  
+  private static byte[] getField(ByteBuffer buffer, int len) {
+    byte[] field = new byte[len];
+    buffer.get(field);
+    return field;
+  }
   
   private class ConcurrentIterator implements Iterator<Map.Entry<Key,Value>> {
     
@@ -195,7 +257,7 @@ public class NativeMap implements Iterable<Map.Entry<Key,Value>> {
       this(new MemKey());
     }
     
-    @SuppressWarnings("unchecked")
+    @SuppressWarnings({"unchecked", "rawtypes"})
     ConcurrentIterator(Key key) {
       // start off with a small read ahead
       nextEntries = new Entry[1];
@@ -210,7 +272,7 @@ public class NativeMap implements Iterable<Map.Entry<Key,Value>> {
     }
     
     // it is assumed the read lock is held when this method is called
-    @SuppressWarnings("unchecked")
+    @SuppressWarnings({"unchecked", "rawtypes"})
     private void fill() {
       end = 0;
       index = 0;
@@ -218,20 +280,11 @@ public class NativeMap implements Iterable<Map.Entry<Key,Value>> {
       if (source.hasNext())
         source.doNextPreCheck();
       
-      int amountRead = 0;
-      
       // as we keep filling, increase the read ahead buffer
       if (nextEntries.length < MAX_READ_AHEAD_ENTRIES)
         nextEntries = new Entry[Math.min(nextEntries.length * 2, MAX_READ_AHEAD_ENTRIES)];
       
-      while (source.hasNext() && end < nextEntries.length) {
-        Entry<Key,Value> ne = source.next();
-        nextEntries[end++] = ne;
-        amountRead += ne.getKey().getSize() + ne.getValue().getSize();
-        
-        if (amountRead > READ_AHEAD_BYTES)
-          break;
-      }
+      end = source.fill(nextEntries, READ_AHEAD_BYTES);
     }
     
     @Override
@@ -293,8 +346,9 @@ public class NativeMap implements Iterable<Map.Entry<Key,Value>> {
     private long nmiPointer;
     private boolean hasNext;
     private int expectedModCount;
-    private int[] fieldsLens = new int[7];
-    private byte lastRow[];
+    
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Entry<Key,Value> single[] = new Entry[1];
     
     // it is assumed the read lock is held when this method is called
     NMIterator(Key key) {
@@ -306,7 +360,7 @@ public class NativeMap implements Iterable<Map.Entry<Key,Value>> {
       expectedModCount = modCount;
       
       nmiPointer = createNMI(nmPointer, key.getRowData().toArray(), key.getColumnFamilyData().toArray(), key.getColumnQualifierData().toArray(), key
-          .getColumnVisibilityData().toArray(), key.getTimestamp(), key.isDeleted(), fieldsLens);
+          .getColumnVisibilityData().toArray(), key.getTimestamp(), key.isDeleted());
       
       hasNext = nmiPointer != 0;
     }
@@ -342,41 +396,64 @@ public class NativeMap implements Iterable<Map.Entry<Key,Value>> {
       }
     }
     
-    @Override
+    /**
+     * Reads up to entries.length key values with a single call into native code, stopping early once more than maxBytes of key value data has been read.
+     * 
+     * @return the number of entries read
+     */
     // It is assumed that this method is called w/ the read lock held and
     // that doNextPreCheck() is called prior to calling this method
     // also this method is synchronized to ensure that a deleted iterator
     // is not used
-    public synchronized Entry<Key,Value> next() {
+    synchronized int fill(Entry<Key,Value> entries[], int maxBytes) {
       if (!hasNext) {
-        throw new NoSuchElementException();
+        return 0;
       }
       
       if (nmiPointer == 0) {
         throw new IllegalStateException("Native Map Iterator Deleted");
       }
       
-      byte[] row = null;
-      if (fieldsLens[0] >= 0) {
-        row = new byte[fieldsLens[0]];
-        lastRow = row;
+      ByteBuffer buffer = getBatchBuffer(0);
+      int count = nmiFill(nmiPointer, buffer, entries.length, maxBytes);
+      if (count == 0) {
+        // the next key value was larger than the buffer
+        buffer = getBatchBuffer(buffer.getInt(4));
+        count = nmiFill(nmiPointer, buffer, entries.length, maxBytes);
       }
       
-      byte cf[] = new byte[fieldsLens[1]];
-      byte cq[] = new byte[fieldsLens[2]];
-      byte cv[] = new byte[fieldsLens[3]];
-      boolean deleted = fieldsLens[4] == 0 ? false : true;
-      byte val[] = new byte[fieldsLens[5]];
+      hasNext = buffer.getInt(0) != 0;
+      buffer.position(8);
       
-      nmiGetData(nmiPointer, row, cf, cq, cv, val);
-      long ts = nmiGetTS(nmiPointer);
-      
-      Key k = new MemKey(lastRow, cf, cq, cv, ts, deleted, false, fieldsLens[6]);
-      Value v = new Value(val, false);
+      byte[] row = null;
+      for (int i = 0; i < count; i++) {
+        int rowLen = buffer.getInt();
+        if (rowLen >= 0)
+          row = getField(buffer, rowLen);
+        byte cf[] = getField(buffer, buffer.getInt());
+        byte cq[] = getField(buffer, buffer.getInt());
+        byte cv[] = getField(buffer, buffer.getInt());
+        long ts = buffer.getLong();
+        boolean deleted = buffer.get() != 0;
+        int mc = buffer.getInt();
+        byte val[] = getField(buffer, buffer.getInt());
+        
+        entries[i] = new NMEntry(new MemKey(row, cf, cq, cv, ts, deleted, false, mc), new Value(val, false));
+      }
       
-      hasNext = nmiNext(nmiPointer, fieldsLens);
+      return count;
+    }
+    
+    @Override
+    // It is assumed that this method is called w/ the read lock held and
+    // that doNextPreCheck() is called prior to calling this method
+    public Entry<Key,Value> next() {
+      if (!hasNext) {
+        throw new NoSuchElementException();
+      }
       
-      return new NMEntry(k, v);
+      fill(single, 0);
+      return single[0];
     }
     
     @Override
@@ -442,42 +519,25 @@ public class NativeMap implements Iterable<Map.Entry<Key,Value>> {
     }
   }
   
-  private void _mutate(Mutation mutation, int mutationCount) {
-    
-    List<ColumnUpdate> updates = mutation.getUpdates();
-    if (updates.size() == 1) {
-      ColumnUpdate update = updates.get(0);
-      singleUpdate(nmPointer, mutation.getRow(), update.getColumnFamily(), update.getColumnQualifier(), update.getColumnVisibility(), update.getTimestamp(),
-          update.isDeleted(), update.getValue(), mutationCount);
-    } else if (updates.size() > 1) {
-      long uid = startUpdate(nmPointer, mutation.getRow());
-      for (ColumnUpdate update : updates) {
-        update(nmPointer, uid, update.getColumnFamily(), update.getColumnQualifier(), update.getColumnVisibility(), update.getTimestamp(), update.isDeleted(),
-            update.getValue(), mutationCount);
-      }
-      
-    }
-  }
-  
   public void mutate(Mutation mutation, int mutationCount) {
-    wlock.lock();
-    try {
-      if (nmPointer == 0) {
-        throw new IllegalStateException("Native Map Deleted");
-      }
-      
-      modCount++;
-      
-      _mutate(mutation, mutationCount);
-    } finally {
-      wlock.unlock();
-    }
+    mutate(Collections.singletonList(mutation), mutationCount);
   }
   
   public void mutate(List<Mutation> mutations, int mutationCount) {
-    Iterator<Mutation> iter = mutations.iterator();
+    int index = 0;
     
-    while (iter.hasNext()) {
+    while (index < mutations.size()) {
+      
+      // serialize a batch of mutations before acquiring the lock, a single mutation may exceed the batch size
+      ByteBuffer buffer = getBatchBuffer(Math.max(MAX_MUTATION_BATCH_SIZE, serializedSize(mutations.get(index))));
+      int count = 0;
+      while (index + count < mutations.size()) {
+        Mutation mutation = mutations.get(index + count);
+        if (count > 0 && (buffer.position() + serializedSize(mutation) > MAX_MUTATION_BATCH_SIZE))
+          break;
+        serialize(mutation, buffer);
+        count++;
+      }
       
       wlock.lock();
       try {
@@ -487,16 +547,13 @@ public class NativeMap implements Iterable<Map.Entry<Key,Value>> {
         
         modCount++;
         
-        int count = 0;
-        while (iter.hasNext() && count < 10) {
-          Mutation mutation = iter.next();
-          _mutate(mutation, mutationCount);
-          mutationCount++;
-          count += mutation.size();
-        }
+        mutateBatch(nmPointer, buffer, buffer.position(), mutationCount);
       } finally {
         wlock.unlock();
       }
+      
+      index += count;
+      mutationCount += count;
     }
   }
   
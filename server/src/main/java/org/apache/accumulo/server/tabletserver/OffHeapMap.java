@@ -0,0 +1,613 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.server.tabletserver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.ColumnUpdate;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.IterationInterruptedException;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.system.InterruptibleIterator;
+import org.apache.log4j.Logger;
+
+/**
+ * A sorted map of key value pairs written in pure Java that keeps its data outside of the Java heap. Like {@link NativeMap}, it avoids the GC overhead of
+ * holding a large number of small objects on the heap, but it does not require a native library.
+ * 
+ * Keys and values are written into direct byte buffers that are allocated in chunks. The records are linked together into a skip list whose forward
+ * pointers are also stored in the off heap records, so the only objects on the heap are the chunks themselves. Records are never removed or moved once
+ * written, the whole map is freed at once when it is deleted.
+ * 
+ * Like {@link NativeMap}, keys are ordered by key and then by descending kvCount and are returned as {@link MemKey}s.
+ */
+public class OffHeapMap {
+  
+  private static final Logger log = Logger.getLogger(OffHeapMap.class);
+  
+  private static final int MAX_LEVEL = 24;
+  private static final long NIL = -1;
+  
+  static final int MIN_CHUNK_SIZE = 1 << 16;
+  static final int MAX_CHUNK_SIZE = 1 << 20;
+  
+  // record layout : level byte, a next pointer for each level, kvCount int, timestamp long, deleted byte, five field lengths and then the field data
+  private static final int FIXED_FIELDS_SIZE = 4 + 8 + 1 + 5 * 4;
+  
+  private ReentrantReadWriteLock rwLock;
+  private Lock rlock;
+  private Lock wlock;
+  
+  private ArrayList<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+  private int allocChunk = -1;
+  private int nextChunkSize = MIN_CHUNK_SIZE;
+  private long memoryAllocated = 0;
+  
+  private final long[] head = new long[MAX_LEVEL];
+  private int level = 1;
+  private int size = 0;
+  private long seed = System.nanoTime() | 1;
+  
+  public OffHeapMap() {
+    rwLock = new ReentrantReadWriteLock();
+    rlock = rwLock.readLock();
+    wlock = rwLock.writeLock();
+    
+    for (int i = 0; i < MAX_LEVEL; i++)
+      head[i] = NIL;
+  }
+  
+  private static int chunkIndex(long addr) {
+    return (int) (addr >>> 32);
+  }
+  
+  private static int chunkOffset(long addr) {
+    return (int) addr;
+  }
+  
+  // it is assumed the read or write lock is held when this method is called
+  private long getNext(long addr, int lvl) {
+    if (addr == NIL)
+      return head[lvl];
+    return chunks.get(chunkIndex(addr)).getLong(chunkOffset(addr) + 1 + 8 * lvl);
+  }
+  
+  // it is assumed the write lock is held when this method is called
+  private void setNext(long addr, int lvl, long next) {
+    if (addr == NIL)
+      head[lvl] = next;
+    else
+      chunks.get(chunkIndex(addr)).putLong(chunkOffset(addr) + 1 + 8 * lvl, next);
+  }
+  
+  private static int compareBytes(ByteBuffer chunk, int offset, int len, ByteSequence bs) {
+    byte[] ba = bs.getBackingArray();
+    int baOff = bs.offset();
+    int baLen = bs.length();
+    int min = Math.min(len, baLen);
+    for (int i = 0; i < min; i++) {
+      int a = chunk.get(offset + i) & 0xff;
+      int b = ba[baOff + i] & 0xff;
+      if (a != b)
+        return a - b;
+    }
+    return len - baLen;
+  }
+  
+  /**
+   * Compares the record at the given address to a key, using the same ordering as {@link MemKeyComparator}.
+   */
+  private int compare(long addr, Key key, int kvCount) {
+    ByteBuffer chunk = chunks.get(chunkIndex(addr));
+    int offset = chunkOffset(addr);
+    int fixed = offset + 1 + 8 * chunk.get(offset);
+    
+    int pos = fixed + FIXED_FIELDS_SIZE;
+    int lenPos = fixed + 13;
+    
+    int cmp = 0;
+    ByteSequence[] fields = {key.getRowData(), key.getColumnFamilyData(), key.getColumnQualifierData(), key.getColumnVisibilityData()};
+    for (int i = 0; i < fields.length; i++) {
+      int len = chunk.getInt(lenPos + 4 * i);
+      cmp = compareBytes(chunk, pos, len, fields[i]);
+      if (cmp != 0)
+        return cmp;
+      pos += len;
+    }
+    
+    long ts = chunk.getLong(fixed + 4);
+    if (ts < key.getTimestamp())
+      return 1;
+    else if (ts > key.getTimestamp())
+      return -1;
+    
+    boolean deleted = chunk.get(fixed + 12) != 0;
+    if (deleted != key.isDeleted())
+      return deleted ? -1 : 1;
+    
+    int recordKVCount = chunk.getInt(fixed);
+    return recordKVCount == kvCount ? 0 : (recordKVCount > kvCount ? -1 : 1);
+  }
+  
+  private static int kvCount(Key key) {
+    // a plain key sorts before any mem key that has the same fields
+    if (key instanceof MemKey)
+      return ((MemKey) key).kvCount;
+    return Integer.MAX_VALUE;
+  }
+  
+  /**
+   * Finds the first record greater than or equal to the given key. When preds is not null, it is filled with the last record at each level that is less than
+   * the key.
+   */
+  // it is assumed the read or write lock is held when this method is called
+  private long seek(Key key, int kvCount, long[] preds) {
+    long pred = NIL;
+    long next = NIL;
+    for (int lvl = level - 1; lvl >= 0; lvl--) {
+      next = getNext(pred, lvl);
+      while (next != NIL && compare(next, key, kvCount) < 0) {
+        pred = next;
+        next = getNext(pred, lvl);
+      }
+      if (preds != null)
+        preds[lvl] = pred;
+    }
+    return next;
+  }
+  
+  private int randomLevel() {
+    // xorshift, only called while the write lock is held
+    seed ^= seed << 13;
+    seed ^= seed >>> 7;
+    seed ^= seed << 17;
+    
+    int lvl = 1;
+    long bits = seed;
+    while (lvl < MAX_LEVEL && (bits & 3) == 0) {
+      lvl++;
+      bits >>>= 2;
+    }
+    return lvl;
+  }
+  
+  // it is assumed the write lock is held when this method is called
+  private long allocate(int len) {
+    if (len > MAX_CHUNK_SIZE) {
+      // large records get a chunk of their own
+      ByteBuffer chunk = ByteBuffer.allocateDirect(len);
+      chunks.add(chunk);
+      memoryAllocated += len;
+      chunk.position(len);
+      return ((long) (chunks.size() - 1)) << 32;
+    }
+    
+    if (allocChunk < 0 || chunks.get(allocChunk).remaining() < len) {
+      // a record larger than the next chunk size, but not large enough for a chunk of its own, still has to fit in the new chunk
+      int size = Math.max(nextChunkSize, len);
+      ByteBuffer chunk = ByteBuffer.allocateDirect(size);
+      chunks.add(chunk);
+      memoryAllocated += size;
+      allocChunk = chunks.size() - 1;
+      nextChunkSize = Math.min(nextChunkSize * 2, MAX_CHUNK_SIZE);
+    }
+    
+    ByteBuffer chunk = chunks.get(allocChunk);
+    int offset = chunk.position();
+    chunk.position(offset + len);
+    return (((long) allocChunk) << 32) | offset;
+  }
+  
+  private static void put(ByteBuffer chunk, int offset, byte[] data) {
+    ByteBuffer dup = chunk.duplicate();
+    dup.position(offset);
+    dup.put(data);
+  }
+  
+  // it is assumed the write lock is held when this method is called
+  private void put(byte[] row, ColumnUpdate cu, int kvCount, long[] preds) {
+    byte[] cf = cu.getColumnFamily();
+    byte[] cq = cu.getColumnQualifier();
+    byte[] cv = cu.getColumnVisibility();
+    byte[] val = cu.getValue();
+    
+    Key key = new Key(row, cf, cq, cv, cu.getTimestamp(), cu.isDeleted(), false);
+    seek(key, kvCount, preds);
+    
+    int lvl = randomLevel();
+    if (lvl > level) {
+      for (int i = level; i < lvl; i++)
+        preds[i] = NIL;
+      level = lvl;
+    }
+    
+    int len = 1 + 8 * lvl + FIXED_FIELDS_SIZE + row.length + cf.length + cq.length + cv.length + val.length;
+    long addr = allocate(len);
+    ByteBuffer chunk = chunks.get(chunkIndex(addr));
+    int offset = chunkOffset(addr);
+    
+    chunk.put(offset, (byte) lvl);
+    int fixed = offset + 1 + 8 * lvl;
+    chunk.putInt(fixed, kvCount);
+    chunk.putLong(fixed + 4, cu.getTimestamp());
+    chunk.put(fixed + 12, (byte) (cu.isDeleted() ? 1 : 0));
+    chunk.putInt(fixed + 13, row.length);
+    chunk.putInt(fixed + 17, cf.length);
+    chunk.putInt(fixed + 21, cq.length);
+    chunk.putInt(fixed + 25, cv.length);
+    chunk.putInt(fixed + 29, val.length);
+    
+    int pos = fixed + FIXED_FIELDS_SIZE;
+    put(chunk, pos, row);
+    pos += row.length;
+    put(chunk, pos, cf);
+    pos += cf.length;
+    put(chunk, pos, cq);
+    pos += cq.length;
+    put(chunk, pos, cv);
+    pos += cv.length;
+    put(chunk, pos, val);
+    
+    // link the record in from the bottom up
+    for (int i = 0; i < lvl; i++) {
+      setNext(addr, i, getNext(preds[i], i));
+      setNext(preds[i], i, addr);
+    }
+    
+    size++;
+  }
+  
+  private static byte[] get(ByteBuffer chunk, int offset, int len) {
+    byte[] data = new byte[len];
+    ByteBuffer dup = chunk.duplicate();
+    dup.position(offset);
+    dup.get(data);
+    return data;
+  }
+  
+  // it is assumed the read lock is held when this method is called
+  private Entry<Key,Value> readEntry(long addr) {
+    ByteBuffer chunk = chunks.get(chunkIndex(addr));
+    int offset = chunkOffset(addr);
+    int fixed = offset + 1 + 8 * chunk.get(offset);
+    
+    int pos = fixed + FIXED_FIELDS_SIZE;
+    byte[][] fields = new byte[5][];
+    for (int i = 0; i < fields.length; i++) {
+      int len = chunk.getInt(fixed + 13 + 4 * i);
+      fields[i] = get(chunk, pos, len);
+      pos += len;
+    }
+    
+    MemKey key = new MemKey(fields[0], fields[1], fields[2], fields[3], chunk.getLong(fixed + 4), chunk.get(fixed + 12) != 0, false, chunk.getInt(fixed));
+    return new SimpleImmutableEntry<Key,Value>(key, new Value(fields[4], false));
+  }
+  
+  // it is assumed the read lock is held when this method is called
+  private int entrySize(long addr) {
+    ByteBuffer chunk = chunks.get(chunkIndex(addr));
+    int offset = chunkOffset(addr);
+    int fixed = offset + 1 + 8 * chunk.get(offset);
+    int total = 0;
+    for (int i = 0; i < 5; i++)
+      total += chunk.getInt(fixed + 13 + 4 * i);
+    return total;
+  }
+  
+  private void checkNotDeleted() {
+    if (chunks == null)
+      throw new IllegalStateException("Off heap map deleted");
+  }
+  
+  public void mutate(List<Mutation> mutations, int kvCount) {
+    wlock.lock();
+    try {
+      checkNotDeleted();
+      
+      long[] preds = new long[MAX_LEVEL];
+      for (Mutation m : mutations) {
+        byte[] row = m.getRow();
+        for (ColumnUpdate cu : m.getUpdates()) {
+          put(row, cu, kvCount++, preds);
+        }
+      }
+    } finally {
+      wlock.unlock();
+    }
+  }
+  
+  public Value get(Key key) {
+    rlock.lock();
+    try {
+      checkNotDeleted();
+      
+      long addr = seek(key, kvCount(key), null);
+      if (addr != NIL) {
+        Entry<Key,Value> entry = readEntry(addr);
+        if (entry.getKey().equals(key))
+          return entry.getValue();
+      }
+      
+      return null;
+    } finally {
+      rlock.unlock();
+    }
+  }
+  
+  public int size() {
+    rlock.lock();
+    try {
+      checkNotDeleted();
+      return size;
+    } finally {
+      rlock.unlock();
+    }
+  }
+  
+  public long getMemoryUsed() {
+    rlock.lock();
+    try {
+      checkNotDeleted();
+      return memoryAllocated;
+    } finally {
+      rlock.unlock();
+    }
+  }
+  
+  public Iterator<Map.Entry<Key,Value>> iterator() {
+    return iterator(new MemKey());
+  }
+  
+  public Iterator<Map.Entry<Key,Value>> iterator(Key startKey) {
+    rlock.lock();
+    try {
+      checkNotDeleted();
+      return new ConcurrentIterator(startKey);
+    } finally {
+      rlock.unlock();
+    }
+  }
+  
+  public void delete() {
+    wlock.lock();
+    try {
+      checkNotDeleted();
+      
+      log.debug(String.format("Releasing off heap map with %,d bytes in %d chunks", memoryAllocated, chunks.size()));
+      // direct buffers are freed when they are garbage collected
+      chunks = null;
+    } finally {
+      wlock.unlock();
+    }
+  }
+  
+  private class ConcurrentIterator implements Iterator<Map.Entry<Key,Value>> {
+    
+    // read a batch of entries each time the read lock is acquired, for the same reasons as NativeMap
+    private static final int MAX_READ_AHEAD_ENTRIES = 16;
+    private static final int READ_AHEAD_BYTES = 4096;
+    
+    // the last record read, records are never moved or removed so this stays valid while the map is not deleted
+    private long cursor;
+    
+    private Entry<Key,Value> nextEntries[];
+    private int index;
+    private int end;
+    
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    ConcurrentIterator(Key key) {
+      // start off with a small read ahead
+      nextEntries = new Entry[1];
+      
+      rlock.lock();
+      try {
+        long first = seek(key, kvCount(key), null);
+        if (first == NIL) {
+          end = 0;
+        } else {
+          nextEntries[0] = readEntry(first);
+          cursor = first;
+          end = 1;
+        }
+      } finally {
+        rlock.unlock();
+      }
+    }
+    
+    // it is assumed the read lock is held when this method is called
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void fill() {
+      checkNotDeleted();
+      
+      end = 0;
+      index = 0;
+      
+      // as we keep filling, increase the read ahead buffer
+      if (nextEntries.length < MAX_READ_AHEAD_ENTRIES)
+        nextEntries = new Entry[Math.min(nextEntries.length * 2, MAX_READ_AHEAD_ENTRIES)];
+      
+      int amountRead = 0;
+      long next = getNext(cursor, 0);
+      while (next != NIL && end < nextEntries.length) {
+        nextEntries[end++] = readEntry(next);
+        cursor = next;
+        amountRead += entrySize(next);
+        
+        if (amountRead > READ_AHEAD_BYTES)
+          break;
+        
+        next = getNext(cursor, 0);
+      }
+    }
+    
+    @Override
+    public boolean hasNext() {
+      return end != 0;
+    }
+    
+    @Override
+    public Entry<Key,Value> next() {
+      if (end == 0) {
+        throw new NoSuchElementException();
+      }
+      
+      Entry<Key,Value> ret = nextEntries[index++];
+      
+      if (index == end) {
+        rlock.lock();
+        try {
+          fill();
+        } finally {
+          rlock.unlock();
+        }
+      }
+      
+      return ret;
+    }
+    
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+  
+  private static class OHMSKVIter implements InterruptibleIterator {
+    
+    private ConcurrentIterator iter;
+    private Entry<Key,Value> entry;
+    
+    private OffHeapMap map;
+    private Range range;
+    private AtomicBoolean interruptFlag;
+    private int interruptCheckCount = 0;
+    
+    private OHMSKVIter(OffHeapMap map, AtomicBoolean interruptFlag) {
+      this.map = map;
+      this.range = new Range();
+      iter = (ConcurrentIterator) map.iterator();
+      if (iter.hasNext())
+        entry = iter.next();
+      else
+        entry = null;
+      
+      this.interruptFlag = interruptFlag;
+    }
+    
+    public OHMSKVIter(OffHeapMap map) {
+      this(map, null);
+    }
+    
+    @Override
+    public Key getTopKey() {
+      return entry.getKey();
+    }
+    
+    @Override
+    public Value getTopValue() {
+      return entry.getValue();
+    }
+    
+    @Override
+    public boolean hasTop() {
+      return entry != null;
+    }
+    
+    @Override
+    public void next() throws IOException {
+      
+      if (entry == null)
+        throw new IllegalStateException();
+      
+      // checking the interrupt flag for every call to next had bad a bad performance impact
+      // so check it every 100th time
+      if (interruptFlag != null && interruptCheckCount++ % 100 == 0 && interruptFlag.get())
+        throw new IterationInterruptedException();
+      
+      if (iter.hasNext()) {
+        entry = iter.next();
+        if (range.afterEndKey(entry.getKey())) {
+          entry = null;
+        }
+      } else
+        entry = null;
+      
+    }
+    
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+      
+      if (interruptFlag != null && interruptFlag.get())
+        throw new IterationInterruptedException();
+      
+      this.range = range;
+      
+      Key key = range.getStartKey();
+      if (key == null) {
+        key = new MemKey();
+      }
+      
+      iter = (ConcurrentIterator) map.iterator(key);
+      if (iter.hasNext()) {
+        entry = iter.next();
+        if (range.afterEndKey(entry.getKey())) {
+          entry = null;
+        }
+      } else
+        entry = null;
+      
+      while (hasTop() && range.beforeStartKey(getTopKey())) {
+        next();
+      }
+    }
+    
+    @Override
+    public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options, IteratorEnvironment env) throws IOException {
+      throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+      return new OHMSKVIter(map, interruptFlag);
+    }
+    
+    @Override
+    public void setInterruptFlag(AtomicBoolean flag) {
+      this.interruptFlag = flag;
+    }
+  }
+  
+  public SortedKeyValueIterator<Key,Value> skvIterator() {
+    return new OHMSKVIter(this);
+  }
+}
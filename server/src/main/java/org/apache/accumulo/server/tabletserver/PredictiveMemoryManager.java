@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.server.tabletserver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.accumulo.core.Constants;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.KeyExtent;
+import org.apache.accumulo.server.conf.ServerConfiguration;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Logger;
+
+/**
+ * A memory manager that predicts how fast each tablet's in memory map is growing and flushes tablets early enough that memory never reaches the point where
+ * commits are held.
+ * 
+ * <p>
+ * The ingest rate of each tablet is tracked with a {@link Rate} over the growth of its in memory map between calls, and the rate at which minor compactions
+ * write out memory is learned from the compactions it sees run, timed from when they leave the queue. On each call the manager projects memory use to the time
+ * a minor compaction started now would free its memory. If that projection is over the target, it flushes the tablets that will be largest by then, which
+ * favors fast growing tablets over large ones that are no longer being written to. With no memory pressure, tablets that have been idle longer than the table's
+ * idle time are flushed largest first, as {@link LargestFirstMemoryManager} does.
+ */
+public class PredictiveMemoryManager implements MemoryManager {
+  
+  private static final Logger log = Logger.getLogger(PredictiveMemoryManager.class);
+  
+  // memory use the manager aims to stay under, commits are held at 95%
+  static final double TARGET_MEMORY = 0.80;
+  // the rate a minor compaction is assumed to write out memory, in bytes per second, until some have been seen
+  static final double INITIAL_FLUSH_RATE = 10 * 1024 * 1024;
+  // how much each observation moves the ingest and flush rates
+  private static final double RATE_RATIO = 0.25;
+  
+  private static class TabletInfo {
+    final Rate rate = new Rate(RATE_RATIO);
+    long ingested = 0;
+    long lastSize = 0;
+    long lastUpdate = -1;
+    long compactionStart = -1;
+    long compactionSize = 0;
+  }
+  
+  private long maxMemory = -1;
+  private int maxConcurrentMincs;
+  private int numWaitingMultiplier;
+  private double flushRate = INITIAL_FLUSH_RATE;
+  // updated by the memory management thread and by the threads that close tablets, guarded by this
+  private final Map<KeyExtent,TabletInfo> tabletInfo = new HashMap<KeyExtent,TabletInfo>();
+  private final Map<Text,Long> mincIdleThresholds = new HashMap<Text,Long>();
+  private ServerConfiguration config = null;
+  
+  public PredictiveMemoryManager() {}
+  
+  PredictiveMemoryManager(long maxMemory, int maxConcurrentMincs, int numWaitingMultiplier) {
+    this.maxMemory = maxMemory;
+    this.maxConcurrentMincs = maxConcurrentMincs;
+    this.numWaitingMultiplier = numWaitingMultiplier;
+  }
+  
+  @Override
+  public void init(ServerConfiguration conf) {
+    this.config = conf;
+    maxMemory = conf.getConfiguration().getMemoryInBytes(Property.TSERV_MAXMEM);
+    maxConcurrentMincs = conf.getConfiguration().getCount(Property.TSERV_MINC_MAXCONCURRENT);
+    numWaitingMultiplier = Constants.TSERV_MINC_MAXCONCURRENT_NUMWAITING_MULTIPLIER;
+  }
+  
+  private TabletInfo update(TabletState ts, long now) {
+    TabletInfo info = tabletInfo.get(ts.getExtent());
+    if (info == null) {
+      info = new TabletInfo();
+      tabletInfo.put(ts.getExtent(), info);
+    }
+    
+    long mts = ts.getMemTableSize();
+    long mcmts = ts.getMinorCompactingMemTableSize();
+    
+    // when a minor compaction starts the tablet gets a new, empty, in memory map
+    info.ingested += mts >= info.lastSize ? mts - info.lastSize : mts;
+    info.lastSize = mts;
+    if (now > info.lastUpdate) {
+      info.rate.update(now, info.ingested);
+      info.lastUpdate = now;
+    }
+    
+    // learn how fast minor compactions free memory, the time a compaction spends queued behind others is not part of it
+    if (mcmts > 0 && info.compactionStart < 0 && ts.minorCompactionRunning()) {
+      info.compactionStart = now;
+      info.compactionSize = mcmts;
+    } else if (mcmts == 0 && info.compactionStart >= 0) {
+      long elapsed = now - info.compactionStart;
+      if (elapsed > 0)
+        flushRate = (1 - RATE_RATIO) * flushRate + RATE_RATIO * (info.compactionSize * 1000.0 / elapsed);
+      info.compactionStart = -1;
+    }
+    return info;
+  }
+  
+  @Override
+  public synchronized MemoryManagementActions getMemoryManagementActions(List<TabletState> tablets) {
+    if (maxMemory < 0)
+      throw new IllegalStateException("need to initialize " + getClass().getSimpleName());
+    mincIdleThresholds.clear();
+    long now = currentTimeMillis();
+    
+    long ingestMemory = 0;
+    long compactionMemory = 0;
+    double ingestRate = 0;
+    int numWaitingMincs = 0;
+    List<TabletState> candidates = new ArrayList<TabletState>();
+    Map<KeyExtent,Double> rates = new HashMap<KeyExtent,Double>();
+    
+    Set<KeyExtent> reported = new HashSet<KeyExtent>();
+    for (TabletState ts : tablets) {
+      reported.add(ts.getExtent());
+      TabletInfo info = update(ts, now);
+      double rate = Math.max(0, info.rate.rate());
+      ingestRate += rate;
+      ingestMemory += ts.getMemTableSize();
+      compactionMemory += ts.getMinorCompactingMemTableSize();
+      if (ts.getMinorCompactingMemTableSize() > 0)
+        numWaitingMincs++;
+      else if (ts.getMemTableSize() > 0) {
+        candidates.add(ts);
+        rates.put(ts.getExtent(), rate);
+      }
+    }
+    // a tablet closed while its report was being handled here is added back above, forget it once it is no longer reported
+    tabletInfo.keySet().retainAll(reported);
+    
+    MemoryManagementActions mma = new MemoryManagementActions();
+    mma.tabletsToMinorCompact = new ArrayList<KeyExtent>();
+    
+    int maxWaiting = maxConcurrentMincs * numWaitingMultiplier;
+    if (numWaitingMincs >= maxWaiting || candidates.isEmpty())
+      return mma;
+    
+    // a compaction started now frees its memory once it has waited for its share of the running compactions and been written out, by which time the
+    // running compactions have freed theirs, project memory use to then
+    long largest = 0;
+    for (TabletState ts : candidates)
+      largest = Math.max(largest, ts.getMemTableSize());
+    double horizon = ((double) compactionMemory / Math.max(1, maxConcurrentMincs) + largest) / flushRate;
+    double projected = ingestMemory + ingestRate * horizon;
+    double target = TARGET_MEMORY * maxMemory;
+    
+    Set<KeyExtent> chosen = new HashSet<KeyExtent>();
+    while (projected > target && numWaitingMincs < maxWaiting) {
+      // the tablet that will hold the most memory by the time its compaction could finish
+      TabletState best = null;
+      double bestSize = 0;
+      for (TabletState ts : candidates) {
+        if (chosen.contains(ts.getExtent()))
+          continue;
+        double size = ts.getMemTableSize() + rates.get(ts.getExtent()) * horizon;
+        if (size > bestSize) {
+          bestSize = size;
+          best = ts;
+        }
+      }
+      if (best == null)
+        break;
+      chosen.add(best.getExtent());
+      mma.tabletsToMinorCompact.add(best.getExtent());
+      numWaitingMincs++;
+      projected -= bestSize;
+      log.debug(String.format("COMPACTING %s memory %,d predicted %,.0f projected total %,.0f ingest rate %,.0f/s flush rate %,.0f/s", best.getExtent(),
+          best.getMemTableSize(), bestSize, projected + bestSize, ingestRate, flushRate));
+    }
+    
+    if (mma.tabletsToMinorCompact.isEmpty()) {
+      // no memory pressure, flush the largest tablet that has been idle too long
+      TabletState idlest = null;
+      for (TabletState ts : candidates) {
+        long idleTime = now - ts.getLastCommitTime();
+        if (ts.getLastCommitTime() > 0 && idleTime > getIdleThreshold(ts.getExtent().getTableId())
+            && (idlest == null || ts.getMemTableSize() > idlest.getMemTableSize()))
+          idlest = ts;
+      }
+      if (idlest != null) {
+        mma.tabletsToMinorCompact.add(idlest.getExtent());
+        log.debug("IDLE minor compaction chosen " + idlest.getExtent());
+      }
+    }
+    
+    return mma;
+  }
+  
+  private long getIdleThreshold(Text tableId) {
+    Long threshold = mincIdleThresholds.get(tableId);
+    if (threshold == null) {
+      threshold = getMincIdleThreshold(tableId);
+      mincIdleThresholds.put(tableId, threshold);
+    }
+    return threshold;
+  }
+  
+  @Override
+  public synchronized void tabletClosed(KeyExtent extent) {
+    tabletInfo.remove(extent);
+  }
+  
+  synchronized int getTrackedTablets() {
+    return tabletInfo.size();
+  }
+  
+  synchronized double getFlushRate() {
+    return flushRate;
+  }
+  
+  long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+  
+  long getMincIdleThreshold(Text tableId) {
+    return config.getTableConfiguration(tableId.toString()).getTimeInMillis(Property.TABLE_MINC_COMPACT_IDLETIME);
+  }
+}
@@ -76,10 +76,13 @@ import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.IteratorUtil;
 import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.system.BatchAdapter;
+import org.apache.accumulo.core.iterators.system.BatchBufferIterator;
 import org.apache.accumulo.core.iterators.system.ColumnFamilySkippingIterator;
 import org.apache.accumulo.core.iterators.system.ColumnQualifierFilter;
 import org.apache.accumulo.core.iterators.system.DeletingIterator;
 import org.apache.accumulo.core.iterators.system.InterruptibleIterator;
+import org.apache.accumulo.core.iterators.system.KeyValueBatch;
 import org.apache.accumulo.core.iterators.system.MultiIterator;
 import org.apache.accumulo.core.iterators.system.SourceSwitchingIterator;
 import org.apache.accumulo.core.iterators.system.SourceSwitchingIterator.DataSource;
@@ -1735,28 +1738,33 @@ public class Tablet {
     Key continueKey = null;
     boolean skipContinueKey = false;
     
-    boolean endOfTabletReached = false;
-    while (iter.hasTop()) {
-      
-      value = (Value) iter.getTopValue();
-      key = iter.getTopKey();
-      
-      KVEntry kvEntry = new KVEntry(key, value); // copies key and value
-      results.add(kvEntry);
-      resultSize += kvEntry.estimateMemoryUsed();
-      resultBytes += kvEntry.numBytes();
+    boolean endOfTabletReached = true;
+    KeyValueBatch kvBatch = new KeyValueBatch(Math.max(1, Math.min(num, BatchBufferIterator.DEFAULT_MAX_BATCH_SIZE)));
+    
+    readBatches: while (iter.hasTop()) {
+      // do not read further ahead than the entries and memory still wanted
+      kvBatch.clear();
+      kvBatch.setLimit(Math.max(1, Math.min(kvBatch.capacity(), num - results.size())));
+      kvBatch.setByteLimit(Math.max(1, maxResultsSize - resultSize));
+      BatchAdapter.fill(iter, kvBatch);
       
-      if (resultSize >= maxResultsSize || results.size() >= num) {
-        continueKey = new Key(key);
-        skipContinueKey = true;
-        break;
+      for (int i = 0; i < kvBatch.size(); i++) {
+        value = kvBatch.getValue(i);
+        key = kvBatch.getKey(i);
+        
+        KVEntry kvEntry = new KVEntry(key, value); // copies key and value
+        results.add(kvEntry);
+        resultSize += kvEntry.estimateMemoryUsed();
+        resultBytes += kvEntry.numBytes();
+        
+        if (resultSize >= maxResultsSize || results.size() >= num) {
+          // anything read past this entry is dropped and read again by the next batch
+          continueKey = new Key(key);
+          skipContinueKey = true;
+          endOfTabletReached = false;
+          break readBatches;
+        }
       }
-      
-      iter.next();
-    }
-    
-    if (iter.hasTop() == false) {
-      endOfTabletReached = true;
     }
     
     Batch retBatch = new Batch();
@@ -1802,12 +1810,12 @@ public class Tablet {
   }
   
   Scanner createScanner(Range range, int num, HashSet<Column> columns, Authorizations authorizations, List<IterInfo> ssiList,
-      Map<String,Map<String,String>> ssio, boolean isolated, AtomicBoolean interruptFlag) {
+      Map<String,Map<String,String>> ssio, boolean isolated, boolean cacheBlocks, AtomicBoolean interruptFlag) {
     // do a test to see if this range falls within the tablet, if it does not
     // then clip will throw an exception
     extent.toDataRange().clip(range);
     
-    ScanOptions opts = new ScanOptions(num, authorizations, this.defaultSecurityLabel, columns, ssiList, ssio, interruptFlag, isolated);
+    ScanOptions opts = new ScanOptions(num, authorizations, this.defaultSecurityLabel, columns, ssiList, ssio, interruptFlag, isolated, cacheBlocks);
     return new Scanner(range, opts);
   }
   
@@ -1941,9 +1949,10 @@ public class Tablet {
     AtomicBoolean interruptFlag;
     int num;
     boolean isolated;
+    boolean cacheBlocks;
     
     ScanOptions(int num, Authorizations authorizations, byte[] defaultLabels, HashSet<Column> columnSet, List<IterInfo> ssiList,
-        Map<String,Map<String,String>> ssio, AtomicBoolean interruptFlag, boolean isolated) {
+        Map<String,Map<String,String>> ssio, AtomicBoolean interruptFlag, boolean isolated, boolean cacheBlocks) {
       this.num = num;
       this.authorizations = authorizations;
       this.defaultLabels = defaultLabels;
@@ -1952,6 +1961,7 @@ public class Tablet {
       this.ssio = ssio;
       this.interruptFlag = interruptFlag;
       this.isolated = isolated;
+      this.cacheBlocks = cacheBlocks;
     }
     
   }
@@ -1972,7 +1982,7 @@ public class Tablet {
     ScanDataSource(Authorizations authorizations, byte[] defaultLabels, HashSet<Column> columnSet, List<IterInfo> ssiList, Map<String,Map<String,String>> ssio,
         AtomicBoolean interruptFlag) {
       expectedDeletionCount = dataSourceDeletions.get();
-      this.options = new ScanOptions(-1, authorizations, defaultLabels, columnSet, ssiList, ssio, interruptFlag, false);
+      this.options = new ScanOptions(-1, authorizations, defaultLabels, columnSet, ssiList, ssio, interruptFlag, false, true);
       this.interruptFlag = interruptFlag;
     }
     
@@ -2033,7 +2043,7 @@ public class Tablet {
         
         // only acquire the file manager when we know the tablet is open
         if (fileManager == null) {
-          fileManager = tabletResources.newScanFileManager();
+          fileManager = tabletResources.newScanFileManager(options.cacheBlocks);
           activeScans.add(this);
         }
         
@@ -2050,7 +2060,8 @@ public class Tablet {
         files = reservation.getSecond();
       }
       
-      Collection<InterruptibleIterator> mapfiles = fileManager.openFiles(files, options.isolated);
+      long[] timestampRange = IteratorUtil.getTimestampRange(IteratorScope.scan, acuTableConf, options.ssiList, options.ssio);
+      Collection<InterruptibleIterator> mapfiles = fileManager.openFiles(files, options.isolated, timestampRange);
       
       List<SortedKeyValueIterator<Key,Value>> iters = new ArrayList<SortedKeyValueIterator<Key,Value>>(mapfiles.size() + memIters.size());
       
@@ -2074,8 +2085,13 @@ public class Tablet {
       
       VisibilityFilter visFilter = new VisibilityFilter(colFilter, options.authorizations, options.defaultLabels);
       
-      return iterEnv.getTopLevelIterator(IteratorUtil
-          .loadIterators(IteratorScope.scan, visFilter, extent, acuTableConf, options.ssiList, options.ssio, iterEnv));
+      // the system iterators above pass entries along in batches, table iterators read them one at a time from this buffer, which holds no more than a
+      // scan batch's worth of memory
+      BatchBufferIterator batchBuffer = new BatchBufferIterator(visFilter, BatchBufferIterator.DEFAULT_MAX_BATCH_SIZE,
+          Math.max(1, acuTableConf.getMemoryInBytes(Property.TABLE_SCAN_MAXMEM)));
+      
+      return iterEnv.getTopLevelIterator(IteratorUtil.loadIterators(IteratorScope.scan, batchBuffer, extent, acuTableConf, options.ssiList, options.ssio,
+          iterEnv));
     }
     
     private void close(boolean sawErrors) {
@@ -52,6 +52,7 @@ import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -184,6 +185,7 @@ import org.apache.accumulo.server.tabletserver.metrics.TabletServerMBean;
 import org.apache.accumulo.server.tabletserver.metrics.TabletServerMinCMetrics;
 import org.apache.accumulo.server.tabletserver.metrics.TabletServerScanMetrics;
 import org.apache.accumulo.server.tabletserver.metrics.TabletServerUpdateMetrics;
+import org.apache.accumulo.server.tabletserver.metrics.TabletServerUpdateMetrics.Phase;
 import org.apache.accumulo.server.trace.TraceFileSystem;
 import org.apache.accumulo.server.util.FileSystemMonitor;
 import org.apache.accumulo.server.util.Halt;
@@ -745,6 +747,11 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
     public AtomicBoolean interruptFlag;
     public Scanner scanner;
     
+    // batches read ahead for a streaming scan, ending with the last batch or the exception that stopped the scan
+    public LinkedBlockingQueue<Object> streamedBatches;
+    public volatile int streamingWindow = 0;
+    public volatile boolean streamFinished = false;
+    
     @Override
     public void cleanup() {
       try {
@@ -851,14 +858,15 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
   
   TransactionWatcher watcher = new TransactionWatcher();
   
+  // kept outside the client handler so that per table update times can be reported with the server status
+  TabletServerUpdateMetrics updateMetrics = new TabletServerUpdateMetrics();
+  
   private class ThriftClientHandler extends ClientServiceHandler implements TabletClientService.Iface {
     
     SessionManager sessionManager;
     
     AccumuloConfiguration acuConf = getSystemConfiguration();
     
-    TabletServerUpdateMetrics updateMetrics = new TabletServerUpdateMetrics();
-    
     TabletServerScanMetrics scanMetrics = new TabletServerScanMetrics();
     
     WriteTracker writeTracker = new WriteTracker();
@@ -867,6 +875,7 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
       super(instance, watcher);
       log.debug(ThriftClientHandler.class.getName() + " created");
       sessionManager = new SessionManager(getSystemConfiguration());
+      scanMetrics.setBlockCaches(resourceManager.getDataCache(), resourceManager.getIndexCache());
       // Register the metrics MBean
       try {
         updateMetrics.register();
@@ -971,6 +980,81 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
       }
     }
     
+    /**
+     * Reads batches for a streaming scan until the window granted by the client is full or the scan ends. Requests drain the batches and start the task again.
+     */
+    private class StreamBatchesTask extends ScanTask<ScanBatch> {
+      
+      private long scanID;
+      
+      StreamBatchesTask(long scanID, AtomicBoolean interruptFlag) {
+        this.scanID = scanID;
+        this.interruptFlag = interruptFlag;
+        
+        if (interruptFlag.get())
+          cancel(true);
+      }
+      
+      @Override
+      public void run() {
+        
+        final ScanSession scanSession = (ScanSession) sessionManager.getSession(scanID);
+        String oldThreadName = Thread.currentThread().getName();
+        
+        try {
+          if (isCancelled() || scanSession == null)
+            return;
+          
+          runState.set(ScanRunState.RUNNING);
+          
+          Thread.currentThread().setName(
+              "User: " + scanSession.user + " Start: " + scanSession.startTime + " Client: " + scanSession.client + " Tablet: " + scanSession.extent);
+          
+          Tablet tablet = onlineTablets.get(scanSession.extent);
+          
+          if (tablet == null) {
+            endStream(scanSession, new org.apache.accumulo.core.tabletserver.thrift.NotServingTabletException(scanSession.extent.toThrift()));
+            return;
+          }
+          
+          while (!isCancelled() && scanSession.streamedBatches.size() < scanSession.streamingWindow) {
+            long t1 = System.currentTimeMillis();
+            ScanBatch batch = scanSession.scanner.read();
+            long t2 = System.currentTimeMillis();
+            scanSession.nbTimes.addStat(t2 - t1);
+            
+            if (!batch.more) {
+              endStream(scanSession, batch);
+              break;
+            }
+            
+            scanSession.streamedBatches.add(batch);
+          }
+        } catch (TabletClosedException e) {
+          endStream(scanSession, new org.apache.accumulo.core.tabletserver.thrift.NotServingTabletException(scanSession.extent.toThrift()));
+        } catch (IterationInterruptedException iie) {
+          if (!isCancelled()) {
+            log.warn("Iteration interrupted, when scan not cancelled", iie);
+            endStream(scanSession, iie);
+          }
+        } catch (TooManyFilesException tmfe) {
+          endStream(scanSession, tmfe);
+        } catch (Throwable e) {
+          log.warn("exception while scanning tablet " + (scanSession == null ? "(unknown)" : scanSession.extent), e);
+          if (scanSession != null)
+            endStream(scanSession, e);
+        } finally {
+          runState.set(ScanRunState.FINISHED);
+          Thread.currentThread().setName(oldThreadName);
+        }
+      }
+      
+      private void endStream(ScanSession scanSession, Object last) {
+        scanSession.streamFinished = true;
+        scanSession.streamedBatches.add(last);
+      }
+    }
+    
     private class LookupTask extends ScanTask<MultiScanResult> {
       
       private long scanID;
@@ -1097,8 +1181,8 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
     
     @Override
     public InitialScan startScan(TInfo tinfo, ThriftInstanceTokenWrapper credentials, TKeyExtent textent, TRange range, List<TColumn> columns, int batchSize,
-        List<IterInfo> ssiList, Map<String,Map<String,String>> ssio, List<ByteBuffer> authorizations, boolean waitForWrites, boolean isolated)
-        throws NotServingTabletException, ThriftSecurityException, org.apache.accumulo.core.tabletserver.thrift.TooManyFilesException {
+        List<IterInfo> ssiList, Map<String,Map<String,String>> ssio, List<ByteBuffer> authorizations, boolean waitForWrites, boolean isolated,
+        boolean cacheBlocks) throws NotServingTabletException, ThriftSecurityException, org.apache.accumulo.core.tabletserver.thrift.TooManyFilesException {
       
       Authorizations userauths = null;
       InstanceTokenWrapper itw = new InstanceTokenWrapper(credentials);
@@ -1142,7 +1226,7 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
         scanSession.columnSet.add(new Column(tcolumn));
       }
       
-      scanSession.scanner = tablet.createScanner(new Range(range), batchSize, scanSession.columnSet, scanSession.auths, ssiList, ssio, isolated,
+      scanSession.scanner = tablet.createScanner(new Range(range), batchSize, scanSession.columnSet, scanSession.auths, ssiList, ssio, isolated, cacheBlocks,
           scanSession.interruptFlag);
       
       long sid = sessionManager.createSession(scanSession, true);
@@ -1161,7 +1245,7 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
     }
     
     @Override
-    public ScanResult continueScan(TInfo tinfo, long scanID) throws NoSuchScanIDException, NotServingTabletException,
+    public ScanResult continueScan(TInfo tinfo, long scanID, int window) throws NoSuchScanIDException, NotServingTabletException,
         org.apache.accumulo.core.tabletserver.thrift.TooManyFilesException {
       ScanSession scanSession = (ScanSession) sessionManager.reserveSession(scanID);
       if (scanSession == null) {
@@ -1169,6 +1253,8 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
       }
       
       try {
+        if (window > 0 || scanSession.streamedBatches != null)
+          return streamScan(tinfo, scanID, scanSession, window);
         return continueScan(tinfo, scanID, scanSession);
       } finally {
         sessionManager.unreserveSession(scanSession);
@@ -1219,7 +1305,7 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
       
       scanSession.batchCount++;
       
-      if (scanResult.more && scanSession.batchCount > 3) {
+      if (scanResult.more && scanSession.batchCount > 3 && scanSession.streamingWindow == 0) {
         // start reading next batch while current batch is transmitted
         // to client
         scanSession.nextBatchTask = new NextBatchTask(scanID, scanSession.interruptFlag);
@@ -1232,6 +1318,93 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
       return scanResult;
     }
     
+    private ScanResult streamScan(TInfo tinfo, long scanID, ScanSession scanSession, int window) throws NoSuchScanIDException, NotServingTabletException,
+        org.apache.accumulo.core.tabletserver.thrift.TooManyFilesException {
+      
+      // every request grants the window again, so the batches returned by the previous request free up room for the task to read more
+      scanSession.streamingWindow = Math.max(1, Math.min(window, acuConf.getCount(Property.TSERV_SCAN_STREAM_WINDOW_MAX)));
+      
+      if (scanSession.streamedBatches == null) {
+        // a batch read ahead before the client started streaming is returned on its own
+        if (scanSession.nextBatchTask != null)
+          return continueScan(tinfo, scanID, scanSession);
+        scanSession.streamedBatches = new LinkedBlockingQueue<Object>();
+      }
+      
+      continueStream(scanID, scanSession);
+      
+      Object first;
+      try {
+        first = scanSession.streamedBatches.poll(MAX_TIME_TO_WAIT_FOR_SCAN_RESULT_MILLIS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        sessionManager.removeSession(scanID);
+        throw new RuntimeException(e);
+      }
+      
+      if (first == null) {
+        if (scanSession.nextBatchTask != null && scanSession.nextBatchTask.isCancelled()) {
+          sessionManager.removeSession(scanID);
+          Tablet tablet = onlineTablets.get(scanSession.extent);
+          if (tablet == null || tablet.isClosed())
+            throw new NotServingTabletException(scanSession.extent.toThrift());
+          else
+            throw new NoSuchScanIDException();
+        }
+        
+        List<TKeyValue> param = Collections.emptyList();
+        long timeout = acuConf.getTimeInMillis(Property.TSERV_CLIENT_TIMEOUT);
+        sessionManager.removeIfNotAccessed(scanID, timeout);
+        return new ScanResult(param, true);
+      }
+      
+      if (first instanceof Throwable) {
+        sessionManager.removeSession(scanID);
+        if (first instanceof NotServingTabletException)
+          throw (NotServingTabletException) first;
+        else if (first instanceof TooManyFilesException)
+          throw new org.apache.accumulo.core.tabletserver.thrift.TooManyFilesException(scanSession.extent.toThrift());
+        else
+          throw new RuntimeException((Throwable) first);
+      }
+      
+      // return every batch that is ready, leaving an exception for the next request so the batches read before it are not lost
+      ScanBatch batch = (ScanBatch) first;
+      List<KVEntry> results = new ArrayList<KVEntry>(batch.results);
+      int batches = 1;
+      while (batch.more) {
+        Object next = scanSession.streamedBatches.peek();
+        if (next == null || next instanceof Throwable)
+          break;
+        scanSession.streamedBatches.remove();
+        batch = (ScanBatch) next;
+        results.addAll(batch.results);
+        batches++;
+      }
+      
+      ScanResult scanResult = new ScanResult(Key.compress(results), batch.more);
+      
+      scanSession.entriesReturned += scanResult.results.size();
+      
+      scanSession.batchCount += batches;
+      
+      if (scanResult.more)
+        continueStream(scanID, scanSession);
+      else
+        closeScan(tinfo, scanID);
+      
+      return scanResult;
+    }
+    
+    private void continueStream(long scanID, ScanSession scanSession) {
+      if (scanSession.streamFinished)
+        return;
+      
+      if (scanSession.nextBatchTask == null || scanSession.nextBatchTask.isDone()) {
+        scanSession.nextBatchTask = new StreamBatchesTask(scanID, scanSession.interruptFlag);
+        resourceManager.executeReadAhead(scanSession.extent, scanSession.nextBatchTask);
+      }
+    }
+    
     @Override
     public void closeScan(TInfo tinfo, long scanID) {
       ScanSession ss = (ScanSession) sessionManager.removeSession(scanID);
@@ -1465,6 +1638,12 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
       }
     }
     
+    private void addPhaseTime(Map<String,long[]> phaseTimes, String tableId, Phase phase, long nanos) {
+      // a table's updates can pass through a phase once for each of its tablets in the batch
+      long[] times = phaseTimes.get(tableId);
+      times[phase.ordinal()] = Math.max(0, times[phase.ordinal()]) + nanos;
+    }
+    
     private void flush(UpdateSession us) {
       
       int mutationCount = 0;
@@ -1478,8 +1657,28 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
         if (tablet.getExtent().isMeta())
           containsMetadataTablet = true;
       
-      if (!containsMetadataTablet && us.queuedMutations.size() > 0)
-        TabletServer.this.resourceManager.waitUntilCommitsAreEnabled();
+      // nanoseconds each table in the batch spent in each phase, phases shared by the whole batch are charged in full to every table in it, and phases a
+      // table's updates never reached are left negative
+      Map<String,long[]> phaseTimes = new HashMap<String,long[]>();
+      for (Tablet tablet : us.queuedMutations.keySet()) {
+        long[] times = new long[Phase.values().length];
+        Arrays.fill(times, -1);
+        phaseTimes.put(tablet.getExtent().getTableId().toString(), times);
+      }
+      
+      if (!containsMetadataTablet && us.queuedMutations.size() > 0) {
+        long ht1 = System.nanoTime();
+        try {
+          TabletServer.this.resourceManager.waitUntilCommitsAreEnabled();
+        } finally {
+          // recorded right away so that waits which end in a hold timeout are counted
+          long holdTime = System.nanoTime() - ht1;
+          for (String tableId : phaseTimes.keySet())
+            updateMetrics.addPhaseTime(tableId, Phase.HOLD_WAIT, holdTime / 1000);
+          if (updateMetrics.isEnabled())
+            updateMetrics.add(TabletServerUpdateMetrics.holdWaitTime, holdTime / 1000000);
+        }
+      }
       
       Span prep = Trace.start("prep");
       for (Entry<Tablet,? extends List<Mutation>> entry : us.queuedMutations.entrySet()) {
@@ -1487,6 +1686,7 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
         Tablet tablet = entry.getKey();
         List<Mutation> mutations = entry.getValue();
         if (mutations.size() > 0) {
+          long ct1 = System.nanoTime();
           try {
             if (updateMetrics.isEnabled())
               updateMetrics.add(TabletServerUpdateMetrics.mutationArraySize, mutations.size());
@@ -1526,6 +1726,8 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
             error = t;
             log.error("Unexpected error preparing for commit", error);
             break;
+          } finally {
+            addPhaseTime(phaseTimes, tablet.getExtent().getTableId().toString(), Phase.CONSTRAINTS, System.nanoTime() - ct1);
           }
         }
       }
@@ -1547,14 +1749,23 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
       try {
         while (true) {
           try {
-            long t1 = System.currentTimeMillis();
+            long t1 = System.nanoTime();
+            AtomicLong syncTime = new AtomicLong();
             
-            logger.logManyTablets(sendables);
+            logger.logManyTablets(sendables, syncTime);
             
-            long t2 = System.currentTimeMillis();
-            us.walogTimes.addStat(t2 - t1);
-            if (updateMetrics.isEnabled())
-              updateMetrics.add(TabletServerUpdateMetrics.waLogWriteTime, (t2 - t1));
+            long walTime = System.nanoTime() - t1;
+            us.walogTimes.addStat(walTime / 1000000);
+            if (updateMetrics.isEnabled()) {
+              updateMetrics.add(TabletServerUpdateMetrics.waLogWriteTime, walTime / 1000000);
+              updateMetrics.add(TabletServerUpdateMetrics.waLogSyncTime, syncTime.get() / 1000000);
+            }
+            for (CommitSession commitSession : sendables.keySet()) {
+              // the whole batch is logged at once, a table with several tablets in it is charged once
+              long[] times = phaseTimes.get(commitSession.getExtent().getTableId().toString());
+              times[Phase.WAL_WRITE.ordinal()] = walTime - syncTime.get();
+              times[Phase.WAL_SYNC.ordinal()] = syncTime.get();
+            }
             
             break;
           } catch (IOException ex) {
@@ -1573,7 +1784,9 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
           CommitSession commitSession = entry.getKey();
           List<Mutation> mutations = entry.getValue();
           
+          long mt1 = System.nanoTime();
           commitSession.commit(mutations);
+          addPhaseTime(phaseTimes, commitSession.getExtent().getTableId().toString(), Phase.MEMTABLE, System.nanoTime() - mt1);
           
           Tablet tablet = commitSession.getTablet();
           
@@ -1597,6 +1810,13 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
         if (updateMetrics.isEnabled())
           updateMetrics.add(TabletServerUpdateMetrics.commitTime, avgCommitTime);
         commit.stop();
+        
+        for (Entry<String,long[]> entry : phaseTimes.entrySet()) {
+          long[] times = entry.getValue();
+          for (Phase phase : Phase.values())
+            if (phase != Phase.HOLD_WAIT && times[phase.ordinal()] >= 0)
+              updateMetrics.addPhaseTime(entry.getKey(), phase, times[phase.ordinal()] / 1000);
+        }
       } finally {
         us.queuedMutations.clear();
         if (us.currentTablet != null) {
@@ -2193,7 +2413,8 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
               continue;
             }
             
-            int maxLogEntriesPerTablet = getTableConfiguration(tablet.getExtent()).getCount(Property.TABLE_MINC_LOGS_MAX);
+            // every log set holds as many logs as are open concurrently
+            int maxLogEntriesPerTablet = getTableConfiguration(tablet.getExtent()).getCount(Property.TABLE_MINC_LOGS_MAX) * logger.getConcurrentLogs();
             
             if (tablet.getLogCount() >= maxLogEntriesPerTablet) {
               log.debug("Initiating minor compaction for " + tablet.getExtent() + " because it has " + tablet.getLogCount() + " write ahead logs");
@@ -2538,6 +2759,7 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
               recentlyUnloadedCache.remove(tablet);
             }
           }
+          trm.warmCache();
           tablet = null; // release this reference
           successful = true;
         } catch (Throwable e) {
@@ -3047,7 +3269,9 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
     log.info("Tablet server starting on " + hostname);
     security = AuditedSecurityOperation.getInstance();
     clientAddress = new InetSocketAddress(hostname, 0);
-    logger = new TabletServerLogger(this, getSystemConfiguration().getMemoryInBytes(Property.TSERV_WALOG_MAX_SIZE));
+    logger = new TabletServerLogger(this, getSystemConfiguration().getMemoryInBytes(Property.TSERV_WALOG_MAX_SIZE), getSystemConfiguration().getCount(
+        Property.TSERV_WALOG_CONCURRENT));
+    updateMetrics.setWALogHistograms(logger.getBatchSizes(), logger.getSyncTimes(), logger.getQueueTimes());
     
     if (getSystemConfiguration().getBoolean(Property.TSERV_LOCK_MEMORY)) {
       String path = "lib/native/mlock/" + System.mapLibraryName("MLock-" + Platform.getPlatform());
@@ -3201,6 +3425,8 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
       table.ingestRate += tablet.ingestRate();
       table.ingestByteRate += tablet.ingestByteRate();
       table.scanRate += tablet.scanRate();
+      if (table.updateTimes == null)
+        table.updateTimes = updateMetrics.getPhaseCounts(tableId);
       long recsInMemory = tablet.getNumEntriesInMemory();
       table.recsInMemory += recsInMemory;
       if (tablet.minorCompactionRunning())
@@ -16,6 +16,7 @@
  */
 package org.apache.accumulo.server.tabletserver;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -24,6 +25,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
@@ -41,11 +43,20 @@ import org.apache.accumulo.core.client.Instance;
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
 import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.data.KeyExtent;
+import org.apache.accumulo.core.file.blockfile.cache.BlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.DiskBlockCache;
 import org.apache.accumulo.core.file.blockfile.cache.LruBlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.OffHeapBlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.PartitionedBlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.ShardedBlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.TieredBlockCache;
+import org.apache.accumulo.core.file.rfile.RFile;
+import org.apache.accumulo.core.file.rfile.RFileOperations;
 import org.apache.accumulo.core.util.Daemon;
 import org.apache.accumulo.core.util.LoggingRunnable;
 import org.apache.accumulo.core.util.MetadataTable.DataFileValue;
 import org.apache.accumulo.core.util.NamingThreadFactory;
+import org.apache.accumulo.core.util.RateLimiter;
 import org.apache.accumulo.core.util.UtilWaitThread;
 import org.apache.accumulo.server.conf.ServerConfiguration;
 import org.apache.accumulo.server.tabletserver.FileManager.ScanFileManager;
@@ -76,6 +87,8 @@ public class TabletServerResourceManager {
   private ExecutorService assignMetaDataPool;
   private ExecutorService readAheadThreadPool;
   private ExecutorService defaultReadAheadThreadPool;
+  private ExecutorService cacheWarmupThreadPool;
+  private final RateLimiter cacheWarmupLimiter;
   private Map<String,ExecutorService> threadPools = new TreeMap<String,ExecutorService>();
   
   private HashSet<TabletResourceManager> tabletResources;
@@ -86,9 +99,10 @@ public class TabletServerResourceManager {
   
   private MemoryManagementFramework memMgmt;
   
-  private final LruBlockCache _dCache;
-  private final LruBlockCache _iCache;
+  private final BlockCache _dCache;
+  private final BlockCache _iCache;
   private final ServerConfiguration conf;
+  private final FileSystem fs;
   
   private static final Logger log = Logger.getLogger(TabletServerResourceManager.class);
   
@@ -142,20 +156,45 @@ public class TabletServerResourceManager {
   
   public TabletServerResourceManager(Instance instance, FileSystem fs) {
     this.conf = new ServerConfiguration(instance);
+    this.fs = fs;
     final AccumuloConfiguration acuConf = conf.getConfiguration();
     
     long maxMemory = acuConf.getMemoryInBytes(Property.TSERV_MAXMEM);
     boolean usingNativeMap = acuConf.getBoolean(Property.TSERV_NATIVEMAP_ENABLED) && NativeMap.loadedNativeLibraries();
+    // the off heap map is used when the native map is not, and like it keeps map data out of the heap
+    boolean mapOffHeap = usingNativeMap || acuConf.getBoolean(Property.TSERV_OFFHEAPMAP_ENABLED);
     
     long blockSize = acuConf.getMemoryInBytes(Property.TSERV_DEFAULT_BLOCKSIZE);
     long dCacheSize = acuConf.getMemoryInBytes(Property.TSERV_DATACACHE_SIZE);
     long iCacheSize = acuConf.getMemoryInBytes(Property.TSERV_INDEXCACHE_SIZE);
     
-    _iCache = new LruBlockCache(iCacheSize, blockSize);
-    _dCache = new LruBlockCache(dCacheSize, blockSize);
+    String cacheType = acuConf.get(Property.TSERV_CACHE_TYPE);
+    _iCache = createCache(cacheType, iCacheSize, blockSize, acuConf);
+    BlockCache dCache = createCache(cacheType, dCacheSize, blockSize, acuConf);
+    
+    String l2Dir = acuConf.get(Property.TSERV_CACHE_L2_DIR);
+    long l2Size = acuConf.getMemoryInBytes(Property.TSERV_CACHE_L2_SIZE);
+    if (!l2Dir.isEmpty() && l2Size > 0) {
+      if (dCache instanceof OffHeapBlockCache || dCache instanceof PartitionedBlockCache) {
+        log.warn(Property.TSERV_CACHE_L2_DIR.getKey() + " is not supported with the " + cacheType + " cache type, not using it");
+      } else {
+        try {
+          dCache = new TieredBlockCache(dCache, new DiskBlockCache(new File(l2Dir), l2Size));
+        } catch (IOException e) {
+          log.warn("Unable to open disk block cache in " + l2Dir + ", not using it", e);
+        }
+      }
+    }
+    _dCache = dCache;
+    
+    if (_iCache instanceof OffHeapBlockCache) {
+      // the cached blocks do not take up heap space
+      dCacheSize = 0;
+      iCacheSize = 0;
+    }
     
     Runtime runtime = Runtime.getRuntime();
-    if (!usingNativeMap && maxMemory + dCacheSize + iCacheSize > runtime.maxMemory()) {
+    if (!mapOffHeap && maxMemory + dCacheSize + iCacheSize > runtime.maxMemory()) {
       throw new IllegalArgumentException(String.format(
           "Maximum tablet server map memory %,d and block cache sizes %,d is too large for this JVM configuration %,d", maxMemory, dCacheSize + iCacheSize,
           runtime.maxMemory()));
@@ -164,7 +203,7 @@ public class TabletServerResourceManager {
 
     // totalMemory - freeMemory = memory in use
     // maxMemory - memory in use = max available memory
-    if (!usingNativeMap && maxMemory > runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory())) {
+    if (!mapOffHeap && maxMemory > runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory())) {
       log.warn("In-memory map may not fit into local memory space.");
     }
     
@@ -192,6 +231,9 @@ public class TabletServerResourceManager {
     readAheadThreadPool = createEs(Property.TSERV_READ_AHEAD_MAXCONCURRENT, "tablet read ahead");
     defaultReadAheadThreadPool = createEs(Property.TSERV_METADATA_READ_AHEAD_MAXCONCURRENT, "metadata tablets read ahead");
     
+    cacheWarmupThreadPool = createEs(Property.TSERV_CACHE_WARMUP_MAXCONCURRENT, "cache warmup");
+    cacheWarmupLimiter = new RateLimiter(acuConf.getMemoryInBytes(Property.TSERV_CACHE_WARMUP_RATE));
+    
     tabletResources = new HashSet<TabletResourceManager>();
     
     int maxOpenFiles = acuConf.getCount(Property.TSERV_SCAN_MAX_OPENFILES);
@@ -214,6 +256,43 @@ public class TabletServerResourceManager {
     memMgmt = new MemoryManagementFramework();
   }
   
+  private static BlockCache createCache(String type, long size, long blockSize, AccumuloConfiguration acuConf) {
+    if (type.equals("lru")) {
+      return new LruBlockCache(size, blockSize, true, acuConf.getBoolean(Property.TSERV_CACHE_ADMISSION));
+    } else if (type.equals("sharded")) {
+      return new ShardedBlockCache(size, blockSize);
+    } else if (type.equals("partitioned")) {
+      return new PartitionedBlockCache(size);
+    } else if (type.equals("offheap")) {
+      String dir = acuConf.get(Property.TSERV_CACHE_OFFHEAP_DIR);
+      File mmapDir = dir.isEmpty() ? null : new File(dir);
+      return new OffHeapBlockCache(size, OffHeapBlockCache.DEFAULT_PAGE_SIZE, OffHeapBlockCache.DEFAULT_SLAB_SIZE, mmapDir);
+    }
+    throw new IllegalArgumentException("Unknown " + Property.TSERV_CACHE_TYPE.getKey() + " " + type);
+  }
+  
+  /**
+   * Get the view of a cache to use for the files of a table. For a {@link PartitionedBlockCache} this is the partition of the table, with its limits updated
+   * from the table configuration, and for any other cache it is the cache itself.
+   */
+  static BlockCache getCachePartition(BlockCache cache, String tableId, AccumuloConfiguration tableConf) {
+    if (!(cache instanceof PartitionedBlockCache))
+      return cache;
+    
+    String name = tableConf.get(Property.TABLE_CACHE_PARTITION);
+    PartitionedBlockCache.Partition partition = ((PartitionedBlockCache) cache).getPartition(name.isEmpty() ? tableId : name);
+    float min = (float) tableConf.getFraction(Property.TABLE_CACHE_PARTITION_MIN);
+    float max = (float) tableConf.getFraction(Property.TABLE_CACHE_PARTITION_MAX);
+    if (min != partition.getMinFraction() || max != partition.getMaxFraction()) {
+      try {
+        partition.setLimits(min, max);
+      } catch (IllegalArgumentException e) {
+        log.warn("Ignoring cache partition limits of table " + tableId + " : " + e.getMessage());
+      }
+    }
+    return partition;
+  }
+  
   private static class TabletStateImpl implements TabletState, Cloneable {
     
     private long lct;
@@ -247,6 +326,10 @@ public class TabletServerResourceManager {
     public long getMinorCompactingMemTableSize() {
       return mcmts;
     }
+    
+    public boolean minorCompactionRunning() {
+      return tablet.minorCompactionRunning();
+    }
   }
   
   private class MemoryManagementFramework {
@@ -464,6 +547,28 @@ public class TabletServerResourceManager {
     }
   }
   
+  /**
+   * Reads the index blocks, and the first data blocks of each locality group, of an RFile into the block caches. The file is opened without the bloom filter
+   * layer, so no bloom filter is loaded for it. Files that are not RFiles are skipped.
+   */
+  static void warmCache(String file, FileSystem fs, AccumuloConfiguration tableConf, BlockCache dataCache, BlockCache indexCache, int numDataBlocks,
+      RateLimiter limiter) throws IOException {
+    if (!file.endsWith("." + RFile.EXTENSION))
+      return;
+    
+    if (!tableConf.getBoolean(Property.TABLE_INDEXCACHE_ENABLED))
+      indexCache = null;
+    if (!tableConf.getBoolean(Property.TABLE_BLOCKCACHE_ENABLED))
+      dataCache = null;
+    
+    RFile.Reader reader = (RFile.Reader) new RFileOperations().openReader(file, false, fs, fs.getConf(), tableConf, dataCache, indexCache);
+    try {
+      reader.warmCache(numDataBlocks, limiter);
+    } finally {
+      reader.close();
+    }
+  }
+  
   public class TabletResourceManager {
     
     private final long creationTime = System.currentTimeMillis();
@@ -494,10 +599,47 @@ public class TabletServerResourceManager {
       lastReportedCommitTime = System.currentTimeMillis();
     }
     
-    synchronized ScanFileManager newScanFileManager() {
+    /**
+     * If the table has cache warm-up enabled, read the index blocks, and the configured number of data blocks, of the tablet's files into the block caches
+     * in the background.
+     */
+    void warmCache() {
+      if (!tableConf.getBoolean(Property.TABLE_CACHE_WARMUP_ENABLED))
+        return;
+      
+      final KeyExtent extent = tablet.getExtent();
+      final Set<String> files = new HashSet<String>(tablet.getDatafiles().keySet());
+      final int numDataBlocks = tableConf.getCount(Property.TABLE_CACHE_WARMUP_DATA_BLOCKS);
+      
+      if (files.isEmpty())
+        return;
+      
+      final BlockCache dataCache = getCachePartition(_dCache, extent.getTableId().toString(), tableConf);
+      final BlockCache indexCache = getCachePartition(_iCache, extent.getTableId().toString(), tableConf);
+      
+      cacheWarmupThreadPool.execute(new Runnable() {
+        @Override
+        public void run() {
+          long t1 = System.currentTimeMillis();
+          for (String file : files) {
+            if (closed)
+              return;
+            
+            try {
+              TabletServerResourceManager.warmCache(file, fs, tableConf, dataCache, indexCache, numDataBlocks, cacheWarmupLimiter);
+            } catch (IOException e) {
+              log.warn("Failed to warm cache for " + file + " of " + extent + " " + e.getMessage());
+            }
+          }
+          log.debug(String.format("Warmed cache for %d files of %s in %6.2f secs", files.size(), extent, (System.currentTimeMillis() - t1) / 1000.0));
+        }
+      });
+    }
+    
+    synchronized ScanFileManager newScanFileManager(boolean cacheBlocks) {
       if (closed)
         throw new IllegalStateException("closed");
-      return fileManager.newScanFileManager(tablet.getExtent());
+      return fileManager.newScanFileManager(tablet.getExtent(), cacheBlocks);
     }
     
     // END methods that Tablets call to manage their set of open map files
@@ -792,11 +934,11 @@ public class TabletServerResourceManager {
     }
   }
   
-  public LruBlockCache getIndexCache() {
+  public BlockCache getIndexCache() {
     return _iCache;
   }
   
-  public LruBlockCache getDataCache() {
+  public BlockCache getDataCache() {
     return _dCache;
   }
   
@@ -26,4 +26,7 @@ public interface TabletState {
   long getMemTableSize();
   
   long getMinorCompactingMemTableSize();
+  
+  // true once a minor compaction has left the queue and is writing out memory
+  boolean minorCompactionRunning();
 }
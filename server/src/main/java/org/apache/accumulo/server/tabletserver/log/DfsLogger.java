@@ -34,6 +34,7 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.accumulo.core.Constants;
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
@@ -48,6 +49,7 @@ import org.apache.accumulo.server.logger.LogFileKey;
 import org.apache.accumulo.server.logger.LogFileValue;
 import org.apache.accumulo.server.master.state.TServerInstance;
 import org.apache.accumulo.server.tabletserver.TabletMutations;
+import org.apache.commons.io.output.CountingOutputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -85,12 +87,93 @@ public class DfsLogger {
   
   private static final DfsLogger.LogWork CLOSED_MARKER = new DfsLogger.LogWork(null, null);
   
+  // group commit settings, read when the log is opened
+  private long groupCommitLatencyNanos = 0;
+  private long groupCommitSize = Long.MAX_VALUE;
+  
+  // where sync statistics are recorded, shared by all the logs of a tablet server
+  private final LogHistogram batchSizes;
+  private final LogHistogram syncTimes;
+  private final LogHistogram queueTimes;
+  
   private static final LogFileValue EMPTY = new LogFileValue();
   
   private boolean closed = false;
   
+  // exponentially weighted average of recent sync times, used to steer work away from a slow pipeline
+  private volatile long averageSyncNanos = 0;
+  // the start of the sync in progress, so a pipeline stuck in a sync is seen as slow before the sync returns
+  private volatile boolean syncing = false;
+  private volatile long syncStartNanos = 0;
+  // when this log was last chosen for a commit, in milliseconds since the epoch
+  private volatile long lastChosenTime = System.currentTimeMillis();
+  
+  void syncStarted() {
+    syncStartNanos = System.nanoTime();
+    syncing = true;
+  }
+  
+  void syncFinished(long nanos) {
+    syncing = false;
+    averageSyncNanos += (nanos - averageSyncNanos) / 8;
+  }
+  
+  void syncFailed() {
+    syncing = false;
+  }
+  
+  /**
+   * @return a weighted average of the time recent syncs of this log took, in nanoseconds
+   */
+  public long getAverageSyncTime() {
+    return averageSyncNanos;
+  }
+  
+  /**
+   * @return how long the sync in progress has been running, in nanoseconds, or 0 if the log is not syncing
+   */
+  public long getOutstandingSyncTime() {
+    if (!syncing)
+      return 0;
+    return Math.max(0, System.nanoTime() - syncStartNanos);
+  }
+  
+  /**
+   * @return the time, in milliseconds since the epoch, that this log was last chosen for a commit or that the log was created
+   */
+  public long getLastChosenTime() {
+    return lastChosenTime;
+  }
+  
+  void setLastChosenTime(long time) {
+    lastChosenTime = time;
+  }
+  
   private class LogSyncingTask implements Runnable {
     
+    /**
+     * Waits for more work to sync along with what has already been taken, until the batch is large enough or the oldest work in it has waited as long as
+     * the latency target allows once the expected sync time is taken out.
+     */
+    private void gather(ArrayList<DfsLogger.LogWork> work, long bytes) {
+      long deadline = work.get(0).queued + groupCommitLatencyNanos - averageSyncNanos;
+      while (bytes < groupCommitSize && work.get(work.size() - 1) != CLOSED_MARKER) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0)
+          break;
+        DfsLogger.LogWork next;
+        try {
+          next = workQueue.poll(remaining, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+          break;
+        }
+        if (next == null)
+          break;
+        work.add(next);
+        bytes += next.size;
+      }
+    }
+    
     @Override
     public void run() {
       ArrayList<DfsLogger.LogWork> work = new ArrayList<DfsLogger.LogWork>();
@@ -104,11 +187,34 @@ public class DfsLogger {
         }
         workQueue.drainTo(work);
         
+        long bytes = 0;
+        for (DfsLogger.LogWork logWork : work)
+          bytes += logWork.size;
+        
+        if (groupCommitLatencyNanos > 0)
+          gather(work, bytes);
+        
+        long start = System.nanoTime();
+        bytes = 0;
+        for (DfsLogger.LogWork logWork : work) {
+          if (logWork != CLOSED_MARKER) {
+            bytes += logWork.size;
+            queueTimes.add((start - logWork.queued) / 1000);
+          }
+        }
+        
         synchronized (closeLock) {
           if (!closed) {
+            syncStarted();
+            long syncStart = System.nanoTime();
             try {
               logFile.sync();
+              long syncNanos = System.nanoTime() - syncStart;
+              syncFinished(syncNanos);
+              syncTimes.add(syncNanos / 1000);
+              batchSizes.add(bytes);
             } catch (IOException ex) {
+              syncFailed();
               log.warn("Exception syncing " + ex);
               for (DfsLogger.LogWork logWork : work) {
                 logWork.exception = ex;
@@ -142,6 +248,9 @@ public class DfsLogger {
     List<TabletMutations> mutations;
     CountDownLatch latch;
     volatile Exception exception;
+    // the number of bytes written to the log for this work, and when it was queued for syncing
+    long size;
+    long queued;
     
     public LogWork(List<TabletMutations> mutations, CountDownLatch latch) {
       this.mutations = mutations;
@@ -203,15 +312,32 @@ public class DfsLogger {
   private ServerResources conf;
   private FSDataOutputStream logFile;
   private DataOutputStream encryptingLogFile = null;
+  // counts the bytes written through encryptingLogFile, whose own count stops at Integer.MAX_VALUE
+  private CountingOutputStream encryptedBytes = null;
   private Path logPath;
   private String logger;
   
   public DfsLogger(ServerResources conf) throws IOException {
+    this(conf, new LogHistogram("batch bytes"), new LogHistogram("sync micros"), new LogHistogram("queue micros"));
+  }
+  
+  /**
+   * @param batchSizes
+   *          records the number of bytes made durable by each sync
+   * @param syncTimes
+   *          records the time each sync took, in microseconds
+   * @param queueTimes
+   *          records the time each update waited between being written and its sync starting, in microseconds
+   */
+  public DfsLogger(ServerResources conf, LogHistogram batchSizes, LogHistogram syncTimes, LogHistogram queueTimes) throws IOException {
     this.conf = conf;
+    this.batchSizes = batchSizes;
+    this.syncTimes = syncTimes;
+    this.queueTimes = queueTimes;
   }
   
   public DfsLogger(ServerResources conf, String logger, String filename) throws IOException {
-    this.conf = conf;
+    this(conf);
     this.logger = logger;
     this.logPath = new Path(Constants.getWalDirectory(conf.getConfiguration()), filename);
   }
@@ -234,6 +360,8 @@ public class DfsLogger {
       int checkSum = fs.getConf().getInt("io.bytes.per.checksum", 512);
       blockSize -= blockSize % checkSum;
       blockSize = Math.max(blockSize, checkSum);
+      groupCommitLatencyNanos = TimeUnit.MILLISECONDS.toNanos(conf.getConfiguration().getTimeInMillis(Property.TSERV_WAL_GROUP_COMMIT_LATENCY));
+      groupCommitSize = conf.getConfiguration().getMemoryInBytes(Property.TSERV_WAL_GROUP_COMMIT_SIZE);
       logFile = fs.create(logPath, true, fs.getConf().getInt("io.file.buffer.size", 4096), replication, blockSize);
       
       // Initialize the crypto operations.
@@ -253,13 +381,8 @@ public class DfsLogger {
       @SuppressWarnings("deprecation")
       OutputStream encipheringOutputStream = cryptoModule.getEncryptingOutputStream(logFile, cryptoOpts);
       
-      // If the module just kicks back our original stream, then just use it, don't wrap it in
-      // another data OutputStream.
-      if (encipheringOutputStream == logFile) {
-        encryptingLogFile = logFile;
-      } else {
-        encryptingLogFile = new DataOutputStream(encipheringOutputStream);
-      }
+      encryptedBytes = new CountingOutputStream(encipheringOutputStream);
+      encryptingLogFile = new DataOutputStream(encryptedBytes);
       
       LogFileKey key = new LogFileKey();
       key.event = OPEN;
@@ -360,6 +483,7 @@ public class DfsLogger {
     DfsLogger.LogWork work = new DfsLogger.LogWork(mutations, new CountDownLatch(1));
     
     synchronized (DfsLogger.this) {
+      long start = encryptedBytes.getByteCount();
       try {
         for (TabletMutations tabletMutations : mutations) {
           LogFileKey key = new LogFileKey();
@@ -374,6 +498,7 @@ public class DfsLogger {
         log.error(e, e);
         work.exception = e;
       }
+      work.size = encryptedBytes.getByteCount() - start;
     }
     
     synchronized (closeLock) {
@@ -382,6 +507,7 @@ public class DfsLogger {
       
       if (closed)
         throw new LogClosedException();
+      work.queued = System.nanoTime();
       workQueue.add(work);
     }
     
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.server.tabletserver.log;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram with power of two buckets that is cheap enough to update on every write-ahead log sync. Bucket i counts the values v where 2^(i-1) <= v < 2^i,
+ * bucket 0 counts values less than one.
+ */
+public class LogHistogram {
+  
+  private static final int BUCKETS = 64;
+  
+  private final String name;
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong total = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+  
+  public LogHistogram(String name) {
+    this.name = name;
+  }
+  
+  static int bucket(long value) {
+    if (value <= 0)
+      return 0;
+    return BUCKETS - Long.numberOfLeadingZeros(value);
+  }
+  
+  public void add(long value) {
+    counts.incrementAndGet(Math.min(bucket(value), BUCKETS - 1));
+    total.incrementAndGet();
+    sum.addAndGet(value);
+    long m;
+    while (value > (m = max.get()) && !max.compareAndSet(m, value)) {}
+  }
+  
+  public String getName() {
+    return name;
+  }
+  
+  public long getCount() {
+    return total.get();
+  }
+  
+  public long getSum() {
+    return sum.get();
+  }
+  
+  public long getMax() {
+    return max.get();
+  }
+  
+  public double getMean() {
+    long count = total.get();
+    return count == 0 ? 0 : (double) sum.get() / count;
+  }
+  
+  /**
+   * @return the number of values counted in each bucket
+   */
+  public long[] getCounts() {
+    long[] result = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++)
+      result[i] = counts.get(i);
+    return result;
+  }
+  
+  /**
+   * @return an upper bound on the given percentile of the values added, the exclusive upper limit of the bucket it falls in
+   */
+  public long getPercentile(double percentile) {
+    long count = total.get();
+    if (count == 0)
+      return 0;
+    long rank = (long) Math.ceil(count * percentile / 100.0);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts.get(i);
+      if (seen >= rank)
+        return i == BUCKETS - 1 ? Long.MAX_VALUE : 1l << i;
+    }
+    return Long.MAX_VALUE;
+  }
+  
+  /**
+   * @return the given percentile of values counted in buckets laid out like {@link #getCounts()}, which lets counts reported by several servers be summed
+   *         before they are read
+   */
+  public static long getPercentile(List<Long> counts, double percentile) {
+    long count = 0;
+    for (Long c : counts)
+      count += c;
+    if (count == 0)
+      return 0;
+    long rank = (long) Math.ceil(count * percentile / 100.0);
+    long seen = 0;
+    for (int i = 0; i < counts.size(); i++) {
+      seen += counts.get(i);
+      if (seen >= rank)
+        return i >= BUCKETS - 1 ? Long.MAX_VALUE : 1l << i;
+    }
+    return Long.MAX_VALUE;
+  }
+  
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(name);
+    sb.append(" count=").append(getCount()).append(" mean=").append(String.format("%.1f", getMean())).append(" max=").append(getMax()).append(" [");
+    String sep = "";
+    for (int i = 0; i < BUCKETS; i++) {
+      long c = counts.get(i);
+      if (c > 0) {
+        sb.append(sep).append("<").append(i == BUCKETS - 1 ? "inf" : Long.toString(1l << i)).append(":").append(c);
+        sep = " ";
+      }
+    }
+    return sb.append("]").toString();
+  }
+}
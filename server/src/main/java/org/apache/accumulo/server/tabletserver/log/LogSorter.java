@@ -22,11 +22,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import org.apache.accumulo.core.Constants;
@@ -36,7 +40,6 @@ import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.master.thrift.RecoveryStatus;
 import org.apache.accumulo.core.security.crypto.CryptoModule;
 import org.apache.accumulo.core.security.crypto.CryptoModuleFactory;
-import org.apache.accumulo.core.util.Pair;
 import org.apache.accumulo.core.util.SimpleThreadPool;
 import org.apache.accumulo.core.zookeeper.ZooUtil;
 import org.apache.accumulo.server.logger.LogFileKey;
@@ -157,26 +160,40 @@ public class LogSorter {
           }
         }
         
-        final long bufferSize = conf.getMemoryInBytes(Property.TSERV_SORT_BUFFER_SIZE);
+        // the reader fills one part while each sort thread holds another, they share the memory configured for sorting a log
+        final int bufferSize = (int) Math.min(conf.getMemoryInBytes(Property.TSERV_SORT_BUFFER_SIZE) / (sortThreads + 1), Integer.MAX_VALUE / 2);
         Thread.currentThread().setName("Sorting " + name + " for recovery");
-        while (true) {
-          final ArrayList<Pair<LogFileKey,LogFileValue>> buffer = new ArrayList<Pair<LogFileKey,LogFileValue>>();
-          try {
-            long start = input.getPos();
-            while (input.getPos() - start < bufferSize) {
-              LogFileKey key = new LogFileKey();
-              LogFileValue value = new LogFileValue();
-              key.readFields(decryptingInput);
-              value.readFields(decryptingInput);
-              buffer.add(new Pair<LogFileKey,LogFileValue>(key, value));
+        
+        // this thread reads the log into buffers, the sort threads sort and write them out
+        List<Future<?>> parts = new ArrayList<Future<?>>();
+        Semaphore buffers = new Semaphore(sortThreads);
+        try {
+          while (true) {
+            SortBuffer buffer = new SortBuffer(bufferSize);
+            boolean eof = false;
+            try {
+              while (!buffer.isFull())
+                buffer.readRecord(decryptingInput);
+            } catch (EOFException ex) {
+              eof = true;
             }
-            writeBuffer(destPath, buffer, part++);
-            buffer.clear();
-          } catch (EOFException ex) {
-            writeBuffer(destPath, buffer, part++);
-            break;
+            
+            // wait for a sort thread to finish with its buffer before reading another
+            buffers.acquire();
+            parts.add(sortThreadPool.submit(new PartWriter(destPath, buffer, part++, buffers)));
+            checkParts(parts);
+            if (eof)
+              break;
           }
+        } finally {
+          // the sort threads can not be left writing to the recovery directory when the sort is given up
+          for (Future<?> future : parts)
+            if (!future.isDone())
+              try {
+                future.get();
+              } catch (Exception e) {}
         }
+        checkParts(parts);
         fs.create(new Path(destPath, "finished")).close();
         log.info("Finished log sort " + name + " " + getBytesCopied() + " bytes " + part + " parts in " + getSortTime() + "ms");
       } catch (Throwable t) {
@@ -201,22 +218,60 @@ public class LogSorter {
       }
     }
     
-    private void writeBuffer(String destPath, ArrayList<Pair<LogFileKey,LogFileValue>> buffer, int part) throws IOException {
-      String path = destPath + String.format("/part-r-%05d", part++);
-      MapFile.Writer output = new MapFile.Writer(fs.getConf(), fs, path, LogFileKey.class, LogFileValue.class);
-      try {
-        Collections.sort(buffer, new Comparator<Pair<LogFileKey,LogFileValue>>() {
-          @Override
-          public int compare(Pair<LogFileKey,LogFileValue> o1, Pair<LogFileKey,LogFileValue> o2) {
-            return o1.getFirst().compareTo(o2.getFirst());
+    /**
+     * Throws the exception from any part that failed to sort, removing the parts that have finished.
+     */
+    private void checkParts(List<Future<?>> parts) throws Exception {
+      Iterator<Future<?>> iter = parts.iterator();
+      while (iter.hasNext()) {
+        Future<?> future = iter.next();
+        if (future.isDone()) {
+          try {
+            future.get();
+          } catch (ExecutionException e) {
+            throw (Exception) (e.getCause() instanceof Exception ? e.getCause() : e);
           }
-        });
-        for (Pair<LogFileKey,LogFileValue> entry : buffer) {
-          output.append(entry.getFirst(), entry.getSecond());
+          iter.remove();
         }
+      }
+    }
+    
+    private class PartWriter implements Callable<Void> {
+      private final String destPath;
+      private SortBuffer buffer;
+      private final int part;
+      private final Semaphore buffers;
+      
+      PartWriter(String destPath, SortBuffer buffer, int part, Semaphore buffers) {
+        this.destPath = destPath;
+        this.buffer = buffer;
+        this.part = part;
+        this.buffers = buffers;
+      }
+      
+      @Override
+      public Void call() throws IOException {
+        try {
+          writeBuffer(destPath, buffer, part);
+          return null;
+        } finally {
+          // let go of the buffer before letting the reader start another
+          buffer = null;
+          buffers.release();
+        }
+      }
+    }
+    
+    private void writeBuffer(String destPath, SortBuffer buffer, int part) throws IOException {
+      String path = destPath + String.format("/part-r-%05d", part);
+      MapFile.Writer output = new MapFile.Writer(fs.getConf(), fs, path, LogFileKey.class, LogFileValue.class);
+      SortedLogIndex index;
+      try {
+        index = buffer.write(output);
       } finally {
         output.close();
       }
+      index.write(fs, new Path(path));
     }
     
     synchronized void close() throws IOException {
@@ -241,6 +296,10 @@ public class LogSorter {
   }
   
   ThreadPoolExecutor threadPool;
+  // sorts and writes out the parts of the logs being recovered
+  private final ThreadPoolExecutor sortThreadPool;
+  // the number of parts of one log that may be sorted at once
+  private final int sortThreads;
   private Instance instance;
   
   public LogSorter(Instance instance, FileSystem fs, AccumuloConfiguration conf) {
@@ -249,6 +308,8 @@ public class LogSorter {
     this.conf = conf;
     int threadPoolSize = conf.getCount(Property.TSERV_RECOVERY_MAX_CONCURRENT);
     this.threadPool = new SimpleThreadPool(threadPoolSize, this.getClass().getName());
+    this.sortThreads = Math.max(1, conf.getCount(Property.TSERV_SORT_THREADS));
+    this.sortThreadPool = new SimpleThreadPool(sortThreads * threadPoolSize, "log sort");
   }
   
   public void startWatchingForRecoveryLogs(ThreadPoolExecutor distWorkQThreadPool) throws KeeperException, InterruptedException {
@@ -18,6 +18,7 @@ package org.apache.accumulo.server.tabletserver.log;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.util.Collection;
 
 import org.apache.commons.collections.buffer.PriorityBuffer;
 import org.apache.hadoop.conf.Configuration;
@@ -88,6 +89,14 @@ public class MultiReader {
   private PriorityBuffer heap = new PriorityBuffer();
   
   public MultiReader(FileSystem fs, Configuration conf, String directory) throws IOException {
+    this(fs, conf, directory, null);
+  }
+  
+  /**
+   * @param parts
+   *          the names of the maps within the directory to read, or null to read all of them
+   */
+  public MultiReader(FileSystem fs, Configuration conf, String directory, Collection<String> parts) throws IOException {
     boolean foundFinish = false;
     for (FileStatus child : fs.listStatus(new Path(directory))) {
       if (child.getPath().getName().startsWith("_"))
@@ -96,6 +105,8 @@ public class MultiReader {
         foundFinish = true;
         continue;
       }
+      if (parts != null && !parts.contains(child.getPath().getName()))
+        continue;
       heap.add(new Index(new Reader(fs, child.getPath().toString(), conf)));
     }
     if (!foundFinish)
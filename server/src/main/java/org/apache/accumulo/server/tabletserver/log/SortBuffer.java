@@ -0,0 +1,293 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.server.tabletserver.log;
+
+import static org.apache.accumulo.server.logger.LogEvents.DEFINE_TABLET;
+import static org.apache.accumulo.server.logger.LogEvents.MANY_MUTATIONS;
+import static org.apache.accumulo.server.logger.LogEvents.MUTATION;
+import static org.apache.accumulo.server.logger.LogEvents.OPEN;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.server.logger.LogEvents;
+import org.apache.accumulo.server.logger.LogFileKey;
+import org.apache.accumulo.server.logger.LogFileValue;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Holds write-ahead log records in their serialized form while they are sorted for recovery. Records are copied into one array as they are read and sorted by
+ * comparing the serialized keys, so a buffer costs little more memory than the log it holds and no objects are created for a record until it is written out.
+ * 
+ * <p>
+ * Records with equal keys stay in the order they were read, which recovery relies on to replay mutations in the order they were logged.
+ */
+class SortBuffer {
+  
+  private static final LogEvents[] EVENTS = LogEvents.values();
+  
+  private final int capacity;
+  private byte[] data;
+  private int length = 0;
+  // the start of each record, the entry after the last record is the start of the record being read
+  private int[] offsets = new int[1024];
+  private int count = 0;
+  
+  private InputStream source;
+  private final LogFileKey key = new LogFileKey();
+  
+  // everything read through this stream is kept in the buffer
+  private final DataInputStream capture = new DataInputStream(new InputStream() {
+    @Override
+    public int read() throws IOException {
+      int b = source.read();
+      if (b >= 0) {
+        ensureCapacity(length + 1);
+        data[length++] = (byte) b;
+      }
+      return b;
+    }
+    
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int start = length;
+      int read = fill(source, len);
+      if (read > 0)
+        System.arraycopy(data, start, b, off, read);
+      return read;
+    }
+    
+    @Override
+    public long skip(long n) throws IOException {
+      int read = fill(source, (int) Math.min(n, 1 << 16));
+      return Math.max(read, 0);
+    }
+  });
+  
+  /**
+   * @param capacity
+   *          the number of bytes the buffer is expected to grow to, it will hold more when a record crosses this size
+   */
+  SortBuffer(int capacity) {
+    this.capacity = capacity;
+    this.data = new byte[Math.min(capacity, 1 << 16)];
+  }
+  
+  int getCount() {
+    return count;
+  }
+  
+  int getLength() {
+    return length;
+  }
+  
+  boolean isFull() {
+    return length >= capacity;
+  }
+  
+  private void ensureCapacity(int needed) {
+    if (needed > data.length) {
+      // grow geometrically, but do not overshoot the expected size by much unless a record crossing it needs the room
+      long size = Math.max((long) data.length * 2, needed);
+      if (needed <= capacity + (1 << 20))
+        size = Math.min(size, capacity + (1 << 20));
+      if (size > Integer.MAX_VALUE - 8)
+        throw new IllegalStateException("Log sort buffer can not hold " + needed + " bytes");
+      byte[] grown = new byte[(int) size];
+      System.arraycopy(data, 0, grown, 0, length);
+      data = grown;
+    }
+  }
+  
+  /**
+   * Copies bytes read from a stream into the record being read.
+   */
+  private int fill(InputStream in, int len) throws IOException {
+    ensureCapacity(length + len);
+    int read = in.read(data, length, len);
+    if (read > 0)
+      length += read;
+    return read;
+  }
+  
+  /**
+   * Reads the next record from the log into the buffer. When the log ends part way through a record, the partial record is dropped and an EOFException is
+   * thrown, as reading the record as objects would.
+   */
+  void readRecord(InputStream in) throws IOException {
+    source = in;
+    int start = length;
+    try {
+      key.readFields(capture);
+      skipValue(capture);
+    } catch (EOFException ex) {
+      length = start;
+      throw ex;
+    }
+    
+    if (count + 1 >= offsets.length) {
+      int[] grown = new int[offsets.length * 2];
+      System.arraycopy(offsets, 0, grown, 0, count + 1);
+      offsets = grown;
+    }
+    offsets[count] = start;
+    offsets[++count] = length;
+  }
+  
+  private static void skipFully(DataInputStream in, int len) throws IOException {
+    while (len > 0) {
+      int skipped = in.skipBytes(len);
+      if (skipped <= 0)
+        throw new EOFException();
+      len -= skipped;
+    }
+  }
+  
+  /**
+   * Reads past a serialized {@link LogFileValue} without creating its mutations.
+   */
+  private static void skipValue(DataInputStream in) throws IOException {
+    int mutations = in.readInt();
+    for (int i = 0; i < mutations; i++) {
+      byte first = in.readByte();
+      if ((first & 0x80) != 0x80) {
+        // mutations written before the current format are rare, just read them
+        new Mutation().oldReadFields(first, in);
+        continue;
+      }
+      skipFully(in, WritableUtils.readVInt(in));
+      skipFully(in, WritableUtils.readVInt(in));
+      WritableUtils.readVInt(in);
+      if ((first & 0x01) == 0x01) {
+        int values = WritableUtils.readVInt(in);
+        for (int v = 0; v < values; v++)
+          skipFully(in, WritableUtils.readVInt(in));
+      }
+      // the system time a ServerMutation appends
+      WritableUtils.readVLong(in);
+    }
+  }
+  
+  private int readInt(int pos) {
+    return ((data[pos] & 0xff) << 24) | ((data[pos + 1] & 0xff) << 16) | ((data[pos + 2] & 0xff) << 8) | (data[pos + 3] & 0xff);
+  }
+  
+  private long readLong(int pos) {
+    return ((long) readInt(pos) << 32) | (readInt(pos + 4) & 0xffffffffl);
+  }
+  
+  private static int eventType(int event) {
+    // the same order as LogFileKey.eventType
+    LogEvents e = EVENTS[event];
+    if (e == MUTATION || e == MANY_MUTATIONS)
+      return 3;
+    if (e == DEFINE_TABLET)
+      return 1;
+    if (e == OPEN)
+      return 0;
+    return 2;
+  }
+  
+  /**
+   * Compares two serialized keys the way {@link LogFileKey#compareTo(LogFileKey)} compares them. Every event but OPEN serializes its seq and then its tid
+   * right after the event.
+   */
+  int compare(int record1, int record2) {
+    int pos1 = offsets[record1];
+    int pos2 = offsets[record2];
+    int event1 = data[pos1];
+    int event2 = data[pos2];
+    int type1 = eventType(event1);
+    int type2 = eventType(event2);
+    if (type1 != type2)
+      return type1 - type2;
+    if (EVENTS[event1] == OPEN)
+      return 0;
+    int tid1 = readInt(pos1 + 9);
+    int tid2 = readInt(pos2 + 9);
+    if (tid1 != tid2)
+      return tid1 - tid2;
+    long seq1 = readLong(pos1 + 1);
+    long seq2 = readLong(pos2 + 1);
+    return seq1 < seq2 ? -1 : (seq1 > seq2 ? 1 : 0);
+  }
+  
+  /**
+   * @return the record numbers in sorted order
+   */
+  int[] sort() {
+    int[] order = new int[count];
+    for (int i = 0; i < count; i++)
+      order[i] = i;
+    mergeSort(order.clone(), order, 0, count);
+    return order;
+  }
+  
+  // a stable merge sort of dest[low, high), src holds the same values on entry
+  private void mergeSort(int[] src, int[] dest, int low, int high) {
+    int len = high - low;
+    if (len < 8) {
+      for (int i = low + 1; i < high; i++)
+        for (int j = i; j > low && compare(dest[j - 1], dest[j]) > 0; j--) {
+          int tmp = dest[j];
+          dest[j] = dest[j - 1];
+          dest[j - 1] = tmp;
+        }
+      return;
+    }
+    
+    int mid = (low + high) >>> 1;
+    mergeSort(dest, src, low, mid);
+    mergeSort(dest, src, mid, high);
+    
+    if (compare(src[mid - 1], src[mid]) <= 0) {
+      System.arraycopy(src, low, dest, low, len);
+      return;
+    }
+    
+    for (int i = low, p = low, q = mid; i < high; i++) {
+      if (q >= high || (p < mid && compare(src[p], src[q]) <= 0))
+        dest[i] = src[p++];
+      else
+        dest[i] = src[q++];
+    }
+  }
+  
+  /**
+   * Sorts the records and appends them to a map file.
+   * 
+   * @return an index of what was written
+   */
+  SortedLogIndex write(MapFile.Writer output) throws IOException {
+    DataInputBuffer in = new DataInputBuffer();
+    LogFileValue value = new LogFileValue();
+    SortedLogIndex index = new SortedLogIndex();
+    for (int record : sort()) {
+      in.reset(data, offsets[record], offsets[record + 1] - offsets[record]);
+      key.readFields(in);
+      value.readFields(in);
+      output.append(key, value);
+      index.add(key);
+    }
+    return index;
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.server.tabletserver.log;
+
+import static org.apache.accumulo.server.logger.LogEvents.COMPACTION_FINISH;
+import static org.apache.accumulo.server.logger.LogEvents.COMPACTION_START;
+import static org.apache.accumulo.server.logger.LogEvents.DEFINE_TABLET;
+import static org.apache.accumulo.server.logger.LogEvents.MANY_MUTATIONS;
+import static org.apache.accumulo.server.logger.LogEvents.MUTATION;
+import static org.apache.accumulo.server.logger.LogEvents.OPEN;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.data.KeyExtent;
+import org.apache.accumulo.server.logger.LogFileKey;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Writable;
+
+/**
+ * A summary of one sorted part of a write-ahead log, written into the part's directory by {@link LogSorter}. It holds the tablet definitions in the part and,
+ * for each tablet id, whether the part has compaction events for it and the range of sequence numbers of its mutations. Recovery uses it to open only the
+ * parts that hold something for the tablet it is recovering.
+ */
+public class SortedLogIndex implements Writable {
+  
+  public static final String NAME = "tablets";
+  
+  private static final int VERSION = 1;
+  
+  private static class TabletEntries {
+    long compactions = 0;
+    long minMutationSeq = Long.MAX_VALUE;
+    long maxMutationSeq = Long.MIN_VALUE;
+  }
+  
+  private long entries = 0;
+  private String tserverSession = null;
+  private List<LogFileKey> definitions = new ArrayList<LogFileKey>();
+  private Map<Integer,TabletEntries> tablets = new TreeMap<Integer,TabletEntries>();
+  
+  private TabletEntries getTablet(int tid) {
+    TabletEntries entries = tablets.get(tid);
+    if (entries == null) {
+      entries = new TabletEntries();
+      tablets.put(tid, entries);
+    }
+    return entries;
+  }
+  
+  /**
+   * Adds a key written to the part. The key is not kept.
+   */
+  public void add(LogFileKey key) {
+    entries++;
+    if (key.event == OPEN) {
+      tserverSession = key.tserverSession;
+    } else if (key.event == DEFINE_TABLET) {
+      LogFileKey definition = new LogFileKey();
+      definition.event = DEFINE_TABLET;
+      definition.seq = key.seq;
+      definition.tid = key.tid;
+      definition.tablet = new KeyExtent(key.tablet);
+      definitions.add(definition);
+    } else if (key.event == COMPACTION_START || key.event == COMPACTION_FINISH) {
+      getTablet(key.tid).compactions++;
+    } else if (key.event == MUTATION || key.event == MANY_MUTATIONS) {
+      TabletEntries tablet = getTablet(key.tid);
+      tablet.minMutationSeq = Math.min(tablet.minMutationSeq, key.seq);
+      tablet.maxMutationSeq = Math.max(tablet.maxMutationSeq, key.seq);
+    }
+  }
+  
+  public long getEntries() {
+    return entries;
+  }
+  
+  /**
+   * @return the session of the OPEN event in this part, or null if the part does not hold it
+   */
+  public String getTserverSession() {
+    return tserverSession;
+  }
+  
+  public List<LogFileKey> getDefinitions() {
+    return definitions;
+  }
+  
+  public boolean hasCompactions(int tid) {
+    TabletEntries tablet = tablets.get(tid);
+    return tablet != null && tablet.compactions > 0;
+  }
+  
+  /**
+   * @return true if the part has mutations for the tablet id with a sequence number at or after seq
+   */
+  public boolean hasMutations(int tid, long seq) {
+    TabletEntries tablet = tablets.get(tid);
+    return tablet != null && tablet.maxMutationSeq >= seq;
+  }
+  
+  @Override
+  public void write(DataOutput out) throws IOException {
+    out.writeInt(VERSION);
+    out.writeLong(entries);
+    out.writeBoolean(tserverSession != null);
+    if (tserverSession != null)
+      out.writeUTF(tserverSession);
+    out.writeInt(definitions.size());
+    for (LogFileKey definition : definitions) {
+      out.writeLong(definition.seq);
+      out.writeInt(definition.tid);
+      definition.tablet.write(out);
+    }
+    out.writeInt(tablets.size());
+    for (Map.Entry<Integer,TabletEntries> entry : tablets.entrySet()) {
+      out.writeInt(entry.getKey());
+      out.writeLong(entry.getValue().compactions);
+      out.writeLong(entry.getValue().minMutationSeq);
+      out.writeLong(entry.getValue().maxMutationSeq);
+    }
+  }
+  
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    int version = in.readInt();
+    if (version != VERSION)
+      throw new IOException("Unknown sorted log index version " + version);
+    entries = in.readLong();
+    tserverSession = in.readBoolean() ? in.readUTF() : null;
+    int count = in.readInt();
+    definitions = new ArrayList<LogFileKey>(count);
+    for (int i = 0; i < count; i++) {
+      LogFileKey definition = new LogFileKey();
+      definition.event = DEFINE_TABLET;
+      definition.seq = in.readLong();
+      definition.tid = in.readInt();
+      definition.tablet = new KeyExtent();
+      definition.tablet.readFields(in);
+      definitions.add(definition);
+    }
+    count = in.readInt();
+    tablets = new TreeMap<Integer,TabletEntries>();
+    for (int i = 0; i < count; i++) {
+      TabletEntries tablet = new TabletEntries();
+      int tid = in.readInt();
+      tablet.compactions = in.readLong();
+      tablet.minMutationSeq = in.readLong();
+      tablet.maxMutationSeq = in.readLong();
+      tablets.put(tid, tablet);
+    }
+  }
+  
+  public void write(FileSystem fs, Path part) throws IOException {
+    FSDataOutputStream out = fs.create(new Path(part, NAME));
+    try {
+      write(out);
+    } finally {
+      out.close();
+    }
+  }
+  
+  /**
+   * @return the index of a sorted part, or null if the part was sorted without one
+   */
+  public static SortedLogIndex read(FileSystem fs, Path part) throws IOException {
+    FSDataInputStream in;
+    try {
+      in = fs.open(new Path(part, NAME));
+    } catch (FileNotFoundException ex) {
+      return null;
+    }
+    try {
+      SortedLogIndex index = new SortedLogIndex();
+      index.readFields(in);
+      return index;
+    } finally {
+      in.close();
+    }
+  }
+}
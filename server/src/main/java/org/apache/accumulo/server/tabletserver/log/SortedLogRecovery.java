@@ -23,20 +23,31 @@ import static org.apache.accumulo.server.logger.LogEvents.MANY_MUTATIONS;
 import static org.apache.accumulo.server.logger.LogEvents.MUTATION;
 import static org.apache.accumulo.server.logger.LogEvents.OPEN;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import org.apache.accumulo.core.data.KeyExtent;
 import org.apache.accumulo.core.data.Mutation;
 import org.apache.accumulo.core.file.FileUtil;
 import org.apache.accumulo.core.util.CachedConfiguration;
+import org.apache.accumulo.core.util.Pair;
 import org.apache.accumulo.server.conf.ServerConfiguration;
 import org.apache.accumulo.server.logger.LogFileKey;
 import org.apache.accumulo.server.logger.LogFileValue;
 import org.apache.accumulo.server.trace.TraceFileSystem;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.log4j.Logger;
 
 /**
@@ -83,49 +94,189 @@ public class SortedLogRecovery {
     }
   }
   
+  // the indexes of recently read sorted logs, a server recovering many tablets reads the same logs for each of them
+  private static final int INDEX_CACHE_SIZE = 20;
+  private static final Map<String,Pair<Long,Map<String,SortedLogIndex>>> indexCache = Collections
+      .synchronizedMap(new LinkedHashMap<String,Pair<Long,Map<String,SortedLogIndex>>>(INDEX_CACHE_SIZE, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+        
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String,Pair<Long,Map<String,SortedLogIndex>>> eldest) {
+          return size() > INDEX_CACHE_SIZE;
+        }
+      });
+  
+  /**
+   * @return the index of each part of a sorted log by the part's name, or null if the log is not finished sorting or any part was sorted without an index
+   */
+  static Map<String,SortedLogIndex> getIndexes(FileSystem fs, String logfile) throws IOException {
+    FileStatus finished;
+    try {
+      finished = fs.getFileStatus(new Path(logfile, "finished"));
+    } catch (FileNotFoundException ex) {
+      return null;
+    }
+    
+    // a log that is sorted again gets a new finished flag
+    Pair<Long,Map<String,SortedLogIndex>> cached = indexCache.get(logfile);
+    if (cached != null && cached.getFirst() == finished.getModificationTime())
+      return cached.getSecond();
+    
+    Map<String,SortedLogIndex> indexes = new HashMap<String,SortedLogIndex>();
+    for (FileStatus child : fs.listStatus(new Path(logfile))) {
+      String name = child.getPath().getName();
+      if (name.startsWith("_") || name.equals("finished"))
+        continue;
+      SortedLogIndex index = SortedLogIndex.read(fs, child.getPath());
+      if (index == null)
+        return null;
+      indexes.put(name, index);
+    }
+    indexCache.put(logfile, new Pair<Long,Map<String,SortedLogIndex>>(finished.getModificationTime(), indexes));
+    return indexes;
+  }
+  
   public void recover(KeyExtent extent, List<String> recoveryLogs, Set<String> tabletFiles, MutationReceiver mr) throws IOException {
     Configuration conf = CachedConfiguration.getInstance();
     FileSystem fs = TraceFileSystem.wrap(FileUtil.getFileSystem(conf, ServerConfiguration.getSiteConfiguration()));
+    recover(fs, conf, extent, recoveryLogs, tabletFiles, mr);
+  }
+  
+  void recover(FileSystem fs, Configuration conf, KeyExtent extent, List<String> recoveryLogs, Set<String> tabletFiles, MutationReceiver mr) throws IOException {
     int[] tids = new int[recoveryLogs.size()];
+    String[] sessions = new String[recoveryLogs.size()];
+    List<Map<String,SortedLogIndex>> indexes = new ArrayList<Map<String,SortedLogIndex>>(recoveryLogs.size());
     LastStartToFinish lastStartToFinish = new LastStartToFinish();
     for (int i = 0; i < recoveryLogs.size(); i++) {
       String logfile = recoveryLogs.get(i);
       log.info("Looking at mutations from " + logfile + " for " + extent);
-      MultiReader reader = new MultiReader(fs, conf, logfile);
+      Map<String,SortedLogIndex> index = getIndexes(fs, logfile);
+      indexes.add(index);
       try {
-        try {
-          tids[i] = findLastStartToFinish(reader, i, extent, tabletFiles, lastStartToFinish);
-        } catch (EmptyMapFileException ex) {
-          log.info("Ignoring empty map file " + logfile);
-          tids[i] = -1;
+        if (index != null) {
+          tids[i] = findLastStartToFinish(fs, conf, logfile, index, i, extent, tabletFiles, lastStartToFinish);
+          sessions[i] = lastStartToFinish.tserverSession;
+          continue;
         }
-      } finally {
+        
+        MultiReader reader = new MultiReader(fs, conf, logfile);
         try {
-          reader.close();
-        } catch (IOException ex) {
-          log.warn("Ignoring error closing file");
+          tids[i] = findLastStartToFinish(reader, i, extent, tabletFiles, lastStartToFinish);
+          sessions[i] = lastStartToFinish.tserverSession;
+        } finally {
+          try {
+            reader.close();
+          } catch (IOException ex) {
+            log.warn("Ignoring error closing file");
+          }
         }
+      } catch (EmptyMapFileException ex) {
+        log.info("Ignoring empty map file " + logfile);
+        tids[i] = -1;
       }
-      
     }
     
     if (lastStartToFinish.compactionStatus == Status.LOOKING_FOR_FINISH)
       throw new RuntimeException("COMPACTION_FINISH (without preceding COMPACTION_START) not followed by successful minor compaction");
     
-    for (int i = 0; i < recoveryLogs.size(); i++) {
-      String logfile = recoveryLogs.get(i);
-      MultiReader reader = new MultiReader(fs, conf, logfile);
-      try {
-        playbackMutations(reader, tids[i], lastStartToFinish, mr);
-      } finally {
+    List<MutationSource> sources = new ArrayList<MutationSource>();
+    try {
+      for (int i = 0; i < recoveryLogs.size(); i++) {
+        String logfile = recoveryLogs.get(i);
+        Collection<String> parts = null;
+        if (indexes.get(i) != null) {
+          parts = new ArrayList<String>();
+          for (Entry<String,SortedLogIndex> entry : indexes.get(i).entrySet())
+            if (entry.getValue().hasMutations(tids[i], lastStartToFinish.seq))
+              parts.add(entry.getKey());
+          if (parts.isEmpty()) {
+            log.info("No mutations to recover from " + logfile);
+            continue;
+          }
+        }
+        MutationSource source = new MutationSource(logfile, sessions[i], new MultiReader(fs, conf, logfile, parts), tids[i]);
+        sources.add(source);
+        source.seek(lastStartToFinish.seq);
+      }
+      playbackMutations(sources, mr);
+    } finally {
+      for (MutationSource source : sources) {
         try {
-          reader.close();
+          source.reader.close();
         } catch (IOException ex) {
           log.warn("Ignoring error closing file");
         }
       }
-      log.info("Recovery complete for " + logfile);
     }
+    for (MutationSource source : sources)
+      log.info("Recovery complete for " + source.logfile);
+  }
+  
+  private static void checkSession(String tserverSession, LastStartToFinish lastStartToFinish) {
+    if (tserverSession.compareTo(lastStartToFinish.tserverSession) != 0) {
+      if (lastStartToFinish.compactionStatus == Status.LOOKING_FOR_FINISH)
+        throw new RuntimeException("COMPACTION_FINISH (without preceding COMPACTION_START) is not followed by a successful minor compaction.");
+      lastStartToFinish.update(tserverSession);
+    }
+  }
+  
+  /**
+   * Finds the tablet's definition and compaction events using the indexes of a sorted log, reading only the parts that hold compaction events for the tablet.
+   */
+  int findLastStartToFinish(FileSystem fs, Configuration conf, String logfile, Map<String,SortedLogIndex> indexes, int fileno, KeyExtent extent,
+      Set<String> tabletFiles, LastStartToFinish lastStartToFinish) throws IOException, EmptyMapFileException {
+    long entries = 0;
+    String tserverSession = null;
+    List<LogFileKey> definitions = new ArrayList<LogFileKey>();
+    for (SortedLogIndex index : indexes.values()) {
+      entries += index.getEntries();
+      if (index.getTserverSession() != null)
+        tserverSession = index.getTserverSession();
+      for (LogFileKey definition : index.getDefinitions())
+        if (definition.tablet.equals(extent))
+          definitions.add(definition);
+    }
+    if (entries == 0)
+      throw new EmptyMapFileException();
+    if (tserverSession == null)
+      throw new RuntimeException("First log entry value is not OPEN");
+    
+    checkSession(tserverSession, lastStartToFinish);
+    
+    // the same choice as reading the definitions in sorted order, the maximum tablet id and its minimum sequence number
+    Collections.sort(definitions);
+    int tid = -1;
+    LogFileKey defineKey = null;
+    for (LogFileKey definition : definitions) {
+      if (tid != definition.tid) {
+        tid = definition.tid;
+        defineKey = definition;
+      }
+    }
+    if (tid < 0) {
+      throw new RuntimeException("log file contains no tablet definition for key extent " + extent);
+    }
+    
+    log.debug("Found tid, seq " + tid + " " + defineKey.seq);
+    
+    List<String> parts = new ArrayList<String>();
+    for (Entry<String,SortedLogIndex> entry : indexes.entrySet())
+      if (entry.getValue().hasCompactions(tid))
+        parts.add(entry.getKey());
+    if (parts.isEmpty())
+      return tid;
+    
+    MultiReader reader = new MultiReader(fs, conf, logfile, parts);
+    try {
+      findCompactions(reader, fileno, tid, defineKey.seq, tabletFiles, lastStartToFinish);
+    } finally {
+      try {
+        reader.close();
+      } catch (IOException ex) {
+        log.warn("Ignoring error closing file");
+      }
+    }
+    return tid;
   }
   
   int findLastStartToFinish(MultiReader reader, int fileno, KeyExtent extent, Set<String> tabletFiles, LastStartToFinish lastStartToFinish) throws IOException, EmptyMapFileException {
@@ -138,11 +289,7 @@ public class SortedLogRecovery {
     if (key.event != OPEN)
       throw new RuntimeException("First log entry value is not OPEN");
     
-    if (key.tserverSession.compareTo(lastStartToFinish.tserverSession) != 0) {
-      if (lastStartToFinish.compactionStatus == Status.LOOKING_FOR_FINISH)
-        throw new RuntimeException("COMPACTION_FINISH (without preceding COMPACTION_START) is not followed by a successful minor compaction.");
-      lastStartToFinish.update(key.tserverSession);
-    }
+    checkSession(key.tserverSession, lastStartToFinish);
     
     LogFileKey defineKey = null;
     
@@ -166,9 +313,19 @@ public class SortedLogRecovery {
     
     log.debug("Found tid, seq " + tid + " " + defineKey.seq);
     
+    findCompactions(reader, fileno, tid, defineKey.seq, tabletFiles, lastStartToFinish);
+    return tid;
+  }
+  
+  private void findCompactions(MultiReader reader, int fileno, int tid, long seq, Set<String> tabletFiles, LastStartToFinish lastStartToFinish)
+      throws IOException {
+    LogFileKey key = new LogFileKey();
+    LogFileValue value = new LogFileValue();
+    
     // Scan start/stop events for this tablet
-    key = defineKey;
     key.event = COMPACTION_START;
+    key.tid = tid;
+    key.seq = seq;
     reader.seek(key);
     while (reader.next(key, value)) {
       // LogFileEntry.printEntry(entry);
@@ -197,37 +354,82 @@ public class SortedLogRecovery {
       } else
         break;
     }
-    return tid;
   }
   
-  private void playbackMutations(MultiReader reader, int tid, LastStartToFinish lastStartToFinish, MutationReceiver mr) throws IOException {
-    LogFileKey key = new LogFileKey();
-    LogFileValue value = new LogFileValue();
+  /**
+   * The mutations for a tablet in one sorted log, read in order of sequence number.
+   */
+  private static class MutationSource {
+    final String logfile;
+    final String tserverSession;
+    final MultiReader reader;
+    final int tid;
+    final LogFileKey key = new LogFileKey();
+    final LogFileValue value = new LogFileValue();
+    boolean hasTop = false;
     
-    // Playback mutations after the last stop to finish
-    log.info("Scanning for mutations starting at sequence number " + lastStartToFinish.seq + " for tid " + tid);
-    key.event = MUTATION;
-    key.tid = tid;
-    // the seq number for the minor compaction start is now the same as the
-    // last update made to memory. Scan up to that mutation, but not past it.
-    key.seq = lastStartToFinish.seq;
-    reader.seek(key);
+    MutationSource(String logfile, String tserverSession, MultiReader reader, int tid) {
+      this.logfile = logfile;
+      this.tserverSession = tserverSession;
+      this.reader = reader;
+      this.tid = tid;
+    }
+    
+    void seek(long seq) throws IOException {
+      // the seq number for the minor compaction start is now the same as the
+      // last update made to memory. Scan up to that mutation, but not past it.
+      log.info("Scanning " + logfile + " for mutations starting at sequence number " + seq + " for tid " + tid);
+      key.event = MUTATION;
+      key.tid = tid;
+      key.seq = seq;
+      reader.seek(key);
+      next();
+    }
+    
+    void next() throws IOException {
+      hasTop = reader.next(key, value) && key.tid == tid;
+      if (hasTop && key.event != MUTATION && key.event != MANY_MUTATIONS)
+        throw new RuntimeException("unexpected log key type: " + key.event);
+    }
+  }
+  
+  /**
+   * Replays the tablet's mutations from its logs in the order they are listed, except that the logs a tablet server wrote at the same time are merged by
+   * sequence number. Sequence numbers start over with each tablet server session, so only logs from the same session are merged. A commit session writes all
+   * of its mutations to one log, so mutations with the same sequence number in different logs come from different sets of logs, and those are replayed in the
+   * order the logs are listed.
+   */
+  private void playbackMutations(List<MutationSource> sources, MutationReceiver mr) throws IOException {
+    int start = 0;
+    while (start < sources.size()) {
+      int end = start + 1;
+      while (end < sources.size() && sources.get(start).tserverSession != null
+          && sources.get(start).tserverSession.equals(sources.get(end).tserverSession))
+        end++;
+      mergeMutations(sources.subList(start, end), mr);
+      start = end;
+    }
+  }
+  
+  private void mergeMutations(List<MutationSource> sources, MutationReceiver mr) throws IOException {
     while (true) {
-      if (!reader.next(key, value))
-        break;
-      if (key.tid != tid)
+      MutationSource next = null;
+      for (MutationSource source : sources)
+        if (source.hasTop && (next == null || source.key.seq < next.key.seq))
+          next = source;
+      if (next == null)
         break;
-      // log.info("Replaying " + key);
-      // log.info(value);
-      if (key.event == MUTATION) {
-        mr.receive(value.mutations.get(0));
-      } else if (key.event == MANY_MUTATIONS) {
-        for (Mutation m : value.mutations) {
+      
+      // log.info("Replaying " + next.key);
+      // log.info(next.value);
+      if (next.key.event == MUTATION) {
+        mr.receive(next.value.mutations.get(0));
+      } else {
+        for (Mutation m : next.value.mutations) {
           mr.receive(m);
         }
-      } else {
-        throw new RuntimeException("unexpected log key type: " + key.event);
       }
+      next.next();
     }
   }
 }
@@ -25,6 +25,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -74,6 +76,24 @@ public class TabletServerLogger {
   
   private final AtomicInteger seqGen = new AtomicInteger();
   
+  // the number of write-ahead logs that are open at once, each commit is written to one of them
+  private final int concurrentLogs;
+  private final AtomicInteger nextLogger = new AtomicInteger();
+  // the log each commit session writes its mutations to. Updates to a tablet get the same sequence number until its next minor compaction, so recovery can
+  // only put updates in different logs in order when they have different sequence numbers
+  private final Map<CommitSession,DfsLogger> sessionLogs = new WeakHashMap<CommitSession,DfsLogger>();
+  
+  // a log whose recent or outstanding syncs are this much slower than the fastest log's is passed over, until it has gone unused long enough to be tried
+  // again
+  private static final int DEGRADED_SYNC_RATIO = 2;
+  private static final long DEGRADED_SYNC_SLACK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final long DEGRADED_RETRY_MILLIS = 1000;
+  
+  // sync statistics across every log this server has written, including the ones that have since been closed
+  private final LogHistogram batchSizes = new LogHistogram("batch bytes");
+  private final LogHistogram syncTimes = new LogHistogram("sync micros");
+  private final LogHistogram queueTimes = new LogHistogram("queue micros");
+  
   private static boolean enabled(Tablet tablet) {
     return tablet.getTableConfiguration().getBoolean(Property.TABLE_WALOG_ENABLED);
   }
@@ -127,8 +147,39 @@ public class TabletServerLogger {
   }
   
   public TabletServerLogger(TabletServer tserver, long maxSize) {
+    this(tserver, maxSize, 1);
+  }
+  
+  public TabletServerLogger(TabletServer tserver, long maxSize, int concurrentLogs) {
     this.tserver = tserver;
-    this.maxSize = maxSize;
+    this.concurrentLogs = Math.max(1, concurrentLogs);
+    // the size limit applies to each log
+    this.maxSize = maxSize * this.concurrentLogs;
+  }
+  
+  public int getConcurrentLogs() {
+    return concurrentLogs;
+  }
+  
+  /**
+   * @return the number of bytes made durable by each sync of this server's logs
+   */
+  public LogHistogram getBatchSizes() {
+    return batchSizes;
+  }
+  
+  /**
+   * @return the time each sync of this server's logs took, in microseconds
+   */
+  public LogHistogram getSyncTimes() {
+    return syncTimes;
+  }
+  
+  /**
+   * @return the time each update waited between being written to one of this server's logs and its sync starting, in microseconds
+   */
+  public LogHistogram getQueueTimes() {
+    return queueTimes;
   }
   
   private int initializeLoggers(final List<DfsLogger> copy) throws IOException {
@@ -180,12 +231,22 @@ public class TabletServerLogger {
     }
     
     try {
-      DfsLogger alog = new DfsLogger(tserver.getServerConfig());
-      alog.open(tserver.getClientAddressString());
-      loggers.add(alog);
+      for (int i = 0; i < concurrentLogs; i++) {
+        DfsLogger alog = new DfsLogger(tserver.getServerConfig(), batchSizes, syncTimes, queueTimes);
+        alog.open(tserver.getClientAddressString());
+        loggers.add(alog);
+      }
       logSetId.incrementAndGet();
       return;
     } catch (Exception t) {
+      for (DfsLogger alog : loggers) {
+        try {
+          alog.close();
+        } catch (Throwable ex) {
+          log.warn("Unable to close log " + alog + " after failing to create log set: " + ex);
+        }
+      }
+      loggers.clear();
       throw new RuntimeException(t);
     }
   }
@@ -221,15 +282,76 @@ public class TabletServerLogger {
   }
   
   interface Writer {
-    LoggerOperation write(DfsLogger logger, int seq) throws Exception;
+    /**
+     * @param sessions
+     *          the commit sessions whose events go to this log
+     */
+    LoggerOperation write(DfsLogger logger, Collection<CommitSession> sessions, int seq) throws Exception;
+  }
+  
+  /**
+   * Picks the log the commit session's mutations are written to. A session keeps writing to the same log for as long as that log is open.
+   */
+  private DfsLogger chooseLogger(CommitSession commitSession, List<DfsLogger> copy) {
+    if (copy.size() == 1)
+      return copy.get(0);
+    synchronized (sessionLogs) {
+      DfsLogger logger = sessionLogs.get(commitSession);
+      if (logger == null || !copy.contains(logger)) {
+        logger = chooseLogger(copy, nextLogger.getAndIncrement() & Integer.MAX_VALUE, System.currentTimeMillis());
+        sessionLogs.put(commitSession, logger);
+      }
+      return logger;
+    }
+  }
+  
+  private static long syncTime(DfsLogger logger) {
+    return Math.max(logger.getAverageSyncTime(), logger.getOutstandingSyncTime());
+  }
+  
+  /**
+   * Picks the log a commit is written to. Commits are spread round robin over the open logs, passing over any log whose recent syncs, or whose sync in
+   * progress, have been much slower than the fastest log's. A log passed over only for its past syncs is tried again once it has not been chosen for a
+   * while, so that it can show it has recovered. A log that is still in a slow sync is not.
+   */
+  static DfsLogger chooseLogger(List<DfsLogger> copy, int next, long now) {
+    long fastest = Long.MAX_VALUE;
+    for (DfsLogger logger : copy)
+      fastest = Math.min(fastest, syncTime(logger));
+    long threshold = fastest * DEGRADED_SYNC_RATIO + DEGRADED_SYNC_SLACK_NANOS;
+    
+    int start = next % copy.size();
+    for (int i = 0; i < copy.size(); i++) {
+      DfsLogger logger = copy.get((start + i) % copy.size());
+      if (syncTime(logger) <= threshold
+          || (logger.getOutstandingSyncTime() <= threshold && now - logger.getLastChosenTime() > DEGRADED_RETRY_MILLIS)) {
+        logger.setLastChosenTime(now);
+        return logger;
+      }
+    }
+    
+    // not reached, the fastest log always qualifies
+    return copy.get(start);
   }
   
   private int write(CommitSession commitSession, boolean mincFinish, Writer writer) throws IOException {
+    return write(commitSession, mincFinish, true, writer);
+  }
+  
+  private int write(CommitSession commitSession, boolean mincFinish, boolean allLogs, Writer writer) throws IOException {
     List<CommitSession> sessions = Collections.singletonList(commitSession);
-    return write(sessions, mincFinish, writer);
+    return write(sessions, mincFinish, allLogs, writer, null);
   }
   
-  private int write(Collection<CommitSession> sessions, boolean mincFinish, Writer writer) throws IOException {
+  /**
+   * @param allLogs
+   *          when true the event is written to every open log, otherwise each session's event goes to the log chosen for that session. Tablet definitions
+   *          and compaction events go to every log so that recovery can read each log a tablet references on its own, while mutations only need to be in
+   *          one.
+   * @param syncNanos
+   *          if not null, the time spent waiting for the logs to sync the event is added to it
+   */
+  private int write(Collection<CommitSession> sessions, boolean mincFinish, boolean allLogs, Writer writer, AtomicLong syncNanos) throws IOException {
     // Work very hard not to lock this during calls to the outside world
     int currentLogSet = logSetId.get();
     
@@ -268,16 +390,32 @@ public class TabletServerLogger {
           seq = seqGen.incrementAndGet();
           if (seq < 0)
             throw new RuntimeException("Logger sequence generator wrapped!  Onos!!!11!eleven");
-          ArrayList<LoggerOperation> queuedOperations = new ArrayList<LoggerOperation>(copy.size());
-          for (DfsLogger wal : copy) {
-            LoggerOperation lop = writer.write(wal, seq);
+          Map<DfsLogger,Collection<CommitSession>> targets = new HashMap<DfsLogger,Collection<CommitSession>>();
+          if (allLogs) {
+            for (DfsLogger wal : copy)
+              targets.put(wal, sessions);
+          } else {
+            for (CommitSession commitSession : sessions) {
+              DfsLogger wal = chooseLogger(commitSession, copy);
+              Collection<CommitSession> walSessions = targets.get(wal);
+              if (walSessions == null)
+                targets.put(wal, walSessions = new ArrayList<CommitSession>());
+              walSessions.add(commitSession);
+            }
+          }
+          ArrayList<LoggerOperation> queuedOperations = new ArrayList<LoggerOperation>(targets.size());
+          for (Entry<DfsLogger,Collection<CommitSession>> entry : targets.entrySet()) {
+            LoggerOperation lop = writer.write(entry.getKey(), entry.getValue(), seq);
             if (lop != null)
               queuedOperations.add(lop);
           }
           
+          long syncStart = System.nanoTime();
           for (LoggerOperation lop : queuedOperations) {
             lop.await();
           }
+          if (syncNanos != null)
+            syncNanos.addAndGet(System.nanoTime() - syncStart);
           
           // double-check: did the log set change?
           success = (currentLogSet == logSetId.get());
@@ -329,7 +467,7 @@ public class TabletServerLogger {
       return -1;
     return write(commitSession, false, new Writer() {
       @Override
-      public LoggerOperation write(DfsLogger logger, int ignored) throws Exception {
+      public LoggerOperation write(DfsLogger logger, Collection<CommitSession> sessions, int ignored) throws Exception {
         logger.defineTablet(commitSession.getWALogSeq(), commitSession.getLogId(), commitSession.getExtent());
         return null;
       }
@@ -339,9 +477,9 @@ public class TabletServerLogger {
   public int log(final CommitSession commitSession, final int tabletSeq, final Mutation m) throws IOException {
     if (!enabled(commitSession))
       return -1;
-    int seq = write(commitSession, false, new Writer() {
+    int seq = write(commitSession, false, false, new Writer() {
       @Override
-      public LoggerOperation write(DfsLogger logger, int ignored) throws Exception {
+      public LoggerOperation write(DfsLogger logger, Collection<CommitSession> sessions, int ignored) throws Exception {
         return logger.log(tabletSeq, commitSession.getLogId(), m);
       }
     });
@@ -350,6 +488,14 @@ public class TabletServerLogger {
   }
   
   public int logManyTablets(Map<CommitSession,List<Mutation>> mutations) throws IOException {
+    return logManyTablets(mutations, null);
+  }
+  
+  /**
+   * @param syncNanos
+   *          if not null, the part of the call spent waiting on log syncs is added to it
+   */
+  public int logManyTablets(Map<CommitSession,List<Mutation>> mutations, AtomicLong syncNanos) throws IOException {
     
     final Map<CommitSession,List<Mutation>> loggables = new HashMap<CommitSession,List<Mutation>>(mutations);
     for (CommitSession t : mutations.keySet()) {
@@ -359,17 +505,15 @@ public class TabletServerLogger {
     if (loggables.size() == 0)
       return -1;
     
-    int seq = write(loggables.keySet(), false, new Writer() {
+    int seq = write(loggables.keySet(), false, false, new Writer() {
       @Override
-      public LoggerOperation write(DfsLogger logger, int ignored) throws Exception {
-        List<TabletMutations> copy = new ArrayList<TabletMutations>(loggables.size());
-        for (Entry<CommitSession,List<Mutation>> entry : loggables.entrySet()) {
-          CommitSession cs = entry.getKey();
-          copy.add(new TabletMutations(cs.getLogId(), cs.getWALogSeq(), entry.getValue()));
-        }
+      public LoggerOperation write(DfsLogger logger, Collection<CommitSession> sessions, int ignored) throws Exception {
+        List<TabletMutations> copy = new ArrayList<TabletMutations>(sessions.size());
+        for (CommitSession cs : sessions)
+          copy.add(new TabletMutations(cs.getLogId(), cs.getWALogSeq(), loggables.get(cs)));
         return logger.logManyTablets(copy);
       }
-    });
+    }, syncNanos);
     for (List<Mutation> entry : loggables.values()) {
       if (entry.size() < 1)
         throw new IllegalArgumentException("logManyTablets: logging empty mutation list");
@@ -389,7 +533,7 @@ public class TabletServerLogger {
     
     int seq = write(commitSession, true, new Writer() {
       @Override
-      public LoggerOperation write(DfsLogger logger, int ignored) throws Exception {
+      public LoggerOperation write(DfsLogger logger, Collection<CommitSession> sessions, int ignored) throws Exception {
         logger.minorCompactionFinished(walogSeq, commitSession.getLogId(), fullyQualifiedFileName);
         return null;
       }
@@ -405,7 +549,7 @@ public class TabletServerLogger {
       return -1;
     write(commitSession, false, new Writer() {
       @Override
-      public LoggerOperation write(DfsLogger logger, int ignored) throws Exception {
+      public LoggerOperation write(DfsLogger logger, Collection<CommitSession> sessions, int ignored) throws Exception {
         logger.minorCompactionStarted(seq, commitSession.getLogId(), fullyQualifiedFileName);
         return null;
       }
@@ -16,8 +16,22 @@
  */
 package org.apache.accumulo.server.tabletserver.metrics;
 
+import java.util.Set;
+import java.util.TreeSet;
+
 import javax.management.ObjectName;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
 
+import org.apache.accumulo.core.file.blockfile.cache.BlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.LruBlockCache.CacheStats;
+import org.apache.accumulo.core.file.blockfile.cache.PartitionedBlockCache;
 import org.apache.accumulo.server.metrics.AbstractMetricsImpl;
 
 public class TabletServerScanMetrics extends AbstractMetricsImpl implements TabletServerScanMetricsMBean {
@@ -28,6 +42,29 @@ public class TabletServerScanMetrics extends AbstractMetricsImpl implements Tabl
   
   public static ObjectName OBJECT_NAME = null;
   
+  private volatile BlockCache dataCache = null;
+  
+  private volatile BlockCache indexCache = null;
+  
+  private static final String[] PARTITION_STATS_ITEMS = new String[] {"partition", "dataCacheHitCount", "dataCacheMissCount", "indexCacheHitCount",
+      "indexCacheMissCount"};
+  
+  private static final CompositeType PARTITION_STATS_ROW_TYPE;
+  
+  private static final TabularType PARTITION_STATS_TYPE;
+  
+  static {
+    try {
+      PARTITION_STATS_ROW_TYPE = new CompositeType("CachePartitionStats", "block cache statistics of one partition", PARTITION_STATS_ITEMS, new String[] {
+          "cache partition", "data cache hits", "data cache misses", "index cache hits", "index cache misses"}, new OpenType<?>[] {SimpleType.STRING,
+          SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG});
+      PARTITION_STATS_TYPE = new TabularType("CachePartitionStatsTable", "block cache statistics by partition", PARTITION_STATS_ROW_TYPE,
+          new String[] {"partition"});
+    } catch (OpenDataException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+  
   public TabletServerScanMetrics() {
     super();
     reset();
@@ -80,6 +117,52 @@ public class TabletServerScanMetrics extends AbstractMetricsImpl implements Tabl
     return this.getMetricMin(scan);
   }
   
+  /**
+   * Set the caches whose partition statistics are reported.
+   */
+  public void setBlockCaches(BlockCache dataCache, BlockCache indexCache) {
+    this.dataCache = dataCache;
+    this.indexCache = indexCache;
+  }
+  
+  public String[] getCachePartitions() {
+    Set<String> names = new TreeSet<String>();
+    if (dataCache instanceof PartitionedBlockCache)
+      names.addAll(((PartitionedBlockCache) dataCache).getPartitionNames());
+    if (indexCache instanceof PartitionedBlockCache)
+      names.addAll(((PartitionedBlockCache) indexCache).getPartitionNames());
+    return names.toArray(new String[names.size()]);
+  }
+  
+  private static CacheStats getPartitionStats(BlockCache cache, String partition) {
+    if (!(cache instanceof PartitionedBlockCache) || !((PartitionedBlockCache) cache).getPartitionNames().contains(partition))
+      return null;
+    return ((PartitionedBlockCache) cache).getPartition(partition).getStats();
+  }
+  
+  private static long hitCount(CacheStats stats) {
+    return stats == null ? 0 : stats.getHitCount();
+  }
+  
+  private static long missCount(CacheStats stats) {
+    return stats == null ? 0 : stats.getMissCount();
+  }
+  
+  public TabularData getCachePartitionStats() {
+    TabularDataSupport table = new TabularDataSupport(PARTITION_STATS_TYPE);
+    for (String partition : getCachePartitions()) {
+      CacheStats dataStats = getPartitionStats(dataCache, partition);
+      CacheStats indexStats = getPartitionStats(indexCache, partition);
+      Object[] values = new Object[] {partition, hitCount(dataStats), missCount(dataStats), hitCount(indexStats), missCount(indexStats)};
+      try {
+        table.put(new CompositeDataSupport(PARTITION_STATS_ROW_TYPE, PARTITION_STATS_ITEMS, values));
+      } catch (OpenDataException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    return table;
+  }
+  
   public void reset() {
     createMetric(scan);
     createMetric(resultSize);
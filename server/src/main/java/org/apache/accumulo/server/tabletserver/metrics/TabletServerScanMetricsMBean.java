@@ -16,6 +16,8 @@
  */
 package org.apache.accumulo.server.tabletserver.metrics;
 
+import javax.management.openmbean.TabularData;
+
 public interface TabletServerScanMetricsMBean {
   
   public static final String scan = "scan";
@@ -37,6 +39,16 @@ public interface TabletServerScanMetricsMBean {
   
   public long getResultMaxSize();
   
+  /**
+   * @return the names of the block cache partitions, empty unless tserver.cache.type is partitioned
+   */
+  public String[] getCachePartitions();
+  
+  /**
+   * @return one row per block cache partition, keyed by partition name, with the data and index cache hit and miss counts
+   */
+  public TabularData getCachePartitionStats();
+  
   public void reset();
   
 }
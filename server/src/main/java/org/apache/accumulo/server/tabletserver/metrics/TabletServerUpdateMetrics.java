@@ -16,9 +16,16 @@
  */
 package org.apache.accumulo.server.tabletserver.metrics;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import javax.management.ObjectName;
 
 import org.apache.accumulo.server.metrics.AbstractMetricsImpl;
+import org.apache.accumulo.server.tabletserver.log.LogHistogram;
 
 public class TabletServerUpdateMetrics extends AbstractMetricsImpl implements TabletServerUpdateMetricsMBean {
   
@@ -28,6 +35,37 @@ public class TabletServerUpdateMetrics extends AbstractMetricsImpl implements Ta
   
   private static ObjectName OBJECT_NAME = null;
   
+  /**
+   * The phases a batch of updates passes through on its way into a tablet server. Time spent in each is kept per table, so a slow writer can be attributed to
+   * held commits, constraint checks, the write-ahead log or the in-memory map.
+   */
+  public enum Phase {
+    HOLD_WAIT("holdWait"), CONSTRAINTS("constraints"), WAL_WRITE("walWrite"), WAL_SYNC("walSync"), MEMTABLE("memtable");
+    
+    private final String name;
+    
+    private Phase(String name) {
+      this.name = name;
+    }
+    
+    public String getName() {
+      return name;
+    }
+  }
+  
+  // phase times are reported over the current window and the one before it, so they show recent updates and tables that are no longer written age out
+  static final long PHASE_WINDOW_MILLIS = 60 * 1000;
+  
+  // per table histograms of phase times in microseconds, these are cheap enough to keep regardless of whether metrics are enabled
+  private volatile ConcurrentHashMap<String,LogHistogram[]> phaseTimes = new ConcurrentHashMap<String,LogHistogram[]>();
+  private volatile ConcurrentHashMap<String,LogHistogram[]> previousPhaseTimes = new ConcurrentHashMap<String,LogHistogram[]>();
+  private volatile long phaseWindowStart = System.currentTimeMillis();
+  
+  // sync statistics of the write-ahead logs, kept by the logger and only read here
+  private volatile LogHistogram walBatchSizes = new LogHistogram("batch bytes");
+  private volatile LogHistogram walSyncTimes = new LogHistogram("sync micros");
+  private volatile LogHistogram walQueueTimes = new LogHistogram("queue micros");
+  
   public TabletServerUpdateMetrics() {
     super();
     reset();
@@ -121,6 +159,132 @@ public class TabletServerUpdateMetrics extends AbstractMetricsImpl implements Ta
     return this.getMetricAvg(commitTime);
   }
   
+  public long getHoldWaitCount() {
+    return this.getMetricCount(holdWaitTime);
+  }
+  
+  public long getHoldWaitMaxTime() {
+    return this.getMetricMax(holdWaitTime);
+  }
+  
+  public long getHoldWaitAvgTime() {
+    return this.getMetricAvg(holdWaitTime);
+  }
+  
+  public long getWALogSyncMinTime() {
+    return this.getMetricMin(waLogSyncTime);
+  }
+  
+  public long getWALogSyncMaxTime() {
+    return this.getMetricMax(waLogSyncTime);
+  }
+  
+  public long getWALogSyncAvgTime() {
+    return this.getMetricAvg(waLogSyncTime);
+  }
+  
+  public void setWALogHistograms(LogHistogram batchSizes, LogHistogram syncTimes, LogHistogram queueTimes) {
+    this.walBatchSizes = batchSizes;
+    this.walSyncTimes = syncTimes;
+    this.walQueueTimes = queueTimes;
+  }
+  
+  public long getWALogSyncCount() {
+    return walSyncTimes.getCount();
+  }
+  
+  public long getWALogSyncMedianTime() {
+    return walSyncTimes.getPercentile(50);
+  }
+  
+  public long getWALogSync99thPercentileTime() {
+    return walSyncTimes.getPercentile(99);
+  }
+  
+  public long getWALogSyncBatchAvgSize() {
+    return (long) walBatchSizes.getMean();
+  }
+  
+  public long getWALogSyncBatchMaxSize() {
+    return walBatchSizes.getMax();
+  }
+  
+  public long getWALogQueueMedianTime() {
+    return walQueueTimes.getPercentile(50);
+  }
+  
+  public long getWALogQueue99thPercentileTime() {
+    return walQueueTimes.getPercentile(99);
+  }
+  
+  long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+  
+  private void rotatePhaseTimes(long now) {
+    if (now - phaseWindowStart < PHASE_WINDOW_MILLIS)
+      return;
+    synchronized (this) {
+      long elapsed = now - phaseWindowStart;
+      if (elapsed < PHASE_WINDOW_MILLIS)
+        return;
+      previousPhaseTimes = elapsed < 2 * PHASE_WINDOW_MILLIS ? phaseTimes : new ConcurrentHashMap<String,LogHistogram[]>();
+      phaseTimes = new ConcurrentHashMap<String,LogHistogram[]>();
+      phaseWindowStart = now;
+    }
+  }
+  
+  public void addPhaseTime(String tableId, Phase phase, long micros) {
+    rotatePhaseTimes(currentTimeMillis());
+    ConcurrentHashMap<String,LogHistogram[]> current = phaseTimes;
+    LogHistogram[] histograms = current.get(tableId);
+    if (histograms == null) {
+      histograms = new LogHistogram[Phase.values().length];
+      for (Phase p : Phase.values())
+        histograms[p.ordinal()] = new LogHistogram(tableId + "." + p.getName());
+      LogHistogram[] existing = current.putIfAbsent(tableId, histograms);
+      if (existing != null)
+        histograms = existing;
+    }
+    histograms[phase.ordinal()].add(micros);
+  }
+  
+  /**
+   * @return the bucket counts of each phase histogram for the table over the last one to two windows keyed by phase name, with empty trailing buckets trimmed
+   *         and phases the table's updates did not pass through left out, or null if the table has seen no recent updates
+   */
+  public Map<String,List<Long>> getPhaseCounts(String tableId) {
+    rotatePhaseTimes(currentTimeMillis());
+    LogHistogram[] current = phaseTimes.get(tableId);
+    LogHistogram[] previous = previousPhaseTimes.get(tableId);
+    if (current == null && previous == null)
+      return null;
+    Map<String,List<Long>> result = new HashMap<String,List<Long>>();
+    for (Phase phase : Phase.values()) {
+      long[] counts = new long[0];
+      for (LogHistogram[] histograms : new LogHistogram[][] {current, previous}) {
+        if (histograms == null)
+          continue;
+        long[] c = histograms[phase.ordinal()].getCounts();
+        if (counts.length == 0)
+          counts = c;
+        else
+          for (int i = 0; i < c.length; i++)
+            counts[i] += c[i];
+      }
+      int length = counts.length;
+      while (length > 0 && counts[length - 1] == 0)
+        length--;
+      if (length == 0)
+        continue;
+      List<Long> trimmed = new ArrayList<Long>(length);
+      for (int i = 0; i < length; i++)
+        trimmed.add(counts[i]);
+      result.put(phase.getName(), trimmed);
+    }
+    return result;
+  }
+  
   public void reset() {
     createMetric(permissionErrors);
     createMetric(unknownTabletErrors);
@@ -129,6 +293,8 @@ public class TabletServerUpdateMetrics extends AbstractMetricsImpl implements Ta
     createMetric(constraintViolations);
     createMetric(waLogWriteTime);
     createMetric(commitTime);
+    createMetric(holdWaitTime);
+    createMetric(waLogSyncTime);
   }
   
 }
@@ -25,6 +25,8 @@ public interface TabletServerUpdateMetricsMBean {
   public final static String constraintViolations = "constraintViolations";
   public final static String waLogWriteTime = "waLogWriteTime";
   public final static String commitTime = "commitTime";
+  public final static String holdWaitTime = "holdWaitTime";
+  public final static String waLogSyncTime = "waLogSyncTime";
   
   public long getPermissionErrorCount();
   
@@ -62,5 +64,31 @@ public interface TabletServerUpdateMetricsMBean {
   
   public long getCommitAvgTime();
   
+  public long getHoldWaitCount();
+  
+  public long getHoldWaitMaxTime();
+  
+  public long getHoldWaitAvgTime();
+  
+  public long getWALogSyncMinTime();
+  
+  public long getWALogSyncMaxTime();
+  
+  public long getWALogSyncAvgTime();
+  
+  public long getWALogSyncCount();
+  
+  public long getWALogSyncMedianTime();
+  
+  public long getWALogSync99thPercentileTime();
+  
+  public long getWALogSyncBatchAvgSize();
+  
+  public long getWALogSyncBatchMaxSize();
+  
+  public long getWALogQueueMedianTime();
+  
+  public long getWALogQueue99thPercentileTime();
+  
   public void reset();
 }
@@ -254,6 +254,26 @@ public class OfflineMetadataScanner extends ScannerOptions implements Scanner {
     
   }
   
+  @Override
+  public void setCacheBlocks(boolean cacheBlocks) {
+    
+  }
+  
+  @Override
+  public boolean getCacheBlocks() {
+    return true;
+  }
+  
+  @Override
+  public void setStreamingWindow(int window) {
+    
+  }
+  
+  @Override
+  public int getStreamingWindow() {
+    return 0;
+  }
+  
   public static void main(String[] args) throws IOException {
     FileSystem fs = FileSystem.get(CachedConfiguration.getInstance());
     ServerConfiguration conf = new ServerConfiguration(HdfsZooInstance.getInstance());
@@ -291,4 +291,52 @@ public class InMemoryMapTest extends TestCase {
     ae(skvi1, "r1", "foo:cq", 3, "v2");
     ae(skvi1, "r1", "foo:cq", 3, "v1");
   }
+  
+  public void testPartitioned() throws Exception {
+    InMemoryMap imm = new InMemoryMap(false, false, 4, "/tmp");
+    
+    ArrayList<Mutation> mutations = new ArrayList<Mutation>();
+    for (int i = 0; i < 20; i++) {
+      Mutation m = new Mutation(new Text(String.format("r%02d", i)));
+      m.put(new Text("foo"), new Text("cq"), 3, new Value(("v" + i).getBytes()));
+      mutations.add(m);
+    }
+    Mutation m = new Mutation(new Text("r05"));
+    m.put(new Text("foo"), new Text("cq"), 3, new Value("v5b".getBytes()));
+    mutations.add(m);
+    imm.mutate(mutations);
+    
+    MemoryIterator ski1 = imm.skvIterator();
+    mutate(imm, "r03", "foo:cq", 3, "v3b");
+    assertEquals(22, imm.getNumEntries());
+    
+    ski1.seek(new Range(), LocalityGroupUtil.EMPTY_CF_SET, false);
+    for (int i = 0; i < 20; i++) {
+      if (i == 5)
+        ae(ski1, "r05", "foo:cq", 3, "v5b");
+      ae(ski1, String.format("r%02d", i), "foo:cq", 3, "v" + i);
+    }
+    assertFalse(ski1.hasTop());
+    
+    SortedKeyValueIterator<Key,Value> dc = ski1.deepCopy(null);
+    dc.seek(new Range(new Text("r03"), new Text("r04")), LocalityGroupUtil.EMPTY_CF_SET, false);
+    ae(dc, "r03", "foo:cq", 3, "v3");
+    ae(dc, "r04", "foo:cq", 3, "v4");
+    assertFalse(dc.hasTop());
+    
+    MemoryIterator ski2 = imm.skvIterator();
+    ski2.seek(new Range(new Text("r03")), LocalityGroupUtil.EMPTY_CF_SET, false);
+    ae(ski2, "r03", "foo:cq", 3, "v3b");
+    ae(ski2, "r03", "foo:cq", 3, "v3");
+    assertFalse(ski2.hasTop());
+    
+    imm.delete(0);
+    
+    ski1.seek(new Range(new Text("r19")), LocalityGroupUtil.EMPTY_CF_SET, false);
+    ae(ski1, "r19", "foo:cq", 3, "v19");
+    assertFalse(ski1.hasTop());
+    
+    ski1.close();
+    ski2.close();
+  }
 }
@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.server.tabletserver;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.accumulo.core.Constants;
+import org.apache.accumulo.core.data.KeyExtent;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * Runs memory managers against a simulated tablet server, to compare how long they let commits be held.
+ * 
+ * <p>
+ * Time advances in steps of the interval the tablet server calls its memory manager at. In each step every tablet ingests at its current rate unless memory
+ * is over the point where the tablet server holds commits, minor compactions run a few at a time and each writes out memory at a fixed rate, and the memory
+ * manager picks tablets to flush. The default workload has many slowly written tablets and a few hot ones, with the hot tablets changing every minute.
+ * 
+ * <p>
+ * Usage: MemoryManagerSimulator [minutes]
+ */
+public class MemoryManagerSimulator {
+  
+  static final long STEP = 250;
+  static final double HOLD_MEMORY = 0.95;
+  
+  static class SimulatedTablet implements TabletState {
+    final KeyExtent extent;
+    long memory = 0;
+    long compacting = 0;
+    boolean running = false;
+    long lastCommit = 0;
+    
+    SimulatedTablet(int i) {
+      extent = new KeyExtent(new Text("1"), new Text(String.format("%05d", i)), i == 0 ? null : new Text(String.format("%05d", i - 1)));
+    }
+    
+    @Override
+    public KeyExtent getExtent() {
+      return extent;
+    }
+    
+    @Override
+    public long getLastCommitTime() {
+      return lastCommit;
+    }
+    
+    @Override
+    public long getMemTableSize() {
+      return memory;
+    }
+    
+    @Override
+    public long getMinorCompactingMemTableSize() {
+      return compacting;
+    }
+    
+    @Override
+    public boolean minorCompactionRunning() {
+      return running;
+    }
+  }
+  
+  /**
+   * The rate each tablet is written at over time.
+   */
+  interface Workload {
+    int getTablets();
+    
+    /**
+     * @return bytes per second
+     */
+    double getRate(int tablet, long elapsed);
+  }
+  
+  static class HotAndCold implements Workload {
+    final int cold;
+    final int hot;
+    final double coldRate;
+    final double hotRate;
+    final long phase;
+    
+    HotAndCold(int cold, int hot, double coldRate, double hotRate, long phase) {
+      this.cold = cold;
+      this.hot = hot;
+      this.coldRate = coldRate;
+      this.hotRate = hotRate;
+      this.phase = phase;
+    }
+    
+    @Override
+    public int getTablets() {
+      return cold + hot;
+    }
+    
+    @Override
+    public double getRate(int tablet, long elapsed) {
+      // the hot tablets move through the tablets one phase at a time, and the previous hot ones go quiet
+      int first = (int) ((elapsed / phase) * hot % getTablets());
+      int offset = (tablet - first + getTablets()) % getTablets();
+      if (offset < hot)
+        return hotRate;
+      if (offset >= getTablets() - hot)
+        return 0;
+      return coldRate;
+    }
+  }
+  
+  static class Result {
+    long holdMillis = 0;
+    int compactions = 0;
+    long compactedBytes = 0;
+    double peakMemory = 0;
+    long ingested = 0;
+    
+    @Override
+    public String toString() {
+      return String.format("held %,8.1f s  compactions %,6d  mean flush %,8.1f MB  peak memory %5.1f%%  ingested %,8.1f MB", holdMillis / 1000.0, compactions,
+          compactedBytes / Math.max(1, compactions) / 1048576.0, peakMemory * 100, ingested / 1048576.0);
+    }
+  }
+  
+  final long maxMemory;
+  final int maxConcurrentMincs;
+  final double flushRate;
+  final Workload workload;
+  
+  long now = 1000000000000l;
+  
+  /**
+   * @param flushRate
+   *          the bytes per second each minor compaction writes out
+   */
+  MemoryManagerSimulator(long maxMemory, int maxConcurrentMincs, double flushRate, Workload workload) {
+    this.maxMemory = maxMemory;
+    this.maxConcurrentMincs = maxConcurrentMincs;
+    this.flushRate = flushRate;
+    this.workload = workload;
+  }
+  
+  MemoryManager createLargestFirst() {
+    return new LargestFirstMemoryManager(maxMemory, maxConcurrentMincs, Constants.TSERV_MINC_MAXCONCURRENT_NUMWAITING_MULTIPLIER) {
+      @Override
+      long currentTimeMillis() {
+        return now;
+      }
+      
+      @Override
+      long getMincIdleThreshold(Text tableId) {
+        return 5 * 60 * 1000;
+      }
+    };
+  }
+  
+  MemoryManager createPredictive() {
+    return new PredictiveMemoryManager(maxMemory, maxConcurrentMincs, Constants.TSERV_MINC_MAXCONCURRENT_NUMWAITING_MULTIPLIER) {
+      @Override
+      long currentTimeMillis() {
+        return now;
+      }
+      
+      @Override
+      long getMincIdleThreshold(Text tableId) {
+        return 5 * 60 * 1000;
+      }
+    };
+  }
+  
+  Result run(MemoryManager manager, long millis) {
+    List<SimulatedTablet> tablets = new ArrayList<SimulatedTablet>();
+    for (int i = 0; i < workload.getTablets(); i++)
+      tablets.add(new SimulatedTablet(i));
+    List<TabletState> states = new ArrayList<TabletState>(tablets);
+    LinkedList<SimulatedTablet> queued = new LinkedList<SimulatedTablet>();
+    List<SimulatedTablet> running = new ArrayList<SimulatedTablet>();
+    long[] written = new long[tablets.size()];
+    Result result = new Result();
+    
+    long start = now;
+    for (long elapsed = 0; elapsed < millis; elapsed += STEP) {
+      now = start + elapsed;
+      
+      long used = 0;
+      for (SimulatedTablet tablet : tablets)
+        used += tablet.memory + tablet.compacting;
+      result.peakMemory = Math.max(result.peakMemory, (double) used / maxMemory);
+      
+      if (used > HOLD_MEMORY * maxMemory) {
+        result.holdMillis += STEP;
+      } else {
+        for (int i = 0; i < tablets.size(); i++) {
+          long bytes = (long) (workload.getRate(i, elapsed) * STEP / 1000);
+          if (bytes > 0) {
+            tablets.get(i).memory += bytes;
+            tablets.get(i).lastCommit = now;
+            result.ingested += bytes;
+          }
+        }
+      }
+      
+      // run the minor compactions, each writes out its memory at the flush rate
+      while (running.size() < maxConcurrentMincs && !queued.isEmpty()) {
+        SimulatedTablet tablet = queued.removeFirst();
+        tablet.running = true;
+        running.add(tablet);
+      }
+      for (int i = running.size() - 1; i >= 0; i--) {
+        SimulatedTablet tablet = running.get(i);
+        int t = tablets.indexOf(tablet);
+        written[t] += (long) (flushRate * STEP / 1000);
+        if (written[t] >= tablet.compacting) {
+          result.compactedBytes += tablet.compacting;
+          result.compactions++;
+          tablet.compacting = 0;
+          tablet.running = false;
+          written[t] = 0;
+          running.remove(i);
+        }
+      }
+      
+      MemoryManagementActions mma = manager.getMemoryManagementActions(states);
+      if (mma.tabletsToMinorCompact != null) {
+        for (KeyExtent extent : mma.tabletsToMinorCompact) {
+          for (SimulatedTablet tablet : tablets) {
+            if (tablet.extent.equals(extent) && tablet.compacting == 0 && tablet.memory > 0) {
+              tablet.compacting = tablet.memory;
+              tablet.memory = 0;
+              queued.add(tablet);
+            }
+          }
+        }
+      }
+    }
+    return result;
+  }
+  
+  public static void main(String[] args) {
+    Logger.getLogger(LargestFirstMemoryManager.class).setLevel(Level.WARN);
+    Logger.getLogger(PredictiveMemoryManager.class).setLevel(Level.WARN);
+    long minutes = args.length > 0 ? Long.parseLong(args[0]) : 30;
+    long mb = 1024 * 1024;
+    
+    Object[][] scenarios = new Object[][] {
+        {"steady hot tablets", new HotAndCold(200, 4, 50 * 1024, 15 * mb, Long.MAX_VALUE)},
+        {"hot tablets move every minute", new HotAndCold(200, 4, 50 * 1024, 15 * mb, 60 * 1000)},
+        {"hot tablets move every 10 seconds", new HotAndCold(200, 8, 50 * 1024, 8 * mb, 10 * 1000)},
+        {"many warm tablets", new HotAndCold(1000, 50, 20 * 1024, 1 * mb, 30 * 1000)},};
+    
+    System.out.printf("1GB of memory, 4 minor compactions at 25MB/s each, %d simulated minutes%n", minutes);
+    for (Object[] scenario : scenarios) {
+      System.out.println(scenario[0]);
+      MemoryManagerSimulator sim = new MemoryManagerSimulator(1024 * mb, 4, 25 * mb, (Workload) scenario[1]);
+      System.out.println("  largest first " + sim.run(sim.createLargestFirst(), minutes * 60 * 1000));
+      sim = new MemoryManagerSimulator(1024 * mb, 4, 25 * mb, (Workload) scenario[1]);
+      System.out.println("  predictive    " + sim.run(sim.createPredictive(), minutes * 60 * 1000));
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.server.tabletserver;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import junit.framework.TestCase;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Tests the batches that carry mutations and key values to and from native code. The tests that need the native library are skipped when it is not loaded.
+ */
+public class NativeMapTest extends TestCase {
+  
+  private static String fmt(String prefix, int i) {
+    return String.format("%s%06d", prefix, i);
+  }
+  
+  public void testSerializedSize() {
+    Mutation m = new Mutation(new Text("r1"));
+    m.put(new Text("cf1"), new Text("cq1"), new ColumnVisibility("A&B"), 3, new Value("v1".getBytes()));
+    m.putDelete(new Text("cf2"), new Text(""), 5);
+    m.put(new Text(""), new Text("cq3"), new Value(new byte[0]));
+    
+    ByteBuffer buffer = NativeMap.getBatchBuffer(NativeMap.serializedSize(m));
+    NativeMap.serialize(m, buffer);
+    assertEquals(NativeMap.serializedSize(m), buffer.position());
+  }
+  
+  public void testBatchBufferReuse() {
+    ByteBuffer buffer = NativeMap.getBatchBuffer(1000);
+    assertTrue(buffer.isDirect());
+    assertSame(buffer, NativeMap.getBatchBuffer(0));
+    
+    // a larger request grows the cached buffer up to the limit
+    ByteBuffer grown = NativeMap.getBatchBuffer(NativeMap.MAX_CACHED_BATCH_SIZE);
+    assertEquals(NativeMap.MAX_CACHED_BATCH_SIZE, grown.capacity());
+    assertSame(grown, NativeMap.getBatchBuffer(0));
+    
+    // beyond the limit a buffer is allocated for the one batch and not kept
+    ByteBuffer large = NativeMap.getBatchBuffer(NativeMap.MAX_CACHED_BATCH_SIZE + 1);
+    assertTrue(large.capacity() > NativeMap.MAX_CACHED_BATCH_SIZE);
+    assertSame(grown, NativeMap.getBatchBuffer(0));
+  }
+  
+  public void testMutateBatches() {
+    if (!NativeMap.loadedNativeLibraries())
+      return;
+    
+    NativeMap nm = new NativeMap();
+    try {
+      // enough mutations to take several batches, with one that is larger than a batch and larger than the cached buffer
+      List<Mutation> mutations = new ArrayList<Mutation>();
+      for (int i = 0; i < 2000; i++) {
+        Mutation m = new Mutation(new Text(fmt("r", i)));
+        byte[] val = new byte[i == 1000 ? NativeMap.MAX_CACHED_BATCH_SIZE * 2 : 20];
+        val[0] = (byte) i;
+        m.put(new Text("cf1"), new Text("cq1"), new Value(val));
+        m.put(new Text("cf1"), new Text("cq2"), new Value(val));
+        mutations.add(m);
+      }
+      
+      nm.mutate(mutations, 0);
+      assertEquals(4000, nm.size());
+      
+      Iterator<Entry<Key,Value>> iter = nm.iterator();
+      for (int i = 0; i < 2000; i++) {
+        for (String cq : new String[] {"cq1", "cq2"}) {
+          assertTrue(iter.hasNext());
+          Entry<Key,Value> entry = iter.next();
+          assertEquals(new Text(fmt("r", i)), entry.getKey().getRow());
+          assertEquals(new Text(cq), entry.getKey().getColumnQualifier());
+          assertEquals(i == 1000 ? NativeMap.MAX_CACHED_BATCH_SIZE * 2 : 20, entry.getValue().getSize());
+          assertEquals((byte) i, entry.getValue().get()[0]);
+        }
+      }
+      assertFalse(iter.hasNext());
+      
+      iter = nm.iterator(new Key(new Text(fmt("r", 1000)), new Text("cf1"), new Text("cq2")));
+      Entry<Key,Value> entry = iter.next();
+      assertEquals(new Text(fmt("r", 1000)), entry.getKey().getRow());
+      assertEquals(NativeMap.MAX_CACHED_BATCH_SIZE * 2, entry.getValue().getSize());
+      assertEquals(new Text(fmt("r", 1001)), iter.next().getKey().getRow());
+    } finally {
+      nm.delete();
+    }
+  }
+}
@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.server.tabletserver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+
+import org.apache.accumulo.core.data.ColumnUpdate;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.util.LocalityGroupUtil;
+import org.apache.accumulo.server.tabletserver.InMemoryMap.MemoryIterator;
+import org.apache.hadoop.io.Text;
+
+public class OffHeapMapTest extends TestCase {
+  
+  private static Mutation nm(String row, String cf, String cq, long ts, String val) {
+    Mutation m = new Mutation(new Text(row));
+    m.put(new Text(cf), new Text(cq), ts, new Value(val.getBytes()));
+    return m;
+  }
+  
+  private static String fmt(String prefix, int i) {
+    return String.format("%s%06d", prefix, i);
+  }
+  
+  public void testOrdering() throws Exception {
+    OffHeapMap ohm = new OffHeapMap();
+    TreeMap<Key,Value> expected = new TreeMap<Key,Value>(new MemKeyComparator());
+    
+    Random rand = new Random(42);
+    int kvCount = 0;
+    for (int i = 0; i < 5000; i++) {
+      Mutation m = new Mutation(new Text(fmt("r", rand.nextInt(500))));
+      int numCols = 1 + rand.nextInt(3);
+      for (int j = 0; j < numCols; j++) {
+        String cf = fmt("cf", rand.nextInt(5));
+        String cq = fmt("cq", rand.nextInt(5));
+        long ts = rand.nextInt(3);
+        if (rand.nextInt(10) == 0)
+          m.putDelete(new Text(cf), new Text(cq), ts);
+        else
+          m.put(new Text(cf), new Text(cq), ts, new Value(fmt("v", i).getBytes()));
+      }
+      
+      int mc = kvCount;
+      for (ColumnUpdate cu : m.getUpdates()) {
+        expected.put(new MemKey(m.getRow(), cu.getColumnFamily(), cu.getColumnQualifier(), cu.getColumnVisibility(), cu.getTimestamp(), cu.isDeleted(),
+            false, mc++), new Value(cu.getValue()));
+      }
+      
+      ohm.mutate(Collections.singletonList(m), kvCount);
+      kvCount = mc;
+    }
+    
+    assertEquals(expected.size(), ohm.size());
+    assertTrue(ohm.getMemoryUsed() >= OffHeapMap.MIN_CHUNK_SIZE);
+    
+    Iterator<Entry<Key,Value>> iter = ohm.iterator();
+    for (Entry<Key,Value> entry : expected.entrySet()) {
+      assertTrue(iter.hasNext());
+      Entry<Key,Value> actual = iter.next();
+      assertEquals(entry.getKey(), actual.getKey());
+      assertEquals(((MemKey) entry.getKey()).kvCount, ((MemKey) actual.getKey()).kvCount);
+      assertEquals(entry.getValue(), actual.getValue());
+    }
+    assertFalse(iter.hasNext());
+    
+    // start in the middle of the map
+    List<Key> keys = new ArrayList<Key>(expected.keySet());
+    for (int i = 0; i < 100; i++) {
+      Key start = keys.get(rand.nextInt(keys.size()));
+      iter = ohm.iterator(start);
+      Iterator<Entry<Key,Value>> eiter = expected.tailMap(start).entrySet().iterator();
+      for (int j = 0; j < 50 && eiter.hasNext(); j++) {
+        Entry<Key,Value> e = eiter.next();
+        Entry<Key,Value> a = iter.next();
+        assertEquals(e.getKey(), a.getKey());
+        assertEquals(((MemKey) e.getKey()).kvCount, ((MemKey) a.getKey()).kvCount);
+      }
+      
+      assertEquals(expected.get(start), ohm.get(start));
+    }
+    
+    assertNull(ohm.get(new MemKey(new Key(new Text("zzz")), 0)));
+    
+    ohm.delete();
+  }
+  
+  public void testSeek() throws Exception {
+    OffHeapMap ohm = new OffHeapMap();
+    
+    List<Mutation> mutations = new ArrayList<Mutation>();
+    for (int i = 0; i < 1000; i++) {
+      mutations.add(nm(fmt("r", i), "cf", "cq", 5, "v" + i));
+    }
+    ohm.mutate(mutations, 0);
+    
+    SortedKeyValueIterator<Key,Value> iter = ohm.skvIterator();
+    iter.seek(new Range(new Text(fmt("r", 10)), new Text(fmt("r", 19))), LocalityGroupUtil.EMPTY_CF_SET, false);
+    for (int i = 10; i < 20; i++) {
+      assertTrue(iter.hasTop());
+      assertEquals(new Text(fmt("r", i)), iter.getTopKey().getRow());
+      assertEquals(new Value(("v" + i).getBytes()), iter.getTopValue());
+      iter.next();
+    }
+    assertFalse(iter.hasTop());
+    
+    SortedKeyValueIterator<Key,Value> copy = iter.deepCopy(null);
+    copy.seek(new Range(new Text(fmt("r", 999)), null), LocalityGroupUtil.EMPTY_CF_SET, false);
+    assertTrue(copy.hasTop());
+    assertEquals(new Text(fmt("r", 999)), copy.getTopKey().getRow());
+    copy.next();
+    assertFalse(copy.hasTop());
+    
+    // exclusive start key
+    iter.seek(new Range(new Key(new Text(fmt("r", 500)), new Text("cf"), new Text("cq"), 5), false, null, true), LocalityGroupUtil.EMPTY_CF_SET, false);
+    assertEquals(new Text(fmt("r", 501)), iter.getTopKey().getRow());
+    
+    ohm.delete();
+  }
+  
+  public void testLargeValues() throws Exception {
+    OffHeapMap ohm = new OffHeapMap();
+    
+    byte[] big = new byte[OffHeapMap.MAX_CHUNK_SIZE + 10];
+    new Random(7).nextBytes(big);
+    
+    Mutation m1 = new Mutation(new Text("r1"));
+    m1.put(new Text("cf"), new Text("cq"), new Value(big));
+    Mutation m2 = nm("r2", "cf", "cq", 3, "small");
+    ohm.mutate(Collections.singletonList(m1), 0);
+    ohm.mutate(Collections.singletonList(m2), 1);
+    
+    Iterator<Entry<Key,Value>> iter = ohm.iterator();
+    assertEquals(new Value(big), iter.next().getValue());
+    assertEquals(new Value("small".getBytes()), iter.next().getValue());
+    assertFalse(iter.hasNext());
+    
+    assertTrue(ohm.getMemoryUsed() > big.length);
+    ohm.delete();
+    
+    try {
+      ohm.size();
+      fail();
+    } catch (IllegalStateException ise) {}
+  }
+  
+  public void testMediumValues() throws Exception {
+    // values larger than the first chunks but small enough to share a chunk, put into an empty map
+    int[] sizes = new int[] {70 * 1024, OffHeapMap.MIN_CHUNK_SIZE + 1, 300 * 1024, OffHeapMap.MAX_CHUNK_SIZE - 100, 100 * 1024};
+    Random rand = new Random(9);
+    for (int size : sizes) {
+      OffHeapMap ohm = new OffHeapMap();
+      byte[] value = new byte[size];
+      rand.nextBytes(value);
+      Mutation m = new Mutation(new Text("r1"));
+      m.put(new Text("cf"), new Text("cq1"), new Value(value));
+      m.put(new Text("cf"), new Text("cq2"), new Value(value));
+      ohm.mutate(Collections.singletonList(m), 0);
+      
+      assertEquals(2, ohm.size());
+      Iterator<Entry<Key,Value>> iter = ohm.iterator();
+      assertEquals(new Value(value), iter.next().getValue());
+      assertEquals(new Value(value), iter.next().getValue());
+      assertFalse(iter.hasNext());
+      ohm.delete();
+    }
+    
+    InMemoryMap imm = new InMemoryMap(false, true, "/tmp");
+    byte[] value = new byte[70 * 1024];
+    Mutation m = new Mutation(new Text("r1"));
+    m.put(new Text("cf"), new Text("cq"), new Value(value));
+    imm.mutate(Collections.singletonList(m));
+    assertEquals(1, imm.getNumEntries());
+    imm.delete(0);
+  }
+  
+  public void testInMemoryMapSnapshots() throws Exception {
+    InMemoryMap imm = new InMemoryMap(false, true, "/tmp");
+    
+    imm.mutate(Collections.singletonList(nm("r1", "foo", "cq1", 3, "bar1")));
+    imm.mutate(Collections.singletonList(nm("r1", "foo", "cq1", 3, "bar2")));
+    MemoryIterator ski1 = imm.skvIterator();
+    imm.mutate(Collections.singletonList(nm("r1", "foo", "cq1", 3, "bar3")));
+    MemoryIterator ski2 = imm.skvIterator();
+    
+    ski1.seek(new Range(new Text("r1")), LocalityGroupUtil.EMPTY_CF_SET, false);
+    assertEquals(new Value("bar2".getBytes()), ski1.getTopValue());
+    ski1.next();
+    assertEquals(new Value("bar1".getBytes()), ski1.getTopValue());
+    ski1.next();
+    assertFalse(ski1.hasTop());
+    
+    ski2.seek(new Range(new Text("r1")), LocalityGroupUtil.EMPTY_CF_SET, false);
+    assertEquals(new Value("bar3".getBytes()), ski2.getTopValue());
+    
+    ski1.close();
+    ski2.close();
+    imm.delete(0);
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.server.tabletserver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.accumulo.server.tabletserver.MemoryManagerSimulator.HotAndCold;
+import org.apache.accumulo.server.tabletserver.MemoryManagerSimulator.Result;
+import org.apache.accumulo.server.tabletserver.MemoryManagerSimulator.SimulatedTablet;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+public class PredictiveMemoryManagerTest extends TestCase {
+  
+  private static final long MB = 1024 * 1024;
+  
+  private static class TestManager extends PredictiveMemoryManager {
+    long now = 1000000;
+    
+    TestManager(long maxMemory) {
+      super(maxMemory, 4, 2);
+    }
+    
+    @Override
+    long currentTimeMillis() {
+      return now;
+    }
+    
+    @Override
+    long getMincIdleThreshold(Text tableId) {
+      return 60 * 1000;
+    }
+  }
+  
+  @Override
+  protected void setUp() throws Exception {
+    Logger.getLogger(LargestFirstMemoryManager.class).setLevel(Level.WARN);
+    Logger.getLogger(PredictiveMemoryManager.class).setLevel(Level.WARN);
+  }
+  
+  public void testFastGrowingTabletFlushedFirst() {
+    TestManager manager = new TestManager(1000 * MB);
+    SimulatedTablet big = new SimulatedTablet(0);
+    SimulatedTablet fast = new SimulatedTablet(1);
+    List<TabletState> tablets = new ArrayList<TabletState>();
+    tablets.add(big);
+    tablets.add(fast);
+    
+    // a large tablet that has stopped growing and a small one growing at 20MB/s, the small one will be larger by the time a compaction could finish
+    big.memory = 300 * MB;
+    big.lastCommit = manager.now;
+    List<?> chosen = null;
+    for (int i = 0; i < 100; i++) {
+      chosen = manager.getMemoryManagementActions(tablets).tabletsToMinorCompact;
+      if (!chosen.isEmpty())
+        break;
+      manager.now += 250;
+      fast.memory += 5 * MB;
+      fast.lastCommit = manager.now;
+    }
+    assertEquals(1, chosen.size());
+    assertEquals(fast.getExtent(), chosen.get(0));
+    assertTrue(fast.memory < big.memory);
+  }
+  
+  public void testIdleTabletFlushed() {
+    TestManager manager = new TestManager(1000 * MB);
+    SimulatedTablet idle = new SimulatedTablet(0);
+    List<TabletState> tablets = new ArrayList<TabletState>();
+    tablets.add(idle);
+    idle.memory = MB;
+    idle.lastCommit = manager.now;
+    assertEquals(0, manager.getMemoryManagementActions(tablets).tabletsToMinorCompact.size());
+    manager.now += 61 * 1000;
+    assertEquals(idle.getExtent(), manager.getMemoryManagementActions(tablets).tabletsToMinorCompact.get(0));
+  }
+  
+  public void testClosedTabletForgotten() {
+    TestManager manager = new TestManager(1000 * MB);
+    SimulatedTablet open = new SimulatedTablet(0);
+    SimulatedTablet closed = new SimulatedTablet(1);
+    List<TabletState> tablets = new ArrayList<TabletState>();
+    tablets.add(open);
+    tablets.add(closed);
+    manager.getMemoryManagementActions(tablets);
+    assertEquals(2, manager.getTrackedTablets());
+    
+    // the tablet closes while the memory manager is still working from reports that include it
+    manager.tabletClosed(closed.getExtent());
+    manager.now += 250;
+    manager.getMemoryManagementActions(tablets);
+    assertEquals(2, manager.getTrackedTablets());
+    
+    tablets.remove(closed);
+    manager.now += 250;
+    manager.getMemoryManagementActions(tablets);
+    assertEquals(1, manager.getTrackedTablets());
+  }
+  
+  public void testFlushRateExcludesQueueTime() {
+    TestManager manager = new TestManager(1000 * MB);
+    SimulatedTablet tablet = new SimulatedTablet(0);
+    List<TabletState> tablets = new ArrayList<TabletState>();
+    tablets.add(tablet);
+    
+    // the compaction waits ten seconds in the queue, then writes out 40MB in one second
+    tablet.compacting = 40 * MB;
+    for (int i = 0; i < 40; i++) {
+      manager.getMemoryManagementActions(tablets);
+      manager.now += 250;
+    }
+    tablet.running = true;
+    manager.getMemoryManagementActions(tablets);
+    manager.now += 1000;
+    tablet.compacting = 0;
+    tablet.running = false;
+    manager.getMemoryManagementActions(tablets);
+    
+    double expected = 0.75 * PredictiveMemoryManager.INITIAL_FLUSH_RATE + 0.25 * 40 * MB;
+    assertEquals(expected, manager.getFlushRate(), 1);
+  }
+  
+  public void testSimulatedHoldTime() {
+    MemoryManagerSimulator sim = new MemoryManagerSimulator(1024 * MB, 4, 25 * MB, new HotAndCold(200, 4, 50 * 1024, 15 * MB, 60 * 1000));
+    Result largestFirst = sim.run(sim.createLargestFirst(), 5 * 60 * 1000);
+    sim = new MemoryManagerSimulator(1024 * MB, 4, 25 * MB, new HotAndCold(200, 4, 50 * 1024, 15 * MB, 60 * 1000));
+    Result predictive = sim.run(sim.createPredictive(), 5 * 60 * 1000);
+    assertEquals(0, predictive.holdMillis);
+    assertTrue(predictive.peakMemory < MemoryManagerSimulator.HOLD_MEMORY);
+    assertTrue(predictive.ingested >= largestFirst.ingested);
+  }
+}
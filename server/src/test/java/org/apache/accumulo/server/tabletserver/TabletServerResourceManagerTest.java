@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.server.tabletserver;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileOperations;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.accumulo.core.file.blockfile.cache.LruBlockCache;
+import org.apache.accumulo.core.file.rfile.RFile;
+import org.apache.accumulo.core.util.RateLimiter;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.io.Text;
+
+public class TabletServerResourceManagerTest extends TestCase {
+  
+  private File dir;
+  
+  @Override
+  protected void setUp() throws Exception {
+    dir = File.createTempFile("warmup", "");
+    dir.delete();
+    dir.mkdirs();
+  }
+  
+  @Override
+  protected void tearDown() throws Exception {
+    for (File f : dir.listFiles())
+      f.delete();
+    dir.delete();
+  }
+  
+  private void testWarmCache(boolean bloom) throws Exception {
+    ConfigurationCopy tableConf = new ConfigurationCopy(AccumuloConfiguration.getDefaultConfiguration());
+    tableConf.set(Property.TABLE_BLOOM_ENABLED, "" + bloom);
+    tableConf.set(Property.TABLE_BLOCKCACHE_ENABLED, "true");
+    tableConf.set(Property.TABLE_FILE_COMPRESSED_BLOCK_SIZE, "1K");
+    tableConf.set(Property.TABLE_FILE_COMPRESSED_BLOCK_SIZE_INDEX, "1K");
+    
+    FileSystem fs = FileSystem.getLocal(new Configuration());
+    String file = new File(dir, "f1." + RFile.EXTENSION).getAbsolutePath();
+    
+    FileSKVWriter writer = FileOperations.getInstance().openWriter(file, fs, fs.getConf(), tableConf);
+    writer.startDefaultLocalityGroup();
+    for (int i = 0; i < 10000; i++)
+      writer.append(new Key(new Text(String.format("r%06d", i)), new Text("cf1")), new Value(("v" + i).getBytes()));
+    writer.close();
+    
+    LruBlockCache dataCache = new LruBlockCache(10000000, 1024);
+    LruBlockCache indexCache = new LruBlockCache(10000000, 1024);
+    
+    TabletServerResourceManager.warmCache(file, fs, tableConf, dataCache, indexCache, 5, new RateLimiter(0));
+    
+    assertEquals(5, dataCache.size());
+    assertTrue(indexCache.size() > 0);
+  }
+  
+  public void testWarmCache() throws Exception {
+    testWarmCache(false);
+  }
+  
+  public void testWarmCacheWithBloomFilter() throws Exception {
+    testWarmCache(true);
+  }
+  
+  public void testWarmCacheSkipsOtherFiles() throws Exception {
+    LruBlockCache dataCache = new LruBlockCache(10000000, 1024);
+    LruBlockCache indexCache = new LruBlockCache(10000000, 1024);
+    
+    // not opened, so the missing file is not an error
+    TabletServerResourceManager.warmCache(new File(dir, "f1.map").getAbsolutePath(), FileSystem.getLocal(new Configuration()),
+        AccumuloConfiguration.getDefaultConfiguration(), dataCache, indexCache, 5, new RateLimiter(0));
+    
+    assertEquals(0, dataCache.size());
+    assertEquals(0, indexCache.size());
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.server.tabletserver.log;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class LogHistogramTest {
+  
+  @Test
+  public void testBuckets() {
+    assertEquals(0, LogHistogram.bucket(0));
+    assertEquals(0, LogHistogram.bucket(-5));
+    assertEquals(1, LogHistogram.bucket(1));
+    assertEquals(2, LogHistogram.bucket(2));
+    assertEquals(2, LogHistogram.bucket(3));
+    assertEquals(3, LogHistogram.bucket(4));
+    assertEquals(11, LogHistogram.bucket(1024));
+    assertEquals(63, LogHistogram.bucket(Long.MAX_VALUE));
+  }
+  
+  @Test
+  public void testStats() {
+    LogHistogram h = new LogHistogram("test");
+    assertEquals(0, h.getPercentile(50));
+    for (int i = 1; i <= 100; i++)
+      h.add(i);
+    assertEquals(100, h.getCount());
+    assertEquals(5050, h.getSum());
+    assertEquals(100, h.getMax());
+    assertEquals(50.5, h.getMean(), 0.0001);
+    
+    long[] counts = h.getCounts();
+    assertEquals(1, counts[1]);
+    assertEquals(2, counts[2]);
+    assertEquals(64 - 32, counts[6]);
+    assertEquals(100 - 63, counts[7]);
+    
+    // 50 falls in [32, 64), 99 in [64, 128)
+    assertEquals(64, h.getPercentile(50));
+    assertEquals(128, h.getPercentile(99));
+    assertEquals(2, h.getPercentile(1));
+  }
+  
+  @Test
+  public void testMergedPercentile() {
+    LogHistogram a = new LogHistogram("a");
+    LogHistogram b = new LogHistogram("b");
+    for (int i = 1; i <= 50; i++)
+      a.add(i);
+    for (int i = 51; i <= 100; i++)
+      b.add(i);
+    
+    // sum the counts the way the monitor does with those reported by different servers, trailing empty buckets may be dropped
+    List<Long> merged = new ArrayList<Long>();
+    long[] countsA = a.getCounts();
+    long[] countsB = b.getCounts();
+    for (int i = 0; i < 8; i++)
+      merged.add(countsA[i] + countsB[i]);
+    
+    assertEquals(64, LogHistogram.getPercentile(merged, 50));
+    assertEquals(128, LogHistogram.getPercentile(merged, 99));
+    assertEquals(2, LogHistogram.getPercentile(merged, 1));
+    assertEquals(0, LogHistogram.getPercentile(Collections.<Long> emptyList(), 50));
+  }
+}
@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.server.tabletserver.log;
+
+import static org.apache.accumulo.server.logger.LogEvents.COMPACTION_FINISH;
+import static org.apache.accumulo.server.logger.LogEvents.COMPACTION_START;
+import static org.apache.accumulo.server.logger.LogEvents.DEFINE_TABLET;
+import static org.apache.accumulo.server.logger.LogEvents.MANY_MUTATIONS;
+import static org.apache.accumulo.server.logger.LogEvents.OPEN;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.accumulo.core.data.KeyExtent;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.util.CachedConfiguration;
+import org.apache.accumulo.core.util.Pair;
+import org.apache.accumulo.server.data.ServerMutation;
+import org.apache.accumulo.server.logger.LogEvents;
+import org.apache.accumulo.server.logger.LogFileKey;
+import org.apache.accumulo.server.logger.LogFileValue;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SortBufferTest {
+  
+  Configuration conf = CachedConfiguration.getInstance();
+  FileSystem fs;
+  
+  @Before
+  public void setUp() throws Exception {
+    // quiet log messages about compress.CodecPool
+    Logger.getRootLogger().setLevel(Level.ERROR);
+    fs = FileSystem.getLocal(conf);
+  }
+  
+  @After
+  public void tearDown() throws Exception {
+    if (fs != null)
+      fs.delete(new Path("sortBuffer"), true);
+  }
+  
+  private static LogFileKey key(LogEvents event, long seq, int tid) {
+    LogFileKey key = new LogFileKey();
+    key.event = event;
+    key.seq = seq;
+    key.tid = tid;
+    if (event == OPEN)
+      key.tserverSession = "session";
+    if (event == COMPACTION_START)
+      key.filename = "/t/f" + seq;
+    if (event == DEFINE_TABLET)
+      key.tablet = new KeyExtent(new Text("" + tid), null, null);
+    return key;
+  }
+  
+  private static LogFileValue value(int count, Random rand) {
+    LogFileValue value = new LogFileValue();
+    value.mutations = new ArrayList<Mutation>();
+    for (int i = 0; i < count; i++) {
+      ServerMutation m = new ServerMutation(new Text("row" + rand.nextInt()));
+      byte[] val = new byte[rand.nextInt(2000)];
+      rand.nextBytes(val);
+      m.put(new Text("cf"), new Text("cq" + i), new org.apache.accumulo.core.data.Value(val));
+      m.setSystemTimestamp(rand.nextLong());
+      value.mutations.add(m);
+    }
+    return value;
+  }
+  
+  private static List<Pair<LogFileKey,LogFileValue>> createLog(int records, Random rand) {
+    List<Pair<LogFileKey,LogFileValue>> log = new ArrayList<Pair<LogFileKey,LogFileValue>>();
+    log.add(new Pair<LogFileKey,LogFileValue>(key(OPEN, 0, 0), new LogFileValue()));
+    LogEvents[] events = new LogEvents[] {DEFINE_TABLET, COMPACTION_START, COMPACTION_FINISH, MANY_MUTATIONS, MANY_MUTATIONS, MANY_MUTATIONS};
+    for (int i = 0; i < records; i++) {
+      LogEvents event = events[rand.nextInt(events.length)];
+      LogFileValue value = event == MANY_MUTATIONS ? value(1 + rand.nextInt(3), rand) : new LogFileValue();
+      // few distinct keys, so that the order of equal keys is tested
+      log.add(new Pair<LogFileKey,LogFileValue>(key(event, rand.nextInt(4), rand.nextInt(3)), value));
+    }
+    return log;
+  }
+  
+  private static byte[] serialize(List<Pair<LogFileKey,LogFileValue>> log) throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    for (Pair<LogFileKey,LogFileValue> entry : log) {
+      entry.getFirst().write(out);
+      entry.getSecond().write(out);
+    }
+    out.close();
+    return bytes.toByteArray();
+  }
+  
+  private static SortBuffer read(InputStream in, int capacity) throws Exception {
+    SortBuffer buffer = new SortBuffer(capacity);
+    try {
+      while (true)
+        buffer.readRecord(in);
+    } catch (EOFException e) {}
+    return buffer;
+  }
+  
+  @Test
+  public void testSortMatchesLogFileKey() throws Exception {
+    Random rand = new Random(7);
+    List<Pair<LogFileKey,LogFileValue>> log = createLog(2000, rand);
+    
+    SortBuffer buffer = read(new ByteArrayInputStream(serialize(log)), 1 << 10);
+    assertEquals(log.size(), buffer.getCount());
+    assertTrue(buffer.isFull());
+    
+    Path path = new Path("sortBuffer/part");
+    MapFile.Writer writer = new MapFile.Writer(conf, fs, path.toString(), LogFileKey.class, LogFileValue.class);
+    SortedLogIndex index = buffer.write(writer);
+    writer.close();
+    assertEquals(log.size(), index.getEntries());
+    assertEquals("session", index.getTserverSession());
+    
+    // the sort must be stable, as Collections.sort is
+    List<Pair<LogFileKey,LogFileValue>> expected = new ArrayList<Pair<LogFileKey,LogFileValue>>(log);
+    Collections.sort(expected, new Comparator<Pair<LogFileKey,LogFileValue>>() {
+      @Override
+      public int compare(Pair<LogFileKey,LogFileValue> o1, Pair<LogFileKey,LogFileValue> o2) {
+        return o1.getFirst().compareTo(o2.getFirst());
+      }
+    });
+    
+    MapFile.Reader reader = new MapFile.Reader(fs, path.toString(), conf);
+    LogFileKey key = new LogFileKey();
+    LogFileValue value = new LogFileValue();
+    for (Pair<LogFileKey,LogFileValue> entry : expected) {
+      assertTrue(reader.next(key, value));
+      assertEquals(entry.getFirst().toString(), key.toString());
+      assertEquals(entry.getSecond().mutations, value.mutations);
+      for (int i = 0; i < value.mutations.size(); i++)
+        assertEquals(((ServerMutation) entry.getSecond().mutations.get(i)).getSystemTimestamp(), ((ServerMutation) value.mutations.get(i)).getSystemTimestamp());
+    }
+    assertFalse(reader.next(key, value));
+    reader.close();
+    
+    int definitions = 0;
+    for (Pair<LogFileKey,LogFileValue> entry : log) {
+      LogFileKey k = entry.getFirst();
+      if (k.event == DEFINE_TABLET)
+        definitions++;
+      if (k.event == MANY_MUTATIONS)
+        assertTrue(index.hasMutations(k.tid, k.seq));
+      if (k.event == COMPACTION_START || k.event == COMPACTION_FINISH)
+        assertTrue(index.hasCompactions(k.tid));
+    }
+    assertEquals(definitions, index.getDefinitions().size());
+    assertFalse(index.hasMutations(0, 4));
+    assertFalse(index.hasMutations(3, 0));
+  }
+  
+  @Test
+  public void testPartialRecord() throws Exception {
+    Random rand = new Random(11);
+    List<Pair<LogFileKey,LogFileValue>> log = createLog(20, rand);
+    byte[] bytes = serialize(log);
+    int complete = serialize(log.subList(0, 15)).length;
+    
+    // a log cut off part way through a record loses only that record
+    for (int cut : new int[] {complete + 1, complete + 10, serialize(log.subList(0, 16)).length - 1}) {
+      SortBuffer buffer = read(new ByteArrayInputStream(bytes, 0, cut), 1 << 20);
+      assertEquals(15, buffer.getCount());
+      assertEquals(complete, buffer.getLength());
+    }
+    assertEquals(16, read(new ByteArrayInputStream(bytes, 0, serialize(log.subList(0, 16)).length), 1 << 20).getCount());
+  }
+}
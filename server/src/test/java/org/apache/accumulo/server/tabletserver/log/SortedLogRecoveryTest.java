@@ -110,6 +110,8 @@ public class SortedLogRecoveryTest {
     }
   }
   
+  private static int logCount = 0;
+  
   private static List<Mutation> recover(Map<String,KeyValue[]> logs, KeyExtent extent) throws IOException {
     return recover(logs, new HashSet<String>(), extent);
   }
@@ -120,21 +122,34 @@ public class SortedLogRecoveryTest {
     FileSystem local = FileSystem.getLocal(conf).getRaw();
     local.delete(new Path(workdir), true);
     ArrayList<String> dirs = new ArrayList<String>();
+    ArrayList<SortedLogIndex> indexes = new ArrayList<SortedLogIndex>();
     try {
       for (Entry<String,KeyValue[]> entry : logs.entrySet()) {
-        String path = workdir + "/" + entry.getKey();
+        // recovery caches the indexes of the logs it reads, give every log a new name
+        String path = workdir + "/" + entry.getKey() + "-" + logCount++;
         Writer map = new MapFile.Writer(conf, local, path + "/log1", LogFileKey.class, LogFileValue.class);
+        SortedLogIndex index = new SortedLogIndex();
         for (KeyValue lfe : entry.getValue()) {
           map.append(lfe.key, lfe.value);
+          index.add(lfe.key);
         }
         map.close();
+        indexes.add(index);
         local.create(new Path(path, "finished")).close();
         dirs.add(path);
       }
       // Recover
       SortedLogRecovery recovery = new SortedLogRecovery();
       CaptureMutations capture = new CaptureMutations();
-      recovery.recover(extent, dirs, files, capture);
+      recovery.recover(local, conf, extent, dirs, files, capture);
+      
+      // recover again reading only the parts the indexes point to, the result must be the same
+      for (int i = 0; i < dirs.size(); i++)
+        indexes.get(i).write(local, new Path(dirs.get(i), "log1"));
+      CaptureMutations indexed = new CaptureMutations();
+      recovery.recover(local, conf, extent, dirs, files, indexed);
+      Assert.assertEquals(capture.result, indexed.result);
+      
       return capture.result;
     } finally {
       local.delete(new Path(workdir), true);
@@ -248,6 +263,65 @@ public class SortedLogRecoveryTest {
     Assert.assertEquals(m2, mutations.get(1));
   }
   
+  @Test
+  public void testConcurrentLogs() throws IOException {
+    // the mutations for one commit session are spread across logs that were open at the same time, each with its own tablet definition
+    Mutation ignored = new ServerMutation(new Text("ignored"));
+    ignored.put(cf, cq, value);
+    Mutation m = new ServerMutation(new Text("row1"));
+    m.put(cf, cq, value);
+    Mutation m2 = new ServerMutation(new Text("row2"));
+    m2.put(cf, cq, value);
+    Mutation m3 = new ServerMutation(new Text("row3"));
+    m3.put(cf, cq, value);
+    KeyValue entries[] = new KeyValue[] {createKeyValue(OPEN, 0, -1, "1"), createKeyValue(DEFINE_TABLET, 1, 1, extent),
+        createKeyValue(COMPACTION_START, 3, 1, "somefile"), createKeyValue(COMPACTION_FINISH, 4, 1, null), createKeyValue(MUTATION, 2, 1, ignored),
+        createKeyValue(MUTATION, 4, 1, m),};
+    KeyValue entries2[] = new KeyValue[] {createKeyValue(OPEN, 0, -1, "2"), createKeyValue(DEFINE_TABLET, 1, 1, extent),
+        createKeyValue(COMPACTION_START, 3, 1, "somefile"), createKeyValue(COMPACTION_FINISH, 4, 1, null), createKeyValue(MUTATION, 2, 1, ignored),
+        createKeyValue(MUTATION, 2, 1, ignored), createKeyValue(MUTATION, 4, 1, m2), createKeyValue(MUTATION, 4, 1, m3),};
+    
+    Map<String,KeyValue[]> logs = new TreeMap<String,KeyValue[]>();
+    logs.put("entries", entries);
+    logs.put("entries2", entries2);
+    
+    // Recover
+    List<Mutation> mutations = recover(logs, extent);
+    
+    // Verify recovered data
+    Assert.assertEquals(3, mutations.size());
+    Assert.assertEquals(m, mutations.get(0));
+    Assert.assertEquals(m2, mutations.get(1));
+    Assert.assertEquals(m3, mutations.get(2));
+  }
+  
+  @Test
+  public void testConcurrentLogsMergedBySeq() throws IOException {
+    // updates to the same key with the same timestamp, from commit sessions that wrote to different logs open at the same time
+    Mutation m1 = new ServerMutation(new Text("row1"));
+    m1.put(cf, cq, 5, new Value("v1".getBytes()));
+    Mutation m2 = new ServerMutation(new Text("row1"));
+    m2.put(cf, cq, 5, new Value("v2".getBytes()));
+    Mutation m3 = new ServerMutation(new Text("row1"));
+    m3.put(cf, cq, 5, new Value("v3".getBytes()));
+    KeyValue entries[] = new KeyValue[] {createKeyValue(OPEN, 0, -1, "1"), createKeyValue(DEFINE_TABLET, 1, 1, extent), createKeyValue(MUTATION, 4, 1, m1),
+        createKeyValue(MUTATION, 6, 1, m3),};
+    KeyValue entries2[] = new KeyValue[] {createKeyValue(OPEN, 0, -1, "1"), createKeyValue(DEFINE_TABLET, 1, 1, extent), createKeyValue(MUTATION, 5, 1, m2),};
+    
+    Map<String,KeyValue[]> logs = new TreeMap<String,KeyValue[]>();
+    logs.put("entries", entries);
+    logs.put("entries2", entries2);
+    
+    // Recover
+    List<Mutation> mutations = recover(logs, extent);
+    
+    // Verify recovered data, the last update must be replayed last
+    Assert.assertEquals(3, mutations.size());
+    Assert.assertEquals(m1, mutations.get(0));
+    Assert.assertEquals(m2, mutations.get(1));
+    Assert.assertEquals(m3, mutations.get(2));
+  }
+  
   @Test
   public void testEmpty() throws IOException {
     // Create a test log
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.server.tabletserver.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.util.UtilWaitThread;
+import org.junit.Test;
+
+public class TabletServerLoggerTest {
+  
+  private static final long SLOW_SYNC = TimeUnit.MILLISECONDS.toNanos(100);
+  private static final long FAST_SYNC = TimeUnit.MICROSECONDS.toNanos(100);
+  
+  private static List<DfsLogger> loggers(int count) throws IOException {
+    DfsLogger[] loggers = new DfsLogger[count];
+    for (int i = 0; i < count; i++) {
+      loggers[i] = new DfsLogger(null);
+      loggers[i].syncFinished(FAST_SYNC);
+    }
+    return Arrays.asList(loggers);
+  }
+  
+  @Test
+  public void testRoundRobin() throws IOException {
+    List<DfsLogger> loggers = loggers(3);
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < 6; i++)
+      assertSame(loggers.get(i % 3), TabletServerLogger.chooseLogger(loggers, i, now));
+  }
+  
+  @Test
+  public void testSlowLogRetried() throws IOException {
+    List<DfsLogger> loggers = loggers(2);
+    DfsLogger slow = loggers.get(0);
+    for (int i = 0; i < 20; i++)
+      slow.syncFinished(SLOW_SYNC);
+    
+    // the slow log is passed over while it is chosen recently...
+    long now = slow.getLastChosenTime();
+    assertSame(loggers.get(1), TabletServerLogger.chooseLogger(loggers, 0, now));
+    assertSame(loggers.get(1), TabletServerLogger.chooseLogger(loggers, 0, now + 500));
+    
+    // ...and tried again once it has not been chosen for a while
+    assertSame(slow, TabletServerLogger.chooseLogger(loggers, 0, now + 2000));
+    assertEquals(now + 2000, slow.getLastChosenTime());
+    assertSame(loggers.get(1), TabletServerLogger.chooseLogger(loggers, 0, now + 2500));
+  }
+  
+  @Test
+  public void testStuckSync() throws IOException {
+    List<DfsLogger> loggers = loggers(2);
+    DfsLogger stuck = loggers.get(0);
+    
+    // a sync that has not returned makes the log slow before the sync time is known
+    stuck.syncStarted();
+    UtilWaitThread.sleep(20);
+    
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < 4; i++) {
+      assertSame(loggers.get(1), TabletServerLogger.chooseLogger(loggers, i, now));
+      // and it is not tried again while it is stuck
+      assertSame(loggers.get(1), TabletServerLogger.chooseLogger(loggers, i, now + 10000 * (i + 1)));
+    }
+    
+    stuck.syncFinished(FAST_SYNC);
+    assertSame(stuck, TabletServerLogger.chooseLogger(loggers, 0, now));
+  }
+  
+  @Test
+  public void testAllSlow() throws IOException {
+    List<DfsLogger> loggers = loggers(2);
+    for (DfsLogger logger : loggers)
+      logger.syncStarted();
+    UtilWaitThread.sleep(20);
+    
+    // when every log is slow the commit still goes somewhere
+    DfsLogger first = TabletServerLogger.chooseLogger(loggers, 0, System.currentTimeMillis());
+    DfsLogger second = TabletServerLogger.chooseLogger(loggers, 1, System.currentTimeMillis());
+    assertNotSame(first, second);
+  }
+}
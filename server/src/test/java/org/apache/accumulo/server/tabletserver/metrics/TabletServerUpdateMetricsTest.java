@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.server.tabletserver.metrics;
+
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.accumulo.server.tabletserver.metrics.TabletServerUpdateMetrics.Phase;
+
+public class TabletServerUpdateMetricsTest extends TestCase {
+  
+  private static class TestMetrics extends TabletServerUpdateMetrics {
+    long now = System.currentTimeMillis();
+    
+    @Override
+    long currentTimeMillis() {
+      return now;
+    }
+  }
+  
+  private static long count(List<Long> counts) {
+    long total = 0;
+    for (Long c : counts)
+      total += c;
+    return total;
+  }
+  
+  public void testPhasesNotEnteredLeftOut() {
+    TestMetrics metrics = new TestMetrics();
+    assertNull(metrics.getPhaseCounts("1"));
+    metrics.addPhaseTime("1", Phase.HOLD_WAIT, 10);
+    metrics.addPhaseTime("1", Phase.CONSTRAINTS, 100);
+    Map<String,List<Long>> counts = metrics.getPhaseCounts("1");
+    assertEquals(2, counts.size());
+    assertEquals(1, count(counts.get(Phase.HOLD_WAIT.getName())));
+    assertEquals(1, count(counts.get(Phase.CONSTRAINTS.getName())));
+    assertNull(counts.get(Phase.MEMTABLE.getName()));
+  }
+  
+  public void testWindows() {
+    TestMetrics metrics = new TestMetrics();
+    metrics.addPhaseTime("1", Phase.MEMTABLE, 100);
+    metrics.addPhaseTime("2", Phase.MEMTABLE, 100);
+    
+    // the previous window is still reported
+    metrics.now += TabletServerUpdateMetrics.PHASE_WINDOW_MILLIS;
+    metrics.addPhaseTime("1", Phase.MEMTABLE, 100000);
+    assertEquals(2, count(metrics.getPhaseCounts("1").get(Phase.MEMTABLE.getName())));
+    assertEquals(1, count(metrics.getPhaseCounts("2").get(Phase.MEMTABLE.getName())));
+    
+    // a table that is no longer written ages out, and old times stop counting toward the percentiles
+    metrics.now += TabletServerUpdateMetrics.PHASE_WINDOW_MILLIS;
+    assertNull(metrics.getPhaseCounts("2"));
+    List<Long> counts = metrics.getPhaseCounts("1").get(Phase.MEMTABLE.getName());
+    assertEquals(1, count(counts));
+    assertEquals(0l, (long) counts.get(7));
+    
+    metrics.now += 2 * TabletServerUpdateMetrics.PHASE_WINDOW_MILLIS;
+    assertNull(metrics.getPhaseCounts("1"));
+  }
+}
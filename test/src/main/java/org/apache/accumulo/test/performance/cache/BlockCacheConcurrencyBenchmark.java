@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test.performance.cache;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.file.blockfile.cache.BlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.LruBlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.ShardedBlockCache;
+
+/**
+ * Measures the throughput of concurrent readers against {@link LruBlockCache} and {@link ShardedBlockCache} with 1, 8, 32 and 64 threads.
+ * 
+ * <p>
+ * Each reader looks up blocks drawn from a skewed distribution over a working set larger than the cache and caches the block on a miss, as RFile readers do, so
+ * the caches are under steady eviction pressure. The hit ratio and the size of the cache relative to its maximum at the end of each run are reported along with
+ * the throughput. The size is sampled during the run and the largest value is reported, since a cache that falls behind on eviction holds more blocks than it
+ * should and gets an unfair hit ratio.
+ * 
+ * <p>
+ * Usage: BlockCacheConcurrencyBenchmark [cacheSizeMB [blockSizeKB [secondsPerRun]]]
+ */
+public class BlockCacheConcurrencyBenchmark {
+  
+  private static final int[] THREAD_COUNTS = new int[] {1, 8, 32, 64};
+  
+  private static long currentSize(BlockCache cache) {
+    if (cache instanceof LruBlockCache)
+      return ((LruBlockCache) cache).getCurrentSize();
+    return ((ShardedBlockCache) cache).getCurrentSize();
+  }
+  
+  private static BlockCache createCache(String type, long cacheSize, long blockSize) {
+    if (type.equals("lru"))
+      return new LruBlockCache(cacheSize, blockSize);
+    return new ShardedBlockCache(cacheSize, blockSize);
+  }
+  
+  /**
+   * @return operations per second and the largest sampled cache size
+   */
+  private static long[] run(final BlockCache cache, int numThreads, final int numBlocks, final int blockSize, long millis) throws InterruptedException {
+    final AtomicLong operations = new AtomicLong(0);
+    final CountDownLatch start = new CountDownLatch(1);
+    final long[] stopTime = new long[1];
+    
+    Thread[] threads = new Thread[numThreads];
+    for (int t = 0; t < numThreads; t++) {
+      final int seed = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          Random rand = new Random(seed);
+          byte[] block = new byte[blockSize];
+          long ops = 0;
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+          
+          while (System.currentTimeMillis() < stopTime[0]) {
+            for (int i = 0; i < 1000; i++) {
+              // squaring a uniform value skews reads toward the low numbered blocks
+              double r = rand.nextDouble();
+              String name = "file" + (int) (r * r * numBlocks);
+              if (cache.getBlock(name) == null)
+                cache.cacheBlock(name, block);
+            }
+            ops += 1000;
+          }
+          operations.addAndGet(ops);
+        }
+      };
+      threads[t].start();
+    }
+    
+    long t1 = System.currentTimeMillis();
+    stopTime[0] = t1 + millis;
+    start.countDown();
+    
+    long maxSize = 0;
+    while (System.currentTimeMillis() < stopTime[0]) {
+      maxSize = Math.max(maxSize, currentSize(cache));
+      Thread.sleep(10);
+    }
+    
+    for (Thread thread : threads)
+      thread.join();
+    long t2 = System.currentTimeMillis();
+    
+    return new long[] {operations.get() * 1000 / Math.max(1, t2 - t1), Math.max(maxSize, currentSize(cache))};
+  }
+  
+  public static void main(String[] args) throws Exception {
+    long cacheSize = (args.length > 0 ? Long.parseLong(args[0]) : 256) * 1024 * 1024;
+    int blockSize = (args.length > 1 ? Integer.parseInt(args[1]) : 64) * 1024;
+    long millis = (args.length > 2 ? Long.parseLong(args[2]) : 10) * 1000;
+    
+    // the working set is twice the size of the cache
+    int numBlocks = (int) (2 * cacheSize / blockSize);
+    
+    System.out.printf("cache size %,d, block size %,d, blocks %,d, %,d ms per run, %d cpus%n", cacheSize, blockSize, numBlocks, millis, Runtime.getRuntime()
+        .availableProcessors());
+    System.out.printf("%8s %8s %15s %10s %10s%n", "cache", "threads", "ops/sec", "hit ratio", "peak/max");
+    
+    for (String type : new String[] {"lru", "sharded"}) {
+      for (int numThreads : THREAD_COUNTS) {
+        BlockCache cache = createCache(type, cacheSize, blockSize);
+        // warm the cache before timing
+        run(cache, numThreads, numBlocks, blockSize, millis / 5);
+        long hits = cache.getStats().getHitCount();
+        long requests = cache.getStats().getRequestCount();
+        
+        long[] result = run(cache, numThreads, numBlocks, blockSize, millis);
+        
+        double hitRatio = (double) (cache.getStats().getHitCount() - hits) / Math.max(1, cache.getStats().getRequestCount() - requests);
+        double sizeRatio = (double) result[1] / cache.getMaxSize();
+        System.out.printf("%8s %8d %,15d %10.3f %10.3f%n", type, numThreads, result[0], hitRatio, sizeRatio);
+        cache.shutdown();
+      }
+    }
+  }
+}
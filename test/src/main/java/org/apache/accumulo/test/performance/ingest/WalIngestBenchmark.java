@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test.performance.ingest;
+
+import static org.apache.accumulo.server.logger.LogEvents.MANY_MUTATIONS;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.data.thrift.TMutation;
+import org.apache.accumulo.core.util.ByteBufferUtil;
+import org.apache.accumulo.server.data.ServerMutation;
+import org.apache.accumulo.server.logger.LogFileKey;
+import org.apache.accumulo.server.logger.LogFileValue;
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TCompactProtocol;
+
+/**
+ * Measures the tablet server's path from a mutation arriving over thrift to it being written to a write-ahead log, comparing the copy of each mutation's
+ * bytes the server used to make with the current path that keeps the arrays thrift read the mutation into.
+ * 
+ * <p>
+ * Each mutation is deserialized from its compact protocol form, as the tablet server receives it, turned into a {@link ServerMutation} and written to a log
+ * stream that discards its output. For each path the throughput, the bytes copied out of the thrift buffers and the bytes allocated per mutation are reported.
+ * The bytes allocated are only available on JVMs that can report per thread allocation.
+ * 
+ * <p>
+ * Usage: WalIngestBenchmark [mutations [valueSize [rounds]]]
+ */
+public class WalIngestBenchmark {
+  
+  private static class CountingOutputStream extends OutputStream {
+    long count = 0;
+    
+    @Override
+    public void write(int b) {
+      count++;
+    }
+    
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+  }
+  
+  private static long allocatedBytes() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean)
+      return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    return -1;
+  }
+  
+  private static List<byte[]> createMutations(int count, int valueSize) throws Exception {
+    Random rand = new Random(42);
+    TSerializer serializer = new TSerializer(new TCompactProtocol.Factory());
+    List<byte[]> serialized = new ArrayList<byte[]>(count);
+    for (int i = 0; i < count; i++) {
+      Mutation m = new Mutation(String.format("row_%010d", rand.nextInt(Integer.MAX_VALUE)));
+      for (int c = 0; c < 4; c++) {
+        byte[] value = new byte[valueSize];
+        rand.nextBytes(value);
+        m.put("cf" + c, "cq" + c, new Value(value));
+      }
+      serialized.add(serializer.serialize(m.toThrift()));
+    }
+    return serialized;
+  }
+  
+  /**
+   * Copies the mutation's buffers the way the tablet server did before it kept thrift's arrays.
+   */
+  private static long copyBuffers(TMutation tm) {
+    long copied = tm.row.remaining() + tm.data.remaining();
+    tm.row = ByteBuffer.wrap(ByteBufferUtil.toBytes(tm.row));
+    tm.data = ByteBuffer.wrap(ByteBufferUtil.toBytes(tm.data));
+    if (tm.values != null) {
+      for (int i = 0; i < tm.values.size(); i++) {
+        copied += tm.values.get(i).remaining();
+        tm.values.set(i, ByteBuffer.wrap(ByteBufferUtil.toBytes(tm.values.get(i))));
+      }
+    }
+    return copied;
+  }
+  
+  /**
+   * @return elapsed nanoseconds, bytes copied, bytes allocated and bytes logged
+   */
+  private static long[] run(List<byte[]> serialized, boolean copy) throws Exception {
+    TDeserializer deserializer = new TDeserializer(new TCompactProtocol.Factory());
+    CountingOutputStream sink = new CountingOutputStream();
+    DataOutputStream out = new DataOutputStream(sink);
+    LogFileKey key = new LogFileKey();
+    key.event = MANY_MUTATIONS;
+    key.seq = 1;
+    key.tid = 1;
+    LogFileValue value = new LogFileValue();
+    List<Mutation> batch = new ArrayList<Mutation>(1);
+    
+    long copied = 0;
+    long a1 = allocatedBytes();
+    long t1 = System.nanoTime();
+    for (byte[] bytes : serialized) {
+      TMutation tm = new TMutation();
+      deserializer.deserialize(tm, bytes);
+      if (copy)
+        copied += copyBuffers(tm);
+      ServerMutation m = new ServerMutation(tm);
+      m.setSystemTimestamp(t1);
+      batch.clear();
+      batch.add(m);
+      value.mutations = batch;
+      write(out, key, value);
+    }
+    long t2 = System.nanoTime();
+    long a2 = allocatedBytes();
+    
+    return new long[] {t2 - t1, copied, a1 < 0 ? -1 : a2 - a1, sink.count};
+  }
+  
+  private static void write(DataOutputStream out, LogFileKey key, LogFileValue value) throws IOException {
+    key.write(out);
+    value.write(out);
+  }
+  
+  public static void main(String[] args) throws Exception {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    int valueSize = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+    int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+    
+    List<byte[]> serialized = createMutations(count, valueSize);
+    
+    System.out.printf("mutations %,d, 4 columns of %,d byte values, %d rounds%n", count, valueSize, rounds);
+    System.out.printf("%8s %15s %15s %15s %15s%n", "path", "mutations/sec", "copied/mut", "allocated/mut", "logged/mut");
+    
+    for (int round = 0; round < rounds; round++) {
+      for (boolean copy : new boolean[] {true, false}) {
+        long[] result = run(serialized, copy);
+        System.out.printf("%8s %,15d %,15d %,15d %,15d%n", copy ? "copy" : "shared", count * 1000000000l / Math.max(1, result[0]), result[1] / count,
+            result[2] < 0 ? -1 : result[2] / count, result[3] / count);
+      }
+    }
+  }
+}
@@ -57,9 +57,12 @@ import org.apache.accumulo.core.iterators.IteratorUtil;
 import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.accumulo.core.iterators.system.BatchAdapter;
+import org.apache.accumulo.core.iterators.system.BatchBufferIterator;
 import org.apache.accumulo.core.iterators.system.ColumnFamilySkippingIterator;
 import org.apache.accumulo.core.iterators.system.ColumnQualifierFilter;
 import org.apache.accumulo.core.iterators.system.DeletingIterator;
+import org.apache.accumulo.core.iterators.system.KeyValueBatch;
 import org.apache.accumulo.core.iterators.system.MultiIterator;
 import org.apache.accumulo.core.iterators.system.VisibilityFilter;
 import org.apache.accumulo.core.security.Authorizations;
@@ -207,6 +210,41 @@ public class CollectTabletStats {
       runTest("read tablet files w/ table iter stack", tests, opts.numThreads, threadPool);
     }
     
+    for (int i = 0; i < opts.iterations; i++) {
+      
+      ArrayList<Test> tests = new ArrayList<Test>();
+      
+      for (final KeyExtent ke : tabletsToTest) {
+        final List<String> files = tabletFiles.get(ke);
+        Test test = new Test(ke) {
+          public int runTest() throws Exception {
+            return readFilesUsingIterStack(fs, sconf, files, opts.auths, ke, columns, false, true);
+          }
+        };
+        
+        tests.add(test);
+      }
+      
+      runTest("read tablet files w/ system iter stack in batches", tests, opts.numThreads, threadPool);
+    }
+    
+    for (int i = 0; i < opts.iterations; i++) {
+      ArrayList<Test> tests = new ArrayList<Test>();
+      
+      for (final KeyExtent ke : tabletsToTest) {
+        final List<String> files = tabletFiles.get(ke);
+        Test test = new Test(ke) {
+          public int runTest() throws Exception {
+            return readFilesUsingIterStack(fs, sconf, files, opts.auths, ke, columns, true, true);
+          }
+        };
+        
+        tests.add(test);
+      }
+      
+      runTest("read tablet files w/ table iter stack in batches", tests, opts.numThreads, threadPool);
+    }
+    
     for (int i = 0; i < opts.iterations; i++) {
       
       ArrayList<Test> tests = new ArrayList<Test>();
@@ -424,7 +462,7 @@ public class CollectTabletStats {
   
   private static SortedKeyValueIterator<Key,Value> createScanIterator(KeyExtent ke, Collection<SortedKeyValueIterator<Key,Value>> mapfiles,
       Authorizations authorizations, byte[] defaultLabels, HashSet<Column> columnSet, List<IterInfo> ssiList, Map<String,Map<String,String>> ssio,
-      boolean useTableIterators, TableConfiguration conf) throws IOException {
+      boolean useTableIterators, boolean useBatches, TableConfiguration conf) throws IOException {
     
     SortedMapIterator smi = new SortedMapIterator(new TreeMap<Key,Value>());
     
@@ -439,9 +477,13 @@ public class CollectTabletStats {
     ColumnQualifierFilter colFilter = new ColumnQualifierFilter(cfsi, columnSet);
     VisibilityFilter visFilter = new VisibilityFilter(colFilter, authorizations, defaultLabels);
     
+    SortedKeyValueIterator<Key,Value> systemIter = visFilter;
+    if (useBatches)
+      systemIter = new BatchBufferIterator(visFilter);
+    
     if (useTableIterators)
-      return IteratorUtil.loadIterators(IteratorScope.scan, visFilter, ke, conf, ssiList, ssio, null);
-    return visFilter;
+      return IteratorUtil.loadIterators(IteratorScope.scan, systemIter, ke, conf, ssiList, ssio, null);
+    return systemIter;
   }
   
   private static int readFiles(FileSystem fs, AccumuloConfiguration aconf, List<String> files, KeyExtent ke, String[] columns) throws Exception {
@@ -475,6 +517,11 @@ public class CollectTabletStats {
   private static int readFilesUsingIterStack(FileSystem fs, ServerConfiguration aconf, List<String> files, Authorizations auths, KeyExtent ke, String[] columns,
       boolean useTableIterators)
       throws Exception {
+    return readFilesUsingIterStack(fs, aconf, files, auths, ke, columns, useTableIterators, false);
+  }
+  
+  private static int readFilesUsingIterStack(FileSystem fs, ServerConfiguration aconf, List<String> files, Authorizations auths, KeyExtent ke, String[] columns,
+      boolean useTableIterators, boolean useBatches) throws Exception {
     
     SortedKeyValueIterator<Key,Value> reader;
     
@@ -487,7 +534,7 @@ public class CollectTabletStats {
     List<IterInfo> emptyIterinfo = Collections.emptyList();
     Map<String,Map<String,String>> emptySsio = Collections.emptyMap();
     TableConfiguration tconf = aconf.getTableConfiguration(ke.getTableId().toString());
-    reader = createScanIterator(ke, readers,auths, new byte[] {}, new HashSet<Column>(), emptyIterinfo, emptySsio, useTableIterators, tconf);
+    reader = createScanIterator(ke, readers,auths, new byte[] {}, new HashSet<Column>(), emptyIterinfo, emptySsio, useTableIterators, useBatches, tconf);
     
     HashSet<ByteSequence> columnSet = createColumnBSS(columns);
     
@@ -495,6 +542,15 @@ public class CollectTabletStats {
     
     int count = 0;
     
+    if (useBatches) {
+      KeyValueBatch batch = new KeyValueBatch(BatchBufferIterator.DEFAULT_MAX_BATCH_SIZE);
+      while (reader.hasTop()) {
+        batch.clear();
+        count += BatchAdapter.fill(reader, batch);
+      }
+      return count;
+    }
+    
     while (reader.hasTop()) {
       count++;
       reader.next();
@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test.performance.scan;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.system.HeapIterator;
+import org.apache.commons.collections.buffer.PriorityBuffer;
+
+/**
+ * Compares the tournament tree merge in {@link HeapIterator} with the commons-collections {@link PriorityBuffer} merge it replaced, for 2 to 64 sources.
+ * 
+ * <p>
+ * Each source is a sorted array of keys in memory, so the time measured is that of the merge itself and not of reading files. The keys of all sources are drawn
+ * from the same range of rows, as they are for the files of a tablet being major compacted. Every run merges the same total number of entries whatever the
+ * number of sources, and the best of several runs is reported after a warm up.
+ * 
+ * <p>
+ * Usage: MergeIteratorBenchmark [totalEntries [runs]]
+ */
+public class MergeIteratorBenchmark {
+  
+  private static final int[] SOURCE_COUNTS = new int[] {2, 4, 8, 16, 32, 64};
+  
+  private static final Value VALUE = new Value(new byte[0]);
+  
+  /**
+   * A source that iterates over a sorted array of keys.
+   */
+  private static class ArraySource implements SortedKeyValueIterator<Key,Value> {
+    private final Key[] keys;
+    private int pos;
+    
+    ArraySource(Key[] keys) {
+      this.keys = keys;
+    }
+    
+    void reset() {
+      pos = 0;
+    }
+    
+    @Override
+    public boolean hasTop() {
+      return pos < keys.length;
+    }
+    
+    @Override
+    public Key getTopKey() {
+      return keys[pos];
+    }
+    
+    @Override
+    public Value getTopValue() {
+      return VALUE;
+    }
+    
+    @Override
+    public void next() {
+      pos++;
+    }
+    
+    @Override
+    public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options, IteratorEnvironment env) {
+      throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) {
+      throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+      throw new UnsupportedOperationException();
+    }
+  }
+  
+  private interface Merge {
+    void reset(ArraySource[] sources);
+    
+    boolean hasTop();
+    
+    Key getTopKey();
+    
+    void next() throws IOException;
+  }
+  
+  private static class TournamentMerge extends HeapIterator implements Merge {
+    
+    TournamentMerge(int size) {
+      super(size);
+    }
+    
+    @Override
+    public void reset(ArraySource[] sources) {
+      clear();
+      for (ArraySource source : sources)
+        addSource(source);
+    }
+    
+    @Override
+    public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options, IteratorEnvironment env) {
+      throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) {
+      throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+      throw new UnsupportedOperationException();
+    }
+  }
+  
+  /**
+   * The merge HeapIterator used before, kept here as the baseline.
+   */
+  private static class PriorityBufferMerge implements Merge {
+    private PriorityBuffer heap;
+    private SortedKeyValueIterator<Key,Value> currentIter;
+    
+    private static class Index implements Comparable<Index> {
+      SortedKeyValueIterator<Key,Value> iter;
+      
+      public Index(SortedKeyValueIterator<Key,Value> iter) {
+        this.iter = iter;
+      }
+      
+      @Override
+      public int compareTo(Index o) {
+        return iter.getTopKey().compareTo(o.iter.getTopKey());
+      }
+    }
+    
+    PriorityBufferMerge(int size) {
+      heap = new PriorityBuffer(size);
+    }
+    
+    @Override
+    public void reset(ArraySource[] sources) {
+      heap.clear();
+      for (ArraySource source : sources)
+        if (source.hasTop())
+          heap.add(new Index(source));
+      currentIter = heap.size() > 0 ? ((Index) heap.get()).iter : null;
+    }
+    
+    @Override
+    public boolean hasTop() {
+      return heap.size() > 0;
+    }
+    
+    @Override
+    public Key getTopKey() {
+      return currentIter.getTopKey();
+    }
+    
+    @Override
+    public void next() throws IOException {
+      switch (heap.size()) {
+        case 0:
+          throw new IllegalStateException("Called next() when there is no top");
+        case 1:
+          currentIter.next();
+          if (!currentIter.hasTop()) {
+            heap.remove();
+            currentIter = null;
+          }
+          break;
+        default:
+          Index idx = (Index) heap.remove();
+          idx.iter.next();
+          if (idx.iter.hasTop()) {
+            heap.add(idx);
+          }
+          currentIter = ((Index) heap.get()).iter;
+      }
+    }
+  }
+  
+  private static ArraySource[] createSources(int numSources, int totalEntries, Random rand) {
+    ArraySource[] sources = new ArraySource[numSources];
+    int rows = totalEntries / 4;
+    for (int i = 0; i < numSources; i++) {
+      Key[] keys = new Key[totalEntries / numSources];
+      for (int j = 0; j < keys.length; j++)
+        keys[j] = new Key(String.format("r%08d", rand.nextInt(rows)), "cf", String.format("cq%04d", rand.nextInt(10000)), i * (long) keys.length + j);
+      Arrays.sort(keys);
+      sources[i] = new ArraySource(keys);
+    }
+    return sources;
+  }
+  
+  /**
+   * @return the nanoseconds taken to merge all of the sources, along with a checksum that keeps the merge from being optimized away
+   */
+  private static long[] run(Merge merge, ArraySource[] sources) throws IOException {
+    for (ArraySource source : sources)
+      source.reset();
+    long t1 = System.nanoTime();
+    merge.reset(sources);
+    long check = 0;
+    while (merge.hasTop()) {
+      check += merge.getTopKey().getTimestamp();
+      merge.next();
+    }
+    return new long[] {System.nanoTime() - t1, check};
+  }
+  
+  private static long best(Merge merge, ArraySource[] sources, int runs, long expectedCheck) throws IOException {
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < runs; i++) {
+      long[] result = run(merge, sources);
+      if (result[1] != expectedCheck)
+        throw new IllegalStateException("merge produced the wrong entries");
+      best = Math.min(best, result[0]);
+    }
+    return best;
+  }
+  
+  public static void main(String[] args) throws Exception {
+    int totalEntries = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 20;
+    int runs = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    
+    System.out.printf("%,d entries per run, best of %d runs%n", totalEntries, runs);
+    System.out.printf("%8s %16s %16s %8s%n", "sources", "heap ns/entry", "tree ns/entry", "speedup");
+    
+    Random rand = new Random(42);
+    for (int numSources : SOURCE_COUNTS) {
+      ArraySource[] sources = createSources(numSources, totalEntries, rand);
+      int entries = (totalEntries / numSources) * numSources;
+      long expectedCheck = 0;
+      for (ArraySource source : sources)
+        for (Key key : source.keys)
+          expectedCheck += key.getTimestamp();
+      
+      Merge heap = new PriorityBufferMerge(numSources);
+      Merge tree = new TournamentMerge(numSources);
+      
+      // warm up both before timing either
+      best(heap, sources, runs, expectedCheck);
+      best(tree, sources, runs, expectedCheck);
+      
+      long heapNanos = best(heap, sources, runs, expectedCheck);
+      long treeNanos = best(tree, sources, runs, expectedCheck);
+      System.out.printf("%8d %16.1f %16.1f %8.2f%n", numSources, (double) heapNanos / entries, (double) treeNanos / entries, (double) heapNanos / treeNanos);
+    }
+  }
+}
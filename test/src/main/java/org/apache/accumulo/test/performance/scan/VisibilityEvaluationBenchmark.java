@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test.performance.scan;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.accumulo.core.security.CompiledVisibility;
+import org.apache.accumulo.core.security.VisibilityCompiler;
+import org.apache.accumulo.core.security.VisibilityEvaluator;
+
+/**
+ * Compares evaluating parsed visibility expressions with {@link VisibilityEvaluator}, which walks the parse tree and looks each term up in the authorizations,
+ * against evaluating the same expressions compiled by {@link VisibilityCompiler} against a bitset of the authorizations.
+ * 
+ * <p>
+ * Expressions are nested ANDs and ORs of up to the given depth over a pool of terms, of which the user holds about half. Both sides are handed expressions that
+ * are already parsed or compiled, as the shared visibility cache would hand them out, so only evaluation is timed. The best of several runs is reported after a
+ * warm up.
+ * 
+ * <p>
+ * Usage: VisibilityEvaluationBenchmark [numExpressions [runs]]
+ */
+public class VisibilityEvaluationBenchmark {
+  
+  private static final int[] DEPTHS = new int[] {1, 2, 3, 4, 5};
+  private static final int NUM_TERMS = 64;
+  private static final int EVALUATIONS = 2000000;
+  
+  private static String randomExpression(Random rand, int depth) {
+    if (depth == 0)
+      return "term" + rand.nextInt(NUM_TERMS);
+    String op = rand.nextBoolean() ? "&" : "|";
+    int children = 2 + rand.nextInt(3);
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < children; i++) {
+      if (i > 0)
+        sb.append(op);
+      // an occasional leaf keeps the trees from being perfectly balanced
+      if (rand.nextInt(4) == 0)
+        sb.append(randomExpression(rand, 0));
+      else
+        sb.append("(").append(randomExpression(rand, depth - 1)).append(")");
+    }
+    return sb.toString();
+  }
+  
+  private static long timeEvaluator(VisibilityEvaluator evaluator, ColumnVisibility[] expressions, int[] visible) throws Exception {
+    long t1 = System.nanoTime();
+    int count = 0;
+    for (int i = 0; i < EVALUATIONS; i++)
+      if (evaluator.evaluate(expressions[i % expressions.length]))
+        count++;
+    long t2 = System.nanoTime();
+    visible[0] = count;
+    return t2 - t1;
+  }
+  
+  private static long timeCompiled(long[] bits, CompiledVisibility[] expressions, int[] visible) {
+    long t1 = System.nanoTime();
+    int count = 0;
+    for (int i = 0; i < EVALUATIONS; i++)
+      if (expressions[i % expressions.length].evaluate(bits))
+        count++;
+    long t2 = System.nanoTime();
+    visible[0] = count;
+    return t2 - t1;
+  }
+  
+  public static void main(String[] args) throws Exception {
+    int numExpressions = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    int runs = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    
+    Random rand = new Random(42);
+    List<String> held = new ArrayList<String>();
+    for (int i = 0; i < NUM_TERMS; i++)
+      if (rand.nextBoolean())
+        held.add("term" + i);
+    Authorizations auths = new Authorizations(held.toArray(new String[held.size()]));
+    
+    System.out.printf("%,d expressions over %d terms, %d held, %,d evaluations per run, best of %d runs%n", numExpressions, NUM_TERMS, held.size(),
+        EVALUATIONS, runs);
+    System.out.printf("%6s %8s %10s %16s %16s %8s%n", "depth", "terms", "visible", "tree ns/eval", "compiled ns/eval", "speedup");
+    
+    for (int depth : DEPTHS) {
+      VisibilityCompiler compiler = new VisibilityCompiler();
+      ColumnVisibility[] parsed = new ColumnVisibility[numExpressions];
+      CompiledVisibility[] compiled = new CompiledVisibility[numExpressions];
+      long terms = 0;
+      for (int i = 0; i < numExpressions; i++) {
+        parsed[i] = new ColumnVisibility(randomExpression(rand, depth));
+        compiled[i] = compiler.compile(parsed[i]);
+        terms += compiled[i].size();
+      }
+      VisibilityEvaluator evaluator = new VisibilityEvaluator(auths);
+      long[] bits = compiler.toBitSet(auths);
+      
+      int[] treeVisible = new int[1];
+      int[] compiledVisible = new int[1];
+      long treeBest = Long.MAX_VALUE;
+      long compiledBest = Long.MAX_VALUE;
+      // the first runs warm up both
+      for (int i = 0; i < runs + 3; i++) {
+        long treeTime = timeEvaluator(evaluator, parsed, treeVisible);
+        long compiledTime = timeCompiled(bits, compiled, compiledVisible);
+        if (i >= 3) {
+          treeBest = Math.min(treeBest, treeTime);
+          compiledBest = Math.min(compiledBest, compiledTime);
+        }
+      }
+      if (treeVisible[0] != compiledVisible[0])
+        throw new IllegalStateException("evaluations disagree " + treeVisible[0] + " " + compiledVisible[0]);
+      
+      System.out.printf("%6d %8.1f %9.1f%% %16.1f %16.1f %8.2f%n", depth, (double) terms / numExpressions, 100.0 * treeVisible[0] / EVALUATIONS,
+          (double) treeBest / EVALUATIONS, (double) compiledBest / EVALUATIONS, (double) treeBest / compiledBest);
+    }
+  }
+}
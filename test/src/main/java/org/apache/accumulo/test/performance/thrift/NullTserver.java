@@ -118,7 +118,7 @@ public class NullTserver {
     }
     
     @Override
-    public ScanResult continueScan(TInfo tinfo, long scanID) {
+    public ScanResult continueScan(TInfo tinfo, long scanID, int window) {
       return null;
     }
     
@@ -135,7 +135,8 @@ public class NullTserver {
     
     @Override
     public InitialScan startScan(TInfo tinfo, ThriftInstanceTokenWrapper credentials, TKeyExtent extent, TRange range, List<TColumn> columns, int batchSize,
-        List<IterInfo> ssiList, Map<String,Map<String,String>> ssio, List<ByteBuffer> authorizations, boolean waitForWrites, boolean isolated) {
+        List<IterInfo> ssiList, Map<String,Map<String,String>> ssio, List<ByteBuffer> authorizations, boolean waitForWrites, boolean isolated,
+        boolean cacheBlocks) {
       return null;
     }
     
@@ -19,6 +19,7 @@ package org.apache.accumulo.test;
 import java.io.File;
 import java.util.Collections;
 import java.util.Map.Entry;
+import java.util.TreeSet;
 import java.util.UUID;
 
 import org.apache.accumulo.core.client.BatchWriter;
@@ -30,6 +31,7 @@ import org.apache.accumulo.core.client.ZooKeeperInstance;
 import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.LongCombiner;
 import org.apache.accumulo.core.iterators.user.SummingCombiner;
@@ -38,6 +40,7 @@ import org.apache.accumulo.core.security.ColumnVisibility;
 import org.apache.accumulo.core.security.TablePermission;
 import org.apache.accumulo.core.security.tokens.UserPassToken;
 import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.io.Text;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.junit.AfterClass;
@@ -183,6 +186,51 @@ public class MiniAccumuloClusterTest {
 
   }
 
+  @Test(timeout = 60000)
+  public void testStreamingScan() throws Exception {
+    Connector conn = new ZooKeeperInstance(accumulo.getInstanceName(), accumulo.getZookeepers()).getConnector(new UserPassToken("root", "superSecret"));
+    
+    conn.tableOperations().create("table3");
+    
+    TreeSet<Text> splits = new TreeSet<Text>();
+    splits.add(new Text(String.format("%05d", 2500)));
+    splits.add(new Text(String.format("%05d", 7500)));
+    conn.tableOperations().addSplits("table3", splits);
+    
+    BatchWriter bw = conn.createBatchWriter("table3", new BatchWriterConfig());
+    for (int i = 0; i < 10000; i++) {
+      Mutation m = new Mutation(String.format("%05d", i));
+      m.put("cf1", "cq1", "" + i);
+      bw.addMutation(m);
+    }
+    bw.close();
+    
+    for (int window : new int[] {0, 1, 4, 100}) {
+      Scanner scanner = conn.createScanner("table3", new Authorizations());
+      scanner.setBatchSize(17);
+      scanner.setStreamingWindow(window);
+      Assert.assertEquals(window, scanner.getStreamingWindow());
+      
+      int expected = 0;
+      for (Entry<Key,Value> entry : scanner) {
+        Assert.assertEquals(String.format("%05d", expected), entry.getKey().getRowData().toString());
+        Assert.assertEquals("" + expected, entry.getValue().toString());
+        expected++;
+      }
+      Assert.assertEquals(10000, expected);
+      
+      scanner.setRange(new Range(String.format("%05d", 5000), null));
+      expected = 5000;
+      for (Entry<Key,Value> entry : scanner) {
+        Assert.assertEquals(String.format("%05d", expected), entry.getKey().getRowData().toString());
+        expected++;
+      }
+      Assert.assertEquals(10000, expected);
+    }
+    
+    conn.tableOperations().delete("table3");
+  }
+  
   @AfterClass
   public static void tearDownMiniCluster() throws Exception {
     accumulo.stop();